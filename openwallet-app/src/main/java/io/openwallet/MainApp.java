@@ -4,17 +4,22 @@ import io.openwallet.controller.CreateWalletController;
 import io.openwallet.controller.DashboardController;
 import io.openwallet.controller.StartupController;
 import io.openwallet.db.MySQLDatabaseConnection;
+import io.openwallet.db.DatabaseConfig;
 import io.openwallet.db.MySQLTransactionLogDao;
+import io.openwallet.db.MySQLWalletAccountDao;
 import io.openwallet.db.MySQLWalletDao;
 import io.openwallet.db.TransactionLogDao;
+import io.openwallet.db.WalletAccountDao;
 import io.openwallet.db.WalletDao;
 import io.openwallet.service.JsonTokenRepository;
 import io.openwallet.service.DesktopNotificationService;
+import io.openwallet.service.KeystoreService;
 import io.openwallet.service.NetworkManager;
 import io.openwallet.service.NftService;
 import io.openwallet.service.PriceService;
 import io.openwallet.service.TokenRepository;
 import io.openwallet.service.TokenService;
+import io.openwallet.service.TransactionReconciler;
 import io.openwallet.service.WalletService;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -34,8 +39,11 @@ public class MainApp extends Application {
 
     private Stage primaryStage;
     private WalletService walletService;
+    private KeystoreService keystoreService;
     private WalletDao walletDao;
     private TransactionLogDao transactionLogDao;
+    private WalletAccountDao walletAccountDao;
+    private TransactionReconciler transactionReconciler;
     private NetworkManager networkManager;
     private TokenRepository tokenRepository;
     private TokenService tokenService;
@@ -64,10 +72,20 @@ public class MainApp extends Application {
         MySQLDatabaseConnection dbConnection = MySQLDatabaseConnection.getInstance();
         this.walletDao = new MySQLWalletDao(dbConnection);
         this.transactionLogDao = new MySQLTransactionLogDao(dbConnection);
-        this.walletService = new WalletService(walletDao, transactionLogDao, networkManager);
+        this.walletAccountDao = new MySQLWalletAccountDao(dbConnection);
+        this.walletService = new WalletService(walletDao, transactionLogDao, networkManager, walletAccountDao);
+        this.keystoreService = new KeystoreService(walletDao);
         this.tokenService = new TokenService(networkManager, walletService, transactionLogDao);
         this.priceService = new PriceService(networkManager);
         this.nftService = new NftService(networkManager);
+        this.transactionReconciler = new TransactionReconciler(
+                networkManager,
+                transactionLogDao,
+                DatabaseConfig.getTxReconcilePageSize(),
+                DatabaseConfig.getTxReconcileMaxInFlight(),
+                DatabaseConfig.getTxReconcileDropAfterMinutes() * 60_000L
+        );
+        transactionReconciler.start(DatabaseConfig.getTxReconcileIntervalSeconds() * 1000L);
         this.notificationService = new DesktopNotificationService("OpenWallet", "/io/openwallet/images/icon.png");
 
         if (walletDao.getAll().isEmpty()) {
@@ -79,6 +97,12 @@ public class MainApp extends Application {
 
     @Override
     public void stop() {
+        if (transactionReconciler != null) {
+            transactionReconciler.close();
+        }
+        if (walletService != null) {
+            walletService.lockAll();
+        }
         try {
             if (notificationService != null) {
                 notificationService.shutdown();
@@ -334,6 +358,10 @@ public class MainApp extends Application {
         return walletService;
     }
 
+    public KeystoreService getKeystoreService() {
+        return keystoreService;
+    }
+
     public NetworkManager getNetworkManager() {
         return networkManager;
     }
@@ -373,6 +401,10 @@ public class MainApp extends Application {
         return transactionLogDao;
     }
 
+    public WalletAccountDao getWalletAccountDao() {
+        return walletAccountDao;
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
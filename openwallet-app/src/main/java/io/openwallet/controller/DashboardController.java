@@ -33,6 +33,7 @@ public class DashboardController {
     private WalletService walletService;
     private io.openwallet.service.NetworkManager networkManager;
     private io.openwallet.service.PriceService priceService;
+    private AutoCloseable headSubscription;
 
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
@@ -82,19 +83,8 @@ public class DashboardController {
 
             // Fetch real balance
             balanceLabel.setText("Loading...");
-            walletService.getBalance(profile.getWalletAddress())
-                    .thenAccept(balance -> {
-                        Platform.runLater(() -> {
-                            balanceLabel.setText(String.format("%.4f ETH", balance));
-                        });
-                    })
-                    .exceptionally(ex -> {
-                        Platform.runLater(() -> {
-                            balanceLabel.setText("Error");
-                            ex.printStackTrace();
-                        });
-                        return null;
-                    });
+            refreshBalance(profile.getWalletAddress());
+            watchHeads(profile.getWalletAddress());
 
             if (priceLabel != null && priceService != null) {
                 priceLabel.setText("");
@@ -108,6 +98,50 @@ public class DashboardController {
         }
     }
 
+    private void refreshBalance(String address) {
+        walletService.getBalance(address)
+                .thenAccept(balance -> {
+                    Platform.runLater(() -> {
+                        balanceLabel.setText(String.format("%.4f ETH", balance));
+                    });
+                })
+                .exceptionally(ex -> {
+                    Platform.runLater(() -> {
+                        balanceLabel.setText("Error");
+                        ex.printStackTrace();
+                    });
+                    return null;
+                });
+    }
+
+    /**
+     * Refreshes the balance on every new block while this view is showing.
+     */
+    private void watchHeads(String address) {
+        stopWatchingHeads();
+        if (networkManager == null) {
+            return;
+        }
+        headSubscription = networkManager.onNewHead(networkManager.getActiveNetworkId(), head -> Platform.runLater(() -> {
+            if (balanceLabel.getScene() == null || balanceLabel.getScene().getWindow() == null) {
+                // Navigated away: the scene was replaced.
+                stopWatchingHeads();
+                return;
+            }
+            refreshBalance(address);
+        }));
+    }
+
+    private void stopWatchingHeads() {
+        if (headSubscription != null) {
+            try {
+                headSubscription.close();
+            } catch (Exception ignored) {
+            }
+            headSubscription = null;
+        }
+    }
+
     private void loadTransactions(String address) {
         // Run in background to avoid freezing UI
         new Thread(() -> {
@@ -123,6 +157,7 @@ public class DashboardController {
 
     @FXML
     private void handleLogout() {
+        mainApp.getWalletService().lock(walletNameLabel.getText());
         mainApp.showLogin();
     }
 
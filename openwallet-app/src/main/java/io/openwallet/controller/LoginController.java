@@ -65,8 +65,8 @@ public class LoginController {
         }
 
         try {
-            // Attempt to decrypt private key to verify password
-            mainApp.getWalletService().getPrivateKey(selectedProfile.getProfileName(), password);
+            // Decrypting the key verifies the password and opens the signing session
+            mainApp.getWalletService().unlock(selectedProfile.getProfileName(), password);
             
             // If successful, load dashboard
             if (mainApp.getNotificationService() != null) {
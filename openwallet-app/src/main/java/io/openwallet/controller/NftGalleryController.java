@@ -2,6 +2,8 @@ package io.openwallet.controller;
 
 import io.openwallet.MainApp;
 import io.openwallet.db.WalletDao;
+import io.openwallet.http.HttpResult;
+import io.openwallet.http.HttpStack;
 import io.openwallet.model.WalletProfile;
 import io.openwallet.service.NftService;
 import javafx.application.Platform;
@@ -13,13 +15,9 @@ import javafx.scene.layout.TilePane;
 import javafx.scene.layout.VBox;
 
 import java.io.ByteArrayInputStream;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class NftGalleryController {
 
@@ -30,12 +28,10 @@ public class NftGalleryController {
     private WalletDao walletDao;
     private NftService nftService;
 
-        private final HttpClient httpClient = HttpClient.newBuilder()
-            .followRedirects(HttpClient.Redirect.NORMAL)
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+    private HttpStack httpStack;
 
-        private static final String DEFAULT_PLACEHOLDER_IMAGE = "https://placehold.co/512x512.png";
+    private static final String DEFAULT_PLACEHOLDER_IMAGE = "https://placehold.co/512x512.png";
+    private static volatile Image placeholderImage;
 
     private enum StatusTone { INFO, SUCCESS, ERROR, MUTED }
 
@@ -45,6 +41,7 @@ public class NftGalleryController {
         this.mainApp = mainApp;
         this.walletDao = mainApp.getWalletDao();
         this.nftService = mainApp.getNftService();
+        this.httpStack = mainApp.getNetworkManager().getHttpStack();
     }
 
     public void setProfileName(String profileName) {
@@ -187,64 +184,54 @@ public class NftGalleryController {
             }
         }
 
-        try {
-            // Try JavaFX's built-in loader first.
-            Image fxImage = new Image(url, true);
-            imageView.setImage(fxImage);
-
-            fxImage.errorProperty().addListener((obs, wasError, isError) -> {
-                if (Boolean.TRUE.equals(isError)) {
-                    // Fallback: fetch bytes ourselves (some hosts behave better with explicit UA/redirects).
-                    fetchAndSetImageBytes(imageView, url);
-                }
-            });
-        } catch (Exception ignored) {
-            fetchAndSetImageBytes(imageView, url);
-        }
+        fetchAndSetImageBytes(imageView, url);
     }
 
     private void setPlaceholder(ImageView imageView) {
-        try {
-            Image img = new Image(DEFAULT_PLACEHOLDER_IMAGE, true);
-            imageView.setImage(img);
-        } catch (Exception ignored) {
+        Image cached = placeholderImage;
+        if (cached != null) {
+            imageView.setImage(cached);
+            return;
         }
+        fetchImage(DEFAULT_PLACEHOLDER_IMAGE).thenAccept(img -> {
+            if (img != null) {
+                placeholderImage = img;
+                Platform.runLater(() -> imageView.setImage(img));
+            }
+        });
     }
 
     private void fetchAndSetImageBytes(ImageView imageView, String url) {
-        new Thread(() -> {
-            try {
-                HttpRequest req = HttpRequest.newBuilder()
-                        .uri(URI.create(url))
-                        .timeout(Duration.ofSeconds(20))
-                        .header("User-Agent", "OpenWallet")
-                        .GET()
-                        .build();
-
-                HttpResponse<byte[]> resp = httpClient.send(req, HttpResponse.BodyHandlers.ofByteArray());
-                if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-                    Platform.runLater(() -> setPlaceholder(imageView));
-                    return;
-                }
-
-                byte[] bytes = resp.body();
-                if (bytes == null || bytes.length == 0) {
-                    Platform.runLater(() -> setPlaceholder(imageView));
-                    return;
-                }
+        // Images load over the shared HTTP stack: pooled connections, per-host limits, no thread per image.
+        fetchImage(url).thenAccept(img -> Platform.runLater(() -> {
+            if (img == null) {
+                setPlaceholder(imageView);
+            } else {
+                imageView.setImage(img);
+            }
+        }));
+    }
 
-                Image img = new Image(new ByteArrayInputStream(bytes));
-                Platform.runLater(() -> {
-                    if (img.isError() || img.getWidth() <= 0) {
-                        setPlaceholder(imageView);
-                    } else {
-                        imageView.setImage(img);
+    /**
+     * Downloads and decodes an image off the FX thread; completes with {@code null} if it cannot be shown.
+     */
+    private CompletableFuture<Image> fetchImage(String url) {
+        CompletableFuture<HttpResult> download;
+        try {
+            download = httpStack.getAsync(url, "nft.image");
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return download
+                .thenApply(resp -> {
+                    byte[] bytes = resp.bodyBytes();
+                    if (!resp.isSuccessful() || bytes.length == 0) {
+                        return null;
                     }
-                });
-            } catch (Exception ignored) {
-                Platform.runLater(() -> setPlaceholder(imageView));
-            }
-        }).start();
+                    Image img = new Image(new ByteArrayInputStream(bytes));
+                    return img.isError() || img.getWidth() <= 0 ? null : img;
+                })
+                .exceptionally(ex -> null);
     }
 
     private String rootMessage(Throwable t) {
@@ -4,6 +4,7 @@ import io.openwallet.MainApp;
 import io.openwallet.exception.InsufficientFundsException;
 import io.openwallet.exception.OpenWalletException;
 import io.openwallet.service.DesktopNotificationService;
+import io.openwallet.service.TransactionHandle;
 import io.openwallet.service.WalletService;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -13,7 +14,7 @@ import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 
 import java.math.BigDecimal;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class SendTransactionController {
 
@@ -68,60 +69,62 @@ public class SendTransactionController {
         statusLabel.setStyle("-fx-text-fill: #3498db;");
         sendBtn.setDisable(true);
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                String txHash = walletService.sendTransaction(currentProfileName, password, recipient, amount);
-                Platform.runLater(() -> {
-                    statusLabel.setText("Success! Tx Hash: " + txHash);
-                    statusLabel.setStyle("-fx-text-fill: #2ecc71;");
-                    sendBtn.setDisable(false);
-                    if (mainApp.getNotificationService() != null) {
-                        mainApp.getNotificationService().info(
-                                "Transaction sent",
-                                amount.toPlainString() + " ETH → " + shortenAddress(recipient) + "\n" + txHash
-                        );
-                    }
-                    // Optionally clear fields or navigate back
-                });
-            } catch (InsufficientFundsException e) {
-                Platform.runLater(() -> {
-                    statusLabel.setText("Error: Insufficient funds.");
-                    statusLabel.setStyle("-fx-text-fill: #e74c3c;");
-                    sendBtn.setDisable(false);
-                    if (mainApp.getNotificationService() != null) {
-                        mainApp.getNotificationService().error(
-                                "Transaction failed",
-                                "Insufficient funds."
-                        );
-                    }
-                });
-            } catch (OpenWalletException e) {
-                Platform.runLater(() -> {
-                    statusLabel.setText("Error: " + e.getMessage());
-                    statusLabel.setStyle("-fx-text-fill: #e74c3c;");
-                    sendBtn.setDisable(false);
-                    if (mainApp.getNotificationService() != null) {
-                        mainApp.getNotificationService().error(
-                                "Transaction failed",
-                                e.getMessage()
-                        );
-                    }
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    statusLabel.setText("Error: " + e.getMessage());
-                    statusLabel.setStyle("-fx-text-fill: #e74c3c;");
-                    sendBtn.setDisable(false);
-                    e.printStackTrace();
-                    if (mainApp.getNotificationService() != null) {
-                        mainApp.getNotificationService().error(
-                                "Transaction failed",
-                                e.getMessage()
-                        );
-                    }
-                });
+        // Signing and broadcast run on the wallet's send executor; the receipt is tracked by the shared poller.
+        TransactionHandle handle = walletService.sendTransactionAsync(currentProfileName, password, recipient, amount);
+
+        handle.broadcast().whenComplete((txHash, error) -> Platform.runLater(() -> {
+            sendBtn.setDisable(false);
+            if (error != null) {
+                showSendError(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                return;
+            }
+            statusLabel.setText("Sent! Waiting to be mined... Tx Hash: " + txHash);
+            statusLabel.setStyle("-fx-text-fill: #3498db;");
+            if (mainApp.getNotificationService() != null) {
+                mainApp.getNotificationService().info(
+                        "Transaction sent",
+                        amount.toPlainString() + " ETH → " + shortenAddress(recipient) + "\n" + txHash
+                );
             }
-        });
+        }));
+
+        handle.included().thenAccept(receipt -> Platform.runLater(() -> {
+            if (receipt.isStatusOK()) {
+                statusLabel.setText("Success! Included in block " + receipt.getBlockNumber() + ". Tx Hash: " + receipt.getTransactionHash());
+                statusLabel.setStyle("-fx-text-fill: #2ecc71;");
+            } else {
+                statusLabel.setText("Transaction reverted in block " + receipt.getBlockNumber() + ". Tx Hash: " + receipt.getTransactionHash());
+                statusLabel.setStyle("-fx-text-fill: #e74c3c;");
+                if (mainApp.getNotificationService() != null) {
+                    mainApp.getNotificationService().error("Transaction failed", receipt.getTransactionHash());
+                }
+            }
+        }));
+
+        handle.confirmed().thenAccept(receipt -> Platform.runLater(() -> {
+            if (receipt.isStatusOK() && mainApp.getNotificationService() != null) {
+                mainApp.getNotificationService().info(
+                        "Transaction confirmed",
+                        amount.toPlainString() + " ETH → " + shortenAddress(recipient)
+                                + " (" + handle.getConfirmations() + " confirmations)"
+                );
+            }
+        }));
+    }
+
+    private void showSendError(Throwable e) {
+        String message = e instanceof InsufficientFundsException ? "Insufficient funds." : e.getMessage();
+        statusLabel.setText("Error: " + message);
+        statusLabel.setStyle("-fx-text-fill: #e74c3c;");
+        if (!(e instanceof OpenWalletException)) {
+            e.printStackTrace();
+        }
+        if (mainApp.getNotificationService() != null) {
+            mainApp.getNotificationService().error(
+                    "Transaction failed",
+                    message
+            );
+        }
     }
 
     private String shortenAddress(String addr) {
@@ -18,6 +18,7 @@ import javafx.scene.input.Clipboard;
 import javafx.scene.input.ClipboardContent;
 import javafx.scene.layout.VBox;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -122,24 +123,35 @@ public class SettingsController {
         statusLabel.setStyle("-fx-text-fill: #3498db;");
 
         new Thread(() -> {
+            char[] chars = password.toCharArray();
             try {
-                String rawKey = walletService.getPrivateKey(profileName, password);
-                String displayKey = normalizePrivateKeyForDisplay(rawKey);
-
-                Platform.runLater(() -> showPrivateKeyDialog(displayKey));
+                char[] privateKey = walletService.getPrivateKey(profileName, chars);
+                Platform.runLater(() -> {
+                    try {
+                        showPrivateKeyDialog(privateKey);
+                    } finally {
+                        Arrays.fill(privateKey, '\0');
+                    }
+                });
             } catch (Exception e) {
                 Platform.runLater(() -> {
                     statusLabel.setText("Error: " + e.getMessage());
                     statusLabel.setStyle("-fx-text-fill: #e74c3c;");
                 });
+            } finally {
+                Arrays.fill(chars, '\0');
             }
         }).start();
     }
 
-    private void showPrivateKeyDialog(String privateKey) {
+    /**
+     * Shows the key until the dialog closes. The text area and clipboard only take Strings, so the key exists
+     * as one while it is on screen; the caller zeroes {@code privateKey} afterwards.
+     */
+    private void showPrivateKeyDialog(char[] privateKey) {
         statusLabel.setText("");
 
-        TextArea area = new TextArea(privateKey);
+        TextArea area = new TextArea(new String(privateKey));
         area.setEditable(false);
         area.setWrapText(true);
         area.setStyle("-fx-font-family: 'Monospaced';");
@@ -156,28 +168,11 @@ public class SettingsController {
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == copy) {
             ClipboardContent clip = new ClipboardContent();
-            clip.putString(privateKey);
+            clip.putString(area.getText());
             Clipboard.getSystemClipboard().setContent(clip);
             statusLabel.setText("Private key copied to clipboard.");
             statusLabel.setStyle("-fx-text-fill: #2ecc71;");
         }
-    }
-
-    private String normalizePrivateKeyForDisplay(String rawKey) {
-        if (rawKey == null) {
-            return "";
-        }
-
-        String key = rawKey.trim();
-        if (key.startsWith("0x") || key.startsWith("0X")) {
-            key = key.substring(2);
-        }
-
-        // Left-pad to 32 bytes (64 hex chars) for readability/interop.
-        if (key.length() < 64) {
-            key = "0".repeat(64 - key.length()) + key;
-        }
-
-        return "0x" + key.toLowerCase();
+        area.clear();
     }
 }
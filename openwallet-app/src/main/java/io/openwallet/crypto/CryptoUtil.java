@@ -1,98 +1,347 @@
 package io.openwallet.crypto;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import de.mkammerer.argon2.Argon2;
-import de.mkammerer.argon2.Argon2Factory;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
 
+/**
+ * AES-256-GCM encryption of private keys under a password-derived key.
+ *
+ * The JSON methods read and write the {@link EncryptedData} envelope kept in {@code wallet_profiles};
+ * {@link #encryptToJson} and {@link #decryptToBytes(String, char[])} do so from {@code byte[]} plaintext and a
+ * {@code char[]} password. The {@code byte[]}/{@link ByteBuffer} {@code encrypt} and {@code decrypt} methods
+ * use the same envelope in a fixed binary layout, never turn the password or plaintext into a {@code String},
+ * and zero every intermediate buffer they own:
+ *
+ * <pre>
+ * offset  size  field
+ *      0     2  magic "OW"
+ *      2     1  envelope version ({@link EncryptedData#CURRENT_VERSION})
+ *      3     1  KDF: 1 = argon2id, 2 = pbkdf2-sha256
+ *      4     4  iterations (big-endian)
+ *      8     4  memory in KiB (big-endian, 0 for PBKDF2)
+ *     12     1  parallelism
+ *     13    16  salt
+ *     29    12  IV
+ *     41     n  ciphertext followed by the 16-byte GCM tag
+ * </pre>
+ *
+ * Cipher and SecureRandom instances are kept per thread instead of created on every call. The derived AES key
+ * lives in one array that is zeroed as soon as its operation finishes, and the thread's cipher is then re-keyed
+ * with a dummy key so it does not hold on to the real key schedule.
+ */
 public class CryptoUtil {
 
-    private static final int AES_KEY_SIZE = 256;
     private static final int GCM_IV_LENGTH = 12;
     private static final int GCM_TAG_LENGTH = 128;
     private static final int SALT_LENGTH = 16;
 
-    // Argon2 parameters
-    private static final int ARGON2_ITERATIONS = 3;
-    private static final int ARGON2_MEMORY = 65536;
-    private static final int ARGON2_PARALLELISM = 1;
+    private static final byte MAGIC_0 = 'O';
+    private static final byte MAGIC_1 = 'W';
+    private static final byte KDF_ARGON2ID = 1;
+    private static final byte KDF_PBKDF2 = 2;
+    private static final int SALT_OFFSET = 13;
+    private static final int IV_OFFSET = SALT_OFFSET + SALT_LENGTH;
+    /** Size of the binary envelope before the ciphertext. */
+    public static final int HEADER_LENGTH = IV_OFFSET + GCM_IV_LENGTH;
+    public static final int TAG_LENGTH = GCM_TAG_LENGTH / 8;
 
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+    private static final ThreadLocal<Cipher> AES_GCM = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM is not available", e);
+        }
+    });
+    private static final SecretKey SCRUB_KEY = new SecretKeySpec(new byte[32], "AES");
+    private static final GCMParameterSpec SCRUB_IV = new GCMParameterSpec(GCM_TAG_LENGTH, new byte[GCM_IV_LENGTH]);
+
+    /** One AES-GCM operation on a cipher already initialised with the derived key. */
+    private interface CipherOperation<T> {
+        T apply(Cipher cipher) throws GeneralSecurityException;
+    }
+
+    /**
+     * Encrypts with an Argon2id key whose costs are calibrated for this machine ({@link KdfParams#defaults()}).
+     */
     public static String encrypt(String plainText, String password) throws Exception {
-        // 1. Generate Salt
-        byte[] salt = new byte[SALT_LENGTH];
-        new SecureRandom().nextBytes(salt);
+        return encrypt(plainText, password, KdfParams.defaults());
+    }
 
-        // 2. Derive Key using Argon2
-        SecretKey key = deriveKey(password, salt);
+    /**
+     * Encrypts with a key derived by {@code kdf}; the parameters are stored with the ciphertext.
+     */
+    public static String encrypt(String plainText, String password, KdfParams kdf) throws Exception {
+        byte[] plain = plainText.getBytes(StandardCharsets.UTF_8);
+        char[] chars = password.toCharArray();
+        try {
+            return encryptToJson(plain, chars, kdf);
+        } finally {
+            Arrays.fill(plain, (byte) 0);
+            Arrays.fill(chars, '\0');
+        }
+    }
 
-        // 3. Generate IV
+    /**
+     * Like {@link #encrypt(String, String, KdfParams)}, without turning the plaintext or password into a
+     * {@code String}. Neither argument is modified.
+     */
+    public static String encryptToJson(byte[] plainText, char[] password, KdfParams kdf) throws Exception {
+        // 1. Generate Salt and IV
+        byte[] salt = new byte[SALT_LENGTH];
         byte[] iv = new byte[GCM_IV_LENGTH];
-        new SecureRandom().nextBytes(iv);
+        SecureRandom random = RANDOM.get();
+        random.nextBytes(salt);
+        random.nextBytes(iv);
 
-        // 4. Encrypt using AES-GCM
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-        GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-        cipher.init(Cipher.ENCRYPT_MODE, key, spec);
+        // 2. Derive Key and 3. Encrypt using AES-GCM
+        byte[] cipherText = withKey(Cipher.ENCRYPT_MODE, password, salt, kdf, iv, cipher -> cipher.doFinal(plainText));
 
-        byte[] cipherText = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-
-        // 5. Construct EncryptedData object
+        // 4. Construct EncryptedData object
         EncryptedData data = new EncryptedData(
                 Base64.getEncoder().encodeToString(salt),
                 Base64.getEncoder().encodeToString(iv),
-                Base64.getEncoder().encodeToString(cipherText)
+                Base64.getEncoder().encodeToString(cipherText),
+                kdf
         );
 
         return objectMapper.writeValueAsString(data);
     }
 
     public static String decrypt(String json, String password) throws Exception {
+        byte[] plainText = decryptToBytes(json, password);
+        try {
+            return new String(plainText, StandardCharsets.UTF_8);
+        } finally {
+            Arrays.fill(plainText, (byte) 0);
+        }
+    }
+
+    /**
+     * Like {@link #decrypt} but returns the raw plaintext, which the caller should zero once done with it.
+     */
+    public static byte[] decryptToBytes(String json, String password) throws Exception {
+        char[] chars = password.toCharArray();
+        try {
+            return decryptToBytes(json, chars);
+        } finally {
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    /**
+     * Like {@link #decryptToBytes(String, String)} with a {@code char[]} password, which is not modified.
+     */
+    public static byte[] decryptToBytes(String json, char[] password) throws Exception {
         // 1. Parse JSON
         EncryptedData data = objectMapper.readValue(json, EncryptedData.class);
+        checkVersion(data.getFormatVersion());
+        if (data.getCipher() != null && !EncryptedData.AES_256_GCM.equals(data.getCipher())) {
+            throw new IllegalArgumentException("Unsupported cipher " + data.getCipher());
+        }
 
         byte[] salt = Base64.getDecoder().decode(data.getSalt());
         byte[] iv = Base64.getDecoder().decode(data.getIv());
         byte[] cipherText = Base64.getDecoder().decode(data.getCipherText());
 
-        // 2. Derive Key
-        SecretKey key = deriveKey(password, salt);
+        // 2. Derive Key with the parameters it was encrypted with and 3. Decrypt
+        return withKey(Cipher.DECRYPT_MODE, password, salt, data.getKdfParams(), iv, cipher -> cipher.doFinal(cipherText));
+    }
 
-        // 3. Decrypt
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-        GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-        cipher.init(Cipher.DECRYPT_MODE, key, spec);
+    /**
+     * Length of the binary envelope for {@code plainLength} bytes of plaintext.
+     */
+    public static int envelopeLength(int plainLength) {
+        return HEADER_LENGTH + plainLength + TAG_LENGTH;
+    }
 
-        byte[] plainText = cipher.doFinal(cipherText);
-        return new String(plainText, StandardCharsets.UTF_8);
+    /**
+     * Encrypts {@code plainText} into a new binary envelope. Neither argument is modified.
+     */
+    public static byte[] encrypt(byte[] plainText, char[] password, KdfParams kdf) throws GeneralSecurityException {
+        ByteBuffer out = ByteBuffer.allocate(envelopeLength(plainText.length));
+        encrypt(ByteBuffer.wrap(plainText), password, kdf, out);
+        return out.array();
     }
 
-    private static SecretKey deriveKey(String password, byte[] salt) {
-        Argon2 argon2 = Argon2Factory.create();
-        try {
-            
-            return deriveKeyPBKDF2(password, salt);
-        } finally {
-            argon2.wipeArray(password.toCharArray());
+    /**
+     * Decrypts a binary envelope. The caller zeroes the returned plaintext once done with it.
+     */
+    public static byte[] decrypt(byte[] envelope, char[] password) throws GeneralSecurityException {
+        if (envelope.length < HEADER_LENGTH + TAG_LENGTH) {
+            throw new IllegalArgumentException("Envelope too short: " + envelope.length + " bytes");
         }
+        byte[] plain = new byte[envelope.length - HEADER_LENGTH - TAG_LENGTH];
+        decrypt(ByteBuffer.wrap(envelope), password, ByteBuffer.wrap(plain));
+        return plain;
     }
 
-    private static SecretKey deriveKeyPBKDF2(String password, byte[] salt) {
+    /**
+     * Encrypts the remaining bytes of {@code plainText} and writes the binary envelope to {@code out}, which
+     * needs {@link #envelopeLength} bytes free. Both buffers are advanced; if anything fails, {@code out} is left
+     * where it was. Apart from the salt and IV, the only allocations are the ones the KDF and JCE make internally.
+     * @return the number of bytes written.
+     */
+    public static int encrypt(ByteBuffer plainText, char[] password, KdfParams kdf, ByteBuffer out)
+            throws GeneralSecurityException {
+        int start = out.position();
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        SecureRandom random = RANDOM.get();
+        random.nextBytes(salt);
+        random.nextBytes(iv);
+
+        // The key is derived before anything is written, so a failing KDF leaves out untouched.
+        return withKey(Cipher.ENCRYPT_MODE, password, salt, kdf, iv, cipher -> {
+            try {
+                out.put(MAGIC_0).put(MAGIC_1).put((byte) EncryptedData.CURRENT_VERSION);
+                out.put(KdfParams.ARGON2ID.equals(kdf.getAlgorithm()) ? KDF_ARGON2ID : KDF_PBKDF2);
+                out.putInt(kdf.getIterations()).putInt(kdf.getMemoryKiB()).put((byte) kdf.getParallelism());
+                out.put(salt).put(iv);
+                cipher.doFinal(plainText, out);
+            } catch (GeneralSecurityException | RuntimeException e) {
+                out.position(start);
+                throw e;
+            }
+            return out.position() - start;
+        });
+    }
+
+    /**
+     * Decrypts the binary envelope in the remaining bytes of {@code envelope} into {@code out}. On a wrong
+     * password or tampered data an {@code AEADBadTagException} is thrown and {@code out} is left zeroed.
+     * @return the number of plaintext bytes written.
+     */
+    public static int decrypt(ByteBuffer envelope, char[] password, ByteBuffer out) throws GeneralSecurityException {
+        if (envelope.remaining() < HEADER_LENGTH + TAG_LENGTH
+                || envelope.get() != MAGIC_0 || envelope.get() != MAGIC_1) {
+            throw new IllegalArgumentException("Not an OpenWallet key envelope");
+        }
+        checkVersion(envelope.get());
+        byte kdfId = envelope.get();
+        int iterations = envelope.getInt();
+        int memoryKiB = envelope.getInt();
+        int parallelism = envelope.get() & 0xff;
+        KdfParams kdf;
+        if (kdfId == KDF_ARGON2ID) {
+            kdf = KdfParams.argon2id(iterations, memoryKiB, parallelism);
+        } else if (kdfId == KDF_PBKDF2) {
+            kdf = KdfParams.pbkdf2(iterations);
+        } else {
+            throw new IllegalArgumentException("Unsupported KDF id " + kdfId);
+        }
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        envelope.get(salt).get(iv);
+
+        int start = out.position();
+        return withKey(Cipher.DECRYPT_MODE, password, salt, kdf, iv, cipher -> {
+            try {
+                return cipher.doFinal(envelope, out);
+            } catch (GeneralSecurityException | RuntimeException e) {
+                for (int i = start; i < out.position(); i++) {
+                    out.put(i, (byte) 0);
+                }
+                out.position(start);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Whether a blob should be re-encrypted: it predates the current envelope version or its KDF is
+     * {@linkplain KdfParams#isWeakerThan weaker} than {@code target}. Unreadable blobs are left alone.
+     */
+    public static boolean needsRehash(String json, KdfParams target) {
         try {
-            javax.crypto.SecretKeyFactory factory = javax.crypto.SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-            java.security.spec.KeySpec spec = new javax.crypto.spec.PBEKeySpec(password.toCharArray(), salt, 65536, AES_KEY_SIZE);
-            SecretKey tmp = factory.generateSecret(spec);
-            return new SecretKeySpec(tmp.getEncoded(), "AES");
+            EncryptedData data = objectMapper.readValue(json, EncryptedData.class);
+            return data.getFormatVersion() < EncryptedData.CURRENT_VERSION || data.getKdfParams().isWeakerThan(target);
         } catch (Exception e) {
-            throw new RuntimeException("Error deriving key", e);
+            return false;
+        }
+    }
+
+    private static void checkVersion(int version) {
+        if (version < EncryptedData.VERSION_1 || version > EncryptedData.CURRENT_VERSION) {
+            throw new IllegalArgumentException("Unsupported keystore version " + version);
+        }
+    }
+
+    /**
+     * Derives the key, runs {@code operation} with this thread's cipher keyed by it, then zeroes the key and
+     * re-keys the cipher with {@link #SCRUB_KEY}.
+     */
+    private static <T> T withKey(int mode, char[] password, byte[] salt, KdfParams kdf, byte[] iv,
+                                 CipherOperation<T> operation) throws GeneralSecurityException {
+        AesKey key = new AesKey(kdf.deriveKey(password, salt));
+        Cipher cipher = AES_GCM.get();
+        try {
+            cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+            return operation.apply(cipher);
+        } finally {
+            key.destroy();
+            try {
+                // Decrypt mode: GCM refuses to encrypt twice with the same key and IV.
+                cipher.init(Cipher.DECRYPT_MODE, SCRUB_KEY, SCRUB_IV);
+            } catch (GeneralSecurityException e) {
+                AES_GCM.remove();
+            }
+        }
+    }
+
+    /**
+     * AES key over an array this class owns; {@link #destroy()} zeroes it. Unlike {@link SecretKeySpec}, no
+     * copy outlives the operation except the ones the JCE takes (and clears) while keying the cipher.
+     */
+    private static final class AesKey implements SecretKey {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] raw;
+        private volatile boolean destroyed;
+
+        AesKey(byte[] raw) {
+            this.raw = raw;
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return "AES";
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            if (destroyed) {
+                throw new IllegalStateException("Key has been destroyed");
+            }
+            return raw.clone();
+        }
+
+        @Override
+        public void destroy() {
+            Arrays.fill(raw, (byte) 0);
+            destroyed = true;
+        }
+
+        @Override
+        public boolean isDestroyed() {
+            return destroyed;
         }
     }
 }
@@ -1,12 +1,37 @@
 package io.openwallet.crypto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Envelope of an encrypted key as stored in {@code wallet_profiles.encrypted_json}.
+ *
+ * Version 2 records the cipher and the KDF with its parameters, so costs can change without breaking stored
+ * keys. Blobs without a version are version 1 and decrypt with whatever KDF fields they carry, or legacy PBKDF2
+ * when they have none.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class EncryptedData {
+    public static final int VERSION_1 = 1;
+    public static final int CURRENT_VERSION = 2;
+    public static final String AES_256_GCM = "aes-256-gcm";
+
+    private Integer version;
+    private String cipher;
     private String salt;
     private String iv;
     private String cipherText;
     private String mac; // Optional, GCM handles auth tag usually appended to cipherText, but explicit field can be useful if separated.
                         // For standard Java GCM, tag is appended. We'll stick to salt, iv, cipherText (Base64 encoded).
 
+    // KDF the key was derived with. Absent in blobs written before it was recorded, which all used legacy PBKDF2.
+    private String kdf;
+    private Integer iterations;
+    private Integer memoryKiB;
+    private Integer parallelism;
+
     public EncryptedData() {}
 
     public EncryptedData(String salt, String iv, String cipherText) {
@@ -15,6 +40,25 @@ public class EncryptedData {
         this.cipherText = cipherText;
     }
 
+    public EncryptedData(String salt, String iv, String cipherText, KdfParams kdfParams) {
+        this(salt, iv, cipherText);
+        this.version = CURRENT_VERSION;
+        this.cipher = AES_256_GCM;
+        setKdfParams(kdfParams);
+    }
+
+    public Integer getVersion() { return version; }
+    public void setVersion(Integer version) { this.version = version; }
+
+    public String getCipher() { return cipher; }
+    public void setCipher(String cipher) { this.cipher = cipher; }
+
+    /** Envelope version, 1 for blobs written before it was recorded. */
+    @JsonIgnore
+    public int getFormatVersion() {
+        return version != null ? version : VERSION_1;
+    }
+
     public String getSalt() { return salt; }
     public void setSalt(String salt) { this.salt = salt; }
 
@@ -23,4 +67,49 @@ public class EncryptedData {
 
     public String getCipherText() { return cipherText; }
     public void setCipherText(String cipherText) { this.cipherText = cipherText; }
+
+    public String getKdf() { return kdf; }
+    public void setKdf(String kdf) { this.kdf = kdf; }
+
+    public Integer getIterations() { return iterations; }
+    public void setIterations(Integer iterations) { this.iterations = iterations; }
+
+    public Integer getMemoryKiB() { return memoryKiB; }
+    public void setMemoryKiB(Integer memoryKiB) { this.memoryKiB = memoryKiB; }
+
+    public Integer getParallelism() { return parallelism; }
+    public void setParallelism(Integer parallelism) { this.parallelism = parallelism; }
+
+    /**
+     * The recorded KDF, or legacy PBKDF2 when none was recorded.
+     */
+    @JsonIgnore
+    public KdfParams getKdfParams() {
+        if (kdf == null) {
+            return KdfParams.legacyPbkdf2();
+        }
+        if (KdfParams.ARGON2ID.equals(kdf)) {
+            return KdfParams.argon2id(required(iterations), required(memoryKiB), required(parallelism));
+        }
+        if (KdfParams.PBKDF2.equals(kdf)) {
+            return KdfParams.pbkdf2(required(iterations));
+        }
+        throw new IllegalArgumentException("Unsupported KDF: " + kdf);
+    }
+
+    @JsonIgnore
+    public void setKdfParams(KdfParams params) {
+        this.kdf = params.getAlgorithm();
+        this.iterations = params.getIterations();
+        boolean argon2 = KdfParams.ARGON2ID.equals(params.getAlgorithm());
+        this.memoryKiB = argon2 ? params.getMemoryKiB() : null;
+        this.parallelism = argon2 ? params.getParallelism() : null;
+    }
+
+    private int required(Integer value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter for KDF " + kdf);
+        }
+        return value;
+    }
 }
@@ -0,0 +1,66 @@
+package io.openwallet.crypto;
+
+import org.web3j.crypto.Bip32ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.MnemonicUtils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * BIP-44 Ethereum key chain ({@code m/44'/60'/0'/0/i}) for one seed.
+ *
+ * The hardened part of the path is derived once and kept as the parent node, so each account costs a single
+ * non-hardened child derivation instead of a full walk from the seed.
+ */
+public class HdKeyChain {
+
+    public static final String BASE_PATH = "m/44'/60'/0'/0";
+
+    private static final int[] PARENT_PATH = {
+            44 | Bip32ECKeyPair.HARDENED_BIT,
+            60 | Bip32ECKeyPair.HARDENED_BIT,
+            0 | Bip32ECKeyPair.HARDENED_BIT,
+            0
+    };
+
+    private final Bip32ECKeyPair parent;
+
+    public HdKeyChain(Bip32ECKeyPair masterKey) {
+        this.parent = Bip32ECKeyPair.deriveKeyPair(masterKey, PARENT_PATH);
+    }
+
+    public static HdKeyChain fromMnemonic(String mnemonic) {
+        byte[] seed = MnemonicUtils.generateSeed(mnemonic, null);
+        return new HdKeyChain(Bip32ECKeyPair.generateKeyPair(seed));
+    }
+
+    public Bip32ECKeyPair deriveKeyPair(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Account index must be non-negative: " + index);
+        }
+        return Bip32ECKeyPair.deriveKeyPair(parent, new int[]{index});
+    }
+
+    /**
+     * Lower-case {@code 0x} address of account {@code index}, as {@code Credentials#getAddress()} returns it.
+     */
+    public String deriveAddress(int index) {
+        return "0x" + Keys.getAddress(deriveKeyPair(index).getPublicKey());
+    }
+
+    /**
+     * Addresses of accounts {@code fromIndex .. fromIndex + count - 1}, derived in parallel and returned in index order.
+     */
+    public List<String> deriveAddresses(int fromIndex, int count) {
+        return IntStream.range(fromIndex, fromIndex + count)
+                .parallel()
+                .mapToObj(this::deriveAddress)
+                .collect(Collectors.toList());
+    }
+
+    public static String pathOf(int index) {
+        return BASE_PATH + "/" + index;
+    }
+}
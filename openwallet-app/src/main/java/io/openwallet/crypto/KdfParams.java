@@ -0,0 +1,222 @@
+package io.openwallet.crypto;
+
+import de.mkammerer.argon2.Argon2Advanced;
+import de.mkammerer.argon2.Argon2Factory;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Password KDF and its cost parameters, as stored next to each encrypted key.
+ *
+ * New keys use Argon2id with costs picked by {@link #calibrate} for this machine; {@link #legacyPbkdf2()}
+ * describes keys written before the KDF was recorded, so they still decrypt.
+ */
+public final class KdfParams {
+
+    public static final String ARGON2ID = "argon2id";
+    public static final String PBKDF2 = "pbkdf2-sha256";
+
+    public static final long DEFAULT_TARGET_MILLIS = 250;
+    public static final int DEFAULT_MAX_MEMORY_KIB = 256 * 1024;
+
+    /** OWASP's smallest recommended Argon2id setting (19 MiB, 2 passes); calibration never goes below it. */
+    static final int MIN_MEMORY_KIB = 19 * 1024;
+    static final int MIN_ITERATIONS_AT_MIN_MEMORY = 2;
+    private static final int MAX_PARALLELISM = 4;
+    /**
+     * Largest costs a stored envelope may ask for, a small margin over anything {@link #calibrate} produces.
+     * Envelopes are read before the password is checked, so a crafted or imported blob must not be able to
+     * make unlock allocate more than the default memory ceiling or run for more than a few seconds.
+     */
+    static final int MAX_MEMORY_KIB = DEFAULT_MAX_MEMORY_KIB;
+    static final int MAX_ITERATIONS = 32;
+    static final int MAX_LANES = 16;
+    static final int MAX_PBKDF2_ITERATIONS = 1_000_000;
+    private static final int LEGACY_PBKDF2_ITERATIONS = 65536;
+    private static final int KEY_LENGTH = 32;
+
+    private static KdfParams calibrated;
+    private static long calibratedTarget;
+    private static int calibratedMaxMemory;
+
+    private final String algorithm;
+    private final int iterations;
+    private final int memoryKiB;
+    private final int parallelism;
+
+    private KdfParams(String algorithm, int iterations, int memoryKiB, int parallelism) {
+        this.algorithm = algorithm;
+        this.iterations = iterations;
+        this.memoryKiB = memoryKiB;
+        this.parallelism = parallelism;
+    }
+
+    public static KdfParams argon2id(int iterations, int memoryKiB, int parallelism) {
+        if (iterations < 1 || iterations > MAX_ITERATIONS || parallelism < 1 || parallelism > MAX_LANES
+                || memoryKiB < 8 * parallelism || memoryKiB > MAX_MEMORY_KIB) {
+            throw new IllegalArgumentException("Invalid Argon2id parameters: t=" + iterations
+                    + " m=" + memoryKiB + " p=" + parallelism);
+        }
+        return new KdfParams(ARGON2ID, iterations, memoryKiB, parallelism);
+    }
+
+    public static KdfParams pbkdf2(int iterations) {
+        if (iterations < 1 || iterations > MAX_PBKDF2_ITERATIONS) {
+            throw new IllegalArgumentException("Invalid PBKDF2 iteration count: " + iterations);
+        }
+        return new KdfParams(PBKDF2, iterations, 0, 1);
+    }
+
+    /** PBKDF2-HMAC-SHA256 with 65536 iterations, which every key written before Argon2id was wired in uses. */
+    public static KdfParams legacyPbkdf2() {
+        return pbkdf2(LEGACY_PBKDF2_ITERATIONS);
+    }
+
+    /**
+     * Argon2id parameters calibrated with the defaults (about 250 ms, at most 256 MiB), measured once per process.
+     */
+    public static KdfParams defaults() {
+        return calibrated(DEFAULT_TARGET_MILLIS, DEFAULT_MAX_MEMORY_KIB);
+    }
+
+    /**
+     * Like {@link #calibrate}, but remembers the result so the benchmark runs once per process and setting.
+     */
+    public static synchronized KdfParams calibrated(long targetMillis, int maxMemoryKiB) {
+        if (calibrated == null || calibratedTarget != targetMillis || calibratedMaxMemory != maxMemoryKiB) {
+            calibrated = calibrate(targetMillis, maxMemoryKiB);
+            calibratedTarget = targetMillis;
+            calibratedMaxMemory = maxMemoryKiB;
+        }
+        return calibrated;
+    }
+
+    /**
+     * Benchmarks Argon2id on this machine and returns the costs that make one derivation take about
+     * {@code targetMillis}.
+     *
+     * Memory is preferred over passes: memory grows up to {@code maxMemoryKiB} first, then extra passes use up
+     * the rest of the budget. One lane per core, up to four. A machine too slow to reach the minimum (19 MiB,
+     * 2 passes) within the target still gets the minimum, so unlock is slower there rather than weaker.
+     */
+    public static KdfParams calibrate(long targetMillis, int maxMemoryKiB) {
+        int parallelism = Math.max(1, Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+        int maxMemory = Math.min(MAX_MEMORY_KIB, Math.max(MIN_MEMORY_KIB, maxMemoryKiB));
+
+        // The first call pays for loading the native library; time a second one.
+        KdfParams probe = argon2id(1, MIN_MEMORY_KIB, parallelism);
+        time(probe);
+        double nanosPerKiBPass = (double) time(probe) / MIN_MEMORY_KIB;
+
+        double budget = targetMillis * 1_000_000.0 / nanosPerKiBPass;
+        int memory = (int) Math.max(MIN_MEMORY_KIB, Math.min(maxMemory, budget));
+        int iterations = (int) Math.max(1, Math.round(budget / memory));
+        KdfParams params = bounded(iterations, memory, parallelism);
+
+        // The small probe fits in cache better than a large setting does; correct the estimate from a real run.
+        if (memory > MIN_MEMORY_KIB) {
+            double ratio = targetMillis / Math.max(1.0, time(params) / 1_000_000.0);
+            if (iterations > 1 || (memory == maxMemory && ratio > 1)) {
+                iterations = (int) Math.max(1, Math.min(iterations * 2L, Math.round(iterations * ratio)));
+            } else {
+                memory = (int) Math.max(MIN_MEMORY_KIB, Math.min(maxMemory, memory * ratio));
+            }
+            params = bounded(iterations, memory, parallelism);
+        }
+        return params;
+    }
+
+    private static KdfParams bounded(int iterations, int memoryKiB, int parallelism) {
+        if (memoryKiB <= MIN_MEMORY_KIB) {
+            iterations = Math.max(MIN_ITERATIONS_AT_MIN_MEMORY, iterations);
+        }
+        iterations = Math.min(MAX_ITERATIONS, iterations);
+        return argon2id(iterations, memoryKiB, parallelism);
+    }
+
+    private static long time(KdfParams params) {
+        char[] password = "calibration".toCharArray();
+        long start = System.nanoTime();
+        byte[] key = params.deriveKey(password, new byte[16]);
+        long elapsed = System.nanoTime() - start;
+        Arrays.fill(key, (byte) 0);
+        return elapsed;
+    }
+
+    /**
+     * 256-bit key for {@code password} and {@code salt}. The caller zeroes both the password and the result.
+     */
+    public byte[] deriveKey(char[] password, byte[] salt) {
+        if (ARGON2ID.equals(algorithm)) {
+            return Argon2Holder.ARGON2.pbkdf(iterations, memoryKiB, parallelism, password,
+                    StandardCharsets.UTF_8, salt, KEY_LENGTH);
+        }
+        if (PBKDF2.equals(algorithm)) {
+            PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_LENGTH * 8);
+            try {
+                return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            } catch (Exception e) {
+                throw new IllegalStateException("Error deriving key", e);
+            } finally {
+                spec.clearPassword();
+            }
+        }
+        throw new IllegalStateException("Unsupported KDF: " + algorithm);
+    }
+
+    /**
+     * Whether keys derived with these parameters are noticeably cheaper to attack than with {@code other}:
+     * PBKDF2 is weaker than any Argon2id setting, and Argon2id is weaker when its memory, or memory times
+     * passes, is under three quarters of {@code other}'s. The slack keeps small differences between
+     * calibration runs from re-encrypting keys on every unlock; stronger keys are never downgraded.
+     */
+    public boolean isWeakerThan(KdfParams other) {
+        if (!ARGON2ID.equals(other.algorithm)) {
+            return PBKDF2.equals(algorithm) && iterations * 4L < other.iterations * 3L;
+        }
+        if (!ARGON2ID.equals(algorithm)) {
+            return true;
+        }
+        return memoryKiB * 4L < other.memoryKiB * 3L
+                || (long) memoryKiB * iterations * 4 < (long) other.memoryKiB * other.iterations * 3;
+    }
+
+    public String getAlgorithm() { return algorithm; }
+
+    public int getIterations() { return iterations; }
+
+    public int getMemoryKiB() { return memoryKiB; }
+
+    public int getParallelism() { return parallelism; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof KdfParams)) {
+            return false;
+        }
+        KdfParams k = (KdfParams) o;
+        return algorithm.equals(k.algorithm) && iterations == k.iterations && memoryKiB == k.memoryKiB
+                && parallelism == k.parallelism;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(algorithm, iterations, memoryKiB, parallelism);
+    }
+
+    @Override
+    public String toString() {
+        return ARGON2ID.equals(algorithm)
+                ? algorithm + "(t=" + iterations + ", m=" + memoryKiB + "KiB, p=" + parallelism + ")"
+                : algorithm + "(" + iterations + ")";
+    }
+
+    /** Loads the native Argon2 library on first use only, so PBKDF2 keys decrypt even where it is missing. */
+    private static final class Argon2Holder {
+        private static final Argon2Advanced ARGON2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+    }
+}
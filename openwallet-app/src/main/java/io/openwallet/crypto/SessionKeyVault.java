@@ -0,0 +1,236 @@
+package io.openwallet.crypto;
+
+import io.openwallet.exception.AuthenticationException;
+import io.openwallet.rpc.DaemonThreadFactory;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.ECKeyPair;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Decrypted private keys of unlocked profiles, kept for the length of a session.
+ *
+ * Keys live in direct (off-heap) buffers that are overwritten with zeros when a session is locked or expires,
+ * and they are only handed out as short-lived {@link Credentials} inside {@link #withCredentials}. A session
+ * ends after {@code idleMillis} without use or {@code ttlMillis} after unlock, whichever comes first;
+ * a value of 0 disables that limit.
+ *
+ * A session unlocked with a password also keeps a salted Argon2id hash of it at the smallest cost calibration
+ * allows (19 MiB, 2 passes), so a caller can still demand the password for each use without paying for the
+ * full unlock KDF again. A fast hash would not do here: whoever can read the heap could brute-force it far
+ * faster than the stored envelope.
+ */
+public class SessionKeyVault implements AutoCloseable {
+
+    public static final int KEY_LENGTH = 32;
+
+    /**
+     * Work done with an unlocked key; the credentials must not outlive the call.
+     */
+    @FunctionalInterface
+    public interface SigningCallback<T> {
+        T apply(Credentials credentials) throws Exception;
+    }
+
+    private static final class Session {
+        private final ByteBuffer key = ByteBuffer.allocateDirect(KEY_LENGTH);
+        private final byte[] salt = new byte[16];
+        private byte[] passwordDigest;
+        private final long unlockedAtNanos;
+        private volatile long lastUsedNanos;
+        private boolean wiped;
+
+        private Session(long now) {
+            this.unlockedAtNanos = now;
+            this.lastUsedNanos = now;
+        }
+
+        private synchronized void wipe() {
+            for (int i = 0; i < KEY_LENGTH; i++) {
+                key.put(i, (byte) 0);
+            }
+            if (passwordDigest != null) {
+                Arrays.fill(passwordDigest, (byte) 0);
+            }
+            wiped = true;
+        }
+    }
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final KdfParams PASSWORD_HASH =
+            KdfParams.argon2id(KdfParams.MIN_ITERATIONS_AT_MIN_MEMORY, KdfParams.MIN_MEMORY_KIB, 1);
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long idleNanos;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final ScheduledExecutorService sweeper;
+
+    public SessionKeyVault(long idleMillis, long ttlMillis) {
+        this(idleMillis, ttlMillis, System::nanoTime, true);
+    }
+
+    SessionKeyVault(long idleMillis, long ttlMillis, LongSupplier nanoClock, boolean sweep) {
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, idleMillis));
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMillis));
+        this.nanoClock = nanoClock;
+        long shortest = Math.min(idleMillis > 0 ? idleMillis : Long.MAX_VALUE, ttlMillis > 0 ? ttlMillis : Long.MAX_VALUE);
+        if (sweep && shortest != Long.MAX_VALUE) {
+            // Expired keys are also dropped on access; the sweeper makes sure they don't linger in memory meanwhile.
+            long period = Math.max(250, Math.min(30_000, shortest / 2));
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("openwallet-vault"));
+            this.sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweeper = null;
+        }
+    }
+
+    /**
+     * Starts (or restarts) the session for {@code profileName}. The big-endian key in {@code privateKey}
+     * is copied off-heap and the array is zeroed.
+     */
+    public void unlock(String profileName, byte[] privateKey) {
+        unlock(profileName, privateKey, null);
+    }
+
+    /**
+     * Like {@link #unlock(String, byte[])}, and remembers {@code password} (not modified) for
+     * {@link #withCredentials(String, char[], SigningCallback)}.
+     */
+    public void unlock(String profileName, byte[] privateKey, char[] password) {
+        try {
+            if (privateKey == null || privateKey.length != KEY_LENGTH) {
+                throw new IllegalArgumentException("Private key must be " + KEY_LENGTH + " bytes");
+            }
+            Session session = new Session(nanoClock.getAsLong());
+            session.key.put(0, privateKey);
+            if (password != null) {
+                RANDOM.nextBytes(session.salt);
+                session.passwordDigest = PASSWORD_HASH.deriveKey(password, session.salt);
+            }
+            Session previous = sessions.put(profileName, session);
+            if (previous != null) {
+                previous.wipe();
+            }
+        } finally {
+            if (privateKey != null) {
+                Arrays.fill(privateKey, (byte) 0);
+            }
+        }
+    }
+
+    public boolean isUnlocked(String profileName) {
+        return live(profileName) != null;
+    }
+
+    /**
+     * Runs {@code callback} with the profile's credentials and refreshes the idle timer.
+     *
+     * @throws AuthenticationException if the profile is locked or its session has expired
+     */
+    public <T> T withCredentials(String profileName, SigningCallback<T> callback) throws Exception {
+        Session session = live(profileName);
+        if (session == null) {
+            throw new AuthenticationException("Wallet is locked. Please enter your password.");
+        }
+        byte[] raw = new byte[KEY_LENGTH];
+        try {
+            synchronized (session) {
+                if (session.wiped) {
+                    throw new AuthenticationException("Wallet is locked. Please enter your password.");
+                }
+                session.key.get(0, raw);
+            }
+            session.lastUsedNanos = nanoClock.getAsLong();
+            return callback.apply(Credentials.create(ECKeyPair.create(raw)));
+        } finally {
+            Arrays.fill(raw, (byte) 0);
+        }
+    }
+
+    /**
+     * Like {@link #withCredentials(String, SigningCallback)}, but only if {@code password} is the one the
+     * session was unlocked with.
+     *
+     * @throws AuthenticationException if the profile is locked or the password does not match
+     */
+    public <T> T withCredentials(String profileName, char[] password, SigningCallback<T> callback) throws Exception {
+        Session session = live(profileName);
+        if (session == null) {
+            throw new AuthenticationException("Wallet is locked. Please enter your password.");
+        }
+        byte[] supplied = password != null ? PASSWORD_HASH.deriveKey(password, session.salt) : null;
+        try {
+            if (supplied == null || session.passwordDigest == null
+                    || !MessageDigest.isEqual(supplied, session.passwordDigest)) {
+                throw new AuthenticationException("Incorrect password.");
+            }
+        } finally {
+            if (supplied != null) {
+                Arrays.fill(supplied, (byte) 0);
+            }
+        }
+        return withCredentials(profileName, callback);
+    }
+
+    public void lock(String profileName) {
+        Session session = sessions.remove(profileName);
+        if (session != null) {
+            session.wipe();
+        }
+    }
+
+    public void lockAll() {
+        for (String profileName : sessions.keySet()) {
+            lock(profileName);
+        }
+    }
+
+    /**
+     * Locks every expired session.
+     */
+    void sweep() {
+        long now = nanoClock.getAsLong();
+        sessions.forEach((profileName, session) -> {
+            if (expired(session, now) && sessions.remove(profileName, session)) {
+                session.wipe();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        lockAll();
+    }
+
+    private Session live(String profileName) {
+        Session session = sessions.get(profileName);
+        if (session == null) {
+            return null;
+        }
+        if (expired(session, nanoClock.getAsLong())) {
+            if (sessions.remove(profileName, session)) {
+                session.wipe();
+            }
+            return null;
+        }
+        return session;
+    }
+
+    private boolean expired(Session session, long now) {
+        return (idleNanos > 0 && now - session.lastUsedNanos >= idleNanos)
+                || (ttlNanos > 0 && now - session.unlockedAtNanos >= ttlNanos);
+    }
+}
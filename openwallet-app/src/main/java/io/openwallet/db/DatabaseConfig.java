@@ -38,4 +38,267 @@ public class DatabaseConfig {
         String env = System.getenv("OPENWALLET_RPC_URL");
         return (env != null && !env.isBlank()) ? env : properties.getProperty("rpc.url");
     }
+
+    public static int getRpcBatchMaxSize() {
+        return getInt("OPENWALLET_RPC_BATCH_MAX_SIZE", "rpc.batch.maxSize", 50);
+    }
+
+    public static long getRpcBatchLingerMillis() {
+        return getInt("OPENWALLET_RPC_BATCH_LINGER_MS", "rpc.batch.lingerMs", 5);
+    }
+
+    public static int getMulticallMaxCalls() {
+        return getInt("OPENWALLET_MULTICALL_MAX_CALLS", "rpc.multicall.maxCalls", 200);
+    }
+
+    public static long getMulticallLingerMillis() {
+        return getInt("OPENWALLET_MULTICALL_LINGER_MS", "rpc.multicall.lingerMs", 10);
+    }
+
+    public static int getRpcClientIdleSeconds() {
+        return getInt("OPENWALLET_RPC_CLIENT_IDLE_SECONDS", "rpc.client.idleSeconds", 300);
+    }
+
+    public static boolean isRpcHedgingEnabled() {
+        String env = System.getenv("OPENWALLET_RPC_HEDGING");
+        String value = (env != null && !env.isBlank()) ? env : properties.getProperty("rpc.hedge.enabled");
+        return value == null || value.isBlank() || Boolean.parseBoolean(value.trim());
+    }
+
+    public static long getRpcHedgeMinDelayMillis() {
+        return getInt("OPENWALLET_RPC_HEDGE_MIN_DELAY_MS", "rpc.hedge.minDelayMs", 100);
+    }
+
+    public static long getRpcHedgeDefaultDelayMillis() {
+        return getInt("OPENWALLET_RPC_HEDGE_DEFAULT_DELAY_MS", "rpc.hedge.defaultDelayMs", 1500);
+    }
+
+    /**
+     * eth_blockNumber poll interval for the head tracker; 0 disables the block-aware call cache.
+     */
+    public static long getRpcHeadPollMillis() {
+        return getInt("OPENWALLET_RPC_HEAD_POLL_MS", "rpc.head.pollMs", 4000);
+    }
+
+    public static boolean isRpcWebSocketEnabled() {
+        String env = System.getenv("OPENWALLET_RPC_WS_ENABLED");
+        String value = (env != null && !env.isBlank()) ? env : properties.getProperty("rpc.ws.enabled");
+        return value == null || value.isBlank() || Boolean.parseBoolean(value.trim());
+    }
+
+    public static long getRpcWebSocketMinBackoffMillis() {
+        return getInt("OPENWALLET_RPC_WS_MIN_BACKOFF_MS", "rpc.ws.minBackoffMs", 1000);
+    }
+
+    public static long getRpcWebSocketMaxBackoffMillis() {
+        return getInt("OPENWALLET_RPC_WS_MAX_BACKOFF_MS", "rpc.ws.maxBackoffMs", 30000);
+    }
+
+    public static int getRpcRateLimitPerSecond() {
+        return getInt("OPENWALLET_RPC_RATE_LIMIT", "rpc.rateLimit.perSecond", 20);
+    }
+
+    public static int getRpcRateLimitMaxRetries() {
+        return getInt("OPENWALLET_RPC_RATE_LIMIT_RETRIES", "rpc.rateLimit.maxRetries", 5);
+    }
+
+    public static long getRpcRateLimitBackoffMillis() {
+        return getInt("OPENWALLET_RPC_RATE_LIMIT_BACKOFF_MS", "rpc.rateLimit.backoffMs", 250);
+    }
+
+    public static long getRpcRateLimitMaxBackoffMillis() {
+        return getInt("OPENWALLET_RPC_RATE_LIMIT_MAX_BACKOFF_MS", "rpc.rateLimit.maxBackoffMs", 10000);
+    }
+
+    public static int getHttpMaxIdleConnections() {
+        return getInt("OPENWALLET_HTTP_MAX_IDLE_CONNECTIONS", "http.maxIdleConnections", 16);
+    }
+
+    public static long getHttpKeepAliveSeconds() {
+        return getInt("OPENWALLET_HTTP_KEEP_ALIVE_SECONDS", "http.keepAliveSeconds", 300);
+    }
+
+    public static int getHttpMaxRequests() {
+        return getInt("OPENWALLET_HTTP_MAX_REQUESTS", "http.maxRequests", 64);
+    }
+
+    public static int getHttpMaxRequestsPerHost() {
+        return getInt("OPENWALLET_HTTP_MAX_REQUESTS_PER_HOST", "http.maxRequestsPerHost", 8);
+    }
+
+    public static long getHttpConnectTimeoutSeconds() {
+        return getInt("OPENWALLET_HTTP_CONNECT_TIMEOUT_SECONDS", "http.connectTimeoutSeconds", 15);
+    }
+
+    public static long getHttpReadTimeoutSeconds() {
+        return getInt("OPENWALLET_HTTP_READ_TIMEOUT_SECONDS", "http.readTimeoutSeconds", 30);
+    }
+
+    /**
+     * Base URL of a record/replay proxy ({@code io.openwallet.replay.ReplayProxy}); when set, all RPC and
+     * NFT API traffic goes there instead of the configured providers.
+     */
+    public static String getReplayUrl() {
+        String env = System.getenv("OPENWALLET_REPLAY_URL");
+        return (env != null && !env.isBlank()) ? env : properties.getProperty("replay.url");
+    }
+
+    public static boolean isMetricsJmxEnabled() {
+        String env = System.getenv("OPENWALLET_METRICS_JMX_ENABLED");
+        String value = (env != null && !env.isBlank()) ? env : properties.getProperty("metrics.jmx.enabled");
+        return value == null || value.isBlank() || Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Consecutive unused HD addresses after which account discovery stops (BIP-44 gap limit).
+     */
+    public static int getWalletDiscoveryGapLimit() {
+        return getInt("OPENWALLET_WALLET_DISCOVERY_GAP_LIMIT", "wallet.discovery.gapLimit", 20);
+    }
+
+    public static int getWalletDiscoveryBatchSize() {
+        return getInt("OPENWALLET_WALLET_DISCOVERY_BATCH_SIZE", "wallet.discovery.batchSize", 20);
+    }
+
+    public static int getWalletDiscoveryMaxAccounts() {
+        return getInt("OPENWALLET_WALLET_DISCOVERY_MAX_ACCOUNTS", "wallet.discovery.maxAccounts", 1000);
+    }
+
+    /**
+     * Minutes without signing after which an unlocked wallet session is locked again; 0 disables.
+     */
+    public static int getWalletSessionIdleMinutes() {
+        return getInt("OPENWALLET_WALLET_SESSION_IDLE_MINUTES", "wallet.session.idleMinutes", 15);
+    }
+
+    /**
+     * Maximum lifetime of an unlocked wallet session, regardless of activity; 0 disables.
+     */
+    public static int getWalletSessionTtlMinutes() {
+        return getInt("OPENWALLET_WALLET_SESSION_TTL_MINUTES", "wallet.session.ttlMinutes", 240);
+    }
+
+    public static long getTxReceiptPollMillis() {
+        return getInt("OPENWALLET_TX_RECEIPT_POLL_MS", "tx.receipt.pollMs", 2000);
+    }
+
+    /**
+     * Minutes a broadcast transaction may go without a receipt before the wallet stops waiting for it.
+     */
+    public static int getTxReceiptTimeoutMinutes() {
+        return getInt("OPENWALLET_TX_RECEIPT_TIMEOUT_MINUTES", "tx.receipt.timeoutMinutes", 30);
+    }
+
+    public static int getTxConfirmations() {
+        return getInt("OPENWALLET_TX_CONFIRMATIONS", "tx.confirmations", 3);
+    }
+
+    /**
+     * Seconds between passes of the PENDING transaction reconciler (one pass always runs at startup); 0 disables.
+     */
+    public static long getTxReconcileIntervalSeconds() {
+        return getInt("OPENWALLET_TX_RECONCILE_INTERVAL_SECONDS", "tx.reconcile.intervalSeconds", 300);
+    }
+
+    public static int getTxReconcilePageSize() {
+        return getInt("OPENWALLET_TX_RECONCILE_PAGE_SIZE", "tx.reconcile.pageSize", 500);
+    }
+
+    public static int getTxReconcileMaxInFlight() {
+        return getInt("OPENWALLET_TX_RECONCILE_MAX_IN_FLIGHT", "tx.reconcile.maxInFlight", 100);
+    }
+
+    /**
+     * Minutes after which a PENDING row the node no longer knows (no receipt, no transaction) is marked DROPPED.
+     */
+    public static long getTxReconcileDropAfterMinutes() {
+        return getInt("OPENWALLET_TX_RECONCILE_DROP_AFTER_MINUTES", "tx.reconcile.dropAfterMinutes", 30);
+    }
+
+    /**
+     * How often each network's fee oracle pulls new blocks with eth_feeHistory.
+     */
+    public static long getFeeRefreshMillis() {
+        return getInt("OPENWALLET_FEE_REFRESH_MS", "fee.refreshMs", 12000);
+    }
+
+    /**
+     * Recent non-empty blocks whose priority fees the fee oracle takes the median over.
+     */
+    public static int getFeeHistoryBlocks() {
+        return getInt("OPENWALLET_FEE_HISTORY_BLOCKS", "fee.historyBlocks", 20);
+    }
+
+    /**
+     * Percentile of recorded gasUsed a learned gas limit is taken at (plus a 10% margin).
+     */
+    public static int getGasProfilePercentile() {
+        return getInt("OPENWALLET_GAS_PROFILE_PERCENTILE", "gas.profile.percentile", 95);
+    }
+
+    public static int getGasProfileMinSamples() {
+        return getInt("OPENWALLET_GAS_PROFILE_MIN_SAMPLES", "gas.profile.minSamples", 3);
+    }
+
+    /**
+     * Hours after its last sample a gas profile is considered stale; 0 keeps profiles forever.
+     */
+    public static int getGasProfileMaxAgeHours() {
+        return getInt("OPENWALLET_GAS_PROFILE_MAX_AGE_HOURS", "gas.profile.maxAgeHours", 168);
+    }
+
+    /**
+     * Broadcasts a bulk payout keeps in flight at once.
+     */
+    public static int getPayoutWindow() {
+        return getInt("OPENWALLET_PAYOUT_WINDOW", "payout.window", 32);
+    }
+
+    public static int getPayoutChunkSize() {
+        return getInt("OPENWALLET_PAYOUT_CHUNK_SIZE", "payout.chunkSize", 500);
+    }
+
+    /**
+     * Time one Argon2id key derivation should take on this machine; new keys are encrypted with costs
+     * calibrated to it.
+     */
+    public static int getKdfTargetMillis() {
+        return getInt("OPENWALLET_KDF_TARGET_MS", "kdf.targetMs", 250);
+    }
+
+    public static int getKdfMaxMemoryMb() {
+        return getInt("OPENWALLET_KDF_MAX_MEMORY_MB", "kdf.maxMemoryMb", 256);
+    }
+
+    /**
+     * Keystores decrypted in parallel during a bulk import; 0 uses one per core.
+     */
+    public static int getKeystoreImportThreads() {
+        return getInt("OPENWALLET_KEYSTORE_IMPORT_THREADS", "keystore.import.threads", 0);
+    }
+
+    /**
+     * Memory the KDFs of a bulk keystore import may use at once (scrypt at n=262144 needs 256 MB per file);
+     * 0 uses half the maximum heap.
+     */
+    public static int getKeystoreImportMemoryMb() {
+        return getInt("OPENWALLET_KEYSTORE_IMPORT_MEMORY_MB", "keystore.import.memoryMb", 0);
+    }
+
+    public static int getKeystoreImportBatchSize() {
+        return getInt("OPENWALLET_KEYSTORE_IMPORT_BATCH_SIZE", "keystore.import.batchSize", 50);
+    }
+
+    private static int getInt(String envName, String propertyKey, int defaultValue) {
+        String env = System.getenv(envName);
+        String value = (env != null && !env.isBlank()) ? env : properties.getProperty(propertyKey);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
 }
@@ -5,11 +5,15 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.stream.Collectors;
 
 public class DatabaseInitializer {
 
+    private static final int ER_DUP_FIELDNAME = 1060;
+    private static final int ER_DUP_KEYNAME = 1061;
+
     public static void main(String[] args) {
         initialize();
     }
@@ -35,9 +39,17 @@ public class DatabaseInitializer {
             String[] statements = schemaSql.split(";");
             
             for (String sql : statements) {
-                if (!sql.trim().isEmpty()) {
-                    stmt.execute(sql.trim());
-                    System.out.println("Executed: " + sql.trim().substring(0, Math.min(sql.trim().length(), 50)) + "...");
+                String statement = stripComments(sql);
+                if (!statement.isEmpty()) {
+                    try {
+                        stmt.execute(statement);
+                    } catch (SQLException e) {
+                        // Upgrade statements are re-run on every start; "already there" is fine.
+                        if (e.getErrorCode() != ER_DUP_FIELDNAME && e.getErrorCode() != ER_DUP_KEYNAME) {
+                            throw e;
+                        }
+                    }
+                    System.out.println("Executed: " + statement.substring(0, Math.min(statement.length(), 50)) + "...");
                 }
             }
             
@@ -48,6 +60,13 @@ public class DatabaseInitializer {
         }
     }
 
+    private static String stripComments(String sql) {
+        return sql.lines()
+                .filter(line -> !line.trim().startsWith("--"))
+                .collect(Collectors.joining("\n"))
+                .trim();
+    }
+
     private static String loadSchemaSql() {
         try (InputStream is = DatabaseInitializer.class.getResourceAsStream("/db/schema.sql");
              BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
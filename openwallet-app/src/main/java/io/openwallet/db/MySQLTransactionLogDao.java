@@ -2,6 +2,7 @@ package io.openwallet.db;
 
 import io.openwallet.model.TransactionLog;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -52,7 +53,7 @@ public class MySQLTransactionLogDao implements TransactionLogDao {
 
     @Override
     public void save(TransactionLog log) {
-        String sql = "INSERT INTO transaction_logs (wallet_address, tx_hash, amount, token_symbol, status) VALUES (?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO transaction_logs (wallet_address, tx_hash, amount, token_symbol, status, network_id) VALUES (?, ?, ?, ?, ?, ?)";
         try (Connection conn = databaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
@@ -61,6 +62,7 @@ public class MySQLTransactionLogDao implements TransactionLogDao {
             pstmt.setBigDecimal(3, log.getAmount());
             pstmt.setString(4, log.getTokenSymbol());
             pstmt.setString(5, log.getStatus());
+            pstmt.setString(6, log.getNetworkId());
             
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows > 0) {
@@ -75,9 +77,102 @@ public class MySQLTransactionLogDao implements TransactionLogDao {
         }
     }
 
+    @Override
+    public void saveAll(List<TransactionLog> logs) throws SQLException {
+        if (logs == null || logs.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO transaction_logs (wallet_address, tx_hash, amount, token_symbol, status, network_id) VALUES (?, ?, ?, ?, ?, ?)";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (TransactionLog log : logs) {
+                    pstmt.setString(1, log.getWalletAddress());
+                    pstmt.setString(2, log.getTxHash());
+                    pstmt.setBigDecimal(3, log.getAmount());
+                    pstmt.setString(4, log.getTokenSymbol());
+                    pstmt.setString(5, log.getStatus());
+                    pstmt.setString(6, log.getNetworkId());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Writes the log's status and receipt fields (block, gas used, fee); {@code params} is not used.
+     */
     @Override
     public void update(TransactionLog log, String[] params) {
-        // Implementation for update if needed
+        String sql = "UPDATE transaction_logs SET status = ?, block_number = ?, gas_used = ?, fee_wei = ? WHERE id = ?";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            bindReceipt(pstmt, log);
+            pstmt.setInt(5, log.getId());
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void updateReceipts(List<TransactionLog> logs) throws SQLException {
+        if (logs == null || logs.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE transaction_logs SET status = ?, block_number = ?, gas_used = ?, fee_wei = ? WHERE tx_hash = ?";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (TransactionLog log : logs) {
+                    bindReceipt(pstmt, log);
+                    pstmt.setString(5, log.getTxHash());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    @Override
+    public List<TransactionLog> findByStatus(String status, int afterId, int limit) {
+        List<TransactionLog> logs = new ArrayList<>();
+        String sql = "SELECT * FROM transaction_logs WHERE status = ? AND id > ? ORDER BY id LIMIT ?";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, status);
+            pstmt.setInt(2, afterId);
+            pstmt.setInt(3, limit);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                logs.add(mapResultSetToTransactionLog(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return logs;
     }
 
     @Override
@@ -112,6 +207,13 @@ public class MySQLTransactionLogDao implements TransactionLogDao {
         return logs;
     }
 
+    private void bindReceipt(PreparedStatement pstmt, TransactionLog log) throws SQLException {
+        pstmt.setString(1, log.getStatus());
+        pstmt.setObject(2, log.getBlockNumber(), Types.BIGINT);
+        pstmt.setObject(3, log.getGasUsed(), Types.BIGINT);
+        pstmt.setBigDecimal(4, log.getFeeWei() != null ? new BigDecimal(log.getFeeWei()) : null);
+    }
+
     private TransactionLog mapResultSetToTransactionLog(ResultSet rs) throws SQLException {
         TransactionLog log = new TransactionLog();
         log.setId(rs.getInt("id"));
@@ -120,6 +222,13 @@ public class MySQLTransactionLogDao implements TransactionLogDao {
         log.setAmount(rs.getBigDecimal("amount"));
         log.setTokenSymbol(rs.getString("token_symbol"));
         log.setStatus(rs.getString("status"));
+        log.setNetworkId(rs.getString("network_id"));
+        long blockNumber = rs.getLong("block_number");
+        log.setBlockNumber(rs.wasNull() ? null : blockNumber);
+        long gasUsed = rs.getLong("gas_used");
+        log.setGasUsed(rs.wasNull() ? null : gasUsed);
+        BigDecimal fee = rs.getBigDecimal("fee_wei");
+        log.setFeeWei(fee != null ? fee.toBigInteger() : null);
         Timestamp ts = rs.getTimestamp("created_at");
         if (ts != null) {
             log.setCreatedAt(ts.toLocalDateTime());
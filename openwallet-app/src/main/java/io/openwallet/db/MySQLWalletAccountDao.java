@@ -0,0 +1,173 @@
+package io.openwallet.db;
+
+import io.openwallet.model.WalletAccount;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class MySQLWalletAccountDao implements WalletAccountDao {
+
+    private final DatabaseConnection databaseConnection;
+
+    public MySQLWalletAccountDao(DatabaseConnection databaseConnection) {
+        this.databaseConnection = databaseConnection;
+    }
+
+    @Override
+    public Optional<WalletAccount> get(int id) {
+        String sql = "SELECT * FROM wallet_accounts WHERE id = ?";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, id);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                return Optional.of(mapResultSetToWalletAccount(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<WalletAccount> getAll() {
+        List<WalletAccount> accounts = new ArrayList<>();
+        String sql = "SELECT * FROM wallet_accounts ORDER BY profile_id, account_index";
+        try (Connection conn = databaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                accounts.add(mapResultSetToWalletAccount(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return accounts;
+    }
+
+    @Override
+    public void save(WalletAccount account) {
+        String sql = "INSERT INTO wallet_accounts (profile_id, account_index, wallet_address, derivation_path, used) VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            bind(pstmt, account);
+
+            int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        account.setId(generatedKeys.getInt(1));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void saveAll(List<WalletAccount> accounts) {
+        if (accounts == null || accounts.isEmpty()) {
+            return;
+        }
+        // A re-run of discovery only refreshes the "used" flag of accounts it already knows.
+        String sql = "INSERT INTO wallet_accounts (profile_id, account_index, wallet_address, derivation_path, used) VALUES (?, ?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE used = used OR VALUES(used)";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (WalletAccount account : accounts) {
+                    bind(pstmt, account);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void update(WalletAccount account, String[] params) {
+        String sql = "UPDATE wallet_accounts SET used = ? WHERE id = ?";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setBoolean(1, account.isUsed());
+            pstmt.setInt(2, account.getId());
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void delete(WalletAccount account) {
+        String sql = "DELETE FROM wallet_accounts WHERE id = ?";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, account.getId());
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public List<WalletAccount> findByProfileId(int profileId) {
+        List<WalletAccount> accounts = new ArrayList<>();
+        String sql = "SELECT * FROM wallet_accounts WHERE profile_id = ? ORDER BY account_index";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, profileId);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                accounts.add(mapResultSetToWalletAccount(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return accounts;
+    }
+
+    private void bind(PreparedStatement pstmt, WalletAccount account) throws SQLException {
+        pstmt.setInt(1, account.getProfileId());
+        pstmt.setInt(2, account.getAccountIndex());
+        pstmt.setString(3, account.getWalletAddress());
+        pstmt.setString(4, account.getDerivationPath());
+        pstmt.setBoolean(5, account.isUsed());
+    }
+
+    private WalletAccount mapResultSetToWalletAccount(ResultSet rs) throws SQLException {
+        WalletAccount account = new WalletAccount();
+        account.setId(rs.getInt("id"));
+        account.setProfileId(rs.getInt("profile_id"));
+        account.setAccountIndex(rs.getInt("account_index"));
+        account.setWalletAddress(rs.getString("wallet_address"));
+        account.setDerivationPath(rs.getString("derivation_path"));
+        account.setUsed(rs.getBoolean("used"));
+        Timestamp ts = rs.getTimestamp("created_at");
+        if (ts != null) {
+            account.setCreatedAt(ts.toLocalDateTime());
+        }
+        return account;
+    }
+}
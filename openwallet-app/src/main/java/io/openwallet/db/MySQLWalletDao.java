@@ -74,6 +74,43 @@ public class MySQLWalletDao implements WalletDao {
         }
     }
 
+    @Override
+    public void saveAll(List<WalletProfile> profiles) throws SQLException {
+        if (profiles == null || profiles.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO wallet_profiles (profile_name, wallet_address, encrypted_json) VALUES (?, ?, ?)";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (WalletProfile profile : profiles) {
+                    pstmt.setString(1, profile.getProfileName());
+                    pstmt.setString(2, profile.getWalletAddress());
+                    pstmt.setString(3, profile.getEncryptedJson());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    for (WalletProfile profile : profiles) {
+                        if (!generatedKeys.next()) {
+                            break;
+                        }
+                        profile.setId(generatedKeys.getInt(1));
+                    }
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
     @Override
     public void update(WalletProfile walletProfile, String[] params) {
         // Implementation for update if needed
@@ -110,6 +147,22 @@ public class MySQLWalletDao implements WalletDao {
         return Optional.empty();
     }
 
+    @Override
+    public boolean replaceEncryptedJson(int id, String expectedJson, String newJson) {
+        String sql = "UPDATE wallet_profiles SET encrypted_json = ? WHERE id = ? AND encrypted_json = ?";
+        try (Connection conn = databaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, newJson);
+            pstmt.setInt(2, id);
+            pstmt.setString(3, expectedJson);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
     private WalletProfile mapResultSetToWalletProfile(ResultSet rs) throws SQLException {
         WalletProfile wallet = new WalletProfile();
         wallet.setId(rs.getInt("id"));
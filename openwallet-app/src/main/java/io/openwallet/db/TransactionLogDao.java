@@ -1,8 +1,26 @@
 package io.openwallet.db;
 
 import io.openwallet.model.TransactionLog;
+
+import java.sql.SQLException;
 import java.util.List;
 
 public interface TransactionLogDao extends Dao<TransactionLog> {
     List<TransactionLog> findByWalletAddress(String walletAddress);
+
+    /**
+     * Inserts all logs in one batch and transaction; throws if the batch was rolled back.
+     */
+    void saveAll(List<TransactionLog> logs) throws SQLException;
+
+    /**
+     * Unresolved rows in id order, {@code limit} at a time after {@code afterId}.
+     */
+    List<TransactionLog> findByStatus(String status, int afterId, int limit);
+
+    /**
+     * Writes status, block number, gas used and fee for each log, matched by transaction hash, in one batch and
+     * transaction; throws if the batch was rolled back.
+     */
+    void updateReceipts(List<TransactionLog> logs) throws SQLException;
 }
@@ -0,0 +1,13 @@
+package io.openwallet.db;
+
+import io.openwallet.model.WalletAccount;
+import java.util.List;
+
+public interface WalletAccountDao extends Dao<WalletAccount> {
+    List<WalletAccount> findByProfileId(int profileId);
+
+    /**
+     * Inserts all accounts in one batch; accounts already stored for the same profile and index are left as they are.
+     */
+    void saveAll(List<WalletAccount> accounts);
+}
@@ -1,8 +1,23 @@
 package io.openwallet.db;
 
 import io.openwallet.model.WalletProfile;
+
+import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
 
 public interface WalletDao extends Dao<WalletProfile> {
     Optional<WalletProfile> findByProfileName(String profileName);
+
+    /**
+     * Inserts all profiles in one batch and sets their generated ids.
+     * @throws SQLException if the batch could not be written; none of it is kept.
+     */
+    void saveAll(List<WalletProfile> profiles) throws SQLException;
+
+    /**
+     * Replaces the profile's encrypted key, but only if it still holds {@code expectedJson}.
+     * @return whether the row was updated.
+     */
+    boolean replaceEncryptedJson(int id, String expectedJson, String newJson);
 }
@@ -0,0 +1,7 @@
+package io.openwallet.exception;
+
+public class ContractCallException extends OpenWalletException {
+    public ContractCallException(String message) {
+        super(message);
+    }
+}
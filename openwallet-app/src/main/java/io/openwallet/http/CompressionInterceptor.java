@@ -0,0 +1,68 @@
+package io.openwallet.http;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.zip.Inflater;
+
+/**
+ * Requests {@code gzip} or {@code deflate} response compression and decodes it transparently.
+ *
+ * OkHttp only negotiates gzip on its own and stops doing so once a caller sets {@code Accept-Encoding};
+ * this interceptor takes over both.
+ */
+public class CompressionInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.header("Accept-Encoding") != null || request.header("Range") != null) {
+            return chain.proceed(request);
+        }
+
+        Response response = chain.proceed(request.newBuilder().header("Accept-Encoding", "gzip, deflate").build());
+        String encoding = response.header("Content-Encoding");
+        ResponseBody body = response.body();
+        if (encoding == null || body == null) {
+            return response;
+        }
+
+        Source decoded;
+        switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip" -> decoded = new GzipSource(body.source());
+            case "deflate" -> decoded = inflate(body.source());
+            default -> {
+                return response;
+            }
+        }
+        MediaType contentType = body.contentType();
+        return response.newBuilder()
+                .removeHeader("Content-Encoding")
+                .removeHeader("Content-Length")
+                .body(ResponseBody.create(Okio.buffer(decoded), contentType, -1L))
+                .build();
+    }
+
+    /**
+     * "deflate" is meant to be zlib-wrapped, but some servers send raw deflate; detect the zlib header.
+     */
+    private static Source inflate(BufferedSource source) throws IOException {
+        boolean zlib = false;
+        if (source.request(2)) {
+            int cmf = source.getBuffer().getByte(0) & 0xff;
+            int flg = source.getBuffer().getByte(1) & 0xff;
+            zlib = (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+        }
+        return new InflaterSource(source, new Inflater(!zlib));
+    }
+}
@@ -0,0 +1,309 @@
+package io.openwallet.http;
+
+import io.openwallet.metrics.CountingInputStream;
+import io.openwallet.metrics.RpcMetrics;
+import io.openwallet.rpc.RateLimitInterceptor;
+import io.openwallet.rpc.RateLimiterRegistry;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The application's one HTTP client stack, used for JSON-RPC, the Alchemy NFT API, token metadata and images.
+ *
+ * All traffic shares one connection pool with keep-alive, negotiates HTTP/2 where the server supports it,
+ * asks for gzip/deflate compressed responses, caps concurrent async requests per host, and draws from the
+ * per-host {@link RateLimiterRegistry} budgets. Calls made through {@link #executeAsync} are recorded in the
+ * optional {@link RpcMetrics} registry under their label; JSON-RPC traffic is recorded by its transport instead.
+ */
+public class HttpStack {
+
+    private final ConnectionPool connectionPool;
+    private final Dispatcher dispatcher;
+    private final OkHttpClient client;
+    private final RpcMetrics metrics;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsAcquired = new AtomicLong();
+    private final AtomicLong http2Connections = new AtomicLong();
+
+    public HttpStack(RateLimiterRegistry rateLimiters, int maxIdleConnections, long keepAliveSeconds,
+                     int maxRequests, int maxRequestsPerHost, long connectTimeoutSeconds, long readTimeoutSeconds) {
+        this(rateLimiters, null, maxIdleConnections, keepAliveSeconds, maxRequests, maxRequestsPerHost,
+                connectTimeoutSeconds, readTimeoutSeconds);
+    }
+
+    public HttpStack(RateLimiterRegistry rateLimiters, RpcMetrics metrics, int maxIdleConnections, long keepAliveSeconds,
+                     int maxRequests, int maxRequestsPerHost, long connectTimeoutSeconds, long readTimeoutSeconds) {
+        this.metrics = metrics;
+        this.connectionPool = new ConnectionPool(Math.max(1, maxIdleConnections), Math.max(1, keepAliveSeconds), TimeUnit.SECONDS);
+        this.dispatcher = new Dispatcher();
+        this.dispatcher.setMaxRequests(Math.max(1, maxRequests));
+        this.dispatcher.setMaxRequestsPerHost(Math.max(1, maxRequestsPerHost));
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .readTimeout(Duration.ofSeconds(readTimeoutSeconds))
+                .followRedirects(true)
+                .retryOnConnectionFailure(true)
+                .eventListener(new StatsListener())
+                .addInterceptor(new CompressionInterceptor());
+        if (rateLimiters != null) {
+            builder.addInterceptor(new RateLimitInterceptor(rateLimiters));
+        }
+        this.client = builder.build();
+    }
+
+    /**
+     * The shared client. Derive variants with {@code client().newBuilder()} so they keep the same pool.
+     */
+    public OkHttpClient client() {
+        return client;
+    }
+
+    /**
+     * GET {@code url} and read the whole body, without blocking the caller.
+     */
+    public CompletableFuture<HttpResult> getAsync(String url) {
+        return getAsync(url, "GET");
+    }
+
+    /**
+     * GET {@code url}, recording the call's metrics under {@code label}.
+     */
+    public CompletableFuture<HttpResult> getAsync(String url, String label) {
+        return executeAsync(new Request.Builder().url(url).header("User-Agent", "OpenWallet").get().build(), label);
+    }
+
+    /**
+     * GET {@code url} and decode the body as it streams in with {@code reader}.
+     */
+    public <T> CompletableFuture<T> getAsync(String url, String label, BodyReader<T> reader) {
+        return executeAsync(new Request.Builder().url(url).header("User-Agent", "OpenWallet").get().build(), label, reader);
+    }
+
+    public CompletableFuture<HttpResult> executeAsync(Request request) {
+        return executeAsync(request, request.method());
+    }
+
+    /**
+     * Executes {@code request}, recording latency, payload sizes and outcome under {@code label}
+     * (e.g. {@code alchemy_getAssetTransfers}) for the request's host.
+     */
+    public CompletableFuture<HttpResult> executeAsync(Request request, String label) {
+        return executeAsync(request, label, (status, headers, body) -> new HttpResult(status, headers, body.readAllBytes()));
+    }
+
+    /**
+     * Executes {@code request} and hands the live response body to {@code reader} on the I/O thread, so large
+     * responses can be decoded as they arrive instead of being buffered first.
+     */
+    public <T> CompletableFuture<T> executeAsync(Request request, String label, BodyReader<T> reader) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        RpcMetrics.Timer timer = metrics != null
+                ? metrics.startHttp(RpcMetrics.endpointOf(request.url().toString()), label)
+                : null;
+        long requestBytes = timer != null ? requestBytes(request) : 0;
+        Call call = client.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                if (timer != null) {
+                    timer.addPayload(requestBytes, 0);
+                    timer.failure(e);
+                }
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call c, Response response) {
+                ResponseBody body = response.body();
+                CountingInputStream in = new CountingInputStream(
+                        body != null ? body.byteStream() : InputStream.nullInputStream(), count -> { });
+                try (response; in) {
+                    T value = reader.read(response.code(), response.headers().toMultimap(), in);
+                    if (timer != null) {
+                        timer.addPayload(requestBytes, in.getCount());
+                        if (response.isSuccessful()) {
+                            timer.success();
+                        } else {
+                            timer.failure(new IOException("HTTP " + response.code()));
+                        }
+                    }
+                    future.complete(value);
+                } catch (IOException | RuntimeException e) {
+                    if (timer != null) {
+                        timer.addPayload(requestBytes, in.getCount());
+                        timer.failure(e);
+                    }
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        future.whenComplete((r, ex) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    public RpcMetrics getMetrics() {
+        return metrics;
+    }
+
+    public Stats stats() {
+        return new Stats(
+                connectionPool.connectionCount(),
+                connectionPool.idleConnectionCount(),
+                dispatcher.runningCallsCount(),
+                dispatcher.queuedCallsCount(),
+                calls.get(),
+                failedCalls.get(),
+                connectionsOpened.get(),
+                connectionsAcquired.get(),
+                http2Connections.get()
+        );
+    }
+
+    public void shutdown() {
+        dispatcher.executorService().shutdown();
+        connectionPool.evictAll();
+    }
+
+    /**
+     * Decodes a response body; {@code body} is only valid during the call.
+     */
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(int statusCode, Map<String, List<String>> headers, InputStream body) throws IOException;
+    }
+
+    private static long requestBytes(Request request) {
+        try {
+            return request.body() != null ? Math.max(0, request.body().contentLength()) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private final class StatsListener extends EventListener {
+        @Override
+        public void callStart(Call call) {
+            calls.incrementAndGet();
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            failedCalls.incrementAndGet();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+            connectionsOpened.incrementAndGet();
+            if (protocol == Protocol.HTTP_2) {
+                http2Connections.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            connectionsAcquired.incrementAndGet();
+        }
+    }
+
+    /**
+     * Snapshot of pool and dispatcher state. Connection reuse is {@code acquired - opened}.
+     */
+    public static class Stats {
+        private final int connections;
+        private final int idleConnections;
+        private final int runningCalls;
+        private final int queuedCalls;
+        private final long totalCalls;
+        private final long failedCalls;
+        private final long connectionsOpened;
+        private final long connectionsAcquired;
+        private final long http2Connections;
+
+        public Stats(int connections, int idleConnections, int runningCalls, int queuedCalls, long totalCalls,
+                     long failedCalls, long connectionsOpened, long connectionsAcquired, long http2Connections) {
+            this.connections = connections;
+            this.idleConnections = idleConnections;
+            this.runningCalls = runningCalls;
+            this.queuedCalls = queuedCalls;
+            this.totalCalls = totalCalls;
+            this.failedCalls = failedCalls;
+            this.connectionsOpened = connectionsOpened;
+            this.connectionsAcquired = connectionsAcquired;
+            this.http2Connections = http2Connections;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        public int getRunningCalls() {
+            return runningCalls;
+        }
+
+        public int getQueuedCalls() {
+            return queuedCalls;
+        }
+
+        public long getTotalCalls() {
+            return totalCalls;
+        }
+
+        public long getFailedCalls() {
+            return failedCalls;
+        }
+
+        public long getConnectionsOpened() {
+            return connectionsOpened;
+        }
+
+        public long getConnectionsReused() {
+            return Math.max(0, connectionsAcquired - connectionsOpened);
+        }
+
+        public long getHttp2Connections() {
+            return http2Connections;
+        }
+
+        @Override
+        public String toString() {
+            return "connections=" + connections + " (idle " + idleConnections + ", h2 " + http2Connections + ")"
+                    + ", calls=" + totalCalls + " (running " + runningCalls + ", queued " + queuedCalls
+                    + ", failed " + failedCalls + "), reused=" + getConnectionsReused();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package io.openwallet.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency, payload, error and in-flight counters for one series, e.g. the method {@code eth_getLogs} or
+ * the endpoint {@code eth-sepolia.g.alchemy.com}.
+ */
+public class CallStats implements CallStatsMXBean {
+
+    private final String scope;
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong rpcErrors = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+
+    public CallStats(String scope, String name) {
+        this.scope = scope;
+        this.name = name;
+    }
+
+    void started() {
+        inFlight.incrementAndGet();
+    }
+
+    void finished(long micros, Outcome outcome) {
+        inFlight.decrementAndGet();
+        latency.record(micros);
+        switch (outcome) {
+            case TIMEOUT -> {
+                timeouts.incrementAndGet();
+                errors.incrementAndGet();
+            }
+            case ERROR -> errors.incrementAndGet();
+            case RPC_ERROR -> rpcErrors.incrementAndGet();
+            default -> { }
+        }
+    }
+
+    void addPayload(long requestBytes, long responseBytes) {
+        if (requestBytes > 0) {
+            this.requestBytes.addAndGet(requestBytes);
+        }
+        if (responseBytes > 0) {
+            this.responseBytes.addAndGet(responseBytes);
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getScope() {
+        return scope;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCalls() {
+        return latency.getCount();
+    }
+
+    /**
+     * Calls that failed in transport (connection, HTTP status, parsing), timeouts included.
+     */
+    @Override
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * Calls answered with a JSON-RPC error object; the endpoint itself was reachable.
+     */
+    @Override
+    public long getRpcErrors() {
+        return rpcErrors.get();
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanMillis();
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.percentileMillis(50);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return latency.percentileMillis(90);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.percentileMillis(99);
+    }
+
+    @Override
+    public double getP999Millis() {
+        return latency.percentileMillis(99.9);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxMillis();
+    }
+
+    @Override
+    public long getRequestBytes() {
+        return requestBytes.get();
+    }
+
+    @Override
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: calls=%d p50=%.1fms p99=%.1fms max=%.1fms errors=%d timeouts=%d rpcErrors=%d inFlight=%d req=%dB resp=%dB",
+                scope, name, getCalls(), getP50Millis(), getP99Millis(), getMaxMillis(), getErrors(), getTimeouts(),
+                getRpcErrors(), getInFlight(), getRequestBytes(), getResponseBytes());
+    }
+
+    enum Outcome {
+        OK, ERROR, TIMEOUT, RPC_ERROR
+    }
+}
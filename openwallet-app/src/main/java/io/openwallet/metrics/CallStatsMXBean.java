@@ -0,0 +1,37 @@
+package io.openwallet.metrics;
+
+/**
+ * JMX view of one {@link CallStats} series; latencies in milliseconds, sizes in bytes.
+ */
+public interface CallStatsMXBean {
+
+    String getScope();
+
+    String getName();
+
+    long getCalls();
+
+    long getErrors();
+
+    long getTimeouts();
+
+    long getRpcErrors();
+
+    int getInFlight();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    long getRequestBytes();
+
+    long getResponseBytes();
+}
@@ -0,0 +1,219 @@
+package io.openwallet.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Registry of call metrics for JSON-RPC and HTTP traffic.
+ *
+ * Every call is recorded under up to three series: its method (e.g. {@code eth_getLogs}), its endpoint host,
+ * and the pair of both, so providers can be compared method by method. HTTP calls outside JSON-RPC (NFT API,
+ * metadata, images) use the {@link #HTTP} scope for their label, and the stages of a transaction send use
+ * {@link #SEND}. Once {@link #registerMBeans} is called, each series is also published as an MXBean under
+ * {@code <domain>:type=RpcMetrics,scope=...,name=...}.
+ */
+public class RpcMetrics {
+
+    public static final String METHOD = "method";
+    public static final String ENDPOINT = "endpoint";
+    public static final String ENDPOINT_METHOD = "endpointMethod";
+    public static final String HTTP = "http";
+    public static final String SEND = "send";
+
+    private final Map<String, CallStats> series = new ConcurrentHashMap<>();
+    private volatile String jmxDomain;
+
+    /**
+     * Starts timing a JSON-RPC call; finish it exactly once with one of the {@link Timer} methods.
+     */
+    public Timer startRpc(String endpoint, String method) {
+        String m = method != null ? method : "unknown";
+        return new Timer(stats(METHOD, m), stats(ENDPOINT, endpoint), stats(ENDPOINT_METHOD, endpoint + " " + m));
+    }
+
+    /**
+     * Starts timing a plain HTTP call labelled {@code label} (e.g. {@code nft.getNFTsForOwner}).
+     */
+    public Timer startHttp(String endpoint, String label) {
+        return new Timer(stats(HTTP, label), stats(ENDPOINT, endpoint));
+    }
+
+    /**
+     * Starts timing one stage of a transaction send (e.g. {@code fee}, {@code simulate}, {@code broadcast}).
+     */
+    public Timer startStage(String stage) {
+        return new Timer(stats(SEND, stage));
+    }
+
+    /**
+     * Adds the bytes of one HTTP exchange to the endpoint and, split evenly, to the methods it carried.
+     */
+    public void recordPayload(String endpoint, List<String> methods, long requestBytes, long responseBytes) {
+        stats(ENDPOINT, endpoint).addPayload(requestBytes, responseBytes);
+        if (methods == null || methods.isEmpty()) {
+            return;
+        }
+        int n = methods.size();
+        for (String method : methods) {
+            stats(METHOD, method).addPayload(requestBytes / n, responseBytes / n);
+            stats(ENDPOINT_METHOD, endpoint + " " + method).addPayload(requestBytes / n, responseBytes / n);
+        }
+    }
+
+    public CallStats get(String scope, String name) {
+        return series.get(scope + "|" + name);
+    }
+
+    /**
+     * @return every series in {@code scope}, slowest p99 first.
+     */
+    public List<CallStats> snapshot(String scope) {
+        List<CallStats> out = new ArrayList<>();
+        for (CallStats s : series.values()) {
+            if (s.getScope().equals(scope)) {
+                out.add(s);
+            }
+        }
+        out.sort(Comparator.comparingDouble(CallStats::getP99Millis).reversed());
+        return out;
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (String scope : List.of(METHOD, ENDPOINT, ENDPOINT_METHOD, HTTP, SEND)) {
+            for (CallStats s : snapshot(scope)) {
+                sb.append(s).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Publishes every current and future series on the platform MBean server.
+     */
+    public void registerMBeans(String domain) {
+        this.jmxDomain = domain;
+        series.values().forEach(this::register);
+    }
+
+    /**
+     * Host (and non-default port) of a URL, used as the endpoint label so API keys in paths never leak.
+     */
+    public static String endpointOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() == null) {
+                return url;
+            }
+            return uri.getPort() > 0 ? uri.getHost() + ":" + uri.getPort() : uri.getHost();
+        } catch (IllegalArgumentException e) {
+            return "invalid";
+        }
+    }
+
+    static boolean isTimeout(Throwable ex) {
+        Throwable t = ex;
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t instanceof SocketTimeoutException || t instanceof TimeoutException
+                || (t instanceof InterruptedIOException && "timeout".equals(t.getMessage()));
+    }
+
+    private CallStats stats(String scope, String name) {
+        String key = scope + "|" + name;
+        CallStats existing = series.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        CallStats created = new CallStats(scope, name);
+        existing = series.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        if (jmxDomain != null) {
+            register(created);
+        }
+        return created;
+    }
+
+    private void register(CallStats stats) {
+        String domain = jmxDomain;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(domain + ":type=RpcMetrics,scope=" + stats.getScope()
+                    + ",name=" + ObjectName.quote(stats.getName()));
+            server.registerMBean(stats, name);
+        } catch (InstanceAlreadyExistsException ignored) {
+            // Another registry in this JVM already publishes the series.
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * One call in progress, counted as in flight on each of its series until finished.
+     */
+    public static final class Timer {
+        private final CallStats[] targets;
+        private final long startNanos = System.nanoTime();
+        private boolean done;
+
+        Timer(CallStats... targets) {
+            this.targets = targets;
+            for (CallStats s : targets) {
+                s.started();
+            }
+        }
+
+        /**
+         * Adds the bytes of this call's exchange to each of its series.
+         */
+        public void addPayload(long requestBytes, long responseBytes) {
+            for (CallStats s : targets) {
+                s.addPayload(requestBytes, responseBytes);
+            }
+        }
+
+        public void success() {
+            finish(CallStats.Outcome.OK);
+        }
+
+        /**
+         * The endpoint answered, but with a JSON-RPC error object.
+         */
+        public void rpcError() {
+            finish(CallStats.Outcome.RPC_ERROR);
+        }
+
+        public void failure(Throwable ex) {
+            finish(isTimeout(ex) ? CallStats.Outcome.TIMEOUT : CallStats.Outcome.ERROR);
+        }
+
+        private void finish(CallStats.Outcome outcome) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+            }
+            long micros = (System.nanoTime() - startNanos) / 1_000;
+            for (CallStats s : targets) {
+                s.finished(micros, outcome);
+            }
+        }
+    }
+}
@@ -11,10 +11,13 @@ public class NetworkConfig {
     private String id;
     private String name;
     private String rpcUrl;
+    private List<String> rpcUrls;
     private Long chainId;
     private String bridgeUrl;
     private List<BridgeLink> bridges;
     private Map<String, String> chainlinkFeeds;
+    private String multicallAddress;
+    private String wsUrl;
 
     public NetworkConfig() {
     }
@@ -43,6 +46,33 @@ public class NetworkConfig {
         this.rpcUrl = rpcUrl;
     }
 
+    public List<String> getRpcUrls() {
+        return rpcUrls;
+    }
+
+    public void setRpcUrls(List<String> rpcUrls) {
+        this.rpcUrls = rpcUrls;
+    }
+
+    /**
+     * Returns a non-null, de-duplicated list of RPC endpoints in preference order:
+     * "rpcUrls" first, then the legacy single "rpcUrl".
+     */
+    public List<String> getRpcEndpoints() {
+        List<String> out = new ArrayList<>();
+        if (rpcUrls != null) {
+            for (String url : rpcUrls) {
+                if (url != null && !url.isBlank() && !out.contains(url.trim())) {
+                    out.add(url.trim());
+                }
+            }
+        }
+        if (rpcUrl != null && !rpcUrl.isBlank() && !out.contains(rpcUrl.trim())) {
+            out.add(rpcUrl.trim());
+        }
+        return out;
+    }
+
     public Long getChainId() {
         return chainId;
     }
@@ -90,6 +120,28 @@ public class NetworkConfig {
         this.chainlinkFeeds = chainlinkFeeds;
     }
 
+    /**
+     * Optional Multicall3 override; null means the canonical deployment address.
+     */
+    public String getMulticallAddress() {
+        return multicallAddress;
+    }
+
+    public void setMulticallAddress(String multicallAddress) {
+        this.multicallAddress = multicallAddress;
+    }
+
+    /**
+     * Optional WebSocket endpoint for newHeads/logs subscriptions.
+     */
+    public String getWsUrl() {
+        return wsUrl;
+    }
+
+    public void setWsUrl(String wsUrl) {
+        this.wsUrl = wsUrl;
+    }
+
     @Override
     public String toString() {
         return name != null ? name : id;
@@ -1,6 +1,7 @@
 package io.openwallet.model;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.time.LocalDateTime;
 
 public class TransactionLog {
@@ -10,6 +11,10 @@ public class TransactionLog {
     private BigDecimal amount;
     private String tokenSymbol;
     private String status;
+    private String networkId;
+    private Long blockNumber;
+    private Long gasUsed;
+    private BigInteger feeWei;
     private LocalDateTime createdAt;
 
     public TransactionLog() {}
@@ -40,6 +45,19 @@ public class TransactionLog {
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
 
+    public String getNetworkId() { return networkId; }
+    public void setNetworkId(String networkId) { this.networkId = networkId; }
+
+    public Long getBlockNumber() { return blockNumber; }
+    public void setBlockNumber(Long blockNumber) { this.blockNumber = blockNumber; }
+
+    public Long getGasUsed() { return gasUsed; }
+    public void setGasUsed(Long gasUsed) { this.gasUsed = gasUsed; }
+
+    /** Gas used times the effective gas price, in wei. */
+    public BigInteger getFeeWei() { return feeWei; }
+    public void setFeeWei(BigInteger feeWei) { this.feeWei = feeWei; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 }
@@ -0,0 +1,48 @@
+package io.openwallet.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * One HD account ({@code m/44'/60'/0'/0/index}) discovered under a wallet profile.
+ */
+public class WalletAccount {
+    private int id;
+    private int profileId;
+    private int accountIndex;
+    private String walletAddress;
+    private String derivationPath;
+    private boolean used;
+    private LocalDateTime createdAt;
+
+    public WalletAccount() {}
+
+    public WalletAccount(int profileId, int accountIndex, String walletAddress, String derivationPath, boolean used) {
+        this.profileId = profileId;
+        this.accountIndex = accountIndex;
+        this.walletAddress = walletAddress;
+        this.derivationPath = derivationPath;
+        this.used = used;
+    }
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public int getProfileId() { return profileId; }
+    public void setProfileId(int profileId) { this.profileId = profileId; }
+
+    public int getAccountIndex() { return accountIndex; }
+    public void setAccountIndex(int accountIndex) { this.accountIndex = accountIndex; }
+
+    public String getWalletAddress() { return walletAddress; }
+    public void setWalletAddress(String walletAddress) { this.walletAddress = walletAddress; }
+
+    public String getDerivationPath() { return derivationPath; }
+    public void setDerivationPath(String derivationPath) { this.derivationPath = derivationPath; }
+
+    /** Whether the address had a balance or an outgoing transaction when it was discovered. */
+    public boolean isUsed() { return used; }
+    public void setUsed(boolean used) { this.used = used; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,571 @@
+package io.openwallet.payout;
+
+import io.openwallet.db.DatabaseConfig;
+import io.openwallet.db.MySQLDatabaseConnection;
+import io.openwallet.db.MySQLTransactionLogDao;
+import io.openwallet.db.MySQLWalletAccountDao;
+import io.openwallet.db.MySQLWalletDao;
+import io.openwallet.db.TransactionLogDao;
+import io.openwallet.model.TokenMeta;
+import io.openwallet.model.TransactionLog;
+import io.openwallet.rpc.FeeOracle;
+import io.openwallet.rpc.NonceManager;
+import io.openwallet.service.JsonTokenRepository;
+import io.openwallet.service.NetworkManager;
+import io.openwallet.service.TokenAmountUtil;
+import io.openwallet.service.TokenRepository;
+import io.openwallet.service.TokenService;
+import io.openwallet.service.TransactionTracker;
+import io.openwallet.service.WalletService;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.crypto.WalletUtils;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthEstimateGas;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.utils.Convert;
+import org.web3j.utils.Numeric;
+
+import java.io.Console;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pays out a CSV of {@code recipient,amount,token} rows from one wallet.
+ *
+ * The file is streamed in chunks. For each chunk nonces are reserved up front, every row is signed offline in
+ * parallel and journaled, and the signed transactions are broadcast with at most {@code window} in flight.
+ * Accepted rows are written to {@code transaction_logs} in one batch and handed to the receipt tracker.
+ * Running the same CSV against the same journal again resumes: finished rows are skipped and rows that were
+ * signed but maybe not broadcast are re-sent with their original signature, so nobody is paid twice. A row whose
+ * broadcast got no answer stays SIGNED with its nonce held for exactly that reason. A row the node rejects gives
+ * its nonce back; if later rows already went out above it, the gap is closed with a zero-value transfer to the
+ * sender so they can be mined.
+ */
+public class BulkPayoutService {
+
+    /** Called once per row when its chunk is done. */
+    public interface Listener {
+        void onRow(PayoutRow row);
+    }
+
+    private static final BigInteger ETH_TRANSFER_GAS = BigInteger.valueOf(21_000);
+    private static final BigInteger TOKEN_TRANSFER_FALLBACK_GAS = BigInteger.valueOf(100_000);
+
+    private final NetworkManager networkManager;
+    private final WalletService walletService;
+    private final TokenService tokenService;
+    private final TokenRepository tokenRepository;
+    private final TransactionLogDao transactionLogDao;
+    private final int window;
+    private final int chunkSize;
+
+    public BulkPayoutService(NetworkManager networkManager, WalletService walletService, TokenService tokenService,
+                             TokenRepository tokenRepository, TransactionLogDao transactionLogDao) {
+        this(networkManager, walletService, tokenService, tokenRepository, transactionLogDao,
+                DatabaseConfig.getPayoutWindow(), DatabaseConfig.getPayoutChunkSize());
+    }
+
+    public BulkPayoutService(NetworkManager networkManager, WalletService walletService, TokenService tokenService,
+                             TokenRepository tokenRepository, TransactionLogDao transactionLogDao,
+                             int window, int chunkSize) {
+        this.networkManager = networkManager;
+        this.walletService = walletService;
+        this.tokenService = tokenService;
+        this.tokenRepository = tokenRepository;
+        this.transactionLogDao = transactionLogDao;
+        this.window = Math.max(1, window);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Pays out {@code csv} from {@code profileName} on the active network, journaling progress to {@code journal}.
+     */
+    public PayoutReport run(String profileName, String password, Path csv, Path journal, Listener listener) throws Exception {
+        String networkId = networkManager.getActiveNetworkId();
+        return walletService.withCredentials(profileName, password,
+                credentials -> run(credentials, networkId, csv, journal, listener));
+    }
+
+    PayoutReport run(Credentials credentials, String networkId, Path csv, Path journalPath, Listener listener) throws IOException {
+        long started = System.nanoTime();
+        PayoutReport report = new PayoutReport();
+        try (PayoutJournal journal = PayoutJournal.open(journalPath, networkId, credentials.getAddress());
+             PayoutCsvReader reader = new PayoutCsvReader(Files.newBufferedReader(csv, StandardCharsets.UTF_8))) {
+            Payout payout = new Payout(credentials, networkId, journal, report, listener);
+            List<PayoutRow> chunk;
+            while (!(chunk = reader.next(chunkSize)).isEmpty()) {
+                payout.process(chunk);
+            }
+        }
+        report.finish((System.nanoTime() - started) / 1_000_000);
+        return report;
+    }
+
+    /** State shared by the chunks of one run. */
+    private final class Payout {
+        private final Credentials credentials;
+        private final String networkId;
+        private final PayoutJournal journal;
+        private final PayoutReport report;
+        private final Listener listener;
+        private final Web3j web3j;
+        private final NonceManager nonces;
+        private final Long chainId;
+        /** Token column to resolved token; an empty value means ETH. */
+        private final Map<String, Optional<TokenMeta>> tokens = new HashMap<>();
+        private final Map<String, String> tokenErrors = new HashMap<>();
+        private final Map<String, BigInteger> gasLimits = new HashMap<>();
+        /** Set when a broadcast left the local nonce state in doubt; cleared by the next nonce sync. */
+        private boolean resync;
+
+        Payout(Credentials credentials, String networkId, PayoutJournal journal, PayoutReport report, Listener listener) {
+            this.credentials = credentials;
+            this.networkId = networkId;
+            this.journal = journal;
+            this.report = report;
+            this.listener = listener;
+            this.web3j = networkManager.getWeb3j(networkId);
+            this.nonces = networkManager.getNonceManager(networkId, credentials.getAddress());
+            this.chainId = networkManager.getChainId(networkId);
+        }
+
+        void process(List<PayoutRow> chunk) throws IOException {
+            Set<Integer> restored = new HashSet<>();
+            List<PayoutRow> fresh = new ArrayList<>();
+            List<PayoutRow> resend = new ArrayList<>();
+            List<PayoutRow> unlogged = new ArrayList<>();
+
+            for (PayoutRow row : chunk) {
+                if (journal.restore(row)) {
+                    restored.add(row.getLine());
+                }
+                if (row.getStatus() == PayoutRow.Status.INVALID || row.getStatus() == PayoutRow.Status.LOGGED) {
+                    continue;
+                }
+                String tokenError = resolveToken(row);
+                if (row.getStatus() == PayoutRow.Status.SIGNED) {
+                    resend.add(row);
+                } else if (row.getStatus() == PayoutRow.Status.PENDING) {
+                    if (tokenError == null && row.getAmount().stripTrailingZeros().scale() > decimals(row.getToken())) {
+                        tokenError = "too many decimal places for " + row.getSymbol();
+                    }
+                    if (tokenError != null) {
+                        row.setStatus(PayoutRow.Status.INVALID);
+                        row.setError(tokenError);
+                    } else {
+                        fresh.add(row);
+                    }
+                }
+            }
+
+            if (!resend.isEmpty()) {
+                // Rows an interrupted run signed: same nonce, same signature, so at most one of them can land.
+                broadcast(resend, Collections.emptyMap());
+                confirmKnown(resend);
+                resync = true;
+            }
+            if (!fresh.isEmpty()) {
+                Map<Integer, NonceManager.Reservation> reservations = sign(fresh);
+                broadcast(fresh, reservations);
+                fillGaps(fresh);
+            }
+            if (resync) {
+                nonces.invalidate();
+                resync = false;
+            }
+
+            for (PayoutRow row : chunk) {
+                if (row.getStatus() == PayoutRow.Status.SENT) {
+                    unlogged.add(row);
+                }
+            }
+            log(unlogged);
+
+            for (PayoutRow row : chunk) {
+                if (row.getStatus() == PayoutRow.Status.INVALID || row.getStatus() == PayoutRow.Status.FAILED) {
+                    journal.record(row);
+                }
+                report.add(row, restored.contains(row.getLine()));
+                if (listener != null) {
+                    listener.onRow(row);
+                }
+            }
+            journal.sync();
+        }
+
+        /**
+         * Resolves the row's token column; returns an error message if it cannot be resolved.
+         */
+        private String resolveToken(PayoutRow row) {
+            String ref = row.getTokenRef();
+            String key = ref.toLowerCase(Locale.ROOT);
+            if (!tokens.containsKey(key) && !tokenErrors.containsKey(key)) {
+                try {
+                    tokens.put(key, lookupToken(ref));
+                } catch (Exception e) {
+                    tokenErrors.put(key, "unknown token " + ref);
+                }
+            }
+            Optional<TokenMeta> token = tokens.get(key);
+            if (token == null) {
+                return tokenErrors.get(key);
+            }
+            row.setToken(token.orElse(null));
+            return null;
+        }
+
+        private Optional<TokenMeta> lookupToken(String ref) {
+            if ("ETH".equalsIgnoreCase(ref)) {
+                return Optional.empty();
+            }
+            if (WalletUtils.isValidAddress(ref)) {
+                Optional<TokenMeta> known = tokenRepository.find(networkId, ref);
+                return Optional.of(known.orElseGet(() -> tokenService.fetchTokenMeta(networkId, ref).join()));
+            }
+            List<TokenMeta> matches = new ArrayList<>();
+            for (TokenMeta token : tokenRepository.listByNetwork(networkId)) {
+                if (ref.equalsIgnoreCase(token.getSymbol())) {
+                    matches.add(token);
+                }
+            }
+            if (matches.size() != 1) {
+                throw new IllegalArgumentException(matches.isEmpty() ? "unknown token " + ref : "ambiguous token " + ref);
+            }
+            return Optional.of(matches.get(0));
+        }
+
+        /**
+         * Reserves a nonce per row in CSV order, signs all rows in parallel and journals them before anything
+         * is broadcast.
+         */
+        private Map<Integer, NonceManager.Reservation> sign(List<PayoutRow> rows) throws IOException {
+            FeeOracle.Quote fee = networkManager.getFeeOracle(networkId).quote(FeeOracle.Speed.NORMAL);
+
+            Map<Integer, RawTransaction> unsigned = new HashMap<>();
+            Map<Integer, NonceManager.Reservation> reservations = new ConcurrentHashMap<>();
+            for (PayoutRow row : rows) {
+                NonceManager.Reservation reservation = nonces.reserve();
+                reservations.put(row.getLine(), reservation);
+                row.setNonce(reservation.getNonce());
+                unsigned.put(row.getLine(), unsignedTransaction(row, fee, reservation.getNonce()));
+            }
+
+            rows.parallelStream().forEach(row -> {
+                RawTransaction raw = unsigned.get(row.getLine());
+                byte[] signed = chainId != null
+                        ? TransactionEncoder.signMessage(raw, chainId, credentials)
+                        : TransactionEncoder.signMessage(raw, credentials);
+                String hex = Numeric.toHexString(signed);
+                row.setRawTx(hex);
+                row.setTxHash(Hash.sha3(hex));
+                row.setStatus(PayoutRow.Status.SIGNED);
+            });
+
+            journal.recordAll(rows);
+            journal.sync();
+            return reservations;
+        }
+
+        private RawTransaction unsignedTransaction(PayoutRow row, FeeOracle.Quote fee, BigInteger nonce) {
+            TokenMeta token = row.getToken();
+            if (token == null) {
+                BigInteger wei = Convert.toWei(row.getAmount(), Convert.Unit.ETHER).toBigIntegerExact();
+                return fee.newTransaction(chainId, nonce, ETH_TRANSFER_GAS, row.getRecipient(), wei, "");
+            }
+            int decimals = decimals(token);
+            Function transfer = new Function(
+                    "transfer",
+                    List.of(new Address(row.getRecipient()), new Uint256(TokenAmountUtil.toRaw(row.getAmount(), decimals))),
+                    Collections.emptyList()
+            );
+            String data = FunctionEncoder.encode(transfer);
+            return fee.newTransaction(chainId, nonce, tokenGasLimit(token, data), token.getAddress(), BigInteger.ZERO, data);
+        }
+
+        /**
+         * One estimate per token, taken from the first transfer and padded by 20%; ERC-20 transfers cost about
+         * the same for every recipient.
+         */
+        private BigInteger tokenGasLimit(TokenMeta token, String data) {
+            return gasLimits.computeIfAbsent(token.getAddress().toLowerCase(Locale.ROOT), k -> {
+                try {
+                    Transaction tx = Transaction.createFunctionCallTransaction(
+                            credentials.getAddress(), null, null, null, token.getAddress(), BigInteger.ZERO, data);
+                    EthEstimateGas est = web3j.ethEstimateGas(tx).send();
+                    BigInteger used = est.hasError() ? null : est.getAmountUsed();
+                    if (used == null || used.signum() <= 0) {
+                        return TOKEN_TRANSFER_FALLBACK_GAS;
+                    }
+                    return used.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
+                } catch (Exception e) {
+                    return TOKEN_TRANSFER_FALLBACK_GAS;
+                }
+            });
+        }
+
+        /**
+         * Sends every row's signed transaction, keeping at most {@code window} requests outstanding.
+         */
+        private void broadcast(List<PayoutRow> rows, Map<Integer, NonceManager.Reservation> reservations) throws IOException {
+            Semaphore permits = new Semaphore(window);
+            AtomicBoolean resync = new AtomicBoolean();
+            List<CompletableFuture<?>> inFlight = new ArrayList<>(rows.size());
+            for (PayoutRow row : rows) {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while broadcasting payout");
+                }
+                NonceManager.Reservation reservation = reservations.get(row.getLine());
+                inFlight.add(web3j.ethSendRawTransaction(row.getRawTx()).sendAsync()
+                        .handle((resp, ex) -> {
+                            if (!settle(row, resp, ex, reservation)) {
+                                resync.set(true);
+                            }
+                            return null;
+                        })
+                        .whenComplete((v, ex) -> permits.release()));
+            }
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+            if (resync.get()) {
+                this.resync = true;
+            }
+        }
+
+        /**
+         * Applies a broadcast result to the row; returns {@code false} if the local nonce state can no longer
+         * be trusted.
+         *
+         * Only a JSON-RPC error is a definite rejection. When the request fails without an answer the node may
+         * still have taken the transaction, so the row stays SIGNED (and is re-sent with the same signature on
+         * the next run) and its nonce is held as if broadcast rather than handed to another row.
+         */
+        private boolean settle(PayoutRow row, EthSendTransaction resp, Throwable ex, NonceManager.Reservation reservation) {
+            if (ex == null && !resp.hasError()) {
+                sent(row, reservation);
+                return true;
+            }
+            if (ex != null) {
+                row.setError(rootMessage(ex));
+                if (reservation != null) {
+                    reservation.confirm();
+                }
+                return false;
+            }
+            String message = resp.getError().getMessage();
+            String m = message == null ? "" : message.toLowerCase(Locale.ROOT);
+            if (m.contains("already known") || m.contains("known transaction")) {
+                sent(row, reservation);
+                return true;
+            }
+            row.setStatus(PayoutRow.Status.FAILED);
+            row.setError(message);
+            if (reservation != null) {
+                reservation.release();
+            }
+            return !m.contains("nonce");
+        }
+
+        /**
+         * Closes nonce gaps left by rejected rows below rows that did go out; without this the accepted rows
+         * would sit in the mempool until something else used the missing nonce. Each gap gets a zero-value
+         * transfer to the sender.
+         */
+        private void fillGaps(List<PayoutRow> rows) throws IOException {
+            BigInteger highestSent = null;
+            for (PayoutRow row : rows) {
+                if (row.getStatus() != PayoutRow.Status.FAILED && row.getNonce() != null
+                        && (highestSent == null || row.getNonce().compareTo(highestSent) > 0)) {
+                    highestSent = row.getNonce();
+                }
+            }
+            List<BigInteger> gaps = new ArrayList<>();
+            for (PayoutRow row : rows) {
+                if (row.getStatus() == PayoutRow.Status.FAILED && highestSent != null
+                        && row.getNonce().compareTo(highestSent) < 0) {
+                    gaps.add(row.getNonce());
+                }
+            }
+            if (gaps.isEmpty()) {
+                return;
+            }
+            Collections.sort(gaps);
+            FeeOracle.Quote fee = networkManager.getFeeOracle(networkId).quote(FeeOracle.Speed.NORMAL);
+            for (BigInteger gap : gaps) {
+                // Released nonces are handed out lowest first, so the next reservation is this gap.
+                NonceManager.Reservation reservation = nonces.reserve();
+                if (!reservation.getNonce().equals(gap)) {
+                    reservation.release();
+                    resync = true;
+                    return;
+                }
+                RawTransaction raw = fee.newTransaction(chainId, gap, ETH_TRANSFER_GAS, credentials.getAddress(),
+                        BigInteger.ZERO, "");
+                byte[] signed = chainId != null
+                        ? TransactionEncoder.signMessage(raw, chainId, credentials)
+                        : TransactionEncoder.signMessage(raw, credentials);
+                try {
+                    EthSendTransaction resp = web3j.ethSendRawTransaction(Numeric.toHexString(signed)).send();
+                    if (resp.hasError()) {
+                        reservation.release();
+                        resync = true;
+                    } else {
+                        reservation.confirm();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    reservation.confirm();
+                    resync = true;
+                }
+            }
+        }
+
+        private void sent(PayoutRow row, NonceManager.Reservation reservation) {
+            row.setStatus(PayoutRow.Status.SENT);
+            row.setError(null);
+            if (reservation != null) {
+                reservation.confirm();
+            }
+        }
+
+        /**
+         * A re-sent row rejected for its nonce may have been mined by the earlier run; it is done if the chain
+         * knows its hash.
+         */
+        private void confirmKnown(List<PayoutRow> rows) {
+            for (PayoutRow row : rows) {
+                if (row.getStatus() != PayoutRow.Status.FAILED
+                        || row.getError() == null || !row.getError().toLowerCase(Locale.ROOT).contains("nonce")) {
+                    continue;
+                }
+                try {
+                    if (web3j.ethGetTransactionByHash(row.getTxHash()).send().getTransaction().isPresent()) {
+                        sent(row, null);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // Leave it FAILED; the next run checks again.
+                }
+            }
+        }
+
+        /**
+         * Writes one PENDING log per accepted row in a single batch and starts tracking the receipts.
+         */
+        private void log(List<PayoutRow> rows) throws IOException {
+            if (rows.isEmpty()) {
+                return;
+            }
+            List<TransactionLog> logs = new ArrayList<>(rows.size());
+            for (PayoutRow row : rows) {
+                TransactionLog log = new TransactionLog(credentials.getAddress(), row.getTxHash(), row.getAmount(),
+                        row.getSymbol(), "PENDING");
+                log.setNetworkId(networkId);
+                logs.add(log);
+            }
+            try {
+                transactionLogDao.saveAll(logs);
+            } catch (SQLException e) {
+                // The rows are still SIGNED in the journal, so the next run re-sends them (answered "already known")
+                // and tries the insert again.
+                throw new IOException("Could not write transaction logs for the payout", e);
+            }
+
+            for (PayoutRow row : rows) {
+                row.setStatus(PayoutRow.Status.LOGGED);
+            }
+            journal.recordAll(rows);
+            journal.sync();
+
+            TransactionTracker tracker = walletService.getTransactionTracker();
+            int confirmations = DatabaseConfig.getTxConfirmations();
+            for (PayoutRow row : rows) {
+                tracker.track(networkId, row.getTxHash(), confirmations);
+            }
+        }
+    }
+
+    private static int decimals(TokenMeta token) {
+        if (token == null) {
+            return 18;
+        }
+        return token.getDecimals() != null ? token.getDecimals() : 18;
+    }
+
+    private static String rootMessage(Throwable t) {
+        Throwable cur = t;
+        while (cur.getCause() != null) {
+            cur = cur.getCause();
+        }
+        return cur.getMessage() != null ? cur.getMessage() : cur.getClass().getSimpleName();
+    }
+
+    /**
+     * {@code --profile NAME --csv FILE [--journal FILE] [--network ID]}; the journal defaults to
+     * {@code FILE.journal} next to the CSV.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            opts.put(args[i], args[i + 1]);
+        }
+        String profile = opts.get("--profile");
+        String csv = opts.get("--csv");
+        if (profile == null || csv == null) {
+            System.err.println("Usage: --profile NAME --csv payout.csv [--journal payout.csv.journal] [--network sepolia]");
+            System.exit(2);
+        }
+        Path journal = Path.of(opts.getOrDefault("--journal", csv + ".journal"));
+
+        NetworkManager networkManager = NetworkManager.getInstance();
+        if (opts.containsKey("--network")) {
+            networkManager.setActiveNetwork(opts.get("--network"));
+        }
+        MySQLDatabaseConnection db = MySQLDatabaseConnection.getInstance();
+        TransactionLogDao logDao = new MySQLTransactionLogDao(db);
+        WalletService walletService = new WalletService(new MySQLWalletDao(db), logDao, networkManager, new MySQLWalletAccountDao(db));
+        TokenService tokenService = new TokenService(networkManager, walletService, logDao);
+        BulkPayoutService service = new BulkPayoutService(networkManager, walletService, tokenService,
+                new JsonTokenRepository(), logDao);
+
+        Console console = System.console();
+        String password = console != null
+                ? new String(console.readPassword("Password for %s: ", profile))
+                : new Scanner(System.in, StandardCharsets.UTF_8).nextLine();
+
+        PayoutReport report = service.run(profile, password, Path.of(csv), journal, row -> {
+            if (row.getStatus() != PayoutRow.Status.LOGGED) {
+                System.out.println(row);
+            }
+        });
+        System.out.println(report);
+        walletService.lockAll();
+        System.exit(report.getFailed() > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,107 @@
+package io.openwallet.payout;
+
+import org.web3j.crypto.WalletUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams {@code recipient,amount,token} rows out of a payout CSV and checks their syntax.
+ *
+ * Blank lines and lines starting with {@code #} are skipped, as is a header line whose first column is not an
+ * address. A missing token column means ETH. Rows that fail the checks come back {@link PayoutRow.Status#INVALID}.
+ */
+public class PayoutCsvReader implements AutoCloseable {
+
+    private final BufferedReader reader;
+    private int line;
+    private boolean seenRecord;
+
+    public PayoutCsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Next row, or {@code null} at the end of the file.
+     */
+    public PayoutRow next() throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            String trimmed = text.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            List<String> cols = split(trimmed);
+            String recipient = cols.get(0);
+            boolean first = !seenRecord;
+            seenRecord = true;
+            if (first && !recipient.startsWith("0x") && !recipient.startsWith("0X")) {
+                continue;
+            }
+            String amount = cols.size() > 1 ? cols.get(1) : "";
+            String token = cols.size() > 2 && !cols.get(2).isEmpty() ? cols.get(2) : "ETH";
+            PayoutRow row = new PayoutRow(line, recipient, amount, token);
+            validate(row, cols.size());
+            return row;
+        }
+        return null;
+    }
+
+    /**
+     * Up to {@code max} rows; empty at the end of the file.
+     */
+    public List<PayoutRow> next(int max) throws IOException {
+        List<PayoutRow> rows = new ArrayList<>();
+        PayoutRow row;
+        while (rows.size() < max && (row = next()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static void validate(PayoutRow row, int columns) {
+        if (columns > 3) {
+            invalid(row, "expected recipient,amount,token");
+        } else if (!WalletUtils.isValidAddress(row.getRecipient()) || !row.getRecipient().startsWith("0x")) {
+            invalid(row, "invalid recipient address");
+        } else {
+            try {
+                BigDecimal amount = new BigDecimal(row.getAmountText());
+                if (amount.signum() <= 0) {
+                    invalid(row, "amount must be positive");
+                } else {
+                    row.setAmount(amount);
+                }
+            } catch (NumberFormatException e) {
+                invalid(row, "invalid amount");
+            }
+        }
+    }
+
+    private static void invalid(PayoutRow row, String error) {
+        row.setStatus(PayoutRow.Status.INVALID);
+        row.setError(error);
+    }
+
+    private static List<String> split(String line) {
+        List<String> cols = new ArrayList<>(3);
+        for (String col : line.split(",", -1)) {
+            String c = col.trim();
+            if (c.length() >= 2 && c.startsWith("\"") && c.endsWith("\"")) {
+                c = c.substring(1, c.length() - 1).trim();
+            }
+            cols.add(c);
+        }
+        return cols;
+    }
+}
@@ -0,0 +1,145 @@
+package io.openwallet.payout;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only JSON-lines record of a payout, so an interrupted run can pick up where it stopped.
+ *
+ * The first line names the sender and network; every later line is the latest state of one CSV row. Signed
+ * transactions are forced to disk before they are broadcast, so after a crash a row is either re-broadcast
+ * with the same nonce and signature or known to be done; it is never paid twice.
+ */
+public class PayoutJournal implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final FileChannel channel;
+    private final OutputStream out;
+    private final Map<Integer, JsonNode> rows = new HashMap<>();
+
+    private PayoutJournal(Path path, String networkId, String from) throws IOException {
+        boolean exists = Files.exists(path) && Files.size(path) > 0;
+        if (exists) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line = reader.readLine();
+                JsonNode header = line == null ? null : MAPPER.readTree(line);
+                if (header == null
+                        || !networkId.equals(header.path("network").asText())
+                        || !from.equalsIgnoreCase(header.path("from").asText())) {
+                    throw new IllegalStateException("Journal " + path + " belongs to a different sender or network");
+                }
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode entry;
+                    try {
+                        entry = MAPPER.readTree(line);
+                    } catch (IOException e) {
+                        // A torn last line from a crash; everything before it is intact.
+                        break;
+                    }
+                    rows.put(entry.path("line").asInt(), entry);
+                }
+            }
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.out = Channels.newOutputStream(channel);
+        if (!exists) {
+            ObjectNode header = MAPPER.createObjectNode();
+            header.put("network", networkId);
+            header.put("from", from);
+            write(header);
+            sync();
+        }
+    }
+
+    /**
+     * Opens (or creates) the journal for a payout from {@code from} on {@code networkId}.
+     */
+    public static PayoutJournal open(Path path, String networkId, String from) throws IOException {
+        return new PayoutJournal(path, networkId, from);
+    }
+
+    /**
+     * Copies what an earlier run recorded for this row onto it if the row got as far as being signed; returns
+     * {@code false} for new rows and for rows that were invalid or failed, which are simply tried again.
+     */
+    public synchronized boolean restore(PayoutRow row) {
+        JsonNode entry = rows.get(row.getLine());
+        if (entry == null) {
+            return false;
+        }
+        PayoutRow.Status status = PayoutRow.Status.valueOf(entry.path("status").asText());
+        if (status != PayoutRow.Status.SIGNED && status != PayoutRow.Status.SENT && status != PayoutRow.Status.LOGGED) {
+            return false;
+        }
+        row.setStatus(status);
+        row.setNonce(entry.hasNonNull("nonce") ? new BigInteger(entry.get("nonce").asText()) : null);
+        row.setTxHash(entry.hasNonNull("hash") ? entry.get("hash").asText() : null);
+        row.setRawTx(entry.hasNonNull("raw") ? entry.get("raw").asText() : null);
+        row.setError(entry.hasNonNull("error") ? entry.get("error").asText() : null);
+        return true;
+    }
+
+    public synchronized void record(PayoutRow row) throws IOException {
+        ObjectNode entry = MAPPER.createObjectNode();
+        entry.put("line", row.getLine());
+        entry.put("status", row.getStatus().name());
+        if (row.getNonce() != null) {
+            entry.put("nonce", row.getNonce().toString());
+        }
+        if (row.getTxHash() != null) {
+            entry.put("hash", row.getTxHash());
+        }
+        if (row.getStatus() == PayoutRow.Status.SIGNED && row.getRawTx() != null) {
+            entry.put("raw", row.getRawTx());
+        }
+        if (row.getError() != null) {
+            entry.put("error", row.getError());
+        }
+        write(entry);
+        rows.put(row.getLine(), entry);
+    }
+
+    public synchronized void recordAll(Collection<PayoutRow> batch) throws IOException {
+        for (PayoutRow row : batch) {
+            record(row);
+        }
+    }
+
+    /**
+     * Forces everything recorded so far to disk.
+     */
+    public synchronized void sync() throws IOException {
+        out.flush();
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    private void write(JsonNode entry) throws IOException {
+        out.write(MAPPER.writeValueAsBytes(entry));
+        out.write('\n');
+    }
+}
@@ -0,0 +1,65 @@
+package io.openwallet.payout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a payout run: per-row status plus totals and throughput.
+ */
+public class PayoutReport {
+
+    private final List<PayoutRow> rows = new ArrayList<>();
+    private int sent;
+    private int failed;
+    private int invalid;
+    private int resumed;
+    private long elapsedMillis;
+
+    synchronized void add(PayoutRow row, boolean fromEarlierRun) {
+        rows.add(row);
+        if (fromEarlierRun) {
+            resumed++;
+        }
+        switch (row.getStatus()) {
+            case SENT, LOGGED -> {
+                if (!fromEarlierRun) {
+                    sent++;
+                }
+            }
+            case FAILED, SIGNED, PENDING -> failed++;
+            case INVALID -> invalid++;
+        }
+    }
+
+    void finish(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public synchronized List<PayoutRow> getRows() {
+        return Collections.unmodifiableList(new ArrayList<>(rows));
+    }
+
+    /** Rows broadcast by this run. */
+    public synchronized int getSent() { return sent; }
+
+    public synchronized int getFailed() { return failed; }
+
+    public synchronized int getInvalid() { return invalid; }
+
+    /** Rows an earlier, interrupted run had already sent. */
+    public synchronized int getResumed() { return resumed; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    /** Transactions broadcast per second by this run. */
+    public synchronized double getTxPerSecond() {
+        return elapsedMillis > 0 ? sent * 1000.0 / elapsedMillis : 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d sent, %d failed, %d invalid, %d already done; %.1f tx/s over %d ms",
+                sent, failed, invalid, resumed, getTxPerSecond(), elapsedMillis);
+    }
+}
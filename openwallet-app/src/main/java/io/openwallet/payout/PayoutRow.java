@@ -0,0 +1,92 @@
+package io.openwallet.payout;
+
+import io.openwallet.model.TokenMeta;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * One line of a payout CSV and how far it has got.
+ */
+public class PayoutRow {
+
+    public enum Status {
+        /** Read and valid, not signed yet. */
+        PENDING,
+        /** Rejected by validation; see {@link #getError()}. */
+        INVALID,
+        /** Signed with a reserved nonce and journaled, not yet accepted by a node. */
+        SIGNED,
+        /** Accepted by a node. */
+        SENT,
+        /** Accepted and written to {@code transaction_logs}. */
+        LOGGED,
+        /** Rejected by the node; see {@link #getError()}. */
+        FAILED
+    }
+
+    private final int line;
+    private final String recipient;
+    private final String amountText;
+    private final String tokenRef;
+    private BigDecimal amount;
+    private TokenMeta token;
+    private Status status = Status.PENDING;
+    private String error;
+    private BigInteger nonce;
+    private String txHash;
+    private String rawTx;
+
+    public PayoutRow(int line, String recipient, String amountText, String tokenRef) {
+        this.line = line;
+        this.recipient = recipient;
+        this.amountText = amountText;
+        this.tokenRef = tokenRef;
+    }
+
+    /** 1-based line number in the CSV; identifies the row in the journal. */
+    public int getLine() { return line; }
+
+    public String getRecipient() { return recipient; }
+
+    public String getAmountText() { return amountText; }
+
+    /** Token column as written: {@code ETH}, a token symbol or a token contract address. */
+    public String getTokenRef() { return tokenRef; }
+
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+
+    /** Resolved ERC-20 token, or {@code null} for native ETH. */
+    public TokenMeta getToken() { return token; }
+    public void setToken(TokenMeta token) { this.token = token; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public BigInteger getNonce() { return nonce; }
+    public void setNonce(BigInteger nonce) { this.nonce = nonce; }
+
+    public String getTxHash() { return txHash; }
+    public void setTxHash(String txHash) { this.txHash = txHash; }
+
+    public String getRawTx() { return rawTx; }
+    public void setRawTx(String rawTx) { this.rawTx = rawTx; }
+
+    public String getSymbol() {
+        if (token == null) {
+            return "ETH";
+        }
+        return token.getSymbol() != null ? token.getSymbol() : "TOKEN";
+    }
+
+    @Override
+    public String toString() {
+        return "line " + line + " " + recipient + " " + amountText + " " + tokenRef + ": " + status
+                + (txHash != null ? " " + txHash : "")
+                + (error != null ? " (" + error + ")" : "");
+    }
+}
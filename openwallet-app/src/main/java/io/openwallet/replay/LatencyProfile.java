@@ -0,0 +1,66 @@
+package io.openwallet.replay;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Per-method simulated latency for replay, e.g. {@code "eth_getLogs=250:80,eth_call=40:10,*=20:5"}.
+ *
+ * Each entry is {@code method=base[:jitter]} in milliseconds, or {@code method=recorded} to reuse the latency
+ * captured with the response. {@code *} sets the default; methods without an entry (and no default) replay
+ * their recorded latency. Jitter is uniform in {@code [-jitter, +jitter]} and drawn from a seeded generator,
+ * so two runs with the same seed and request order see the same delays.
+ */
+public class LatencyProfile {
+
+    private static final String DEFAULT = "*";
+
+    private final Map<String, long[]> byMethod = new HashMap<>();
+    private final Random random;
+
+    public LatencyProfile(String spec, long seed) {
+        this.random = new Random(seed);
+        if (spec == null || spec.isBlank()) {
+            return;
+        }
+        for (String part : spec.split(",")) {
+            String entry = part.trim();
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected method=base[:jitter], got '" + entry + "'");
+            }
+            String method = entry.substring(0, eq).trim();
+            String value = entry.substring(eq + 1).trim();
+            if ("recorded".equalsIgnoreCase(value)) {
+                byMethod.put(method, null);
+                continue;
+            }
+            String[] bounds = value.split(":");
+            try {
+                long base = Long.parseLong(bounds[0].trim());
+                long jitter = bounds.length > 1 ? Long.parseLong(bounds[1].trim()) : 0;
+                byMethod.put(method, new long[]{Math.max(0, base), Math.max(0, jitter)});
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid latency for " + method + ": '" + value + "'", e);
+            }
+        }
+    }
+
+    /**
+     * @return how long to hold the response for {@code method}.
+     */
+    public long delayMillis(String method, long recordedMillis) {
+        long[] config = byMethod.containsKey(method) ? byMethod.get(method) : byMethod.get(DEFAULT);
+        if (config == null) {
+            return Math.max(0, recordedMillis);
+        }
+        long jitter = 0;
+        if (config[1] > 0) {
+            synchronized (random) {
+                jitter = (long) ((random.nextDouble() * 2 - 1) * config[1]);
+            }
+        }
+        return Math.max(0, config[0] + jitter);
+    }
+}
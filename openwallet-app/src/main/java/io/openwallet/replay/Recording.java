@@ -0,0 +1,279 @@
+package io.openwallet.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Recorded JSON-RPC and HTTP exchanges, stored as one JSON object per line (gzip-compressed for {@code .gz} files).
+ *
+ * Each key keeps every recorded response in order; replay walks through them and then keeps serving the last,
+ * so a sequence like successive {@code eth_blockNumber} heads plays back the way it was captured. Reads pinned to
+ * a block also match by their "loose" key without the block, in case the replayed head differs from the recorded one.
+ */
+public class Recording implements Closeable {
+
+    /** Methods whose last parameter is a block tag or number. */
+    private static final Set<String> BLOCK_SCOPED_METHODS = Set.of(
+            "eth_call",
+            "eth_getBalance",
+            "eth_getTransactionCount",
+            "eth_getCode",
+            "eth_getStorageAt",
+            "eth_estimateGas"
+    );
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Map<String, Sequence> byKey = new HashMap<>();
+    private final Map<String, Sequence> byLooseKey = new HashMap<>();
+    private Writer writer;
+    private int size;
+
+    /**
+     * Loads a recording for replay.
+     */
+    public static Recording load(Path file) throws IOException {
+        Recording recording = new Recording();
+        try (InputStream raw = Files.newInputStream(file);
+             InputStream in = file.toString().endsWith(".gz") ? new GZIPInputStream(raw) : raw;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    recording.index(Exchange.fromJson(MAPPER.readTree(line)));
+                }
+            }
+        }
+        return recording;
+    }
+
+    /**
+     * Opens {@code file} for recording, replacing any previous contents.
+     */
+    public static Recording create(Path file) throws IOException {
+        Recording recording = new Recording();
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        OutputStream out = Files.newOutputStream(file);
+        if (file.toString().endsWith(".gz")) {
+            out = new GZIPOutputStream(out, 64 * 1024);
+        }
+        recording.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        return recording;
+    }
+
+    public synchronized void append(Exchange exchange) throws IOException {
+        index(exchange);
+        if (writer != null) {
+            writer.write(MAPPER.writeValueAsString(exchange.toJson()));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * @return the next recorded response for {@code key} (or its loose form), or {@code null} if never recorded.
+     */
+    public synchronized Exchange next(String key, String looseKey) {
+        Sequence seq = byKey.get(key);
+        if (seq == null && looseKey != null) {
+            seq = byLooseKey.get(looseKey);
+        }
+        return seq != null ? seq.next() : null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * Lookup key of a JSON-RPC request: method and parameters, without the request id.
+     */
+    public static String rpcKey(JsonNode request) {
+        String method = request.path("method").asText();
+        JsonNode params = request.get("params");
+        return "rpc " + method + " " + (params != null ? params.toString() : "[]");
+    }
+
+    /**
+     * Lookup key ignoring the block parameter, or {@code null} for methods that do not take one.
+     */
+    public static String looseRpcKey(JsonNode request) {
+        String method = request.path("method").asText();
+        JsonNode params = request.get("params");
+        if (!BLOCK_SCOPED_METHODS.contains(method) || params == null || !params.isArray() || params.size() < 2) {
+            return null;
+        }
+        ArrayNode trimmed = MAPPER.createArrayNode();
+        for (int i = 0; i < params.size() - 1; i++) {
+            trimmed.add(params.get(i));
+        }
+        return "rpc~ " + method + " " + trimmed;
+    }
+
+    /**
+     * Lookup key of a plain HTTP request; the API key segment of NFT API paths is masked.
+     */
+    public static String httpKey(String method, String pathAndQuery) {
+        return "http " + method + " " + pathAndQuery.replaceFirst("(/nft/v\\d+/)[^/?]+", "$1-");
+    }
+
+    private void index(Exchange exchange) {
+        byKey.computeIfAbsent(exchange.key, k -> new Sequence()).add(exchange);
+        if (exchange.looseKey != null) {
+            byLooseKey.computeIfAbsent(exchange.looseKey, k -> new Sequence()).add(exchange);
+        }
+        size++;
+    }
+
+    private static final class Sequence {
+        final List<Exchange> items = new ArrayList<>();
+        int cursor;
+
+        void add(Exchange e) {
+            items.add(e);
+        }
+
+        Exchange next() {
+            Exchange e = items.get(Math.min(cursor, items.size() - 1));
+            if (cursor < items.size()) {
+                cursor++;
+            }
+            return e;
+        }
+    }
+
+    /**
+     * One recorded response. For JSON-RPC {@code body} is the response object without its id.
+     */
+    public static final class Exchange {
+        private final String key;
+        private final String looseKey;
+        private final String method;
+        private final long latencyMillis;
+        private final int status;
+        private final String contentType;
+        private final JsonNode rpcResponse;
+        private final String body;
+
+        private Exchange(String key, String looseKey, String method, long latencyMillis, int status,
+                         String contentType, JsonNode rpcResponse, String body) {
+            this.key = key;
+            this.looseKey = looseKey;
+            this.method = method;
+            this.latencyMillis = latencyMillis;
+            this.status = status;
+            this.contentType = contentType;
+            this.rpcResponse = rpcResponse;
+            this.body = body;
+        }
+
+        public static Exchange rpc(JsonNode request, JsonNode response, long latencyMillis) {
+            ObjectNode stripped = response.deepCopy();
+            stripped.remove("id");
+            return new Exchange(rpcKey(request), looseRpcKey(request), request.path("method").asText(),
+                    latencyMillis, 200, "application/json", stripped, null);
+        }
+
+        public static Exchange http(String method, String pathAndQuery, String label, long latencyMillis,
+                                    int status, String contentType, String body) {
+            return new Exchange(httpKey(method, pathAndQuery), null, label, latencyMillis, status, contentType, null, body);
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * The recorded JSON-RPC response re-addressed to {@code id}.
+         */
+        public ObjectNode rpcResponseFor(JsonNode id) {
+            ObjectNode out = rpcResponse.deepCopy();
+            out.set("id", id);
+            return out;
+        }
+
+        boolean isRpc() {
+            return rpcResponse != null;
+        }
+
+        JsonNode toJson() {
+            ObjectNode node = MAPPER.createObjectNode();
+            node.put("k", key);
+            if (looseKey != null) {
+                node.put("lk", looseKey);
+            }
+            node.put("m", method);
+            node.put("ms", latencyMillis);
+            if (isRpc()) {
+                node.set("r", rpcResponse);
+            } else {
+                node.put("s", status);
+                node.put("ct", contentType);
+                node.put("b", body);
+            }
+            return node;
+        }
+
+        static Exchange fromJson(JsonNode node) {
+            JsonNode r = node.get("r");
+            return new Exchange(
+                    node.path("k").asText(),
+                    node.hasNonNull("lk") ? node.get("lk").asText() : null,
+                    node.path("m").asText(),
+                    node.path("ms").asLong(),
+                    node.path("s").asInt(200),
+                    node.hasNonNull("ct") ? node.get("ct").asText() : "application/json",
+                    r,
+                    node.hasNonNull("b") ? node.get("b").asText() : null
+            );
+        }
+    }
+}
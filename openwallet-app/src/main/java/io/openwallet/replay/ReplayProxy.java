@@ -0,0 +1,360 @@
+package io.openwallet.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.openwallet.rpc.DaemonThreadFactory;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a Sepolia JSON-RPC endpoint and the Alchemy NFT API, for repeatable offline benchmarks.
+ *
+ * In record mode JSON-RPC posts to {@code /rpc} and NFT API gets under {@code /nft/...} are forwarded upstream
+ * and every response is appended to a {@link Recording}; batches are recorded call by call. In replay mode the
+ * same requests are answered from the recording, each held back by the {@link LatencyProfile} delay for its
+ * method (the slowest call sets a batch's delay). Unknown calls get a JSON-RPC error or HTTP 404 and are
+ * counted as misses. Point the app at the proxy with {@code OPENWALLET_REPLAY_URL=http://127.0.0.1:<port>}.
+ */
+public class ReplayProxy implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final Recording recording;
+    private final LatencyProfile latency;
+    private final String rpcUpstream;
+    private final String nftUpstream;
+    private final OkHttpClient upstream;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService delayer;
+
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private ReplayProxy(int port, Recording recording, LatencyProfile latency, String rpcUpstream, String nftUpstream) throws IOException {
+        this.recording = recording;
+        this.latency = latency;
+        this.rpcUpstream = rpcUpstream;
+        this.nftUpstream = nftUpstream != null ? stripTrailingSlash(nftUpstream) : null;
+        this.upstream = rpcUpstream != null
+                ? new OkHttpClient.Builder().connectTimeout(Duration.ofSeconds(15)).readTimeout(Duration.ofSeconds(60)).build()
+                : null;
+        this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("openwallet-replay"));
+        this.delayer = Executors.newScheduledThreadPool(2, new DaemonThreadFactory("openwallet-replay-delay"));
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 256);
+        this.server.setExecutor(executor);
+        this.server.createContext("/rpc", this::handleRpc);
+        this.server.createContext("/nft", this::handleHttp);
+    }
+
+    /**
+     * Forwards to {@code rpcUpstream} (and {@code nftUpstream}, e.g. {@code https://eth-sepolia.g.alchemy.com})
+     * and records each response into {@code recording}.
+     */
+    public static ReplayProxy record(int port, String rpcUpstream, String nftUpstream, Recording recording) throws IOException {
+        return new ReplayProxy(port, recording, null, rpcUpstream, nftUpstream);
+    }
+
+    /**
+     * Serves {@code recording} with the delays from {@code latency}.
+     */
+    public static ReplayProxy replay(int port, Recording recording, LatencyProfile latency) throws IOException {
+        return new ReplayProxy(port, recording, latency, null, null);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Base URL to configure as {@code OPENWALLET_REPLAY_URL}.
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public boolean isRecording() {
+        return upstream != null;
+    }
+
+    public long getServed() {
+        return served.get();
+    }
+
+    public long getRecorded() {
+        return recorded.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop(0);
+        delayer.shutdownNow();
+        executor.shutdownNow();
+        if (upstream != null) {
+            upstream.dispatcher().executorService().shutdown();
+            upstream.connectionPool().evictAll();
+        }
+        recording.close();
+    }
+
+    private void handleRpc(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "text/plain", "JSON-RPC expects POST".getBytes(StandardCharsets.UTF_8), 0);
+                return;
+            }
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (isRecording()) {
+                recordRpc(exchange, body);
+            } else {
+                replayRpc(exchange, MAPPER.readTree(body));
+            }
+        } catch (Exception e) {
+            send(exchange, 502, "text/plain", String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8), 0);
+        }
+    }
+
+    private void handleHttp(HttpExchange exchange) throws IOException {
+        try {
+            String pathAndQuery = exchange.getRequestURI().getRawPath()
+                    + (exchange.getRequestURI().getRawQuery() != null ? "?" + exchange.getRequestURI().getRawQuery() : "");
+            String method = exchange.getRequestMethod();
+            if (isRecording()) {
+                recordHttp(exchange, method, pathAndQuery);
+                return;
+            }
+            Recording.Exchange hit = recording.next(Recording.httpKey(method, pathAndQuery), null);
+            if (hit == null) {
+                misses.incrementAndGet();
+                send(exchange, 404, "text/plain", ("Not recorded: " + method + " " + exchange.getRequestURI().getRawPath())
+                        .getBytes(StandardCharsets.UTF_8), 0);
+                return;
+            }
+            byte[] out = hit.getBody() != null ? hit.getBody().getBytes(StandardCharsets.UTF_8) : new byte[0];
+            send(exchange, hit.getStatus(), hit.getContentType(), out, latency.delayMillis(hit.getMethod(), hit.getLatencyMillis()));
+        } catch (Exception e) {
+            send(exchange, 502, "text/plain", String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8), 0);
+        }
+    }
+
+    private void replayRpc(HttpExchange exchange, JsonNode request) throws IOException {
+        long delay = 0;
+        JsonNode out;
+        if (request.isArray()) {
+            ArrayNode responses = MAPPER.createArrayNode();
+            for (JsonNode call : request) {
+                long[] callDelay = new long[1];
+                responses.add(replayCall(call, callDelay));
+                delay = Math.max(delay, callDelay[0]);
+            }
+            out = responses;
+        } else {
+            long[] callDelay = new long[1];
+            out = replayCall(request, callDelay);
+            delay = callDelay[0];
+        }
+        send(exchange, 200, "application/json", MAPPER.writeValueAsBytes(out), delay);
+    }
+
+    private ObjectNode replayCall(JsonNode call, long[] delay) {
+        String method = call.path("method").asText();
+        Recording.Exchange hit = recording.next(Recording.rpcKey(call), Recording.looseRpcKey(call));
+        if (hit == null) {
+            misses.incrementAndGet();
+            ObjectNode error = MAPPER.createObjectNode();
+            error.put("jsonrpc", "2.0");
+            error.set("id", call.get("id"));
+            ObjectNode e = error.putObject("error");
+            e.put("code", -32000);
+            e.put("message", "Not recorded: " + method);
+            delay[0] = latency.delayMillis(method, 0);
+            return error;
+        }
+        delay[0] = latency.delayMillis(method, hit.getLatencyMillis());
+        return hit.rpcResponseFor(call.get("id"));
+    }
+
+    private void recordRpc(HttpExchange exchange, byte[] body) throws IOException {
+        Request request = new Request.Builder().url(rpcUpstream).post(RequestBody.create(body, JSON)).build();
+        long start = System.nanoTime();
+        try (Response response = upstream.newCall(request).execute()) {
+            byte[] out = readBody(response);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (response.isSuccessful()) {
+                recordRpcExchanges(MAPPER.readTree(body), out, elapsed);
+            }
+            send(exchange, response.code(), "application/json", out, 0);
+        }
+    }
+
+    private void recordRpcExchanges(JsonNode request, byte[] responseBytes, long elapsedMillis) throws IOException {
+        JsonNode response;
+        try {
+            response = MAPPER.readTree(responseBytes);
+        } catch (IOException e) {
+            return;
+        }
+        if (request.isArray() && response.isArray()) {
+            Map<String, JsonNode> byId = new HashMap<>();
+            for (JsonNode r : response) {
+                byId.put(r.path("id").asText(), r);
+            }
+            for (JsonNode call : request) {
+                JsonNode r = byId.get(call.path("id").asText());
+                if (r != null) {
+                    recording.append(Recording.Exchange.rpc(call, r, elapsedMillis));
+                    recorded.incrementAndGet();
+                }
+            }
+        } else if (request.isObject() && response.isObject()) {
+            recording.append(Recording.Exchange.rpc(request, response, elapsedMillis));
+            recorded.incrementAndGet();
+        }
+    }
+
+    private void recordHttp(HttpExchange exchange, String method, String pathAndQuery) throws IOException {
+        if (nftUpstream == null) {
+            send(exchange, 502, "text/plain", "No NFT API upstream configured".getBytes(StandardCharsets.UTF_8), 0);
+            return;
+        }
+        Request request = new Request.Builder().url(nftUpstream + pathAndQuery).header("User-Agent", "OpenWallet").get().build();
+        long start = System.nanoTime();
+        try (Response response = upstream.newCall(request).execute()) {
+            byte[] out = readBody(response);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            String contentType = response.header("Content-Type", "application/json");
+            recording.append(Recording.Exchange.http(method, pathAndQuery, labelOf(pathAndQuery), elapsed,
+                    response.code(), contentType, new String(out, StandardCharsets.UTF_8)));
+            recorded.incrementAndGet();
+            send(exchange, response.code(), contentType, out, 0);
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, String contentType, byte[] body, long delayMillis) throws IOException {
+        served.incrementAndGet();
+        if (delayMillis <= 0) {
+            write(exchange, status, contentType, body);
+            return;
+        }
+        // Hold the response without holding a server thread, so concurrent calls overlap like they would upstream.
+        delayer.schedule(() -> {
+            try {
+                write(exchange, status, contentType, body);
+            } catch (IOException ignored) {
+                // Client went away.
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void write(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static byte[] readBody(Response response) throws IOException {
+        ResponseBody body = response.body();
+        return body != null ? body.bytes() : new byte[0];
+    }
+
+    /**
+     * Latency label of an NFT API path, matching the app's metrics labels, e.g. {@code nft.getNFTsForOwner}.
+     */
+    static String labelOf(String pathAndQuery) {
+        int q = pathAndQuery.indexOf('?');
+        String path = q >= 0 ? pathAndQuery.substring(0, q) : pathAndQuery;
+        int slash = path.lastIndexOf('/');
+        return "nft." + path.substring(slash + 1);
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * {@code record --rpc-upstream URL [--nft-upstream URL] --file F [--port P]}
+     * or {@code replay --file F [--port P] [--latency SPEC] [--seed N]}.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !("record".equals(args[0]) || "replay".equals(args[0]))) {
+            usage();
+            return;
+        }
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            opts.put(args[i], args[i + 1]);
+        }
+        String file = opts.get("--file");
+        int port = Integer.parseInt(opts.getOrDefault("--port", "8545"));
+        if (file == null) {
+            usage();
+            return;
+        }
+
+        ReplayProxy proxy;
+        if ("record".equals(args[0])) {
+            String rpc = opts.get("--rpc-upstream");
+            if (rpc == null) {
+                usage();
+                return;
+            }
+            proxy = record(port, rpc, opts.getOrDefault("--nft-upstream", "https://eth-sepolia.g.alchemy.com"),
+                    Recording.create(Path.of(file)));
+        } else {
+            Recording recording = Recording.load(Path.of(file));
+            LatencyProfile profile = new LatencyProfile(opts.get("--latency"), Long.parseLong(opts.getOrDefault("--seed", "1")));
+            proxy = replay(port, recording, profile);
+            System.out.println("Loaded " + recording.size() + " recorded responses from " + file);
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                proxy.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            System.out.println("served=" + proxy.getServed() + " recorded=" + proxy.getRecorded() + " misses=" + proxy.getMisses());
+        }));
+        proxy.start();
+        System.out.println((proxy.isRecording() ? "Recording" : "Replaying") + " on " + proxy.getUrl()
+                + " (set OPENWALLET_REPLAY_URL=" + proxy.getUrl() + ")");
+        Thread.currentThread().join();
+    }
+
+    private static void usage() {
+        System.err.println("Usage:");
+        System.err.println("  record --rpc-upstream URL [--nft-upstream URL] --file out.jsonl.gz [--port 8545]");
+        System.err.println("  replay --file in.jsonl.gz [--port 8545] [--latency eth_getLogs=250:80,*=20:5] [--seed 1]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,445 @@
+package io.openwallet.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.openwallet.metrics.CountingInputStream;
+import io.openwallet.metrics.RpcMetrics;
+import okhttp3.Headers;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link HttpService} that coalesces concurrent async JSON-RPC calls into batch requests.
+ *
+ * Calls made through {@link #sendAsync} within {@code lingerMillis} of each other are posted as a single
+ * JSON-RPC batch array of at most {@code maxBatchSize} entries, and responses are routed back to each
+ * caller's future by request id. If the endpoint rejects batches outright (a 4xx other than 408/429, or one
+ * error object for the whole array with code -32600 or a message about batches) the service switches to single
+ * requests, and tries a batch again after {@link #BATCH_REPROBE_MILLIS}; a transient 5xx, throttle or any other
+ * error object only fails the calls of that one batch.
+ * Blocking {@link #send} calls, and async ones made through {@link #sendAsyncUnbatched} for a caller that waits
+ * on them, are not delayed and go out immediately. Unlike {@link HttpService}, single responses are not
+ * buffered: the response type is decoded from the live body stream.
+ *
+ * With an {@link RpcMetrics} registry, every call's latency (queueing included) and outcome is recorded per
+ * method and endpoint, and each HTTP exchange's payload sizes are split across the methods it carried.
+ */
+public class BatchingHttpService extends HttpService {
+
+    /** Methods that are always sent on their own (writes, and responses that can be very large). */
+    private static final Set<String> UNBATCHED_METHODS = Set.of(
+            "eth_sendRawTransaction",
+            "eth_sendTransaction",
+            // Log responses can be megabytes; on their own they are decoded straight off the socket.
+            "eth_getLogs"
+    );
+
+    /** How long a batch rejection keeps the service on single requests before batching is tried again. */
+    static final long BATCH_REPROBE_MILLIS = 10 * 60 * 1000;
+
+    private final OkHttpClient httpClient;
+    private final int maxBatchSize;
+    private final long lingerMillis;
+    private final RpcMetrics metrics;
+    private final String endpoint;
+    /** Methods carried by the exchange the current thread is performing, for payload accounting. */
+    private final ThreadLocal<List<String>> exchangeMethods = new ThreadLocal<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService ioExecutor;
+
+    private final Object queueLock = new Object();
+    private List<PendingCall<?>> queue = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    /** {@code System.currentTimeMillis()} until which batches are not attempted; 0 while batching works. */
+    private volatile long batchingDisabledUntil;
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong batchedCalls = new AtomicLong();
+    private final AtomicLong singleCalls = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public BatchingHttpService(String url, int maxBatchSize, long lingerMillis) {
+        this(url, HttpService.getOkHttpClientBuilder().build(), maxBatchSize, lingerMillis);
+    }
+
+    public BatchingHttpService(String url, OkHttpClient httpClient, int maxBatchSize, long lingerMillis) {
+        this(url, httpClient, maxBatchSize, lingerMillis, null);
+    }
+
+    public BatchingHttpService(String url, OkHttpClient httpClient, int maxBatchSize, long lingerMillis, RpcMetrics metrics) {
+        super(url, httpClient, false);
+        this.httpClient = httpClient;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.lingerMillis = Math.max(0, lingerMillis);
+        this.metrics = metrics;
+        this.endpoint = RpcMetrics.endpointOf(url);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("openwallet-rpc-linger"));
+        this.ioExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("openwallet-rpc-io"));
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        inFlight.incrementAndGet();
+        RpcMetrics.Timer timer = metrics != null ? metrics.startRpc(endpoint, request.getMethod()) : null;
+        try {
+            T response = sendTracked(request, responseType);
+            finish(timer, response, null);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            finish(timer, null, e);
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        inFlight.incrementAndGet();
+        RpcMetrics.Timer timer = metrics != null ? metrics.startRpc(endpoint, request.getMethod()) : null;
+        CompletableFuture<T> future = enqueue(request, responseType);
+        future.whenComplete((r, ex) -> {
+            inFlight.decrementAndGet();
+            finish(timer, r, ex);
+        });
+        return future;
+    }
+
+    /**
+     * Like {@link #sendAsync}, for a caller that is blocked on the result: the call skips the linger window and
+     * goes out on its own right away.
+     */
+    public <T extends Response> CompletableFuture<T> sendAsyncUnbatched(Request request, Class<T> responseType) {
+        inFlight.incrementAndGet();
+        RpcMetrics.Timer timer = metrics != null ? metrics.startRpc(endpoint, request.getMethod()) : null;
+        CompletableFuture<T> future = sendSingleAsync(request, responseType);
+        future.whenComplete((r, ex) -> {
+            inFlight.decrementAndGet();
+            finish(timer, r, ex);
+        });
+        return future;
+    }
+
+    @Override
+    protected InputStream performIO(String payload) throws IOException {
+        if (metrics == null) {
+            return openStream(payload);
+        }
+        List<String> methods = exchangeMethods.get();
+        long requestBytes = payload.getBytes(StandardCharsets.UTF_8).length;
+        InputStream in;
+        try {
+            in = openStream(payload);
+        } catch (IOException | RuntimeException e) {
+            metrics.recordPayload(endpoint, methods, requestBytes, 0);
+            throw e;
+        }
+        if (in == null) {
+            metrics.recordPayload(endpoint, methods, requestBytes, 0);
+            return null;
+        }
+        return new CountingInputStream(in, count -> metrics.recordPayload(endpoint, methods, requestBytes, count));
+    }
+
+    /**
+     * Posts {@code payload} and returns the response body as a stream; closing it releases the connection.
+     */
+    private InputStream openStream(String payload) throws IOException {
+        okhttp3.Request request = new okhttp3.Request.Builder()
+                .url(getUrl())
+                .headers(Headers.of(getHeaders()))
+                .post(RequestBody.create(payload, JSON_MEDIA_TYPE))
+                .build();
+        okhttp3.Response response = httpClient.newCall(request).execute();
+        processHeaders(response.headers());
+        ResponseBody body = response.body();
+        if (!response.isSuccessful()) {
+            try (response) {
+                String text = body != null ? body.string() : "N/A";
+                throw new HttpStatusException(response.code(), text);
+            }
+        }
+        if (body == null) {
+            response.close();
+            return null;
+        }
+        return body.byteStream();
+    }
+
+    private <T extends Response> CompletableFuture<T> enqueue(Request request, Class<T> responseType) {
+        if (maxBatchSize <= 1 || !isBatchingSupported() || UNBATCHED_METHODS.contains(request.getMethod())) {
+            return sendSingleAsync(request, responseType);
+        }
+
+        PendingCall<T> call = new PendingCall<>(request, responseType);
+        List<PendingCall<?>> ready = null;
+        synchronized (queueLock) {
+            queue.add(call);
+            if (queue.size() >= maxBatchSize) {
+                ready = drainLocked();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            List<PendingCall<?>> batch = ready;
+            ioExecutor.execute(() -> dispatch(batch));
+        }
+        return call.future;
+    }
+
+    /**
+     * Sends everything currently queued without waiting for the linger window to expire.
+     */
+    public void flush() {
+        List<PendingCall<?>> ready;
+        synchronized (queueLock) {
+            ready = drainLocked();
+        }
+        if (!ready.isEmpty()) {
+            ioExecutor.execute(() -> dispatch(ready));
+        }
+    }
+
+    public boolean isBatchingSupported() {
+        long until = batchingDisabledUntil;
+        return until == 0 || System.currentTimeMillis() >= until;
+    }
+
+    public long getBatchesSent() {
+        return batchesSent.get();
+    }
+
+    public long getBatchedCalls() {
+        return batchedCalls.get();
+    }
+
+    public long getSingleCalls() {
+        return singleCalls.get();
+    }
+
+    /**
+     * Calls sent or queued that have not completed yet.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        scheduler.shutdown();
+        ioExecutor.shutdown();
+        super.close();
+    }
+
+    private List<PendingCall<?>> drainLocked() {
+        List<PendingCall<?>> ready = queue;
+        queue = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return ready;
+    }
+
+    private void dispatch(List<PendingCall<?>> calls) {
+        if (calls.size() == 1 || !isBatchingSupported()) {
+            calls.forEach(this::dispatchSingle);
+            return;
+        }
+
+        List<Request<?, ?>> requests = new ArrayList<>(calls.size());
+        for (PendingCall<?> c : calls) {
+            requests.add(c.request);
+        }
+
+        JsonNode root;
+        List<String> methods = new ArrayList<>(calls.size());
+        for (PendingCall<?> c : calls) {
+            methods.add(c.request.getMethod());
+        }
+        exchangeMethods.set(methods);
+        try {
+            String payload = objectMapper.writeValueAsString(requests);
+            try (InputStream in = performIO(payload)) {
+                root = in != null ? objectMapper.readTree(in) : null;
+            }
+        } catch (HttpStatusException e) {
+            if (!e.isBatchRejection()) {
+                // A 5xx or a throttle says nothing about batch support; only this batch fails.
+                calls.forEach(c -> c.future.completeExceptionally(e));
+                return;
+            }
+            // "Batch requests not supported" on this plan.
+            disableBatching();
+            calls.forEach(this::dispatchSingle);
+            return;
+        } catch (Exception e) {
+            calls.forEach(c -> c.future.completeExceptionally(e));
+            return;
+        } finally {
+            exchangeMethods.remove();
+        }
+
+        if (root == null || !root.isArray()) {
+            if (isBatchRejection(root)) {
+                disableBatching();
+                calls.forEach(this::dispatchSingle);
+                return;
+            }
+            // An overload or one bad entry can also come back as a single error; only this batch fails.
+            IOException e = new IOException("Batch answered without a response array: " + root);
+            calls.forEach(c -> c.future.completeExceptionally(e));
+            return;
+        }
+
+        batchingDisabledUntil = 0;
+        batchesSent.incrementAndGet();
+        batchedCalls.addAndGet(calls.size());
+
+        Map<Long, JsonNode> byId = new HashMap<>();
+        for (JsonNode node : root) {
+            JsonNode id = node.get("id");
+            if (id != null && id.canConvertToLong()) {
+                byId.put(id.asLong(), node);
+            }
+        }
+
+        for (PendingCall<?> c : calls) {
+            JsonNode node = byId.get(c.request.getId());
+            if (node == null) {
+                // Response missing from the batch; retry this call on its own.
+                dispatchSingle(c);
+                continue;
+            }
+            c.completeFrom(node);
+        }
+    }
+
+    /**
+     * Whether a non-array answer to a batch says the endpoint does not take batches: an error object with
+     * code -32600 (invalid request) or a message that mentions batches.
+     */
+    private static boolean isBatchRejection(JsonNode root) {
+        JsonNode error = root != null ? root.get("error") : null;
+        if (error == null) {
+            return false;
+        }
+        if (error.isTextual()) {
+            return error.asText().toLowerCase(Locale.ROOT).contains("batch");
+        }
+        JsonNode code = error.get("code");
+        JsonNode message = error.get("message");
+        return (code != null && code.asLong() == -32600)
+                || (message != null && message.asText().toLowerCase(Locale.ROOT).contains("batch"));
+    }
+
+    private void disableBatching() {
+        batchingDisabledUntil = System.currentTimeMillis() + BATCH_REPROBE_MILLIS;
+    }
+
+    private void dispatchSingle(PendingCall<?> call) {
+        sendSingleAsync(call.request, call.responseType).whenComplete((resp, ex) -> {
+            if (ex != null) {
+                call.future.completeExceptionally(ex);
+            } else {
+                call.completeWith(resp);
+            }
+        });
+    }
+
+    private <T extends Response> CompletableFuture<T> sendSingleAsync(Request request, Class<T> responseType) {
+        singleCalls.incrementAndGet();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ioExecutor.execute(() -> {
+            try {
+                future.complete(sendTracked(request, responseType));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private <T extends Response> T sendTracked(Request request, Class<T> responseType) throws IOException {
+        exchangeMethods.set(List.of(request.getMethod()));
+        try {
+            return super.send(request, responseType);
+        } finally {
+            exchangeMethods.remove();
+        }
+    }
+
+    private static void finish(RpcMetrics.Timer timer, Response<?> response, Throwable ex) {
+        if (timer == null) {
+            return;
+        }
+        if (ex != null) {
+            timer.failure(ex);
+        } else if (response != null && response.hasError()) {
+            timer.rpcError();
+        } else {
+            timer.success();
+        }
+    }
+
+    /** Non-2xx HTTP response, keeping the status so a batch rejection can be told from a transient failure. */
+    private static final class HttpStatusException extends ClientConnectionException {
+        private final int status;
+
+        HttpStatusException(int status, String body) {
+            super("Invalid response received: " + status + "; " + body);
+            this.status = status;
+        }
+
+        boolean isBatchRejection() {
+            return status >= 400 && status < 500 && status != 408 && status != 429;
+        }
+    }
+
+    private final class PendingCall<T extends Response> {
+        final Request<?, ?> request;
+        final Class<T> responseType;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        PendingCall(Request<?, ?> request, Class<T> responseType) {
+            this.request = request;
+            this.responseType = responseType;
+        }
+
+        void completeFrom(JsonNode node) {
+            try {
+                future.complete(objectMapper.treeToValue(node, responseType));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        void completeWith(Response<?> response) {
+            future.complete(responseType.cast(response));
+        }
+    }
+}
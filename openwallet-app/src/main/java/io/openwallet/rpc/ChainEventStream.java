@@ -0,0 +1,343 @@
+package io.openwallet.rpc;
+
+import io.reactivex.disposables.Disposable;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.websocket.WebSocketService;
+import org.web3j.protocol.websocket.events.LogNotification;
+import org.web3j.protocol.websocket.events.NewHeadsNotification;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Head and log events for one network, pushed over a WebSocket {@code eth_subscribe} when possible.
+ *
+ * With a WebSocket URL the stream subscribes to {@code newHeads} and to each registered log filter, feeding
+ * heads into the network's {@link HeadTracker}. A dropped connection is retried with exponential backoff; in
+ * the meantime the tracker falls back to {@code eth_blockNumber} polling, and log filters are served by
+ * {@code eth_getLogs} over HTTP for each new head, starting after the last block already delivered.
+ * Without a WebSocket URL the stream runs in polling mode only.
+ */
+public class ChainEventStream implements AutoCloseable {
+
+    private final String wsUrl;
+    private final HeadTracker headTracker;
+    private final Web3j httpWeb3j;
+    private final long minBackoffMillis;
+    private final long maxBackoffMillis;
+    private final ScheduledExecutorService scheduler;
+    private final List<LogSubscription> logSubscriptions = new CopyOnWriteArrayList<>();
+    private final Consumer<BigInteger> headListener = this::onTrackedHead;
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private final Object lock = new Object();
+    private WebSocketService ws;
+    private Web3j wsWeb3j;
+    private Disposable headsDisposable;
+    private long generation;
+    private int attempts;
+    private volatile boolean connected;
+    private volatile boolean closed;
+
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong pushedHeads = new AtomicLong();
+    private final AtomicLong polledLogScans = new AtomicLong();
+
+    /**
+     * @param wsUrl WebSocket endpoint, or {@code null} to rely on polling.
+     * @param httpWeb3j HTTP client used for {@code eth_getLogs} while the WebSocket is down.
+     */
+    public ChainEventStream(String wsUrl, HeadTracker headTracker, Web3j httpWeb3j, long minBackoffMillis, long maxBackoffMillis) {
+        this.wsUrl = wsUrl != null && !wsUrl.isBlank() ? wsUrl.trim() : null;
+        this.headTracker = headTracker;
+        this.httpWeb3j = httpWeb3j;
+        this.minBackoffMillis = Math.max(100, minBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.minBackoffMillis, maxBackoffMillis);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("openwallet-ws"));
+        headTracker.addListener(headListener);
+    }
+
+    public void start() {
+        if (wsUrl != null) {
+            scheduler.execute(this::connect);
+        }
+    }
+
+    /**
+     * Calls {@code listener} with each new head block number, pushed or polled. Close the handle to stop.
+     */
+    public AutoCloseable onNewHead(Consumer<BigInteger> listener) {
+        headTracker.addListener(listener);
+        return subscription(() -> headTracker.removeListener(listener));
+    }
+
+    /**
+     * Calls {@code listener} for each new log emitted by {@code addresses} that matches {@code topics}
+     * ({@code null} entries are wildcards). Close the handle to stop.
+     */
+    public AutoCloseable onLogs(List<String> addresses, List<String> topics, Consumer<Log> listener) {
+        LogSubscription sub = new LogSubscription(addresses, topics, listener, headTracker.getHead());
+        logSubscriptions.add(sub);
+        synchronized (lock) {
+            if (connected && wsWeb3j != null) {
+                subscribeOverWs(sub, wsWeb3j);
+            }
+        }
+        return subscription(() -> {
+            logSubscriptions.remove(sub);
+            sub.dispose();
+        });
+    }
+
+    /**
+     * Head and log listeners registered and not yet closed.
+     */
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    private AutoCloseable subscription(Runnable unsubscribe) {
+        subscribers.incrementAndGet();
+        AtomicBoolean open = new AtomicBoolean(true);
+        return () -> {
+            if (open.compareAndSet(true, false)) {
+                unsubscribe.run();
+                subscribers.decrementAndGet();
+            }
+        };
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public String getWsUrl() {
+        return wsUrl;
+    }
+
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    public long getPushedHeads() {
+        return pushedHeads.get();
+    }
+
+    public long getPolledLogScans() {
+        return polledLogScans.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        headTracker.removeListener(headListener);
+        scheduler.shutdownNow();
+        synchronized (lock) {
+            disconnectLocked();
+        }
+        logSubscriptions.forEach(LogSubscription::dispose);
+        logSubscriptions.clear();
+    }
+
+    private void connect() {
+        if (closed) {
+            return;
+        }
+        long gen;
+        synchronized (lock) {
+            gen = ++generation;
+        }
+        WebSocketService service;
+        try {
+            service = new WebSocketService(wsUrl, false);
+            service.connect(message -> { }, error -> onDisconnected(gen), () -> onDisconnected(gen));
+        } catch (Exception e) {
+            scheduleReconnect();
+            return;
+        }
+
+        Web3j web3j = Web3j.build(service);
+        synchronized (lock) {
+            if (closed || gen != generation) {
+                service.close();
+                return;
+            }
+            ws = service;
+            wsWeb3j = web3j;
+            headsDisposable = web3j.newHeadsNotifications().subscribe(this::onPushedHead, ex -> onDisconnected(gen));
+            for (LogSubscription sub : logSubscriptions) {
+                subscribeOverWs(sub, web3j);
+            }
+            connected = true;
+            attempts = 0;
+            headTracker.setPushConnected(true);
+        }
+    }
+
+    private void onDisconnected(long gen) {
+        synchronized (lock) {
+            if (closed || gen != generation || ws == null) {
+                return;
+            }
+            generation++;
+            disconnectLocked();
+        }
+        scheduleReconnect();
+    }
+
+    private void disconnectLocked() {
+        connected = false;
+        headTracker.setPushConnected(false);
+        if (headsDisposable != null) {
+            headsDisposable.dispose();
+            headsDisposable = null;
+        }
+        logSubscriptions.forEach(LogSubscription::dispose);
+        if (ws != null) {
+            try {
+                ws.close();
+            } catch (RuntimeException ignored) {
+                // Already closed by the server.
+            }
+            ws = null;
+            wsWeb3j = null;
+        }
+    }
+
+    private void scheduleReconnect() {
+        if (closed) {
+            return;
+        }
+        long delay;
+        synchronized (lock) {
+            int shift = Math.min(attempts++, 20);
+            delay = Math.min(maxBackoffMillis, minBackoffMillis << shift);
+        }
+        // +/-20% jitter so several networks do not reconnect in lockstep.
+        delay += (long) (delay * (ThreadLocalRandom.current().nextDouble() * 0.4 - 0.2));
+        reconnects.incrementAndGet();
+        try {
+            scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ignored) {
+            // Shut down.
+        }
+    }
+
+    private void onPushedHead(NewHeadsNotification notification) {
+        String number = notification.getParams().getResult().getNumber();
+        if (number != null) {
+            pushedHeads.incrementAndGet();
+            headTracker.onHead(Numeric.decodeQuantity(number));
+        }
+    }
+
+    private void subscribeOverWs(LogSubscription sub, Web3j web3j) {
+        sub.wsDisposable = web3j.logsNotifications(sub.addresses, sub.topics)
+                .subscribe(n -> sub.deliver(toLog(n)), ex -> { });
+    }
+
+    /**
+     * While polling, catch log filters up to each new head over HTTP. While pushed, just advance their cursor.
+     */
+    private void onTrackedHead(BigInteger head) {
+        for (LogSubscription sub : logSubscriptions) {
+            if (connected) {
+                sub.advanceTo(head);
+            } else {
+                scanOverHttp(sub, head);
+            }
+        }
+    }
+
+    private void scanOverHttp(LogSubscription sub, BigInteger head) {
+        BigInteger from;
+        synchronized (sub) {
+            from = sub.lastBlock != null ? sub.lastBlock.add(BigInteger.ONE) : head;
+            if (from.compareTo(head) > 0) {
+                return;
+            }
+            sub.lastBlock = head;
+        }
+        EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(from), DefaultBlockParameter.valueOf(head), sub.addresses);
+        for (String topic : sub.topics) {
+            if (topic == null) {
+                filter.addNullTopic();
+            } else {
+                filter.addSingleTopic(topic);
+            }
+        }
+        polledLogScans.incrementAndGet();
+        httpWeb3j.ethGetLogs(filter).sendAsync().thenAccept(resp -> {
+            if (resp.hasError() || resp.getLogs() == null) {
+                return;
+            }
+            for (EthLog.LogResult<?> r : resp.getLogs()) {
+                if (r.get() instanceof Log log) {
+                    sub.deliver(log);
+                }
+            }
+        }).exceptionally(ex -> null);
+    }
+
+    private static Log toLog(LogNotification n) {
+        org.web3j.protocol.websocket.events.Log l = n.getParams().getResult();
+        return new Log(false, l.getLogIndex(), l.getTransactionIndex(), l.getTransactionHash(), l.getBlockHash(),
+                l.getBlockNumber(), l.getAddress(), l.getData(), null, l.getTopics());
+    }
+
+    private static final class LogSubscription {
+        final List<String> addresses;
+        final List<String> topics;
+        final Consumer<Log> listener;
+        /** Last block whose logs were delivered (or skipped because they predate the subscription). */
+        BigInteger lastBlock;
+        volatile Disposable wsDisposable;
+
+        LogSubscription(List<String> addresses, List<String> topics, Consumer<Log> listener, BigInteger head) {
+            this.addresses = addresses != null ? List.copyOf(addresses) : List.of();
+            this.topics = topics != null ? new ArrayList<>(topics) : List.of();
+            this.listener = listener;
+            this.lastBlock = head;
+        }
+
+        void deliver(Log log) {
+            try {
+                listener.accept(log);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            if (log.getBlockNumberRaw() != null) {
+                advanceTo(log.getBlockNumber());
+            }
+        }
+
+        synchronized void advanceTo(BigInteger block) {
+            if (lastBlock == null || block.compareTo(lastBlock) > 0) {
+                lastBlock = block;
+            }
+        }
+
+        void dispose() {
+            Disposable d = wsDisposable;
+            if (d != null) {
+                d.dispose();
+                wsDisposable = null;
+            }
+        }
+    }
+}
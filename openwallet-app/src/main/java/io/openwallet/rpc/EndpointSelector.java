@@ -0,0 +1,114 @@
+package io.openwallet.rpc;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ranks a network's endpoints by observed median latency, penalised by recent error rate.
+ *
+ * Endpoints without samples rank as fast so that every provider gets probed at least once.
+ */
+public class EndpointSelector {
+
+    /** Error rate above which an endpoint is only used when nothing healthier is available. */
+    private static final double UNHEALTHY_ERROR_RATE = 0.5;
+
+    private final List<RpcEndpoint> endpoints;
+
+    public EndpointSelector(List<RpcEndpoint> endpoints) {
+        if (endpoints == null || endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one RPC endpoint is required");
+        }
+        this.endpoints = List.copyOf(endpoints);
+    }
+
+    public List<RpcEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return endpoints ordered best first (stable for ties, so configuration order breaks them).
+     */
+    public List<RpcEndpoint> ranked() {
+        List<RpcEndpoint> out = new ArrayList<>(endpoints);
+        if (out.size() > 1) {
+            out.sort(Comparator.comparingDouble(EndpointSelector::score));
+        }
+        return out;
+    }
+
+    public RpcEndpoint best() {
+        return ranked().get(0);
+    }
+
+    public List<EndpointSnapshot> snapshot() {
+        List<EndpointSnapshot> out = new ArrayList<>();
+        for (RpcEndpoint e : endpoints) {
+            EndpointStats s = e.getStats();
+            out.add(new EndpointSnapshot(
+                    e.getUrl(),
+                    s.percentileMillis(50),
+                    s.percentileMillis(95),
+                    s.percentileMillis(99),
+                    s.errorRate(),
+                    s.getSampleCount()
+            ));
+        }
+        return out;
+    }
+
+    static double score(RpcEndpoint endpoint) {
+        EndpointStats s = endpoint.getStats();
+        double p50 = s.percentileMillis(50);
+        double errorRate = s.errorRate();
+        double latency = Double.isNaN(p50) ? 0.0 : p50;
+        double score = latency * (1.0 + 10.0 * errorRate);
+        if (errorRate > UNHEALTHY_ERROR_RATE) {
+            score += 60_000.0;
+        }
+        return score;
+    }
+
+    public static class EndpointSnapshot {
+        private final String url;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double errorRate;
+        private final int samples;
+
+        public EndpointSnapshot(String url, double p50Millis, double p95Millis, double p99Millis, double errorRate, int samples) {
+            this.url = url;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+            this.errorRate = errorRate;
+            this.samples = samples;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public int getSamples() {
+            return samples;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package io.openwallet.rpc;
+
+import java.util.Arrays;
+
+/**
+ * Rolling latency and error-rate window for one RPC endpoint.
+ *
+ * Keeps the last {@code window} successful latencies and the last {@code window} outcomes. The retained
+ * latencies are also kept sorted, updated in place on each sample, so a percentile is a single lookup; the
+ * endpoint ranking reads them on every request.
+ */
+public class EndpointStats {
+
+    private final long[] latenciesMicros;
+    /** The first {@code latencyCount} entries are the retained latencies in ascending order. */
+    private final long[] sortedMicros;
+    private int latencyCount;
+    private int latencyNext;
+
+    private final boolean[] failures;
+    private int outcomeCount;
+    private int outcomeNext;
+    private int failuresInWindow;
+
+    public EndpointStats(int window) {
+        int size = Math.max(8, window);
+        this.latenciesMicros = new long[size];
+        this.sortedMicros = new long[size];
+        this.failures = new boolean[size];
+    }
+
+    public synchronized void recordSuccess(long latencyMicros) {
+        if (latencyCount == latenciesMicros.length) {
+            int evicted = Arrays.binarySearch(sortedMicros, 0, latencyCount, latenciesMicros[latencyNext]);
+            System.arraycopy(sortedMicros, evicted + 1, sortedMicros, evicted, latencyCount - evicted - 1);
+            latencyCount--;
+        }
+        int at = Arrays.binarySearch(sortedMicros, 0, latencyCount, latencyMicros);
+        if (at < 0) {
+            at = -at - 1;
+        }
+        System.arraycopy(sortedMicros, at, sortedMicros, at + 1, latencyCount - at);
+        sortedMicros[at] = latencyMicros;
+        latenciesMicros[latencyNext] = latencyMicros;
+        latencyNext = (latencyNext + 1) % latenciesMicros.length;
+        latencyCount = Math.min(latencyCount + 1, latenciesMicros.length);
+        recordOutcome(false);
+    }
+
+    public synchronized void recordFailure() {
+        recordOutcome(true);
+    }
+
+    /**
+     * @return latency percentile in milliseconds, or {@code NaN} if no successful call was recorded yet.
+     */
+    public synchronized double percentileMillis(double percentile) {
+        if (latencyCount == 0) {
+            return Double.NaN;
+        }
+        int idx = (int) Math.ceil(percentile / 100.0 * latencyCount) - 1;
+        idx = Math.max(0, Math.min(latencyCount - 1, idx));
+        return sortedMicros[idx] / 1000.0;
+    }
+
+    public synchronized double errorRate() {
+        return outcomeCount == 0 ? 0.0 : (double) failuresInWindow / outcomeCount;
+    }
+
+    public synchronized int getSampleCount() {
+        return latencyCount;
+    }
+
+    private void recordOutcome(boolean failed) {
+        if (outcomeCount == failures.length && failures[outcomeNext]) {
+            failuresInWindow--;
+        }
+        failures[outcomeNext] = failed;
+        if (failed) {
+            failuresInWindow++;
+        }
+        outcomeNext = (outcomeNext + 1) % failures.length;
+        outcomeCount = Math.min(outcomeCount + 1, failures.length);
+    }
+}
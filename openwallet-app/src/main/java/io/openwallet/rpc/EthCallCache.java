@@ -0,0 +1,143 @@
+package io.openwallet.rpc;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of {@code eth_call} results keyed on (chainId, block number, to, calldata).
+ *
+ * Reads at "latest" are resolved to the {@link HeadTracker}'s head block before lookup. Results at the head
+ * are unbounded for the duration of that block; once the head advances they become ordinary results for
+ * their block and move to the pinned entries, so reads explicitly pinned to a recent block still hit.
+ * Pinned entries never change and are kept until evicted by the size bound. Pending calls are cached too, so
+ * identical reads in the same block share one call; failed calls are never cached.
+ */
+public class EthCallCache {
+
+    private final long chainId;
+    private final HeadTracker headTracker;
+    private final Map<Key, CompletableFuture<String>> atHead = new ConcurrentHashMap<>();
+    private final Map<Key, CompletableFuture<String>> pinned;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public EthCallCache(long chainId, HeadTracker headTracker, int maxPinnedEntries) {
+        this.chainId = chainId;
+        this.headTracker = headTracker;
+        int cap = Math.max(16, maxPinnedEntries);
+        this.pinned = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<String>> eldest) {
+                return size() > cap;
+            }
+        });
+        headTracker.addListener(this::retireBefore);
+    }
+
+    /**
+     * @return the block a "latest" read should be pinned to, or {@code null} if the head is unknown.
+     */
+    public BigInteger resolveLatest() {
+        return headTracker.getHead();
+    }
+
+    /**
+     * Returns the cached result for the call, or starts it with {@code loader} and caches it.
+     */
+    public CompletableFuture<String> get(BigInteger block, String to, String callData, Supplier<CompletableFuture<String>> loader) {
+        Key key = new Key(chainId, block, to, callData);
+        Map<Key, CompletableFuture<String>> map = mapFor(block);
+
+        CompletableFuture<String> placeholder = new CompletableFuture<>();
+        CompletableFuture<String> existing = map.putIfAbsent(key, placeholder);
+        if (existing != null) {
+            hits.incrementAndGet();
+            return existing.copy();
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<String> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((value, ex) -> {
+            if (ex != null) {
+                // The head may have moved the entry to the pinned map meanwhile.
+                atHead.remove(key, placeholder);
+                pinned.remove(key, placeholder);
+                placeholder.completeExceptionally(ex);
+            } else {
+                placeholder.complete(value);
+            }
+        });
+        return placeholder.copy();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return atHead.size() + pinned.size();
+    }
+
+    private Map<Key, CompletableFuture<String>> mapFor(BigInteger block) {
+        BigInteger head = headTracker.getHead();
+        return head != null && block.compareTo(head) < 0 ? pinned : atHead;
+    }
+
+    private void retireBefore(BigInteger head) {
+        atHead.entrySet().removeIf(e -> {
+            if (e.getKey().block.compareTo(head) >= 0) {
+                return false;
+            }
+            CompletableFuture<String> value = e.getValue();
+            if (!value.isCompletedExceptionally()) {
+                pinned.putIfAbsent(e.getKey(), value);
+            }
+            return true;
+        });
+    }
+
+    private static final class Key {
+        final long chainId;
+        final BigInteger block;
+        final String to;
+        final String callData;
+
+        Key(long chainId, BigInteger block, String to, String callData) {
+            this.chainId = chainId;
+            this.block = block;
+            this.to = to.toLowerCase(Locale.ROOT);
+            this.callData = callData.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return chainId == k.chainId && block.equals(k.block) && to.equals(k.to) && callData.equals(k.callData);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(chainId, block, to, callData);
+        }
+    }
+}
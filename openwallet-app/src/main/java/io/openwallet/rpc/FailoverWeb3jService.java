@@ -0,0 +1,278 @@
+package io.openwallet.rpc;
+
+import io.openwallet.exception.OpenWalletException;
+import io.reactivex.Flowable;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Web3jService} over several endpoints of the same network.
+ *
+ * Each call goes to the best-ranked endpoint. Reads that are still pending after the endpoint's p95 latency
+ * get a hedged copy on the second-best endpoint, and the first successful response wins. Transport failures
+ * fail over to the next endpoint. Writes are never hedged, only failed over. Blocking reads are hedged too,
+ * but skip the transport's batching linger, since their caller is already waiting.
+ *
+ * The endpoints are HTTP only, so {@link #subscribe} fails; push subscriptions go through
+ * {@link ChainEventStream}, which keeps its own WebSocket.
+ */
+public class FailoverWeb3jService implements Web3jService {
+
+    private static final Set<String> WRITE_METHODS = Set.of(
+            "eth_sendRawTransaction",
+            "eth_sendTransaction"
+    );
+
+    /** Below this many samples the p95 is too noisy to hedge on; use the default delay instead. */
+    private static final int MIN_SAMPLES_FOR_P95 = 20;
+
+    private final EndpointSelector selector;
+    private final boolean hedgingEnabled;
+    private final long minHedgeDelayMillis;
+    private final long defaultHedgeDelayMillis;
+    private final ScheduledExecutorService timer;
+
+    private final AtomicLong hedgesSent = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+    private final AtomicLong failovers = new AtomicLong();
+
+    public FailoverWeb3jService(EndpointSelector selector, boolean hedgingEnabled, long minHedgeDelayMillis, long defaultHedgeDelayMillis) {
+        this.selector = selector;
+        this.hedgingEnabled = hedgingEnabled;
+        this.minHedgeDelayMillis = Math.max(1, minHedgeDelayMillis);
+        this.defaultHedgeDelayMillis = Math.max(this.minHedgeDelayMillis, defaultHedgeDelayMillis);
+        this.timer = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("openwallet-rpc-hedge"));
+    }
+
+    public EndpointSelector getSelector() {
+        return selector;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        if (isWrite(request)) {
+            return sendWithFailover(request, responseType);
+        }
+        try {
+            return start(request, responseType, true).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + request.getMethod(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        return start(request, responseType, false);
+    }
+
+    private <T extends Response> CompletableFuture<T> start(Request request, Class<T> responseType, boolean blocking) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Attempt<T> attempt = new Attempt<>(request, responseType, selector.ranked(), result, blocking);
+
+        attempt.launchNext();
+        if (hedgingEnabled && !isWrite(request) && attempt.endpoints.size() > 1) {
+            long delay = hedgeDelayMillis(attempt.endpoints.get(0));
+            timer.schedule(attempt::hedge, delay, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return selector.best().getTransport().sendBatch(batchRequest);
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return selector.best().getTransport().sendBatchAsync(batchRequest);
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod, Class<T> responseType) {
+        return Flowable.error(new OpenWalletException(request.getMethod()
+                + " needs a WebSocket; subscribe through ChainEventStream instead"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        timer.shutdownNow();
+        IOException first = null;
+        for (RpcEndpoint e : selector.getEndpoints()) {
+            try {
+                e.getTransport().close();
+            } catch (IOException ex) {
+                if (first == null) {
+                    first = ex;
+                }
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+
+    public int getInFlight() {
+        int total = 0;
+        for (RpcEndpoint e : selector.getEndpoints()) {
+            total += e.getTransport().getInFlight();
+        }
+        return total;
+    }
+
+    public long getHedgesSent() {
+        return hedgesSent.get();
+    }
+
+    public long getHedgesWon() {
+        return hedgesWon.get();
+    }
+
+    public long getFailovers() {
+        return failovers.get();
+    }
+
+    private <T extends Response> T sendWithFailover(Request request, Class<T> responseType) throws IOException {
+        IOException last = null;
+        for (RpcEndpoint e : selector.ranked()) {
+            long start = System.nanoTime();
+            try {
+                T response = e.getTransport().send(request, responseType);
+                e.getStats().recordSuccess(elapsedMicros(start));
+                return response;
+            } catch (IOException ex) {
+                e.getStats().recordFailure();
+                failovers.incrementAndGet();
+                last = ex;
+            }
+        }
+        throw last;
+    }
+
+    private long hedgeDelayMillis(RpcEndpoint primary) {
+        EndpointStats stats = primary.getStats();
+        if (stats.getSampleCount() < MIN_SAMPLES_FOR_P95) {
+            return defaultHedgeDelayMillis;
+        }
+        return Math.max(minHedgeDelayMillis, (long) Math.ceil(stats.percentileMillis(95)));
+    }
+
+    private static boolean isWrite(Request request) {
+        return WRITE_METHODS.contains(request.getMethod());
+    }
+
+    private static long elapsedMicros(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000L;
+    }
+
+    /**
+     * State of one logical call across its primary, hedge and failover attempts.
+     */
+    private final class Attempt<T extends Response> {
+        final Request request;
+        final Class<T> responseType;
+        final List<RpcEndpoint> endpoints;
+        final CompletableFuture<T> result;
+        final boolean blocking;
+
+        private int next;
+        private int outstanding;
+        private boolean hedged;
+        private boolean settled;
+        private Throwable lastError;
+
+        Attempt(Request request, Class<T> responseType, List<RpcEndpoint> endpoints, CompletableFuture<T> result,
+                boolean blocking) {
+            this.request = request;
+            this.responseType = responseType;
+            this.endpoints = endpoints;
+            this.result = result;
+            this.blocking = blocking;
+        }
+
+        void hedge() {
+            synchronized (this) {
+                if (result.isDone() || hedged || next >= endpoints.size()) {
+                    return;
+                }
+                hedged = true;
+            }
+            hedgesSent.incrementAndGet();
+            launch(true);
+        }
+
+        void launchNext() {
+            launch(false);
+        }
+
+        private void launch(boolean isHedge) {
+            RpcEndpoint endpoint;
+            synchronized (this) {
+                if (next >= endpoints.size()) {
+                    return;
+                }
+                endpoint = endpoints.get(next++);
+                outstanding++;
+            }
+
+            long start = System.nanoTime();
+            BatchingHttpService transport = endpoint.getTransport();
+            CompletableFuture<T> sent = blocking
+                    ? transport.sendAsyncUnbatched(request, responseType)
+                    : transport.sendAsync(request, responseType);
+            sent.whenComplete((resp, ex) -> {
+                if (ex == null) {
+                    endpoint.getStats().recordSuccess(elapsedMicros(start));
+                    boolean first;
+                    synchronized (this) {
+                        outstanding--;
+                        first = !settled;
+                        settled = true;
+                    }
+                    // Count before completing so the counter is visible to whoever observes the result.
+                    if (first && isHedge) {
+                        hedgesWon.incrementAndGet();
+                    }
+                    result.complete(resp);
+                    return;
+                }
+
+                endpoint.getStats().recordFailure();
+                boolean failover;
+                boolean exhausted;
+                synchronized (this) {
+                    outstanding--;
+                    lastError = ex;
+                    failover = !result.isDone() && next < endpoints.size();
+                    exhausted = !failover && outstanding == 0;
+                }
+                if (failover) {
+                    failovers.incrementAndGet();
+                    launchNext();
+                } else if (exhausted) {
+                    result.completeExceptionally(lastError);
+                }
+            });
+        }
+    }
+}
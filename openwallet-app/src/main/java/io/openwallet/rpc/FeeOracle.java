@@ -0,0 +1,286 @@
+package io.openwallet.rpc;
+
+import org.web3j.crypto.RawTransaction;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthFeeHistory;
+import org.web3j.protocol.core.methods.response.EthGasPrice;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * EIP-1559 fee quotes for one network, served from memory.
+ *
+ * A background task pulls the latest blocks with {@code eth_feeHistory} and keeps a rolling window of their
+ * 10th/50th/90th percentile priority fees. A quote takes the median of one percentile over the window as the
+ * tip and caps the fee at the next base fee plus headroom for a few full blocks; the chain only charges the
+ * actual base fee, so the cap costs nothing unless fees really climb. Networks without a base fee get a legacy
+ * gas price from {@code eth_gasPrice} instead.
+ */
+public class FeeOracle implements AutoCloseable {
+
+    public enum Speed {
+        SLOW(0, 2),
+        NORMAL(1, 4),
+        FAST(2, 6);
+
+        private final int percentile;
+        /** Full blocks of base fee growth (12.5% each) the fee cap survives. */
+        private final int headroomBlocks;
+
+        Speed(int percentile, int headroomBlocks) {
+            this.percentile = percentile;
+            this.headroomBlocks = headroomBlocks;
+        }
+    }
+
+    /**
+     * Fee fields for one transaction: {@code maxFeePerGas}/{@code maxPriorityFeePerGas}, or a legacy gas price.
+     */
+    public static final class Quote {
+        private final BigInteger baseFee;
+        private final BigInteger maxPriorityFeePerGas;
+        private final BigInteger maxFeePerGas;
+        private final BigInteger gasPrice;
+
+        private Quote(BigInteger baseFee, BigInteger maxPriorityFeePerGas, BigInteger maxFeePerGas, BigInteger gasPrice) {
+            this.baseFee = baseFee;
+            this.maxPriorityFeePerGas = maxPriorityFeePerGas;
+            this.maxFeePerGas = maxFeePerGas;
+            this.gasPrice = gasPrice;
+        }
+
+        public static Quote eip1559(BigInteger baseFee, BigInteger maxPriorityFeePerGas, BigInteger maxFeePerGas) {
+            return new Quote(baseFee, maxPriorityFeePerGas, maxFeePerGas, null);
+        }
+
+        public static Quote legacy(BigInteger gasPrice) {
+            return new Quote(null, null, null, gasPrice);
+        }
+
+        public boolean isEip1559() { return gasPrice == null; }
+
+        /** Expected base fee of the next block; {@code null} for legacy quotes. */
+        public BigInteger getBaseFee() { return baseFee; }
+
+        public BigInteger getMaxPriorityFeePerGas() { return maxPriorityFeePerGas; }
+
+        public BigInteger getMaxFeePerGas() { return maxFeePerGas; }
+
+        public BigInteger getGasPrice() { return gasPrice; }
+
+        /** The most one unit of gas can cost under this quote. */
+        public BigInteger getMaxCostPerGas() {
+            return isEip1559() ? maxFeePerGas : gasPrice;
+        }
+
+        /**
+         * Builds the unsigned transaction: type 2 when the quote and {@code chainId} allow it, legacy otherwise.
+         */
+        public RawTransaction newTransaction(Long chainId, BigInteger nonce, BigInteger gasLimit, String to,
+                                             BigInteger value, String data) {
+            String payload = data == null ? "" : data;
+            if (isEip1559() && chainId != null) {
+                return RawTransaction.createTransaction(chainId, nonce, gasLimit, to, value, payload,
+                        maxPriorityFeePerGas, maxFeePerGas);
+            }
+            return RawTransaction.createTransaction(nonce, getMaxCostPerGas(), gasLimit, to, value, payload);
+        }
+
+        @Override
+        public String toString() {
+            return isEip1559()
+                    ? "maxFee=" + maxFeePerGas + " tip=" + maxPriorityFeePerGas + " base=" + baseFee
+                    : "gasPrice=" + gasPrice;
+        }
+    }
+
+    static final List<Double> PERCENTILES = List.of(10.0, 50.0, 90.0);
+    /** Tip used before any non-empty block has been seen. */
+    static final BigInteger FALLBACK_TIP = BigInteger.valueOf(1_500_000_000L);
+    /** Blocks asked for on each refresh once the window is filled. */
+    private static final int REFRESH_BLOCKS = 5;
+
+    private final Supplier<Web3j> web3j;
+    private final long refreshMillis;
+    private final int windowBlocks;
+    private final boolean schedule;
+
+    /** Block number to its {@link #PERCENTILES} rewards; empty blocks are left out. */
+    private final TreeMap<Long, BigInteger[]> rewards = new TreeMap<>();
+    private long newestBlock = -1;
+    private volatile Quote[] quotes;
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final AtomicLong served = new AtomicLong();
+
+    public FeeOracle(Supplier<Web3j> web3j, long refreshMillis, int windowBlocks) {
+        this(web3j, refreshMillis, windowBlocks, true);
+    }
+
+    FeeOracle(Supplier<Web3j> web3j, long refreshMillis, int windowBlocks, boolean schedule) {
+        this.web3j = web3j;
+        this.refreshMillis = Math.max(1000, refreshMillis);
+        this.windowBlocks = Math.max(1, windowBlocks);
+        this.schedule = schedule;
+    }
+
+    /**
+     * Current quote for {@code speed}. Only the first call on a network waits for the RPC; it also starts the
+     * background refresh.
+     */
+    public Quote quote(Speed speed) throws IOException {
+        Quote[] current = quotes;
+        if (current == null) {
+            synchronized (this) {
+                if (quotes == null) {
+                    refresh();
+                    startRefreshing();
+                }
+                current = quotes;
+            }
+        }
+        served.incrementAndGet();
+        return current[speed.ordinal()];
+    }
+
+    /**
+     * Pulls the newest blocks into the window and recomputes the quotes.
+     */
+    public synchronized void refresh() throws IOException {
+        Web3j client = web3j.get();
+        int count = rewards.isEmpty() && newestBlock < 0 ? windowBlocks : Math.min(windowBlocks, REFRESH_BLOCKS);
+        EthFeeHistory.FeeHistory history = null;
+        try {
+            EthFeeHistory response = client.ethFeeHistory(count, DefaultBlockParameterName.LATEST, PERCENTILES).send();
+            if (!response.hasError()) {
+                history = response.getFeeHistory();
+            }
+        } catch (IOException | RuntimeException e) {
+            refreshFailures.incrementAndGet();
+            if (quotes != null) {
+                return;
+            }
+            throw e instanceof IOException ? (IOException) e : new IOException("eth_feeHistory failed", e);
+        }
+        refreshes.incrementAndGet();
+
+        BigInteger nextBaseFee = nextBaseFee(history);
+        if (nextBaseFee == null) {
+            // Pre-London chain or a node without eth_feeHistory.
+            EthGasPrice gasPrice = client.ethGasPrice().send();
+            if (gasPrice.hasError()) {
+                throw new IOException("eth_gasPrice failed: " + gasPrice.getError().getMessage());
+            }
+            Quote legacy = Quote.legacy(gasPrice.getGasPrice());
+            quotes = new Quote[]{legacy, legacy, legacy};
+            return;
+        }
+
+        long oldest = history.getOldestBlock().longValue();
+        List<List<BigInteger>> reward = history.getReward();
+        List<Double> gasUsedRatio = history.getGasUsedRatio();
+        for (int i = 0; reward != null && i < reward.size(); i++) {
+            List<BigInteger> row = reward.get(i);
+            boolean empty = gasUsedRatio != null && i < gasUsedRatio.size() && gasUsedRatio.get(i) == 0;
+            if (row == null || row.size() < PERCENTILES.size() || empty) {
+                continue;
+            }
+            rewards.put(oldest + i, row.toArray(new BigInteger[0]));
+        }
+        newestBlock = Math.max(newestBlock, oldest + history.getBaseFeePerGas().size() - 2);
+        while (!rewards.isEmpty() && rewards.firstKey() <= newestBlock - windowBlocks) {
+            rewards.pollFirstEntry();
+        }
+
+        Quote[] next = new Quote[Speed.values().length];
+        for (Speed speed : Speed.values()) {
+            BigInteger tip = medianTip(speed.percentile);
+            BigInteger cap = nextBaseFee;
+            for (int i = 0; i < speed.headroomBlocks; i++) {
+                cap = cap.multiply(BigInteger.valueOf(9)).divide(BigInteger.valueOf(8));
+            }
+            next[speed.ordinal()] = Quote.eip1559(nextBaseFee, tip, cap.add(tip));
+        }
+        quotes = next;
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
+
+    public long getQuotesServed() {
+        return served.get();
+    }
+
+    /** Non-empty blocks currently in the window. */
+    public synchronized int getWindowSize() {
+        return rewards.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void startRefreshing() {
+        if (!schedule || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("openwallet-fees"));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (IOException | RuntimeException e) {
+                // Keep serving the last quotes; the next round tries again.
+                refreshFailures.incrementAndGet();
+            }
+        }, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private BigInteger medianTip(int percentile) {
+        if (rewards.isEmpty()) {
+            return FALLBACK_TIP;
+        }
+        List<BigInteger> tips = new ArrayList<>(rewards.size());
+        for (Map.Entry<Long, BigInteger[]> entry : rewards.entrySet()) {
+            tips.add(entry.getValue()[percentile]);
+        }
+        Collections.sort(tips);
+        return tips.get(tips.size() / 2).max(BigInteger.ONE);
+    }
+
+    /**
+     * The last {@code baseFeePerGas} entry is the base fee of the block after the newest one.
+     */
+    private static BigInteger nextBaseFee(EthFeeHistory.FeeHistory history) {
+        if (history == null || history.getOldestBlockRaw() == null) {
+            return null;
+        }
+        List<BigInteger> baseFees = history.getBaseFeePerGas();
+        if (baseFees == null || baseFees.isEmpty()) {
+            return null;
+        }
+        BigInteger next = baseFees.get(baseFees.size() - 1);
+        return next == null || next.signum() == 0 ? null : next;
+    }
+}
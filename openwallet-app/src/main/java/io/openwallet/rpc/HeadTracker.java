@@ -0,0 +1,121 @@
+package io.openwallet.rpc;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the chain head of one network by polling {@code eth_blockNumber}.
+ *
+ * The head only moves forward, so a lagging endpoint behind the failover transport cannot move it back.
+ * Heads pushed by a subscription can be fed in through {@link #onHead}; polling pauses while the push
+ * connection is up. If no head has been seen for three poll intervals (a minute while pushed) the head is
+ * reported as unknown, so callers never pin reads to a stale block.
+ */
+public class HeadTracker implements AutoCloseable {
+
+    /** Block times vary; with push only, a head is not considered stale before this. */
+    private static final long PUSHED_STALE_MILLIS = 60_000L;
+
+    private final Web3j web3j;
+    private final long pollMillis;
+    private final ScheduledExecutorService scheduler;
+    private final List<Consumer<BigInteger>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile BigInteger head;
+    private volatile long lastSeenMillis;
+    private volatile boolean pushConnected;
+
+    public HeadTracker(Web3j web3j, long pollMillis) {
+        this.web3j = web3j;
+        this.pollMillis = Math.max(250, pollMillis);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("openwallet-head"));
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the latest known block number, or {@code null} if unknown or stale.
+     */
+    public BigInteger getHead() {
+        BigInteger h = head;
+        long staleAfter = pushConnected ? Math.max(PUSHED_STALE_MILLIS, 3 * pollMillis) : 3 * pollMillis;
+        if (h == null || System.currentTimeMillis() - lastSeenMillis > staleAfter) {
+            return null;
+        }
+        return h;
+    }
+
+    /**
+     * Registers a listener called with the new head each time it advances.
+     */
+    public void addListener(Consumer<BigInteger> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<BigInteger> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Pauses {@code eth_blockNumber} polling while heads are being pushed over a subscription.
+     */
+    public void setPushConnected(boolean connected) {
+        this.pushConnected = connected;
+    }
+
+    public boolean isPushConnected() {
+        return pushConnected;
+    }
+
+    public void onHead(BigInteger blockNumber) {
+        if (blockNumber == null) {
+            return;
+        }
+        boolean advanced;
+        synchronized (this) {
+            lastSeenMillis = System.currentTimeMillis();
+            advanced = head == null || blockNumber.compareTo(head) > 0;
+            if (advanced) {
+                head = blockNumber;
+            }
+        }
+        if (advanced) {
+            for (Consumer<BigInteger> l : listeners) {
+                try {
+                    l.accept(blockNumber);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void poll() {
+        if (pushConnected) {
+            return;
+        }
+        try {
+            web3j.ethBlockNumber().sendAsync()
+                    .thenApply(EthBlockNumber::getBlockNumber)
+                    .thenAccept(this::onHead)
+                    .exceptionally(ex -> null);
+        } catch (RuntimeException ignored) {
+            // Try again on the next tick.
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
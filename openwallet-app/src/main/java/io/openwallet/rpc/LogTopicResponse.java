@@ -0,0 +1,92 @@
+package io.openwallet.rpc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code eth_getLogs} response reduced to {@code topics[3]} of each log, e.g. the indexed tokenId of an
+ * ERC-721 {@code Transfer}.
+ *
+ * The result array is walked token by token while it is read off the response stream; every other field of
+ * each log is skipped without being materialized, so memory grows with the number of matches only.
+ */
+public class LogTopicResponse extends Response<List<String>> {
+
+    /**
+     * @return an {@code eth_getLogs} request for {@code filter} decoded into this type.
+     */
+    public static Request<?, LogTopicResponse> request(Web3jService service, EthFilter filter) {
+        return new Request<>("eth_getLogs", List.of(filter), service, LogTopicResponse.class);
+    }
+
+    @Override
+    @JsonDeserialize(using = FourthTopicDeserializer.class)
+    public void setResult(List<String> result) {
+        super.setResult(result);
+    }
+
+    /**
+     * @return {@code topics[3]} of each log that has one, in response order.
+     */
+    public List<String> getTopics() {
+        List<String> topics = getResult();
+        return topics != null ? topics : List.of();
+    }
+
+    public static class FourthTopicDeserializer extends JsonDeserializer<List<String>> {
+        private static final int TOPIC_INDEX = 3;
+
+        @Override
+        public List<String> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            List<String> out = new ArrayList<>();
+            if (p.currentToken() != JsonToken.START_ARRAY) {
+                p.skipChildren();
+                return out;
+            }
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                if (p.currentToken() != JsonToken.START_OBJECT) {
+                    // eth_getFilterChanges-style hashes, or anything else unexpected.
+                    p.skipChildren();
+                    continue;
+                }
+                String topic = readLog(p);
+                if (topic != null) {
+                    out.add(topic);
+                }
+            }
+            return out;
+        }
+
+        private static String readLog(JsonParser p) throws IOException {
+            String topic = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("topics".equals(field) && value == JsonToken.START_ARRAY) {
+                    int index = 0;
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        if (index++ == TOPIC_INDEX && p.currentToken() == JsonToken.VALUE_STRING) {
+                            topic = p.getText();
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+            return topic;
+        }
+    }
+}
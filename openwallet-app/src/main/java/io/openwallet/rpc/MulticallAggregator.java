@@ -0,0 +1,334 @@
+package io.openwallet.rpc;
+
+import io.openwallet.exception.ContractCallException;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packs read-only contract calls into {@code aggregate3} calls on the Multicall3 contract.
+ *
+ * Calls submitted within {@code lingerMillis} of each other are sent as one {@code eth_call}, with
+ * {@code allowFailure = true} so a single revert only fails its own future. If Multicall3 is not deployed
+ * on the endpoint's chain, calls fall back to individual {@code eth_call}s.
+ *
+ * With an {@link EthCallCache}, "latest" reads are pinned to the tracked head block and answered from the
+ * cache while the head stays put, so switching views within one block costs no RPCs.
+ */
+public class MulticallAggregator implements AutoCloseable {
+
+    /** Canonical Multicall3 deployment, same address on Sepolia, Base Sepolia and OP Sepolia. */
+    public static final String MULTICALL3_ADDRESS = "0xcA11bde05977b3631167028862bE2a173976CA11";
+
+    /** aggregate3((address,bool,bytes)[]) */
+    static final String AGGREGATE3_SELECTOR = "82ad56cb";
+
+    private final Web3j web3j;
+    private final String multicallAddress;
+    private final int maxCallsPerBatch;
+    private final long lingerMillis;
+    private final ScheduledExecutorService scheduler;
+    private final EthCallCache cache;
+
+    private final Object queueLock = new Object();
+    private List<PendingCall> queue = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private volatile boolean multicallAvailable = true;
+
+    public MulticallAggregator(Web3j web3j, String multicallAddress, int maxCallsPerBatch, long lingerMillis) {
+        this(web3j, multicallAddress, maxCallsPerBatch, lingerMillis, null);
+    }
+
+    public MulticallAggregator(Web3j web3j, String multicallAddress, int maxCallsPerBatch, long lingerMillis, EthCallCache cache) {
+        this.web3j = web3j;
+        this.cache = cache;
+        this.multicallAddress = multicallAddress != null && !multicallAddress.isBlank() ? multicallAddress : MULTICALL3_ADDRESS;
+        this.maxCallsPerBatch = Math.max(1, maxCallsPerBatch);
+        this.lingerMillis = Math.max(0, lingerMillis);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("openwallet-multicall"));
+    }
+
+    /**
+     * Calls {@code function} on {@code target} and decodes its outputs.
+     */
+    public CompletableFuture<List<Type>> call(String target, Function function) {
+        return call(target, FunctionEncoder.encode(function))
+                .thenApply(raw -> FunctionReturnDecoder.decode(raw, function.getOutputParameters()));
+    }
+
+    /**
+     * Calls {@code function} on {@code target} at a fixed historical block.
+     */
+    public CompletableFuture<List<Type>> call(String target, Function function, BigInteger blockNumber) {
+        return call(target, FunctionEncoder.encode(function), blockNumber)
+                .thenApply(raw -> FunctionReturnDecoder.decode(raw, function.getOutputParameters()));
+    }
+
+    /**
+     * Calls {@code target} with ABI-encoded {@code callData}; completes with the raw hex return data,
+     * or exceptionally with {@link ContractCallException} if that call reverted.
+     */
+    public CompletableFuture<String> call(String target, String callData) {
+        BigInteger head = cache != null ? cache.resolveLatest() : null;
+        if (head == null) {
+            return enqueue(target, callData, null);
+        }
+        return cache.get(head, target, callData, () -> enqueue(target, callData, head));
+    }
+
+    /**
+     * Like {@link #call(String, String)} but at {@code blockNumber}; results are cached for good.
+     */
+    public CompletableFuture<String> call(String target, String callData, BigInteger blockNumber) {
+        if (cache == null) {
+            return enqueue(target, callData, blockNumber);
+        }
+        return cache.get(blockNumber, target, callData, () -> enqueue(target, callData, blockNumber));
+    }
+
+    public EthCallCache getCache() {
+        return cache;
+    }
+
+    private CompletableFuture<String> enqueue(String target, String callData, BigInteger block) {
+        PendingCall call = new PendingCall(target, callData, block);
+        if (!multicallAvailable || maxCallsPerBatch <= 1) {
+            sendDirect(call);
+            return call.future;
+        }
+
+        List<PendingCall> ready = null;
+        synchronized (queueLock) {
+            queue.add(call);
+            if (queue.size() >= maxCallsPerBatch) {
+                ready = drainLocked();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            dispatch(ready);
+        }
+        return call.future;
+    }
+
+    public void flush() {
+        List<PendingCall> ready;
+        synchronized (queueLock) {
+            ready = drainLocked();
+        }
+        if (!ready.isEmpty()) {
+            dispatch(ready);
+        }
+    }
+
+    public boolean isMulticallAvailable() {
+        return multicallAvailable;
+    }
+
+    @Override
+    public void close() {
+        flush();
+        scheduler.shutdown();
+    }
+
+    private List<PendingCall> drainLocked() {
+        List<PendingCall> ready = queue;
+        queue = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return ready;
+    }
+
+    private void dispatch(List<PendingCall> calls) {
+        // One aggregate per block: calls pinned to different blocks cannot share an eth_call.
+        Map<BigInteger, List<PendingCall>> byBlock = new LinkedHashMap<>();
+        for (PendingCall c : calls) {
+            byBlock.computeIfAbsent(c.block, b -> new ArrayList<>()).add(c);
+        }
+        byBlock.forEach(this::dispatchAtBlock);
+    }
+
+    private void dispatchAtBlock(BigInteger block, List<PendingCall> calls) {
+        if (calls.size() == 1 || !multicallAvailable) {
+            calls.forEach(this::sendDirect);
+            return;
+        }
+
+        List<String> targets = new ArrayList<>(calls.size());
+        List<String> payloads = new ArrayList<>(calls.size());
+        for (PendingCall c : calls) {
+            targets.add(c.target);
+            payloads.add(c.callData);
+        }
+
+        String data = encodeAggregate3(targets, payloads);
+        Transaction tx = Transaction.createEthCallTransaction(null, multicallAddress, data);
+        web3j.ethCall(tx, blockParameter(block)).sendAsync().whenComplete((resp, ex) -> {
+            if (ex != null) {
+                calls.forEach(c -> c.future.completeExceptionally(ex));
+                return;
+            }
+            if (resp.hasError()) {
+                // The aggregate as a whole failed (e.g. node gas cap); retry this batch call by call.
+                calls.forEach(this::sendDirect);
+                return;
+            }
+            String value = resp.getValue();
+            if (value == null || Numeric.cleanHexPrefix(value).isEmpty()) {
+                // No Multicall3 code on this chain: go direct from now on.
+                multicallAvailable = false;
+                calls.forEach(this::sendDirect);
+                return;
+            }
+
+            List<Result> results;
+            try {
+                results = decodeAggregate3(value);
+            } catch (RuntimeException e) {
+                calls.forEach(c -> c.future.completeExceptionally(e));
+                return;
+            }
+            for (int i = 0; i < calls.size(); i++) {
+                PendingCall c = calls.get(i);
+                Result r = i < results.size() ? results.get(i) : null;
+                if (r == null || !r.success) {
+                    c.future.completeExceptionally(new ContractCallException("Call to " + c.target + " reverted"));
+                } else {
+                    c.future.complete(r.returnData);
+                }
+            }
+        });
+    }
+
+    private void sendDirect(PendingCall call) {
+        Transaction tx = Transaction.createEthCallTransaction(null, call.target, call.callData);
+        web3j.ethCall(tx, blockParameter(call.block)).sendAsync().whenComplete((resp, ex) -> {
+            if (ex != null) {
+                call.future.completeExceptionally(ex);
+            } else if (resp.hasError() || resp.isReverted()) {
+                String reason = resp.hasError() ? resp.getError().getMessage() : resp.getRevertReason();
+                call.future.completeExceptionally(new ContractCallException("Call to " + call.target + " reverted: " + reason));
+            } else {
+                call.future.complete(resp.getValue());
+            }
+        });
+    }
+
+    private static DefaultBlockParameter blockParameter(BigInteger block) {
+        return block != null ? DefaultBlockParameter.valueOf(block) : DefaultBlockParameterName.LATEST;
+    }
+
+    /**
+     * ABI-encodes {@code aggregate3(Call3[])} with {@code allowFailure = true} for every call.
+     */
+    static String encodeAggregate3(List<String> targets, List<String> callData) {
+        int n = targets.size();
+        List<String> elements = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            byte[] bytes = Numeric.hexStringToByteArray(callData.get(i));
+            StringBuilder el = new StringBuilder();
+            el.append(word(Numeric.toBigInt(targets.get(i))));
+            el.append(word(BigInteger.ONE));
+            el.append(word(BigInteger.valueOf(96)));
+            el.append(word(BigInteger.valueOf(bytes.length)));
+            el.append(padRight(Numeric.toHexStringNoPrefix(bytes)));
+            elements.add(el.toString());
+        }
+
+        StringBuilder out = new StringBuilder("0x").append(AGGREGATE3_SELECTOR);
+        out.append(word(BigInteger.valueOf(32)));
+        out.append(word(BigInteger.valueOf(n)));
+        long offset = 32L * n;
+        for (String el : elements) {
+            out.append(word(BigInteger.valueOf(offset)));
+            offset += el.length() / 2;
+        }
+        elements.forEach(out::append);
+        return out.toString();
+    }
+
+    /**
+     * Decodes the {@code (bool success, bytes returnData)[]} returned by {@code aggregate3}.
+     */
+    static List<Result> decodeAggregate3(String hex) {
+        byte[] data = Numeric.hexStringToByteArray(hex);
+        int arrayStart = readInt(data, 0);
+        int n = readInt(data, arrayStart);
+        int headStart = arrayStart + 32;
+
+        List<Result> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int elementStart = headStart + readInt(data, headStart + 32 * i);
+            boolean success = readInt(data, elementStart) != 0;
+            int bytesStart = elementStart + readInt(data, elementStart + 32);
+            int len = readInt(data, bytesStart);
+            byte[] ret = new byte[len];
+            System.arraycopy(data, bytesStart + 32, ret, 0, len);
+            out.add(new Result(success, Numeric.toHexString(ret)));
+        }
+        return out;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        if (offset < 0 || offset + 32 > data.length) {
+            throw new IllegalArgumentException("Malformed aggregate3 response");
+        }
+        byte[] w = new byte[32];
+        System.arraycopy(data, offset, w, 0, 32);
+        return new BigInteger(1, w).intValueExact();
+    }
+
+    private static String word(BigInteger value) {
+        return Numeric.toHexStringNoPrefixZeroPadded(value, 64);
+    }
+
+    private static String padRight(String hex) {
+        int rem = hex.length() % 64;
+        return rem == 0 ? hex : hex + "0".repeat(64 - rem);
+    }
+
+    static final class Result {
+        final boolean success;
+        final String returnData;
+
+        Result(boolean success, String returnData) {
+            this.success = success;
+            this.returnData = returnData;
+        }
+    }
+
+    private static final class PendingCall {
+        final String target;
+        final String callData;
+        /** Block to execute at, or {@code null} for "latest". */
+        final BigInteger block;
+        final CompletableFuture<String> future = new CompletableFuture<>();
+
+        PendingCall(String target, String callData, BigInteger block) {
+            this.target = target;
+            this.callData = callData;
+            this.block = block;
+        }
+    }
+}
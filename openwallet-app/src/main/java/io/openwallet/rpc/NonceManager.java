@@ -0,0 +1,216 @@
+package io.openwallet.rpc;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out nonces for one account on one network without asking the node on every send.
+ *
+ * The first reservation (and the first one after {@link #invalidate()}) syncs with the node's pending nonce.
+ * Nonces whose broadcast failed are released and handed out again before new ones, so a failed send does not
+ * leave a gap that stalls every later transaction. Gaps found while syncing are filled the same way; a
+ * broadcast nonce only counts as a gap once it has been missing from the pending nonce for the drop grace
+ * period, since a load-balanced node may simply not have seen it yet.
+ */
+public class NonceManager {
+
+    /**
+     * Reads {@code eth_getTransactionCount(address, "pending")}.
+     */
+    @FunctionalInterface
+    public interface PendingNonceSource {
+        BigInteger fetch() throws IOException;
+    }
+
+    public static final long DEFAULT_DROP_GRACE_MILLIS = 120_000;
+
+    private final PendingNonceSource source;
+    private final long dropGraceNanos;
+    private final LongSupplier nanoClock;
+
+    private boolean synced;
+    private long next;
+    private long chainPending;
+    /** Released or missing nonces below {@link #next}, reused lowest first. */
+    private final TreeSet<Long> free = new TreeSet<>();
+    /** Handed out, broadcast not yet reported. */
+    private final Set<Long> reserved = new HashSet<>();
+    /** Accepted by a node but not yet counted in the pending nonce we last saw, with the time of acceptance. */
+    private final TreeMap<Long, Long> broadcast = new TreeMap<>();
+
+    private long reservations;
+    private long releases;
+    private long gapsFilled;
+    private long syncs;
+
+    public NonceManager(PendingNonceSource source) {
+        this(source, DEFAULT_DROP_GRACE_MILLIS, System::nanoTime);
+    }
+
+    NonceManager(PendingNonceSource source, long dropGraceMillis, LongSupplier nanoClock) {
+        this.source = source;
+        this.dropGraceNanos = TimeUnit.MILLISECONDS.toNanos(dropGraceMillis);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Reserves the next nonce; the caller must {@link Reservation#confirm()} or {@link Reservation#release()} it.
+     */
+    public synchronized Reservation reserve() throws IOException {
+        if (!synced) {
+            syncLocked();
+        }
+        Long gap = free.pollFirst();
+        long nonce;
+        if (gap != null) {
+            nonce = gap;
+            gapsFilled++;
+        } else {
+            nonce = next++;
+        }
+        reserved.add(nonce);
+        reservations++;
+        return new Reservation(nonce);
+    }
+
+    /**
+     * Re-reads the pending nonce now.
+     */
+    public synchronized void sync() throws IOException {
+        syncLocked();
+    }
+
+    /**
+     * Makes the next reservation re-read the pending nonce, e.g. after a nonce error or an ambiguous broadcast.
+     */
+    public synchronized void invalidate() {
+        synced = false;
+    }
+
+    public synchronized long getNextNonce() {
+        return next;
+    }
+
+    public synchronized int getInFlight() {
+        return reserved.size() + broadcast.size();
+    }
+
+    public synchronized long getReservations() {
+        return reservations;
+    }
+
+    public synchronized long getReleases() {
+        return releases;
+    }
+
+    public synchronized long getGapsFilled() {
+        return gapsFilled;
+    }
+
+    public synchronized long getSyncs() {
+        return syncs;
+    }
+
+    private void syncLocked() throws IOException {
+        long pending = source.fetch().longValueExact();
+        syncs++;
+        chainPending = pending;
+        broadcast.headMap(pending).clear();
+        free.headSet(pending).clear();
+
+        // Broadcast long ago and still not counted: the transaction was dropped from the mempool.
+        long now = nanoClock.getAsLong();
+        Iterator<Map.Entry<Long, Long>> it = broadcast.entrySet().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().getValue() >= dropGraceNanos) {
+                it.remove();
+            }
+        }
+
+        if (!synced && reserved.isEmpty() && broadcast.isEmpty()) {
+            next = pending;
+            free.clear();
+        } else if (pending >= next) {
+            // Transactions were sent from this account elsewhere; everything we knew is already used.
+            next = pending;
+            free.clear();
+        } else {
+            // Anything between the node's view and ours that is neither in flight nor free was dropped.
+            for (long n = pending; n < next; n++) {
+                if (!reserved.contains(n) && !broadcast.containsKey(n)) {
+                    free.add(n);
+                }
+            }
+        }
+        synced = true;
+    }
+
+    private synchronized void confirm(long nonce) {
+        if (reserved.remove(nonce) && nonce >= chainPending) {
+            broadcast.put(nonce, nanoClock.getAsLong());
+        }
+    }
+
+    private synchronized void release(long nonce) {
+        if (!reserved.remove(nonce)) {
+            return;
+        }
+        releases++;
+        if (nonce < chainPending) {
+            // Already used on chain (e.g. "nonce too low"); nothing to hand back.
+            return;
+        }
+        if (nonce == next - 1) {
+            next--;
+            while (free.remove(next - 1)) {
+                next--;
+            }
+        } else {
+            free.add(nonce);
+        }
+    }
+
+    /**
+     * One reserved nonce; exactly one of {@link #confirm()} or {@link #release()} takes effect.
+     */
+    public final class Reservation {
+        private final long nonce;
+        private boolean done;
+
+        private Reservation(long nonce) {
+            this.nonce = nonce;
+        }
+
+        public BigInteger getNonce() {
+            return BigInteger.valueOf(nonce);
+        }
+
+        /**
+         * The transaction was accepted by a node.
+         */
+        public synchronized void confirm() {
+            if (!done) {
+                done = true;
+                NonceManager.this.confirm(nonce);
+            }
+        }
+
+        /**
+         * The transaction was not broadcast; the nonce goes back to the pool.
+         */
+        public synchronized void release() {
+            if (!done) {
+                done = true;
+                NonceManager.this.release(nonce);
+            }
+        }
+    }
+}
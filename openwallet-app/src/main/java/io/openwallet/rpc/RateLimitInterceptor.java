@@ -0,0 +1,52 @@
+package io.openwallet.rpc;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OkHttp interceptor that takes a token from the endpoint's {@link RateLimiter} before each request and
+ * retries {@code 429 Too Many Requests} with jittered backoff, honouring {@code Retry-After}.
+ *
+ * Runs on the calling thread, so it belongs on clients whose calls already run on I/O threads.
+ */
+public class RateLimitInterceptor implements Interceptor {
+
+    private final RateLimiterRegistry registry;
+
+    public RateLimitInterceptor(RateLimiterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        RateLimiter limiter = registry.forHost(request.url().host(), request.url().port());
+
+        for (int attempt = 0; ; attempt++) {
+            limiter.acquire();
+            Response response = chain.proceed(request);
+            if (response.code() != 429) {
+                limiter.onSuccess();
+                return response;
+            }
+
+            long retryAfter = RateLimiter.parseRetryAfterMillis(response.header("Retry-After"));
+            limiter.onThrottled(retryAfter);
+            if (attempt >= registry.getMaxRetries()) {
+                return response;
+            }
+            response.close();
+            try {
+                TimeUnit.MILLISECONDS.sleep(registry.backoffMillis(attempt, retryAfter));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while backing off");
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package io.openwallet.rpc;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive token bucket for one endpoint.
+ *
+ * Requests take a token each; the bucket refills at the current rate and holds at most one second of burst.
+ * A throttled response ({@code 429}) halves the rate and pauses the bucket until its {@code Retry-After};
+ * every successful call then adds back a small step until the configured maximum is reached again.
+ */
+public class RateLimiter {
+
+    private final double maxPerSecond;
+    private final double minPerSecond;
+
+    private double ratePerSecond;
+    private double tokens;
+    /** Tokens are accounted up to this instant; it lies in the future while paused by a Retry-After. */
+    private long lastRefillNanos;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    public RateLimiter(double maxPerSecond, double minPerSecond) {
+        this.maxPerSecond = Math.max(0.1, maxPerSecond);
+        this.minPerSecond = Math.min(this.maxPerSecond, Math.max(0.05, minPerSecond));
+        this.ratePerSecond = this.maxPerSecond;
+        this.tokens = burst();
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes a token, blocking the calling thread until one is available.
+     */
+    public void acquire() throws InterruptedIOException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while rate limited");
+            }
+        }
+    }
+
+    /**
+     * Takes a token; completes once it is available, without holding a thread meanwhile.
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Records a throttled response: halves the rate and pauses until {@code retryAfterMillis} has passed.
+     */
+    public synchronized void onThrottled(long retryAfterMillis) {
+        throttled.incrementAndGet();
+        ratePerSecond = Math.max(minPerSecond, ratePerSecond / 2);
+        long pause = retryAfterMillis > 0 ? retryAfterMillis : (long) (1000 / ratePerSecond);
+        long resumeAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pause);
+        if (resumeAt > lastRefillNanos) {
+            // Nothing refills during the pause; reservations already queued stay queued behind it.
+            lastRefillNanos = resumeAt;
+            tokens = Math.min(tokens, 0);
+        }
+    }
+
+    /**
+     * Records a successful call: recovers the rate by one step towards the maximum.
+     */
+    public synchronized void onSuccess() {
+        if (ratePerSecond < maxPerSecond) {
+            ratePerSecond = Math.min(maxPerSecond, ratePerSecond + Math.max(0.05, maxPerSecond / 50));
+        }
+    }
+
+    public synchronized double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public long getAcquired() {
+        return acquired.get();
+    }
+
+    /**
+     * Acquisitions that had to wait for a token.
+     */
+    public long getDelayed() {
+        return delayed.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    /**
+     * Jittered exponential backoff for retry {@code attempt} (0-based), never shorter than {@code retryAfterMillis}.
+     */
+    public static long backoffMillis(int attempt, long baseMillis, long maxMillis, long retryAfterMillis) {
+        long exp = Math.min(maxMillis, baseMillis << Math.min(attempt, 20));
+        // "Equal jitter": half fixed, half random, so retries spread out but still back off.
+        long jittered = exp / 2 + ThreadLocalRandom.current().nextLong(exp / 2 + 1);
+        return Math.max(jittered, retryAfterMillis);
+    }
+
+    /**
+     * Parses a {@code Retry-After} header (delta seconds or HTTP date); returns 0 if absent or invalid.
+     */
+    public static long parseRetryAfterMillis(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        String v = value.trim();
+        try {
+            return Math.max(0, (long) (Double.parseDouble(v) * 1000));
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (RuntimeException ignored) {
+            return 0;
+        }
+    }
+
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        if (now > lastRefillNanos) {
+            tokens = Math.min(burst(), tokens + (now - lastRefillNanos) / 1e9 * ratePerSecond);
+            lastRefillNanos = now;
+        }
+
+        long waitNanos = lastRefillNanos - now;
+        tokens -= 1;
+        if (tokens < 0) {
+            // Reserve ahead: callers queue up at the current rate instead of stampeding when tokens return.
+            waitNanos += (long) (-tokens / ratePerSecond * 1e9);
+        }
+        acquired.incrementAndGet();
+        if (waitNanos > 0) {
+            delayed.incrementAndGet();
+        }
+        return waitNanos;
+    }
+
+    private double burst() {
+        return Math.max(1, ratePerSecond);
+    }
+}
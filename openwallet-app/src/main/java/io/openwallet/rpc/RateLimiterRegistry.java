@@ -0,0 +1,56 @@
+package io.openwallet.rpc;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link RateLimiter} per endpoint host, shared by the RPC transports and the plain HTTP calls in the
+ * services, so JSON-RPC and REST traffic to the same provider draw from the same budget.
+ */
+public class RateLimiterRegistry {
+
+    private final double maxPerSecond;
+    private final double minPerSecond;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Map<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+
+    public RateLimiterRegistry(double maxPerSecond, double minPerSecond, int maxRetries, long baseBackoffMillis, long maxBackoffMillis) {
+        this.maxPerSecond = maxPerSecond;
+        this.minPerSecond = minPerSecond;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseBackoffMillis = Math.max(1, baseBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.baseBackoffMillis, maxBackoffMillis);
+    }
+
+    public RateLimiter forHost(String host, int port) {
+        String key = (host != null ? host.toLowerCase(Locale.ROOT) : "") + ":" + port;
+        return limiters.computeIfAbsent(key, k -> new RateLimiter(maxPerSecond, minPerSecond));
+    }
+
+    public RateLimiter forUri(URI uri) {
+        int port = uri.getPort();
+        if (port < 0) {
+            port = "http".equalsIgnoreCase(uri.getScheme()) ? 80 : 443;
+        }
+        return forHost(uri.getHost(), port);
+    }
+
+    /**
+     * Throttled calls are retried at most this many times.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long backoffMillis(int attempt, long retryAfterMillis) {
+        return RateLimiter.backoffMillis(attempt, baseBackoffMillis, maxBackoffMillis, retryAfterMillis);
+    }
+
+    public Map<String, RateLimiter> getLimiters() {
+        return Map.copyOf(limiters);
+    }
+}
@@ -0,0 +1,226 @@
+package io.openwallet.rpc;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * One receipt poller per network for every transaction the wallet is waiting on.
+ *
+ * Each tick asks for all outstanding receipts at once (the batching transport sends them as one JSON-RPC batch)
+ * plus a single {@code eth_blockNumber} when confirmations are being counted, instead of one polling loop per send.
+ * Before a confirmation is reported the receipt is fetched again: if its block hash changed the transaction was
+ * reorged into another block and the count restarts there, and if it has no receipt any more it is waited for.
+ */
+public class ReceiptPoller implements AutoCloseable {
+
+    private static final class ReceiptWaiter {
+        private final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+        private final long sinceNanos = System.nanoTime();
+    }
+
+    private static final class ConfirmationWaiter {
+        private final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+        private final int confirmations;
+        private TransactionReceipt receipt;
+        private BigInteger targetBlock;
+
+        private ConfirmationWaiter(TransactionReceipt receipt, int confirmations) {
+            this.confirmations = confirmations;
+            retarget(receipt);
+        }
+
+        private void retarget(TransactionReceipt receipt) {
+            this.receipt = receipt;
+            this.targetBlock = receipt.getBlockNumber().add(BigInteger.valueOf(confirmations - 1L));
+        }
+    }
+
+    private final Supplier<Web3j> web3j;
+    private final long timeoutNanos;
+    private final Map<String, ReceiptWaiter> receipts = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<ConfirmationWaiter> confirmations = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong included = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong reorged = new AtomicLong();
+
+    /**
+     * @param timeoutMillis how long a hash may stay without a receipt before its future fails; 0 waits forever
+     */
+    public ReceiptPoller(Supplier<Web3j> web3j, long pollMillis, long timeoutMillis) {
+        this.web3j = web3j;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("openwallet-receipts"));
+        long period = Math.max(100, pollMillis);
+        this.scheduler.scheduleWithFixedDelay(this::poll, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Completes with the receipt once {@code txHash} is mined. Waiters on the same hash share one future.
+     */
+    public CompletableFuture<TransactionReceipt> awaitReceipt(String txHash) {
+        return receipts.computeIfAbsent(txHash, h -> new ReceiptWaiter()).future;
+    }
+
+    /**
+     * Completes once the receipt's block has {@code confirmations} blocks on top of it, counting its own.
+     */
+    public CompletableFuture<TransactionReceipt> awaitConfirmations(TransactionReceipt receipt, int confirmations) {
+        if (confirmations <= 1 || receipt.getBlockNumber() == null) {
+            return CompletableFuture.completedFuture(receipt);
+        }
+        ConfirmationWaiter waiter = new ConfirmationWaiter(receipt, confirmations);
+        this.confirmations.add(waiter);
+        return waiter.future;
+    }
+
+    public int getPending() {
+        return receipts.size();
+    }
+
+    public int getAwaitingConfirmations() {
+        return confirmations.size();
+    }
+
+    public long getPolls() {
+        return polls.get();
+    }
+
+    public long getIncluded() {
+        return included.get();
+    }
+
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    /**
+     * Confirmation counts restarted because the receipt moved to another block.
+     */
+    public long getReorged() {
+        return reorged.get();
+    }
+
+    /**
+     * One polling round; runs on the poller thread.
+     */
+    void poll() {
+        if (receipts.isEmpty() && confirmations.isEmpty()) {
+            return;
+        }
+        polls.incrementAndGet();
+        try {
+            Web3j client = web3j.get();
+
+            List<String> hashes = new ArrayList<>(receipts.keySet());
+            List<CompletableFuture<EthGetTransactionReceipt>> requests = new ArrayList<>(hashes.size());
+            for (String hash : hashes) {
+                requests.add(client.ethGetTransactionReceipt(hash).sendAsync());
+            }
+            CompletableFuture<EthBlockNumber> head = confirmations.isEmpty()
+                    ? null
+                    : client.ethBlockNumber().sendAsync();
+
+            long now = System.nanoTime();
+            for (int i = 0; i < hashes.size(); i++) {
+                String hash = hashes.get(i);
+                ReceiptWaiter waiter = receipts.get(hash);
+                if (waiter == null) {
+                    continue;
+                }
+                TransactionReceipt receipt = receiptOrNull(requests.get(i));
+                if (receipt != null && receipt.getBlockNumberRaw() != null) {
+                    receipts.remove(hash, waiter);
+                    included.incrementAndGet();
+                    waiter.future.complete(receipt);
+                } else if (timeoutNanos > 0 && now - waiter.sinceNanos >= timeoutNanos) {
+                    receipts.remove(hash, waiter);
+                    timedOut.incrementAndGet();
+                    waiter.future.completeExceptionally(new TimeoutException("No receipt for " + hash));
+                }
+            }
+
+            if (head != null) {
+                BigInteger block = blockOrNull(head);
+                if (block != null) {
+                    confirm(client, block);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Transport trouble; everything stays queued for the next round.
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Re-reads the receipt of every waiter whose target block is reached and reports the ones still in the
+     * block they were counted from.
+     */
+    private void confirm(Web3j client, BigInteger head) {
+        List<ConfirmationWaiter> due = new ArrayList<>();
+        List<CompletableFuture<EthGetTransactionReceipt>> requests = new ArrayList<>();
+        for (ConfirmationWaiter waiter : confirmations) {
+            if (head.compareTo(waiter.targetBlock) >= 0) {
+                due.add(waiter);
+                requests.add(client.ethGetTransactionReceipt(waiter.receipt.getTransactionHash()).sendAsync());
+            }
+        }
+        for (int i = 0; i < due.size(); i++) {
+            ConfirmationWaiter waiter = due.get(i);
+            TransactionReceipt current = receiptOrNull(requests.get(i));
+            if (current == null || current.getBlockNumberRaw() == null) {
+                // Unknown, or back in the mempool after a reorg; check again next round.
+                continue;
+            }
+            if (Objects.equals(current.getBlockHash(), waiter.receipt.getBlockHash())) {
+                confirmations.remove(waiter);
+                waiter.future.complete(current);
+            } else {
+                reorged.incrementAndGet();
+                waiter.retarget(current);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static TransactionReceipt receiptOrNull(CompletableFuture<EthGetTransactionReceipt> request) {
+        try {
+            EthGetTransactionReceipt response = request.join();
+            return response.hasError() ? null : response.getTransactionReceipt().orElse(null);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static BigInteger blockOrNull(CompletableFuture<EthBlockNumber> request) {
+        try {
+            EthBlockNumber response = request.join();
+            return response.hasError() ? null : response.getBlockNumber();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
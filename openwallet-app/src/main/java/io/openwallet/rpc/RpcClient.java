@@ -0,0 +1,146 @@
+package io.openwallet.rpc;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+
+import java.util.List;
+
+/**
+ * Long-lived RPC client for one network: the failover transport over the network's endpoints, a
+ * single-flight layer that merges identical in-flight reads, the {@link Web3j} facade on top, and the
+ * network's {@link MulticallAggregator}. When head polling is enabled, contract reads are pinned to the head
+ * block and served from an {@link EthCallCache}.
+ */
+public class RpcClient implements AutoCloseable {
+
+    private static final int PINNED_CALL_CACHE_ENTRIES = 10_000;
+
+    private final String networkId;
+    private final List<String> rpcUrls;
+    private final FailoverWeb3jService transport;
+    private final SingleFlightWeb3jService singleFlight;
+    private final Web3j web3j;
+    private final HeadTracker headTracker;
+    private volatile ChainEventStream events;
+    private final MulticallAggregator multicall;
+    private final long createdAtMillis = System.currentTimeMillis();
+    private volatile long lastUsedMillis = createdAtMillis;
+
+    /**
+     * @param headPollMillis how often to poll {@code eth_blockNumber}; {@code <= 0} disables the head
+     *                       tracker and the call cache.
+     */
+    public RpcClient(String networkId, long chainId, List<String> rpcUrls, FailoverWeb3jService transport,
+                     String multicallAddress, int multicallMaxCalls, long multicallLingerMillis, long headPollMillis) {
+        this.networkId = networkId;
+        this.rpcUrls = List.copyOf(rpcUrls);
+        this.transport = transport;
+        this.singleFlight = new SingleFlightWeb3jService(networkId, transport);
+        this.web3j = Web3j.build(singleFlight);
+        EthCallCache cache = null;
+        if (headPollMillis > 0) {
+            this.headTracker = new HeadTracker(web3j, headPollMillis);
+            cache = new EthCallCache(chainId, headTracker, PINNED_CALL_CACHE_ENTRIES);
+            headTracker.start();
+        } else {
+            this.headTracker = null;
+        }
+        this.multicall = new MulticallAggregator(web3j, multicallAddress, multicallMaxCalls, multicallLingerMillis, cache);
+    }
+
+    public String getNetworkId() {
+        return networkId;
+    }
+
+    public List<String> getRpcUrls() {
+        return rpcUrls;
+    }
+
+    public Web3j getWeb3j() {
+        touch();
+        return web3j;
+    }
+
+    /**
+     * The service behind {@link #getWeb3j()}, for requests with custom response types.
+     */
+    public Web3jService getService() {
+        touch();
+        return singleFlight;
+    }
+
+    public MulticallAggregator getMulticall() {
+        touch();
+        return multicall;
+    }
+
+    /**
+     * @return the head tracker, or {@code null} if head polling is disabled.
+     */
+    public HeadTracker getHeadTracker() {
+        return headTracker;
+    }
+
+    /**
+     * Starts pushing head and log events for this network, over {@code wsUrl} when given and by polling
+     * otherwise. Does nothing if head polling is disabled.
+     */
+    public synchronized void openEventStream(String wsUrl, long minBackoffMillis, long maxBackoffMillis) {
+        if (headTracker == null || events != null) {
+            return;
+        }
+        events = new ChainEventStream(wsUrl, headTracker, web3j, minBackoffMillis, maxBackoffMillis);
+        events.start();
+    }
+
+    /**
+     * @return the event stream, or {@code null} if it was not opened.
+     */
+    public ChainEventStream getEvents() {
+        return events;
+    }
+
+    public FailoverWeb3jService getTransport() {
+        return transport;
+    }
+
+    public SingleFlightWeb3jService getSingleFlight() {
+        return singleFlight;
+    }
+
+    public int getInFlight() {
+        return transport.getInFlight();
+    }
+
+    /**
+     * Whether anyone is listening on the event stream; such a client is in use even without calls.
+     */
+    public boolean hasSubscribers() {
+        ChainEventStream e = events;
+        return e != null && e.getSubscriberCount() > 0;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public long getLastUsedMillis() {
+        return lastUsedMillis;
+    }
+
+    void touch() {
+        lastUsedMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public void close() {
+        if (events != null) {
+            events.close();
+        }
+        if (headTracker != null) {
+            headTracker.close();
+        }
+        multicall.close();
+        web3j.shutdown();
+    }
+}
@@ -0,0 +1,29 @@
+package io.openwallet.rpc;
+
+/**
+ * One RPC provider URL with its transport and rolling health stats.
+ */
+public class RpcEndpoint {
+
+    private final String url;
+    private final BatchingHttpService transport;
+    private final EndpointStats stats;
+
+    public RpcEndpoint(String url, BatchingHttpService transport, EndpointStats stats) {
+        this.url = url;
+        this.transport = transport;
+        this.stats = stats;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public BatchingHttpService getTransport() {
+        return transport;
+    }
+
+    public EndpointStats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,185 @@
+package io.openwallet.rpc;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.Flowable;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Web3jService} that collapses identical in-flight read calls into one.
+ *
+ * Calls are keyed on (network, method, params, response type); the params carry the block tag, so
+ * {@code eth_getBalance(addr, latest)} and {@code eth_getBalance(addr, 0x10)} stay separate. While a call is
+ * in flight, later identical calls attach to the same future instead of reaching the network. Nothing is kept
+ * once the call completes. Each caller gets its own dependent copy of the future, so cancelling one does not
+ * affect the others.
+ */
+public class SingleFlightWeb3jService implements Web3jService {
+
+    /** Methods with side effects or per-call identity are never merged. */
+    private static final Set<String> NON_DEDUPLICATED_METHODS = Set.of(
+            "eth_sendRawTransaction",
+            "eth_sendTransaction",
+            "eth_newFilter",
+            "eth_newBlockFilter",
+            "eth_newPendingTransactionFilter",
+            "eth_getFilterChanges",
+            "eth_uninstallFilter"
+    );
+
+    private static final ObjectMapper MAPPER = ObjectMapperFactory.getObjectMapper();
+
+    private final String networkId;
+    private final Web3jService delegate;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+
+    public SingleFlightWeb3jService(String networkId, Web3jService delegate) {
+        this.networkId = networkId;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        String key = keyOf(request, responseType);
+        if (key == null) {
+            return delegate.send(request, responseType);
+        }
+        try {
+            return join(key, request, responseType).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + request.getMethod(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        String key = keyOf(request, responseType);
+        if (key == null) {
+            return delegate.sendAsync(request, responseType);
+        }
+        return join(key, request, responseType);
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return delegate.sendBatch(batchRequest);
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return delegate.sendBatchAsync(batchRequest);
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod, Class<T> responseType) {
+        return delegate.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    public Web3jService getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Read calls that went through the de-duplication lookup.
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Calls that attached to an identical call already in flight instead of going to the network.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Network calls that ended up serving more than one caller.
+     */
+    public long getMerges() {
+        return merges.get();
+    }
+
+    public int getInFlightKeys() {
+        return inFlight.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Response> CompletableFuture<T> join(String key, Request request, Class<T> responseType) {
+        requests.incrementAndGet();
+        Flight created = new Flight();
+        Flight flight = inFlight.putIfAbsent(key, created);
+        if (flight != null) {
+            hits.incrementAndGet();
+            if (flight.callers.incrementAndGet() == 2) {
+                merges.incrementAndGet();
+            }
+            return (CompletableFuture<T>) (CompletableFuture<?>) flight.future.copy();
+        }
+
+        CompletableFuture<T> upstream;
+        try {
+            upstream = delegate.sendAsync(request, responseType);
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((resp, ex) -> {
+            // Remove before completing so callers arriving after the result start a fresh call.
+            inFlight.remove(key, created);
+            if (ex != null) {
+                created.future.completeExceptionally(ex);
+            } else {
+                created.future.complete(resp);
+            }
+        });
+        return (CompletableFuture<T>) (CompletableFuture<?>) created.future.copy();
+    }
+
+    private String keyOf(Request request, Class<?> responseType) {
+        if (NON_DEDUPLICATED_METHODS.contains(request.getMethod())) {
+            return null;
+        }
+        try {
+            return networkId + '|' + request.getMethod() + '|' + MAPPER.writeValueAsString(request.getParams())
+                    + '|' + responseType.getName();
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static final class Flight {
+        final CompletableFuture<Response<?>> future = new CompletableFuture<>();
+        final AtomicInteger callers = new AtomicInteger(1);
+    }
+}
@@ -0,0 +1,158 @@
+package io.openwallet.rpc;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * One lazily created, long-lived {@link RpcClient} per network id.
+ *
+ * Switching the active network no longer tears anything down: each network keeps its warm connections,
+ * and clients are only closed after sitting idle (no calls in flight and no event stream listeners) for
+ * {@code idleTimeoutMillis}.
+ * A client whose RPC URLs changed is retired and closed once its in-flight calls have drained.
+ */
+public class Web3jClientPool implements AutoCloseable {
+
+    private final BiFunction<String, List<String>, RpcClient> factory;
+    private final long idleTimeoutMillis;
+    private final Map<String, RpcClient> clients = new ConcurrentHashMap<>();
+    private final List<RpcClient> retiring = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * @param factory creates a client from (networkId, rpcUrls).
+     */
+    public Web3jClientPool(BiFunction<String, List<String>, RpcClient> factory, long idleTimeoutMillis) {
+        this.factory = factory;
+        this.idleTimeoutMillis = Math.max(1_000L, idleTimeoutMillis);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("openwallet-rpc-pool"));
+        long period = Math.max(1_000L, this.idleTimeoutMillis / 4);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public RpcClient get(String networkId, List<String> rpcUrls) {
+        String key = networkId != null ? networkId : "default";
+        // Touched under the map's lock for the key, so evictIdle cannot close the client while it is handed out.
+        return clients.compute(key, (k, existing) -> {
+            RpcClient client = existing;
+            if (existing == null || !Objects.equals(existing.getRpcUrls(), rpcUrls)) {
+                if (existing != null) {
+                    retiring.add(existing);
+                }
+                client = factory.apply(k, rpcUrls);
+            }
+            client.touch();
+            return client;
+        });
+    }
+
+    /**
+     * Closes clients that have no calls in flight, no head or log listeners, and have not been used within the
+     * idle timeout.
+     */
+    public void evictIdle() {
+        for (String key : clients.keySet()) {
+            List<RpcClient> evicted = new ArrayList<>(1);
+            clients.computeIfPresent(key, (k, c) -> {
+                if (c.getInFlight() == 0 && !c.hasSubscribers()
+                        && System.currentTimeMillis() - c.getLastUsedMillis() >= idleTimeoutMillis) {
+                    evicted.add(c);
+                    return null;
+                }
+                return c;
+            });
+            evicted.forEach(RpcClient::close);
+        }
+        for (RpcClient c : retiring) {
+            if (c.getInFlight() == 0) {
+                retiring.remove(c);
+                c.close();
+            }
+        }
+    }
+
+    public List<ClientStats> stats() {
+        long now = System.currentTimeMillis();
+        List<ClientStats> out = new ArrayList<>();
+        for (RpcClient c : clients.values()) {
+            out.add(new ClientStats(c.getNetworkId(), joined(c), c.getInFlight(), now - c.getLastUsedMillis(), false));
+        }
+        for (RpcClient c : retiring) {
+            out.add(new ClientStats(c.getNetworkId(), joined(c), c.getInFlight(), now - c.getLastUsedMillis(), true));
+        }
+        out.sort(Comparator.comparing(ClientStats::getNetworkId));
+        return out;
+    }
+
+    private static String joined(RpcClient c) {
+        return c.getRpcUrls().stream().collect(Collectors.joining(","));
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        clients.values().forEach(RpcClient::close);
+        clients.clear();
+        retiring.forEach(RpcClient::close);
+        retiring.clear();
+    }
+
+    public static class ClientStats {
+        private final String networkId;
+        private final String rpcUrl;
+        private final int inFlight;
+        private final long idleMillis;
+        private final boolean retiring;
+
+        public ClientStats(String networkId, String rpcUrl, int inFlight, long idleMillis, boolean retiring) {
+            this.networkId = networkId;
+            this.rpcUrl = rpcUrl;
+            this.inFlight = inFlight;
+            this.idleMillis = idleMillis;
+            this.retiring = retiring;
+        }
+
+        public String getNetworkId() {
+            return networkId;
+        }
+
+        public String getRpcUrl() {
+            return rpcUrl;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        public long getIdleMillis() {
+            return idleMillis;
+        }
+
+        public boolean isRetiring() {
+            return retiring;
+        }
+
+        /**
+         * A client is active while it has calls in flight, idle otherwise.
+         */
+        public boolean isActive() {
+            return inFlight > 0;
+        }
+
+        @Override
+        public String toString() {
+            return networkId + " [" + (isActive() ? "active" : "idle") + (retiring ? ", retiring" : "")
+                    + ", inFlight=" + inFlight + ", idleMs=" + idleMillis + "]";
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.openwallet.service;
+
+import io.openwallet.crypto.HdKeyChain;
+import io.openwallet.model.WalletAccount;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * BIP-44 style account discovery: probes addresses batch by batch until {@code gapLimit} consecutive ones are unused.
+ *
+ * All probes of a batch are issued at once, so with the batching transport each batch costs about one round trip.
+ */
+public class AccountDiscovery {
+
+    /**
+     * Tells whether an address has ever been used.
+     */
+    @FunctionalInterface
+    public interface ActivityProbe {
+        CompletableFuture<Boolean> isUsed(String address);
+    }
+
+    private final ActivityProbe probe;
+    private final int gapLimit;
+    private final int batchSize;
+    private final int maxAccounts;
+
+    public AccountDiscovery(ActivityProbe probe, int gapLimit, int batchSize, int maxAccounts) {
+        this.probe = probe;
+        this.gapLimit = Math.max(1, gapLimit);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAccounts = Math.max(1, maxAccounts);
+    }
+
+    /**
+     * An address is used if it holds ETH or has sent a transaction.
+     */
+    public static ActivityProbe balanceOrNonceProbe(Web3j web3j) {
+        return address -> {
+            CompletableFuture<BigInteger> balance = web3j.ethGetBalance(address, DefaultBlockParameterName.LATEST)
+                    .sendAsync()
+                    .thenApply(r -> r.hasError() ? BigInteger.ZERO : r.getBalance());
+            CompletableFuture<BigInteger> nonce = web3j.ethGetTransactionCount(address, DefaultBlockParameterName.LATEST)
+                    .sendAsync()
+                    .thenApply(r -> r.hasError() ? BigInteger.ZERO : r.getTransactionCount());
+            return balance.thenCombine(nonce, (b, n) -> b.signum() > 0 || n.signum() > 0);
+        };
+    }
+
+    /**
+     * Returns accounts {@code 0 .. last used index} (always at least account 0) for {@code profileId}.
+     */
+    public List<WalletAccount> discover(HdKeyChain keyChain, int profileId) {
+        List<String> addresses = new ArrayList<>();
+        List<Boolean> used = new ArrayList<>();
+        int lastUsed = -1;
+
+        while (addresses.size() - lastUsed - 1 < gapLimit && addresses.size() < maxAccounts) {
+            int from = addresses.size();
+            int count = Math.min(batchSize, maxAccounts - from);
+            List<String> batch = keyChain.deriveAddresses(from, count);
+
+            List<CompletableFuture<Boolean>> probes = new ArrayList<>(count);
+            for (String address : batch) {
+                probes.add(probe.isUsed(address));
+            }
+            for (int i = 0; i < count; i++) {
+                boolean isUsed = Boolean.TRUE.equals(probes.get(i).join());
+                addresses.add(batch.get(i));
+                used.add(isUsed);
+                if (isUsed) {
+                    lastUsed = from + i;
+                }
+            }
+        }
+
+        List<WalletAccount> accounts = new ArrayList<>();
+        for (int i = 0; i <= Math.max(0, lastUsed); i++) {
+            accounts.add(new WalletAccount(profileId, i, addresses.get(i), HdKeyChain.pathOf(i), used.get(i)));
+        }
+        return accounts;
+    }
+}
@@ -0,0 +1,241 @@
+package io.openwallet.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.openwallet.db.DatabaseConfig;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Gas actually used by earlier contract calls, so repeat sends can skip {@code eth_estimateGas}.
+ *
+ * Samples come from mined receipts and are kept per network, contract, 4-byte function selector and whether
+ * the call touched a fresh storage slot (e.g. a transfer to a holder with zero balance, which costs ~20k gas
+ * more). A profile with enough recent samples answers with the configured percentile plus a 10% margin;
+ * unknown or stale profiles return nothing and the caller estimates live. Profiles are saved to
+ * {@code ~/.openwallet/gas-profiles.json}.
+ */
+public class GasProfileStore {
+
+    /** Samples kept per profile; older ones are dropped. */
+    static final int MAX_SAMPLES = 50;
+    private static final int MARGIN_PERCENT = 10;
+
+    public static final class Key {
+        private final String networkId;
+        private final String contract;
+        private final String selector;
+        private final boolean fresh;
+
+        public Key(String networkId, String contract, String selector, boolean fresh) {
+            this.networkId = networkId;
+            this.contract = contract.toLowerCase(Locale.ROOT);
+            this.selector = selector.toLowerCase(Locale.ROOT);
+            this.fresh = fresh;
+        }
+
+        /** Key for a call with ABI-encoded {@code data}, whose first four bytes are the selector. */
+        public static Key of(String networkId, String contract, String data, boolean fresh) {
+            String hex = data.startsWith("0x") ? data.substring(2) : data;
+            return new Key(networkId, contract, "0x" + hex.substring(0, Math.min(8, hex.length())), fresh);
+        }
+
+        public String getNetworkId() { return networkId; }
+
+        public String getContract() { return contract; }
+
+        public String getSelector() { return selector; }
+
+        public boolean isFresh() { return fresh; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return fresh == k.fresh && networkId.equals(k.networkId) && contract.equals(k.contract) && selector.equals(k.selector);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(networkId, contract, selector, fresh);
+        }
+
+        @Override
+        public String toString() {
+            return networkId + ":" + contract + ":" + selector + (fresh ? ":fresh" : "");
+        }
+    }
+
+    /** Persisted form of one profile. */
+    static final class Entry {
+        public String network;
+        public String contract;
+        public String selector;
+        public boolean fresh;
+        public long updatedAt;
+        public List<Long> samples = new ArrayList<>();
+    }
+
+    private static final class Profile {
+        private final Deque<Long> samples = new ArrayDeque<>();
+        private long updatedAt;
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path path;
+    private final int percentile;
+    private final int minSamples;
+    private final long maxAgeMillis;
+    private final LongSupplier clock;
+    private final Map<Key, Profile> profiles = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public GasProfileStore() {
+        this(defaultPath(),
+                DatabaseConfig.getGasProfilePercentile(),
+                DatabaseConfig.getGasProfileMinSamples(),
+                TimeUnit.HOURS.toMillis(DatabaseConfig.getGasProfileMaxAgeHours()),
+                System::currentTimeMillis);
+    }
+
+    /**
+     * @param path where profiles are loaded from and saved to; {@code null} keeps them in memory only
+     */
+    public GasProfileStore(Path path, int percentile, int minSamples, long maxAgeMillis, LongSupplier clock) {
+        this.path = path;
+        this.percentile = Math.min(100, Math.max(1, percentile));
+        this.minSamples = Math.max(1, minSamples);
+        this.maxAgeMillis = maxAgeMillis;
+        this.clock = clock;
+        load();
+    }
+
+    /**
+     * Learned gas limit for {@code key}, or empty if the profile is unknown, too thin or stale.
+     */
+    public synchronized Optional<BigInteger> limitFor(Key key) {
+        Profile profile = profiles.get(key);
+        if (profile == null || profile.samples.size() < minSamples
+                || (maxAgeMillis > 0 && clock.getAsLong() - profile.updatedAt > maxAgeMillis)) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        List<Long> sorted = new ArrayList<>(profile.samples);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        long used = sorted.get(Math.max(0, index));
+        hits.incrementAndGet();
+        return Optional.of(BigInteger.valueOf(used * (100 + MARGIN_PERCENT) / 100));
+    }
+
+    public synchronized void record(Key key, long gasUsed) {
+        Profile profile = profiles.computeIfAbsent(key, k -> new Profile());
+        profile.samples.addLast(gasUsed);
+        while (profile.samples.size() > MAX_SAMPLES) {
+            profile.samples.removeFirst();
+        }
+        profile.updatedAt = clock.getAsLong();
+        save();
+    }
+
+    /**
+     * Learns from a mined call that was sent with {@code gasLimit}. A reverted call that used its whole limit
+     * ran out of gas, so the profile is dropped and the next send estimates live again.
+     */
+    public void observe(Key key, BigInteger gasLimit, TransactionReceipt receipt) {
+        if (receipt == null || receipt.getGasUsed() == null) {
+            return;
+        }
+        if (receipt.isStatusOK()) {
+            record(key, receipt.getGasUsed().longValue());
+        } else if (gasLimit != null && receipt.getGasUsed().compareTo(gasLimit) >= 0) {
+            forget(key);
+        }
+    }
+
+    public synchronized void forget(Key key) {
+        profiles.remove(key);
+        save();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void load() {
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        try {
+            List<Entry> entries = mapper.readValue(Files.readString(path), new TypeReference<List<Entry>>() {});
+            for (Entry e : entries) {
+                if (e.network == null || e.contract == null || e.selector == null) {
+                    continue;
+                }
+                Profile profile = new Profile();
+                profile.samples.addAll(e.samples);
+                profile.updatedAt = e.updatedAt;
+                profiles.put(new Key(e.network, e.contract, e.selector, e.fresh), profile);
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // A damaged file only costs some live estimates.
+        }
+    }
+
+    /** Called with the lock held. */
+    private void save() {
+        if (path == null) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<Key, Profile> p : profiles.entrySet()) {
+            Entry e = new Entry();
+            e.network = p.getKey().networkId;
+            e.contract = p.getKey().contract;
+            e.selector = p.getKey().selector;
+            e.fresh = p.getKey().fresh;
+            e.updatedAt = p.getValue().updatedAt;
+            e.samples = new ArrayList<>(p.getValue().samples);
+            entries.add(e);
+        }
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(tmp, mapper.writeValueAsBytes(entries));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static Path defaultPath() {
+        String home = System.getProperty("user.home");
+        return Paths.get(home, ".openwallet", "gas-profiles.json");
+    }
+}
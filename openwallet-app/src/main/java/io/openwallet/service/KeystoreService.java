@@ -0,0 +1,335 @@
+package io.openwallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.openwallet.crypto.CryptoUtil;
+import io.openwallet.crypto.KdfParams;
+import io.openwallet.db.DatabaseConfig;
+import io.openwallet.db.WalletDao;
+import io.openwallet.exception.AuthenticationException;
+import io.openwallet.exception.OpenWalletException;
+import io.openwallet.model.WalletProfile;
+import io.openwallet.rpc.DaemonThreadFactory;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Wallet;
+import org.web3j.crypto.WalletFile;
+import org.web3j.crypto.exception.CipherException;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Import and export of Web3 Secret Storage (V3) keystore files, as written by geth, MetaMask and web3j, with
+ * scrypt or pbkdf2 KDFs.
+ *
+ * Imported keys are re-encrypted into OpenWallet's own envelope under the wallet password. A directory import
+ * decrypts its files in parallel, but scrypt at the standard n=262144 needs 256 MB per file, so every decrypt
+ * first reserves what its KDF needs from a shared memory budget; only as many run at once as fit. Imported
+ * profiles are inserted into {@code wallet_profiles} in batches as they complete.
+ */
+public class KeystoreService {
+
+    /** scrypt cost of keystores written by geth and {@link Wallet#createStandard}. */
+    public static final int STANDARD_SCRYPT_N = 1 << 18;
+    public static final int LIGHT_SCRYPT_N = 1 << 12;
+    private static final int STANDARD_SCRYPT_P = 1;
+    private static final int LIGHT_SCRYPT_P = 6;
+    private static final long MIB = 1024 * 1024;
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH-mm-ss.SSS'Z'");
+
+    /**
+     * Outcome of {@link #importDirectory}.
+     */
+    public static final class ImportReport {
+        private final List<WalletProfile> imported;
+        private final Map<Path, String> failed;
+        private final List<Path> skipped;
+        private final int peakConcurrency;
+        private final long elapsedMillis;
+
+        private ImportReport(List<WalletProfile> imported, Map<Path, String> failed, List<Path> skipped,
+                             int peakConcurrency, long elapsedMillis) {
+            this.imported = imported;
+            this.failed = failed;
+            this.skipped = skipped;
+            this.peakConcurrency = peakConcurrency;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public List<WalletProfile> getImported() { return imported; }
+
+        /** Files that could not be imported, with the reason. */
+        public Map<Path, String> getFailed() { return failed; }
+
+        /** Files whose address already has a profile. */
+        public List<Path> getSkipped() { return skipped; }
+
+        /** Most keystores that were being decrypted at the same time. */
+        public int getPeakConcurrency() { return peakConcurrency; }
+
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+
+    private final WalletDao walletDao;
+    private final Supplier<KdfParams> kdf;
+    private final int threads;
+    private final long memoryBudget;
+    private final int batchSize;
+    private final ObjectMapper mapper = ObjectMapperFactory.getObjectMapper();
+
+    public KeystoreService(WalletDao walletDao) {
+        this(walletDao, WalletService::kdfParams,
+                DatabaseConfig.getKeystoreImportThreads(),
+                DatabaseConfig.getKeystoreImportMemoryMb() * MIB,
+                DatabaseConfig.getKeystoreImportBatchSize());
+    }
+
+    /**
+     * @param kdf          KDF for the re-encrypted keys
+     * @param threads      parallel decrypts at most; 0 for one per core
+     * @param memoryBudget bytes the KDFs of concurrent decrypts may use together; 0 for half the maximum heap
+     */
+    public KeystoreService(WalletDao walletDao, Supplier<KdfParams> kdf, int threads, long memoryBudget, int batchSize) {
+        this.walletDao = walletDao;
+        this.kdf = kdf;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.memoryBudget = Math.max(MIB, memoryBudget > 0 ? memoryBudget : Runtime.getRuntime().maxMemory() / 2);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Writes the profile's key to a new V3 keystore in {@code directory}, named as geth names them.
+     * @param light use scrypt n=4096 instead of the standard n=262144 (faster, but much cheaper to attack)
+     * @return the keystore file.
+     */
+    public Path exportKeystore(String profileName, String password, String keystorePassword, Path directory,
+                               boolean light) throws Exception {
+        WalletProfile profile = walletDao.findByProfileName(profileName)
+                .orElseThrow(() -> new IllegalArgumentException("Wallet profile not found: " + profileName));
+        byte[] hex;
+        char[] chars = password.toCharArray();
+        try {
+            hex = CryptoUtil.decryptToBytes(profile.getEncryptedJson(), chars);
+        } catch (Exception e) {
+            throw new AuthenticationException("Incorrect password or corrupted key.");
+        } finally {
+            Arrays.fill(chars, '\0');
+        }
+        byte[] key;
+        try {
+            key = WalletService.hexToKey(hex);
+        } finally {
+            Arrays.fill(hex, (byte) 0);
+        }
+        ECKeyPair keyPair;
+        try {
+            keyPair = ECKeyPair.create(key);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+
+        WalletFile walletFile = light
+                ? Wallet.create(keystorePassword, keyPair, LIGHT_SCRYPT_N, LIGHT_SCRYPT_P)
+                : Wallet.create(keystorePassword, keyPair, STANDARD_SCRYPT_N, STANDARD_SCRYPT_P);
+        Files.createDirectories(directory);
+        Path file = directory.resolve("UTC--" + ZonedDateTime.now(ZoneOffset.UTC).format(FILE_TIME) + "--" + walletFile.getAddress());
+        mapper.writeValue(file.toFile(), walletFile);
+        return file;
+    }
+
+    /**
+     * Imports one keystore file as a new profile encrypted with {@code password}.
+     */
+    public WalletProfile importKeystore(String profileName, Path file, String keystorePassword, String password)
+            throws Exception {
+        char[] chars = password.toCharArray();
+        WalletProfile profile;
+        try {
+            profile = decrypt(profileName, mapper.readValue(file.toFile(), WalletFile.class),
+                    keystorePassword, chars, kdf.get());
+        } finally {
+            Arrays.fill(chars, '\0');
+        }
+        walletDao.save(profile);
+        return profile;
+    }
+
+    /**
+     * Imports every keystore file in {@code directory} (not recursing) that unlocks with {@code keystorePassword}.
+     * Each becomes a profile named after its file. Files for addresses that already have a profile are skipped;
+     * unreadable files and wrong passwords are reported, not thrown.
+     */
+    public ImportReport importDirectory(Path directory, String keystorePassword, String password)
+            throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(Files::isRegularFile)
+                    .filter(p -> !p.getFileName().toString().startsWith("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        Set<String> addresses = ConcurrentHashMap.newKeySet();
+        for (WalletProfile existing : walletDao.getAll()) {
+            addresses.add(existing.getWalletAddress().toLowerCase(Locale.ROOT));
+        }
+
+        KdfParams target = kdf.get();
+        Semaphore memory = new Semaphore(permits(memoryBudget));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        Map<Path, String> failed = Collections.synchronizedMap(new LinkedHashMap<>());
+        List<Path> skipped = Collections.synchronizedList(new ArrayList<>());
+        List<WalletProfile> imported = new ArrayList<>();
+        Map<Path, WalletProfile> batch = new LinkedHashMap<>();
+
+        char[] chars = password.toCharArray();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("openwallet-keystore"));
+        try {
+            ExecutorCompletionService<Optional<Map.Entry<Path, WalletProfile>>> completion = new ExecutorCompletionService<>(executor);
+            for (Path file : files) {
+                completion.submit(() -> {
+                    try {
+                        WalletFile walletFile = mapper.readValue(file.toFile(), WalletFile.class);
+                        if (walletFile.getAddress() != null
+                                && addresses.contains(Numeric.prependHexPrefix(walletFile.getAddress()).toLowerCase(Locale.ROOT))) {
+                            skipped.add(file);
+                            return Optional.empty();
+                        }
+                        int needed = permits(Math.min(memoryBudget, Math.max(kdfMemory(walletFile), kdfMemory(target))));
+                        memory.acquire(needed);
+                        int now = inFlight.incrementAndGet();
+                        peak.accumulateAndGet(now, Math::max);
+                        WalletProfile profile;
+                        try {
+                            profile = decrypt(profileName(file), walletFile, keystorePassword, chars, target);
+                        } finally {
+                            inFlight.decrementAndGet();
+                            memory.release(needed);
+                        }
+                        if (!addresses.add(profile.getWalletAddress())) {
+                            skipped.add(file);
+                            return Optional.empty();
+                        }
+                        return Optional.of(Map.entry(file, profile));
+                    } catch (Exception e) {
+                        failed.put(file, e instanceof AuthenticationException ? "wrong password" : String.valueOf(e.getMessage()));
+                        return Optional.empty();
+                    }
+                });
+            }
+            for (int i = 0; i < files.size(); i++) {
+                Optional<Map.Entry<Path, WalletProfile>> profile;
+                try {
+                    profile = completion.take().get();
+                } catch (ExecutionException e) {
+                    continue;
+                }
+                if (profile.isPresent()) {
+                    batch.put(profile.get().getKey(), profile.get().getValue());
+                    if (batch.size() >= batchSize) {
+                        flush(batch, imported, failed);
+                    }
+                }
+            }
+            flush(batch, imported, failed);
+        } finally {
+            executor.shutdownNow();
+            Arrays.fill(chars, '\0');
+        }
+        return new ImportReport(imported, failed, skipped, peak.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Inserts the batch; if the insert fails, its files are reported as failed rather than imported.
+     */
+    private void flush(Map<Path, WalletProfile> batch, List<WalletProfile> imported, Map<Path, String> failed) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<WalletProfile> profiles = new ArrayList<>(batch.values());
+        try {
+            walletDao.saveAll(profiles);
+            imported.addAll(profiles);
+        } catch (SQLException e) {
+            for (Path file : batch.keySet()) {
+                failed.put(file, "could not save profile: " + e.getMessage());
+            }
+        }
+        batch.clear();
+    }
+
+    private WalletProfile decrypt(String profileName, WalletFile walletFile, String keystorePassword, char[] password,
+                                  KdfParams target) throws Exception {
+        ECKeyPair keyPair;
+        try {
+            keyPair = Wallet.decrypt(keystorePassword, walletFile);
+        } catch (CipherException e) {
+            if (e.getMessage() != null && e.getMessage().contains("Invalid password")) {
+                throw new AuthenticationException("Incorrect keystore password.");
+            }
+            throw new OpenWalletException("Unsupported or damaged keystore: " + e.getMessage(), e);
+        }
+        String address = "0x" + Keys.getAddress(keyPair);
+        byte[] hex = WalletService.keyToHex(keyPair.getPrivateKey());
+        try {
+            return new WalletProfile(profileName, address, CryptoUtil.encryptToJson(hex, password, target));
+        } finally {
+            Arrays.fill(hex, (byte) 0);
+        }
+    }
+
+    /**
+     * Bytes the keystore's KDF allocates: 128 * r * (n + p) for scrypt, next to nothing for pbkdf2.
+     */
+    static long kdfMemory(WalletFile walletFile) {
+        WalletFile.Crypto crypto = walletFile.getCrypto();
+        if (crypto != null && crypto.getKdfparams() instanceof WalletFile.ScryptKdfParams) {
+            WalletFile.ScryptKdfParams scrypt = (WalletFile.ScryptKdfParams) crypto.getKdfparams();
+            return 128L * scrypt.getR() * ((long) scrypt.getN() + scrypt.getP());
+        }
+        return MIB;
+    }
+
+    private static long kdfMemory(KdfParams params) {
+        return KdfParams.ARGON2ID.equals(params.getAlgorithm()) ? params.getMemoryKiB() * 1024L : MIB;
+    }
+
+    private static int permits(long bytes) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (bytes + MIB - 1) / MIB));
+    }
+
+    private static String profileName(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".json") ? name.substring(0, name.length() - 5) : name;
+    }
+}
@@ -3,15 +3,42 @@ package io.openwallet.service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openwallet.db.DatabaseConfig;
+import io.openwallet.http.HttpStack;
+import io.openwallet.metrics.RpcMetrics;
 import io.openwallet.model.NetworkConfig;
+import io.openwallet.rpc.BatchingHttpService;
+import io.openwallet.rpc.ChainEventStream;
+import io.openwallet.rpc.EndpointSelector;
+import io.openwallet.rpc.EndpointStats;
+import io.openwallet.rpc.EthCallCache;
+import io.openwallet.rpc.FailoverWeb3jService;
+import io.openwallet.rpc.FeeOracle;
+import io.openwallet.rpc.MulticallAggregator;
+import io.openwallet.rpc.NonceManager;
+import io.openwallet.rpc.RateLimiterRegistry;
+import io.openwallet.rpc.ReceiptPoller;
+import io.openwallet.rpc.RpcClient;
+import io.openwallet.rpc.RpcEndpoint;
+import io.openwallet.rpc.SingleFlightWeb3jService;
+import io.openwallet.rpc.Web3jClientPool;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.protocol.http.HttpService;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.prefs.Preferences;
 
 public class NetworkManager {
@@ -25,11 +52,40 @@ public class NetworkManager {
     private volatile List<NetworkConfig> networks = List.of();
     private volatile String activeNetworkId;
 
-    private final Object web3jLock = new Object();
-    private volatile Web3j web3j;
-    private volatile String web3jRpcUrl;
+    private final RateLimiterRegistry rateLimiters = new RateLimiterRegistry(
+            DatabaseConfig.getRpcRateLimitPerSecond(),
+            1,
+            DatabaseConfig.getRpcRateLimitMaxRetries(),
+            DatabaseConfig.getRpcRateLimitBackoffMillis(),
+            DatabaseConfig.getRpcRateLimitMaxBackoffMillis()
+    );
+
+    private final RpcMetrics metrics = new RpcMetrics();
+
+    private final HttpStack httpStack = new HttpStack(
+            rateLimiters,
+            metrics,
+            DatabaseConfig.getHttpMaxIdleConnections(),
+            DatabaseConfig.getHttpKeepAliveSeconds(),
+            DatabaseConfig.getHttpMaxRequests(),
+            DatabaseConfig.getHttpMaxRequestsPerHost(),
+            DatabaseConfig.getHttpConnectTimeoutSeconds(),
+            DatabaseConfig.getHttpReadTimeoutSeconds()
+    );
+
+    private final Web3jClientPool clientPool = new Web3jClientPool(
+            this::createClient,
+            DatabaseConfig.getRpcClientIdleSeconds() * 1000L
+    );
+
+    private final Map<String, NonceManager> nonceManagers = new ConcurrentHashMap<>();
+    private final Map<String, ReceiptPoller> receiptPollers = new ConcurrentHashMap<>();
+    private final Map<String, FeeOracle> feeOracles = new ConcurrentHashMap<>();
 
     private NetworkManager() {
+        if (DatabaseConfig.isMetricsJmxEnabled()) {
+            metrics.registerMBeans("io.openwallet");
+        }
         reloadNetworks();
         this.activeNetworkId = prefs.get(PREF_ACTIVE_NETWORK_ID, defaultNetworkId());
     }
@@ -78,34 +134,53 @@ public class NetworkManager {
         if (id == null || id.isBlank()) {
             return;
         }
+        // Clients for other networks stay pooled, so switching back reuses their warm connections.
         this.activeNetworkId = id;
         prefs.put(PREF_ACTIVE_NETWORK_ID, id);
-        synchronized (web3jLock) {
-            if (web3j != null) {
-                try {
-                    web3j.shutdown();
-                } catch (Exception ignored) {
-                }
-            }
-            web3j = null;
-            web3jRpcUrl = null;
+    }
+
+    public Optional<NetworkConfig> findNetwork(String id) {
+        if (id == null) {
+            return Optional.empty();
         }
+        return networks.stream().filter(n -> id.equals(n.getId())).findFirst();
     }
 
     public String getRpcUrl() {
+        return getRpcUrl(getActiveNetworkId());
+    }
+
+    public String getRpcUrl(String networkId) {
+        List<String> urls = getRpcUrls(networkId);
+        return urls.isEmpty() ? null : urls.get(0);
+    }
+
+    /**
+     * All RPC endpoints for a network in preference order (just the replay proxy when one is configured).
+     * Both OPENWALLET_RPC_URL and rpc.url may hold a comma-separated list.
+     */
+    public List<String> getRpcUrls(String networkId) {
+        String replay = getReplayUrl();
+        if (replay != null) {
+            return List.of(replay + "/rpc");
+        }
         // env override for quick switching
         String env = System.getenv("OPENWALLET_RPC_URL");
         if (env != null && !env.isBlank()) {
-            return env;
+            return splitUrls(env);
         }
-        NetworkConfig active = getActiveNetwork();
-        if (active != null && active.getRpcUrl() != null && !active.getRpcUrl().isBlank()) {
-            return active.getRpcUrl();
+        NetworkConfig network = findNetwork(networkId).orElse(null);
+        if (network != null && !network.getRpcEndpoints().isEmpty()) {
+            return network.getRpcEndpoints();
         }
-        return DatabaseConfig.getRpcUrl();
+        return splitUrls(DatabaseConfig.getRpcUrl());
     }
 
     public Long getChainId() {
+        return getChainId(getActiveNetworkId());
+    }
+
+    public Long getChainId(String networkId) {
         String env = System.getenv("OPENWALLET_CHAIN_ID");
         if (env != null && !env.isBlank()) {
             try {
@@ -113,25 +188,241 @@ public class NetworkManager {
             } catch (NumberFormatException ignored) {
             }
         }
-        NetworkConfig active = getActiveNetwork();
-        return active != null ? active.getChainId() : null;
+        return findNetwork(networkId).map(NetworkConfig::getChainId).orElse(null);
     }
 
     public Web3j getWeb3j() {
-        String rpcUrl = getRpcUrl();
-        if (web3j != null && rpcUrl != null && rpcUrl.equals(web3jRpcUrl)) {
-            return web3j;
+        return getWeb3j(getActiveNetworkId());
+    }
+
+    /**
+     * Client for any configured network, without changing the active one.
+     */
+    public Web3j getWeb3j(String networkId) {
+        return getClient(networkId).getWeb3j();
+    }
+
+    public Web3jService getWeb3jService() {
+        return getWeb3jService(getActiveNetworkId());
+    }
+
+    /**
+     * Transport behind {@link #getWeb3j(String)}, for requests decoded into custom response types.
+     */
+    public Web3jService getWeb3jService(String networkId) {
+        return getClient(networkId).getService();
+    }
+
+    /**
+     * Aggregator for read-only contract calls on the active network.
+     */
+    public MulticallAggregator getMulticall() {
+        return getMulticall(getActiveNetworkId());
+    }
+
+    public MulticallAggregator getMulticall(String networkId) {
+        return getClient(networkId).getMulticall();
+    }
+
+    public List<Web3jClientPool.ClientStats> getClientPoolStats() {
+        return clientPool.stats();
+    }
+
+    /**
+     * Rolling latency percentiles and error rate for each endpoint of a network.
+     */
+    public List<EndpointSelector.EndpointSnapshot> getEndpointStats(String networkId) {
+        return getClient(networkId).getTransport().getSelector().snapshot();
+    }
+
+    /**
+     * Single-flight counters for a network: how many reads attached to an identical call already in flight.
+     */
+    public SingleFlightWeb3jService getSingleFlight(String networkId) {
+        return getClient(networkId).getSingleFlight();
+    }
+
+    /**
+     * Pooled HTTP client shared by RPC, the NFT API, metadata and image downloads.
+     */
+    public HttpStack getHttpStack() {
+        return httpStack;
+    }
+
+    /**
+     * Base URL of the record/replay proxy without trailing slash, or {@code null} when talking to real providers.
+     */
+    public String getReplayUrl() {
+        String url = DatabaseConfig.getReplayUrl();
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        url = url.trim();
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Origin of the Alchemy NFT API, or the replay proxy standing in for it.
+     */
+    public String getNftApiBaseUrl() {
+        String replay = getReplayUrl();
+        return replay != null ? replay : "https://eth-sepolia.g.alchemy.com";
+    }
+
+    /**
+     * Latency histograms, payload sizes, error, timeout and in-flight counts for every JSON-RPC call and
+     * NFT API request, by method and by endpoint.
+     */
+    public RpcMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Per-host request budgets shared by every RPC and HTTP call the services make.
+     */
+    public RateLimiterRegistry getRateLimiters() {
+        return rateLimiters;
+    }
+
+    /**
+     * WebSocket endpoint for a network: env OPENWALLET_WS_URL, then the network's "wsUrl".
+     */
+    public String getWsUrl(String networkId) {
+        if (getReplayUrl() != null) {
+            // The replay proxy only speaks HTTP; heads and logs are polled through it.
+            return null;
         }
+        String env = System.getenv("OPENWALLET_WS_URL");
+        if (env != null && !env.isBlank()) {
+            return env.trim();
+        }
+        return findNetwork(networkId).map(NetworkConfig::getWsUrl).orElse(null);
+    }
+
+    /**
+     * Calls {@code listener} with each new head of the network, pushed over WebSocket when configured
+     * and polled otherwise. Close the returned handle to stop.
+     */
+    public AutoCloseable onNewHead(String networkId, Consumer<BigInteger> listener) {
+        ChainEventStream events = getEvents(networkId);
+        return events != null ? events.onNewHead(listener) : () -> { };
+    }
+
+    /**
+     * Calls {@code listener} for each new log on the network matching {@code addresses} and {@code topics}.
+     * Close the returned handle to stop.
+     */
+    public AutoCloseable onLogs(String networkId, List<String> addresses, List<String> topics, Consumer<Log> listener) {
+        ChainEventStream events = getEvents(networkId);
+        return events != null ? events.onLogs(addresses, topics, listener) : () -> { };
+    }
 
-        synchronized (web3jLock) {
-            rpcUrl = getRpcUrl();
-            if (web3j != null && rpcUrl != null && rpcUrl.equals(web3jRpcUrl)) {
-                return web3j;
+    /**
+     * @return the network's event stream, or {@code null} if head polling is disabled.
+     */
+    public ChainEventStream getEvents(String networkId) {
+        RpcClient client = getClient(networkId);
+        client.openEventStream(
+                DatabaseConfig.isRpcWebSocketEnabled() ? getWsUrl(networkId) : null,
+                DatabaseConfig.getRpcWebSocketMinBackoffMillis(),
+                DatabaseConfig.getRpcWebSocketMaxBackoffMillis()
+        );
+        return client.getEvents();
+    }
+
+    /**
+     * Hit/miss counters of the network's block-aware eth_call cache, or {@code null} if it is disabled.
+     */
+    public EthCallCache getCallCache(String networkId) {
+        return getClient(networkId).getMulticall().getCache();
+    }
+
+    /**
+     * Local nonce allocator for {@code address} on {@code networkId}, shared by every send path.
+     */
+    public NonceManager getNonceManager(String networkId, String address) {
+        String key = networkId + "|" + address.toLowerCase(Locale.ROOT);
+        return nonceManagers.computeIfAbsent(key, k -> new NonceManager(() -> {
+            EthGetTransactionCount count = getWeb3j(networkId)
+                    .ethGetTransactionCount(address, DefaultBlockParameterName.PENDING)
+                    .send();
+            if (count.hasError()) {
+                throw new IOException("eth_getTransactionCount failed: " + count.getError().getMessage());
+            }
+            return count.getTransactionCount();
+        }));
+    }
+
+    /**
+     * Shared receipt poller for every transaction awaited on {@code networkId}.
+     */
+    public ReceiptPoller getReceiptPoller(String networkId) {
+        return receiptPollers.computeIfAbsent(networkId, id -> new ReceiptPoller(
+                () -> getWeb3j(id),
+                DatabaseConfig.getTxReceiptPollMillis(),
+                DatabaseConfig.getTxReceiptTimeoutMinutes() * 60_000L
+        ));
+    }
+
+    /**
+     * Fee oracle for {@code networkId}; it starts refreshing in the background on first use.
+     */
+    public FeeOracle getFeeOracle(String networkId) {
+        return feeOracles.computeIfAbsent(networkId, id -> new FeeOracle(
+                () -> getWeb3j(id),
+                DatabaseConfig.getFeeRefreshMillis(),
+                DatabaseConfig.getFeeHistoryBlocks()
+        ));
+    }
+
+    private RpcClient getClient(String networkId) {
+        return clientPool.get(networkId, getRpcUrls(networkId));
+    }
+
+    private RpcClient createClient(String networkId, List<String> rpcUrls) {
+        List<RpcEndpoint> endpoints = new ArrayList<>();
+        for (String url : rpcUrls.isEmpty() ? List.of(HttpService.DEFAULT_URL) : rpcUrls) {
+            // Concurrent async reads (token balances, NFT enrichment) are coalesced into JSON-RPC batches.
+            BatchingHttpService transport = new BatchingHttpService(
+                    url,
+                    httpStack.client(),
+                    DatabaseConfig.getRpcBatchMaxSize(),
+                    DatabaseConfig.getRpcBatchLingerMillis(),
+                    metrics
+            );
+            endpoints.add(new RpcEndpoint(url, transport, new EndpointStats(256)));
+        }
+        FailoverWeb3jService transport = new FailoverWeb3jService(
+                new EndpointSelector(endpoints),
+                DatabaseConfig.isRpcHedgingEnabled(),
+                DatabaseConfig.getRpcHedgeMinDelayMillis(),
+                DatabaseConfig.getRpcHedgeDefaultDelayMillis()
+        );
+        Long chainId = getChainId(networkId);
+        return new RpcClient(
+                networkId,
+                chainId != null ? chainId : 0L,
+                rpcUrls,
+                transport,
+                findNetwork(networkId).map(NetworkConfig::getMulticallAddress).orElse(null),
+                DatabaseConfig.getMulticallMaxCalls(),
+                DatabaseConfig.getMulticallLingerMillis(),
+                DatabaseConfig.getRpcHeadPollMillis()
+        );
+    }
+
+    private static List<String> splitUrls(String value) {
+        List<String> out = new ArrayList<>();
+        if (value == null) {
+            return out;
+        }
+        for (String part : value.split(",")) {
+            String url = part.trim();
+            if (!url.isBlank() && !out.contains(url)) {
+                out.add(url);
             }
-            web3j = Web3j.build(new HttpService(rpcUrl));
-            web3jRpcUrl = rpcUrl;
-            return web3j;
         }
+        return out;
     }
 
     private String defaultNetworkId() {
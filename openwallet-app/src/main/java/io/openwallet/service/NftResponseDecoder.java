@@ -0,0 +1,239 @@
+package io.openwallet.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Pull decoders for Alchemy NFT API and {@code alchemy_getAssetTransfers} responses.
+ *
+ * Both walk the response with a {@link JsonParser} straight off the body stream and keep only the fields the
+ * gallery uses; everything else (metadata blobs, attributes, raw token URIs) is skipped token by token and
+ * never held in memory, so peak heap does not depend on how large the response is.
+ */
+final class NftResponseDecoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private NftResponseDecoder() {
+    }
+
+    /**
+     * Calls {@code onNft} for each entry of {@code ownedNfts} in a {@code getNFTsForOwner} response.
+     *
+     * @return the response's {@code pageKey}, or {@code null} on the last page.
+     */
+    static String decodeOwnedNfts(InputStream in, Consumer<OwnedNft> onNft) throws IOException {
+        String pageKey = null;
+        try (JsonParser p = JSON.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("ownedNfts".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        if (p.currentToken() == JsonToken.START_OBJECT) {
+                            onNft.accept(readOwnedNft(p));
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                } else if ("pageKey".equals(field) && value == JsonToken.VALUE_STRING) {
+                    pageKey = p.getText();
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return pageKey;
+    }
+
+    /**
+     * Calls {@code onTransfer} with {@code (rawContract.address, tokenId)} for each transfer in an
+     * {@code alchemy_getAssetTransfers} response. A JSON-RPC error yields no transfers.
+     *
+     * @return {@code result.pageKey}, or {@code null} on the last page or on error.
+     */
+    static String decodeAssetTransfers(InputStream in, BiConsumer<String, String> onTransfer) throws IOException {
+        String pageKey = null;
+        try (JsonParser p = JSON.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("error".equals(field) && value != JsonToken.VALUE_NULL) {
+                    // Method not supported or plan limitation.
+                    return null;
+                }
+                if (!"result".equals(field) || value != JsonToken.START_OBJECT) {
+                    p.skipChildren();
+                    continue;
+                }
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String resultField = p.currentName();
+                    JsonToken resultValue = p.nextToken();
+                    if ("transfers".equals(resultField) && resultValue == JsonToken.START_ARRAY) {
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            if (p.currentToken() == JsonToken.START_OBJECT) {
+                                readTransfer(p, onTransfer);
+                            } else {
+                                p.skipChildren();
+                            }
+                        }
+                    } else if ("pageKey".equals(resultField) && resultValue == JsonToken.VALUE_STRING) {
+                        pageKey = p.getText();
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            }
+        }
+        return pageKey;
+    }
+
+    private static OwnedNft readOwnedNft(JsonParser p) throws IOException {
+        OwnedNft nft = new OwnedNft();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "tokenId" -> nft.tokenId = text(p);
+                case "name" -> nft.name = text(p);
+                case "title" -> nft.title = text(p);
+                case "contract" -> nft.contractAddress = readField(p, "address");
+                case "collection" -> nft.collectionName = readField(p, "name");
+                case "image" -> readImage(p, nft);
+                case "media" -> readFirstMedia(p, nft);
+                default -> p.skipChildren();
+            }
+        }
+        return nft;
+    }
+
+    private static void readImage(JsonParser p, OwnedNft nft) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "cachedUrl" -> nft.cachedUrl = text(p);
+                case "thumbnailUrl" -> nft.thumbnailUrl = text(p);
+                case "pngUrl" -> nft.pngUrl = text(p);
+                case "originalUrl" -> nft.originalUrl = text(p);
+                default -> p.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Older payloads carry {@code media[]}; only the first entry is used.
+     */
+    private static void readFirstMedia(JsonParser p, OwnedNft nft) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return;
+        }
+        boolean first = true;
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (!first || p.currentToken() != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                continue;
+            }
+            first = false;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                switch (field) {
+                    case "gateway" -> nft.mediaGateway = text(p);
+                    case "raw" -> nft.mediaRaw = text(p);
+                    default -> p.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static void readTransfer(JsonParser p, BiConsumer<String, String> onTransfer) throws IOException {
+        String contract = null;
+        String erc721TokenId = null;
+        String tokenId = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "rawContract" -> contract = readField(p, "address");
+                case "erc721TokenId" -> erc721TokenId = text(p);
+                case "tokenId" -> tokenId = text(p);
+                default -> p.skipChildren();
+            }
+        }
+        String id = erc721TokenId != null ? erc721TokenId : tokenId;
+        if (contract != null && !contract.isBlank() && id != null && !id.isBlank()) {
+            onTransfer.accept(contract, id);
+        }
+    }
+
+    /**
+     * Reads one string field of the object the parser is on and skips the rest of it.
+     */
+    private static String readField(JsonParser p, String name) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        String out = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            if (name.equals(field)) {
+                out = text(p);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return out;
+    }
+
+    /**
+     * The current scalar as text, or {@code null} for JSON null; objects and arrays are skipped.
+     */
+    private static String text(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return null;
+        }
+        return p.getText();
+    }
+
+    /**
+     * The fields of one {@code ownedNfts} entry that the gallery shows.
+     */
+    static final class OwnedNft {
+        String contractAddress;
+        String tokenId;
+        String name;
+        String title;
+        String collectionName;
+        String cachedUrl;
+        String thumbnailUrl;
+        String pngUrl;
+        String originalUrl;
+        String mediaGateway;
+        String mediaRaw;
+    }
+}
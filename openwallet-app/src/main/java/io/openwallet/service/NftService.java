@@ -1,40 +1,34 @@
 package io.openwallet.service;
 
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openwallet.db.DatabaseConfig;
-import org.web3j.abi.FunctionEncoder;
-import org.web3j.abi.FunctionReturnDecoder;
+import io.openwallet.http.HttpStack;
+import io.openwallet.rpc.LogTopicResponse;
+import io.openwallet.rpc.MulticallAggregator;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Address;
 import org.web3j.abi.datatypes.Function;
-import org.web3j.abi.datatypes.Type;
 import org.web3j.abi.datatypes.Utf8String;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.crypto.Hash;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.Web3jService;
 import org.web3j.protocol.core.DefaultBlockParameterNumber;
 import org.web3j.protocol.core.methods.request.EthFilter;
-import org.web3j.protocol.core.methods.request.Transaction;
-import org.web3j.protocol.core.methods.response.EthCall;
 import org.web3j.protocol.core.methods.response.EthBlockNumber;
-import org.web3j.protocol.core.methods.response.EthLog;
-import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.utils.Numeric;
 
-import java.net.URI;
+import java.io.InputStream;
 import java.net.URLEncoder;
 import java.net.URLDecoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.math.BigInteger;
 import java.util.Base64;
 import java.util.ArrayList;
@@ -53,7 +47,9 @@ public class NftService {
 
     private final ObjectMapper mapper;
     private final NetworkManager networkManager;
-    private final HttpClient httpClient;
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final HttpStack httpStack;
 
     public NftService(NetworkManager networkManager) {
         this(networkManager, new ObjectMapper());
@@ -62,9 +58,8 @@ public class NftService {
     public NftService(NetworkManager networkManager, ObjectMapper mapper) {
         this.networkManager = networkManager;
         this.mapper = mapper;
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(15))
-                .build();
+        // Alchemy NFT API, token metadata and RPC share the application's pooled HTTP stack and rate limits.
+        this.httpStack = (networkManager != null ? networkManager : NetworkManager.getInstance()).getHttpStack();
     }
 
     public CompletableFuture<List<NftItem>> getOwnedNftsSepolia(String ownerAddress) {
@@ -95,20 +90,20 @@ public class NftService {
             return CompletableFuture.completedFuture(List.of());
         }
 
-        Web3j web3j = networkManager != null ? networkManager.getWeb3j() : null;
-        if (web3j == null) {
+        MulticallAggregator multicall = networkManager != null ? networkManager.getMulticall() : null;
+        if (multicall == null) {
             return CompletableFuture.completedFuture(nfts);
         }
 
         List<CompletableFuture<NftItem>> enriched = nfts.stream()
-                .map(i -> enrichOneIfNeeded(web3j, owner, i))
+                .map(i -> enrichOneIfNeeded(multicall, owner, i))
                 .collect(Collectors.toList());
 
         CompletableFuture<Void> all = CompletableFuture.allOf(enriched.toArray(new CompletableFuture[0]));
         return all.thenApply(v -> enriched.stream().map(CompletableFuture::join).collect(Collectors.toList()));
     }
 
-    private CompletableFuture<NftItem> enrichOneIfNeeded(Web3j web3j, String owner, NftItem item) {
+    private CompletableFuture<NftItem> enrichOneIfNeeded(MulticallAggregator multicall, String owner, NftItem item) {
         if (item == null) {
             return CompletableFuture.completedFuture(null);
         }
@@ -140,7 +135,7 @@ public class NftService {
             }
         }
 
-        return callTokenUri(web3j, contract, owner, tokenId)
+        return callTokenUri(multicall, contract, tokenId)
                 .thenCompose(this::resolveTokenUriMetadataAsync)
                 .thenApply(meta -> {
                     String name = item.getName();
@@ -173,23 +168,16 @@ public class NftService {
         }
 
         // Alchemy NFT API v3
-        String base = "https://eth-sepolia.g.alchemy.com/nft/v3/" + apiKey;
+        String base = nftApiBaseUrl() + "/nft/v3/" + apiKey;
         String url = base + "/getNFTsForOwner?owner=" + urlEncode(owner) + "&withMetadata=true&pageSize=100";
 
-        HttpRequest req = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .timeout(Duration.ofSeconds(30))
-                .GET()
-                .build();
-
-        return httpClient.sendAsync(req, HttpResponse.BodyHandlers.ofString())
-                .thenApply(resp -> {
-                    if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-                        throw new RuntimeException("Alchemy NFT API request failed: HTTP " + resp.statusCode());
-                    }
-                    return resp.body();
-                })
-                .thenApply(this::parseOwnedNfts);
+        // Decoded off the response stream; large wallets never hold the whole body or a JSON tree.
+        return httpStack.getAsync(url, "nft.getNFTsForOwner", (status, headers, body) -> {
+            if (status < 200 || status >= 300) {
+                throw new RuntimeException("Alchemy NFT API request failed: HTTP " + status);
+            }
+            return parseOwnedNfts(body);
+        });
     }
 
     private CompletableFuture<List<NftItem>> getOwnedNftsSepoliaOnChain(String owner) {
@@ -203,28 +191,31 @@ public class NftService {
             return CompletableFuture.completedFuture(List.<NftItem>of());
         }
 
+        MulticallAggregator multicall = networkManager.getMulticall();
+
         String rpcUrl = networkManager != null ? networkManager.getRpcUrl() : DatabaseConfig.getRpcUrl();
-        boolean isAlchemyRpc = isAlchemyRpcUrl(rpcUrl);
+        // The replay proxy fronts Alchemy, so replays take the same asset-transfers path as the recording.
+        boolean isAlchemyRpc = isAlchemyRpcUrl(rpcUrl) || replayUrl() != null;
 
         if (isAlchemyRpc) {
             // IMPORTANT: Alchemy Free tier blocks eth_getLogs beyond a 10-block range.
             // Use Alchemy's indexed asset transfers API to discover ERC-721 tokenIds instead.
             return fetchErc721TokenRefsViaAlchemyAssetTransfers(owner, contracts)
-                    .thenCompose(tokenRefs -> buildItemsFromTokenRefs(web3j, owner, tokenRefs));
+                    .thenCompose(tokenRefs -> buildItemsFromTokenRefs(multicall, owner, tokenRefs));
         }
 
         // Non-Alchemy RPCs can use eth_getLogs directly (and also avoids Alchemy DNS issues).
-        return fetchErc721TokenRefsViaEthGetLogs(web3j, owner, contracts)
-                .thenCompose(tokenRefs -> buildItemsFromTokenRefs(web3j, owner, tokenRefs));
+        return fetchErc721TokenRefsViaEthGetLogs(web3j, networkManager.getWeb3jService(), owner, contracts)
+                .thenCompose(tokenRefs -> buildItemsFromTokenRefs(multicall, owner, tokenRefs));
     }
 
-    private CompletableFuture<List<NftItem>> buildItemsFromTokenRefs(Web3j web3j, String owner, Set<TokenRef> tokenRefs) {
+    private CompletableFuture<List<NftItem>> buildItemsFromTokenRefs(MulticallAggregator multicall, String owner, Set<TokenRef> tokenRefs) {
         if (tokenRefs == null || tokenRefs.isEmpty()) {
             return CompletableFuture.completedFuture(List.<NftItem>of());
         }
 
         List<CompletableFuture<NftItem>> perToken = tokenRefs.stream()
-                .map(ref -> buildOwnedTokenItem(web3j, ref.contractAddress, owner, ref.tokenId))
+                .map(ref -> buildOwnedTokenItem(multicall, ref.contractAddress, owner, ref.tokenId))
                 .collect(Collectors.toList());
 
         CompletableFuture<Void> all = CompletableFuture.allOf(perToken.toArray(new CompletableFuture[0]));
@@ -240,7 +231,7 @@ public class NftService {
         return s.contains("alchemy.com") || s.contains("alchemyapi.io") || s.contains("g.alchemy.com");
     }
 
-    private CompletableFuture<Set<TokenRef>> fetchErc721TokenRefsViaEthGetLogs(Web3j web3j, String owner, List<String> contractAddresses) {
+    private CompletableFuture<Set<TokenRef>> fetchErc721TokenRefsViaEthGetLogs(Web3j web3j, Web3jService service, String owner, List<String> contractAddresses) {
         if (web3j == null) {
             return CompletableFuture.completedFuture(Set.of());
         }
@@ -256,7 +247,7 @@ public class NftService {
                     final BigInteger fromBlock = fromBlockComputed;
 
                     List<CompletableFuture<Set<TokenRef>>> perContract = contractAddresses.stream()
-                            .map(c -> scanTransfersToOwnerViaLogs(web3j, owner, c, fromBlock, latest))
+                            .map(c -> scanTransfersToOwnerViaLogs(service, owner, c, fromBlock, latest))
                             .collect(Collectors.toList());
 
                     CompletableFuture<Void> all = CompletableFuture.allOf(perContract.toArray(new CompletableFuture[0]));
@@ -267,11 +258,10 @@ public class NftService {
                         }
                         return merged;
                     });
-                })
-                .exceptionally(ex -> Set.of());
+                });
     }
 
-    private CompletableFuture<Set<TokenRef>> scanTransfersToOwnerViaLogs(Web3j web3j, String owner, String contractAddress, BigInteger fromBlock, BigInteger toBlock) {
+    private CompletableFuture<Set<TokenRef>> scanTransfersToOwnerViaLogs(Web3jService service, String owner, String contractAddress, BigInteger fromBlock, BigInteger toBlock) {
         String contract = safeLower(contractAddress);
         if (contract == null || !contract.startsWith("0x") || contract.length() != 42) {
             return CompletableFuture.completedFuture(Set.of());
@@ -302,31 +292,23 @@ public class NftService {
             filter.addNullTopic();
             filter.addSingleTopic(toTopic);
 
-            CompletableFuture<Set<TokenRef>> fut = web3j.ethGetLogs(filter).sendAsync()
+            // Throttled chunks are retried by the transport's rate limiter; anything that still fails
+            // fails the scan rather than silently dropping that block range.
+            // Only topics[3] (the tokenId) is decoded from each log, straight off the response stream.
+            CompletableFuture<Set<TokenRef>> fut = LogTopicResponse.request(service, filter).sendAsync()
                     .thenApply(resp -> {
-                        Set<TokenRef> out = new HashSet<>();
-                        List<EthLog.LogResult> results = resp.getLogs();
-                        if (results == null || results.isEmpty()) {
-                            return out;
+                        if (resp.hasError()) {
+                            throw new IllegalStateException("eth_getLogs " + s + "-" + e + " failed: " + resp.getError().getMessage());
                         }
-                        for (EthLog.LogResult r : results) {
-                            Object obj = r.get();
-                            if (!(obj instanceof Log log)) {
-                                continue;
-                            }
-                            List<String> topics = log.getTopics();
-                            if (topics == null || topics.size() < 4) {
-                                continue;
-                            }
+                        Set<TokenRef> out = new HashSet<>();
+                        for (String topic : resp.getTopics()) {
                             try {
-                                BigInteger tokenId = Numeric.toBigInt(topics.get(3));
-                                out.add(new TokenRef(contract, tokenId));
+                                out.add(new TokenRef(contract, Numeric.toBigInt(topic)));
                             } catch (Exception ignored) {
                             }
                         }
                         return out;
-                    })
-                    .exceptionally(ex -> Set.of());
+                    });
 
             chunks.add(fut);
             start = end.add(BigInteger.ONE);
@@ -425,21 +407,17 @@ public class NftService {
             var p = body.putArray("params");
             p.add(params);
 
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(rpcUrl))
-                    .timeout(Duration.ofSeconds(30))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+            Request req = new Request.Builder()
+                    .url(rpcUrl)
+                    .post(RequestBody.create(mapper.writeValueAsBytes(body), JSON))
                     .build();
 
-            return httpClient.sendAsync(req, HttpResponse.BodyHandlers.ofString())
-                    .thenApply(resp -> {
-                        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-                            throw new RuntimeException("Alchemy RPC request failed: HTTP " + resp.statusCode());
+            return httpStack.executeAsync(req, "alchemy_getAssetTransfers", (status, headers, in) -> {
+                        if (status < 200 || status >= 300) {
+                            throw new RuntimeException("Alchemy RPC request failed: HTTP " + status);
                         }
-                        return resp.body();
+                        return parseAssetTransfersTokenRefs(in);
                     })
-                    .thenApply(this::parseAssetTransfersTokenRefs)
                     .thenCompose(parsed -> {
                         Set<TokenRef> merged = new HashSet<>(acc);
                         merged.addAll(parsed.items);
@@ -464,42 +442,10 @@ public class NftService {
         }
     }
 
-    private AssetTransferParseResult parseAssetTransfersTokenRefs(String json) {
+    private AssetTransferParseResult parseAssetTransfersTokenRefs(InputStream in) {
+        Set<TokenRef> out = new HashSet<>();
         try {
-            JsonNode root = mapper.readTree(json);
-            if (root.has("error")) {
-                // Method not supported or plan limitation.
-                return new AssetTransferParseResult(Set.of(), null);
-            }
-            JsonNode result = root.get("result");
-            if (result == null || result.isNull()) {
-                return new AssetTransferParseResult(Set.of(), null);
-            }
-            String nextPageKey = result.hasNonNull("pageKey") ? result.get("pageKey").asText(null) : null;
-            JsonNode transfers = result.get("transfers");
-            if (transfers == null || !transfers.isArray()) {
-                return new AssetTransferParseResult(Set.of(), nextPageKey);
-            }
-
-            Set<TokenRef> out = new HashSet<>();
-            for (JsonNode t : transfers) {
-                if (t == null || t.isNull()) continue;
-
-                String contract = null;
-                JsonNode rawContract = t.get("rawContract");
-                if (rawContract != null && rawContract.hasNonNull("address")) {
-                    contract = rawContract.get("address").asText(null);
-                }
-                if (contract == null || contract.isBlank()) continue;
-
-                String tokenIdStr = null;
-                if (t.hasNonNull("erc721TokenId")) {
-                    tokenIdStr = t.get("erc721TokenId").asText(null);
-                } else if (t.hasNonNull("tokenId")) {
-                    tokenIdStr = t.get("tokenId").asText(null);
-                }
-                if (tokenIdStr == null || tokenIdStr.isBlank()) continue;
-
+            String nextPageKey = NftResponseDecoder.decodeAssetTransfers(in, (contract, tokenIdStr) -> {
                 BigInteger tokenId;
                 try {
                     tokenId = Numeric.toBigInt(tokenIdStr);
@@ -507,26 +453,24 @@ public class NftService {
                     try {
                         tokenId = new BigInteger(tokenIdStr);
                     } catch (Exception ignored2) {
-                        continue;
+                        return;
                     }
                 }
-
                 out.add(new TokenRef(safeLower(contract), tokenId));
-            }
-
+            });
             return new AssetTransferParseResult(out, nextPageKey);
         } catch (Exception e) {
             return new AssetTransferParseResult(Set.of(), null);
         }
     }
 
-    private CompletableFuture<NftItem> buildOwnedTokenItem(Web3j web3j, String contract, String owner, BigInteger tokenId) {
-        return callOwnerOf(web3j, contract, owner, tokenId)
+    private CompletableFuture<NftItem> buildOwnedTokenItem(MulticallAggregator multicall, String contract, String owner, BigInteger tokenId) {
+        return callOwnerOf(multicall, contract, tokenId)
                 .thenCompose(currentOwner -> {
                     if (currentOwner == null || !currentOwner.equalsIgnoreCase(owner)) {
                         return CompletableFuture.completedFuture(null);
                     }
-                    return callTokenUri(web3j, contract, owner, tokenId)
+                    return callTokenUri(multicall, contract, tokenId)
                             .thenCompose(this::resolveTokenUriMetadataAsync)
                             .thenApply(meta -> {
                                 String name = meta.name != null && !meta.name.isBlank() ? meta.name : ("Token #" + tokenId);
@@ -543,34 +487,28 @@ public class NftService {
                 .exceptionally(ex -> null);
     }
 
-    private CompletableFuture<String> callOwnerOf(Web3j web3j, String contract, String from, BigInteger tokenId) {
+    private CompletableFuture<String> callOwnerOf(MulticallAggregator multicall, String contract, BigInteger tokenId) {
         Function f = new Function(
                 "ownerOf",
                 List.of(new Uint256(tokenId)),
                 List.of(new TypeReference<Address>() {})
         );
-        return callString(web3j, contract, from, f);
+        return callString(multicall, contract, f);
     }
 
-    private CompletableFuture<String> callTokenUri(Web3j web3j, String contract, String from, BigInteger tokenId) {
+    private CompletableFuture<String> callTokenUri(MulticallAggregator multicall, String contract, BigInteger tokenId) {
         Function f = new Function(
                 "tokenURI",
                 List.of(new Uint256(tokenId)),
                 List.of(new TypeReference<Utf8String>() {})
         );
-        return callString(web3j, contract, from, f);
+        return callString(multicall, contract, f);
     }
 
-    private CompletableFuture<String> callString(Web3j web3j, String contract, String from, Function f) {
-        String data = FunctionEncoder.encode(f);
-        Transaction tx = Transaction.createEthCallTransaction(from, contract, data);
-        return web3j.ethCall(tx, DefaultBlockParameterName.LATEST).sendAsync()
-                .thenApply(EthCall::getValue)
-                .thenApply(value -> {
-                    if (value == null || value.equals("0x")) {
-                        return null;
-                    }
-                    List<Type> decoded = FunctionReturnDecoder.decode(value, f.getOutputParameters());
+    private CompletableFuture<String> callString(MulticallAggregator multicall, String contract, Function f) {
+        // ownerOf/tokenURI for every NFT in view are packed into shared aggregate3 calls.
+        return multicall.call(contract, f)
+                .thenApply(decoded -> {
                     if (decoded == null || decoded.isEmpty() || decoded.get(0) == null) {
                         return null;
                     }
@@ -673,19 +611,12 @@ public class NftService {
 
     private CompletableFuture<NftMetadata> fetchAndParseJsonMetadata(String url) {
         try {
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .timeout(Duration.ofSeconds(20))
-                    .header("User-Agent", "OpenWallet")
-                    .GET()
-                    .build();
-
-            return httpClient.sendAsync(req, HttpResponse.BodyHandlers.ofString())
+            return httpStack.getAsync(url, "nft.metadata")
                     .thenApply(resp -> {
-                        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+                        if (!resp.isSuccessful()) {
                             return null;
                         }
-                        return resp.body();
+                        return resp.bodyString();
                     })
                     .thenApply(body -> body == null ? new NftMetadata(null, null) : parseJsonMetadata(body))
                     .exceptionally(ex -> new NftMetadata(null, null));
@@ -753,22 +684,12 @@ public class NftService {
         }
     }
 
-    private List<NftItem> parseOwnedNfts(String json) {
+    private List<NftItem> parseOwnedNfts(InputStream in) {
         try {
-            OwnedNftsResponse response = mapper.readValue(json, OwnedNftsResponse.class);
             List<NftItem> out = new ArrayList<>();
-            if (response == null || response.ownedNfts == null) {
-                return out;
-            }
-
-            for (OwnedNft n : response.ownedNfts) {
-                if (n == null) continue;
-
-                String contract = n.contract != null ? n.contract.address : null;
+            NftResponseDecoder.decodeOwnedNfts(in, n -> {
                 String tokenId = n.tokenId;
-
                 String title = firstNonBlank(n.name, n.title, tokenId);
-                String collection = n.collection != null ? n.collection.name : null;
 
                 String imageUrl = bestImageUrl(n);
                 if (imageUrl != null) {
@@ -776,35 +697,27 @@ public class NftService {
                 }
 
                 out.add(new NftItem(
-                        safeLower(contract),
+                        safeLower(n.contractAddress),
                         tokenId,
                         title,
-                        collection,
+                        n.collectionName,
                         imageUrl
                 ));
-            }
-
+            });
             return out;
         } catch (Exception e) {
             throw new RuntimeException("Failed to parse NFT response", e);
         }
     }
 
-    private String bestImageUrl(OwnedNft n) {
-        if (n.image != null) {
-            if (isNonBlank(n.image.cachedUrl)) return n.image.cachedUrl;
-            if (isNonBlank(n.image.thumbnailUrl)) return n.image.thumbnailUrl;
-            if (isNonBlank(n.image.pngUrl)) return n.image.pngUrl;
-            if (isNonBlank(n.image.originalUrl)) return n.image.originalUrl;
-        }
+    private String bestImageUrl(NftResponseDecoder.OwnedNft n) {
+        if (isNonBlank(n.cachedUrl)) return n.cachedUrl;
+        if (isNonBlank(n.thumbnailUrl)) return n.thumbnailUrl;
+        if (isNonBlank(n.pngUrl)) return n.pngUrl;
+        if (isNonBlank(n.originalUrl)) return n.originalUrl;
         // Some older payloads include media[]
-        if (n.media != null && !n.media.isEmpty()) {
-            Media m = n.media.get(0);
-            if (m != null) {
-                if (isNonBlank(m.gateway)) return m.gateway;
-                if (isNonBlank(m.raw)) return m.raw;
-            }
-        }
+        if (isNonBlank(n.mediaGateway)) return n.mediaGateway;
+        if (isNonBlank(n.mediaRaw)) return n.mediaRaw;
         return null;
     }
 
@@ -837,7 +750,17 @@ public class NftService {
 
         // 2) attempt to extract from an Alchemy RPC URL
         String rpcUrl = networkManager != null ? networkManager.getRpcUrl() : DatabaseConfig.getRpcUrl();
-        return extractAlchemyKeyFromRpcUrl(rpcUrl).orElse("");
+        String fromRpc = extractAlchemyKeyFromRpcUrl(rpcUrl).orElse("");
+        // 3) the replay proxy masks the key, so any placeholder will do
+        return fromRpc.isBlank() && replayUrl() != null ? "replay" : fromRpc;
+    }
+
+    private String replayUrl() {
+        return (networkManager != null ? networkManager : NetworkManager.getInstance()).getReplayUrl();
+    }
+
+    private String nftApiBaseUrl() {
+        return (networkManager != null ? networkManager : NetworkManager.getInstance()).getNftApiBaseUrl();
     }
 
     private Optional<String> extractAlchemyKeyFromRpcUrl(String rpcUrl) {
@@ -884,46 +807,6 @@ public class NftService {
         return null;
     }
 
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    private static class OwnedNftsResponse {
-        public List<OwnedNft> ownedNfts;
-    }
-
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    private static class OwnedNft {
-        public String tokenId;
-        public String name;
-        public String title;
-        public Contract contract;
-        public Collection collection;
-        public Image image;
-        public List<Media> media;
-    }
-
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    private static class Contract {
-        public String address;
-    }
-
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    private static class Collection {
-        public String name;
-    }
-
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    private static class Image {
-        public String cachedUrl;
-        public String thumbnailUrl;
-        public String pngUrl;
-        public String originalUrl;
-    }
-
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    private static class Media {
-        public String gateway;
-        public String raw;
-    }
-
     public static class NftItem {
         private final String contractAddress;
         private final String tokenId;
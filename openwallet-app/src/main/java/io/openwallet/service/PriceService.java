@@ -1,19 +1,13 @@
 package io.openwallet.service;
 
 import io.openwallet.model.NetworkConfig;
-import org.web3j.abi.FunctionEncoder;
-import org.web3j.abi.FunctionReturnDecoder;
+import io.openwallet.rpc.MulticallAggregator;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Function;
-import org.web3j.abi.datatypes.Type;
 import org.web3j.abi.datatypes.generated.Int256;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.abi.datatypes.generated.Uint8;
 import org.web3j.abi.datatypes.generated.Uint80;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.DefaultBlockParameterName;
-import org.web3j.protocol.core.methods.request.Transaction;
-import org.web3j.protocol.core.methods.response.EthCall;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -42,9 +36,9 @@ public class PriceService {
     }
 
     public CompletableFuture<BigDecimal> getLatestPrice(String feedAddress) {
-        Web3j web3j = networkManager.getWeb3j();
-        CompletableFuture<Integer> decimalsF = callUint8(web3j, feedAddress, "decimals");
-        CompletableFuture<BigInteger> answerF = callLatestAnswer(web3j, feedAddress);
+        MulticallAggregator multicall = networkManager.getMulticall();
+        CompletableFuture<Integer> decimalsF = callUint8(multicall, feedAddress, "decimals");
+        CompletableFuture<BigInteger> answerF = callLatestAnswer(multicall, feedAddress);
 
         return CompletableFuture.allOf(decimalsF, answerF)
                 .thenApply(v -> {
@@ -54,17 +48,17 @@ public class PriceService {
                 });
     }
 
-    private CompletableFuture<Integer> callUint8(Web3j web3j, String contract, String functionName) {
+    private CompletableFuture<Integer> callUint8(MulticallAggregator multicall, String contract, String functionName) {
         Function function = new Function(
                 functionName,
                 Collections.emptyList(),
                 List.of(new TypeReference<Uint8>() {})
         );
-        return ethCall(web3j, contract, function)
+        return multicall.call(contract, function)
                 .thenApply(values -> values.isEmpty() ? 0 : ((BigInteger) values.get(0).getValue()).intValue());
     }
 
-    private CompletableFuture<BigInteger> callLatestAnswer(Web3j web3j, String feedAddress) {
+    private CompletableFuture<BigInteger> callLatestAnswer(MulticallAggregator multicall, String feedAddress) {
         // latestRoundData() returns (uint80, int256, uint256, uint256, uint80)
         Function function = new Function(
                 "latestRoundData",
@@ -78,7 +72,7 @@ public class PriceService {
                 )
         );
 
-        return ethCall(web3j, feedAddress, function)
+        return multicall.call(feedAddress, function)
                 .thenApply(values -> {
                     if (values.size() < 2) {
                         return BigInteger.ZERO;
@@ -86,13 +80,4 @@ public class PriceService {
                     return (BigInteger) values.get(1).getValue();
                 });
     }
-
-    private CompletableFuture<List<Type>> ethCall(Web3j web3j, String contract, Function function) {
-        String data = FunctionEncoder.encode(function);
-        Transaction tx = Transaction.createEthCallTransaction(null, contract, data);
-        return web3j.ethCall(tx, DefaultBlockParameterName.LATEST)
-                .sendAsync()
-                .thenApply(EthCall::getValue)
-                .thenApply(raw -> FunctionReturnDecoder.decode(raw, function.getOutputParameters()));
-    }
 }
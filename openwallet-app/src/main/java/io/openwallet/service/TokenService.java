@@ -1,52 +1,61 @@
 package io.openwallet.service;
 
+import io.openwallet.db.DatabaseConfig;
 import io.openwallet.db.TransactionLogDao;
+import io.openwallet.exception.ContractCallException;
+import io.openwallet.exception.InsufficientFundsException;
 import io.openwallet.exception.OpenWalletException;
 import io.openwallet.model.TokenMeta;
 import io.openwallet.model.TransactionLog;
+import io.openwallet.rpc.MulticallAggregator;
 import org.web3j.abi.FunctionEncoder;
-import org.web3j.abi.FunctionReturnDecoder;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Address;
 import org.web3j.abi.datatypes.Function;
-import org.web3j.abi.datatypes.Type;
 import org.web3j.abi.datatypes.Utf8String;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.abi.datatypes.generated.Uint8;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.request.Transaction;
-import org.web3j.protocol.core.methods.response.EthCall;
-import org.web3j.protocol.core.methods.response.EthEstimateGas;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
-import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class TokenService {
 
     private final NetworkManager networkManager;
     private final WalletService walletService;
     private final TransactionLogDao transactionLogDao;
+    private final TransactionSender transactionSender;
+    private final GasProfileStore gasProfiles;
+    private volatile TransactionSender.Timings lastSendTimings;
 
     public TokenService(NetworkManager networkManager, WalletService walletService, TransactionLogDao transactionLogDao) {
+        this(networkManager, walletService, transactionLogDao, new GasProfileStore());
+    }
+
+    public TokenService(NetworkManager networkManager, WalletService walletService, TransactionLogDao transactionLogDao,
+                        GasProfileStore gasProfiles) {
         this.networkManager = networkManager;
         this.walletService = walletService;
         this.transactionLogDao = transactionLogDao;
+        this.transactionSender = new TransactionSender(networkManager);
+        this.gasProfiles = gasProfiles;
     }
 
     public CompletableFuture<TokenMeta> fetchTokenMeta(String networkId, String tokenAddress) {
-        Web3j web3j = networkManager.getWeb3j();
+        // name/symbol/decimals (and any concurrent lookups) share one aggregate3 eth_call.
+        MulticallAggregator multicall = networkManager.getMulticall(networkId);
 
-        CompletableFuture<String> nameF = callString(web3j, tokenAddress, "name");
-        CompletableFuture<String> symbolF = callString(web3j, tokenAddress, "symbol");
-        CompletableFuture<Integer> decimalsF = callUint8(web3j, tokenAddress, "decimals");
+        CompletableFuture<String> nameF = callString(multicall, tokenAddress, "name");
+        CompletableFuture<String> symbolF = callString(multicall, tokenAddress, "symbol");
+        CompletableFuture<Integer> decimalsF = callUint8(multicall, tokenAddress, "decimals");
 
         return CompletableFuture.allOf(nameF, symbolF, decimalsF)
                 .thenApply(v -> new TokenMeta(networkId, tokenAddress, nameF.join(), symbolF.join(), decimalsF.join()));
@@ -57,7 +66,7 @@ public class TokenService {
             return CompletableFuture.failedFuture(new IllegalArgumentException("token is required"));
         }
         int decimals = token.getDecimals() != null ? token.getDecimals() : 18;
-        return callBalanceOf(networkManager.getWeb3j(), token.getAddress(), walletAddress)
+        return callBalanceOf(networkManager.getMulticall(token.getNetworkId()), token.getAddress(), walletAddress)
                 .thenApply(raw -> TokenAmountUtil.fromRaw(raw, decimals));
     }
 
@@ -69,9 +78,6 @@ public class TokenService {
             throw new IllegalArgumentException("token.decimals is required");
         }
 
-        String privateKey = walletService.getPrivateKey(profileName, password);
-        Credentials credentials = Credentials.create(privateKey);
-
         BigInteger rawAmount = TokenAmountUtil.toRaw(amount, token.getDecimals());
 
         Function function = new Function(
@@ -79,40 +85,9 @@ public class TokenService {
                 List.of(new Address(toAddress), new Uint256(rawAmount)),
                 Collections.emptyList()
         );
-        String data = FunctionEncoder.encode(function);
-
-        Web3j web3j = networkManager.getWeb3j();
-        EthGasPrice gasPriceResp = web3j.ethGasPrice().send();
-        BigInteger gasPrice = gasPriceResp.getGasPrice();
-
-        BigInteger gasLimit = estimateGas(web3j, credentials.getAddress(), token.getAddress(), data);
 
-        RawTransactionManager txManager;
-        Long chainId = networkManager.getChainId();
-        if (chainId != null) {
-            txManager = new RawTransactionManager(web3j, credentials, chainId);
-        } else {
-            txManager = new RawTransactionManager(web3j, credentials);
-        }
-
-        EthSendTransaction sent = txManager.sendTransaction(gasPrice, gasLimit, token.getAddress(), data, BigInteger.ZERO);
-        if (sent.hasError()) {
-            throw new OpenWalletException("Token transfer failed: " + sent.getError().getMessage());
-        }
-
-        String txHash = sent.getTransactionHash();
-
-        // Log as PENDING (receipt not awaited)
-        TransactionLog log = new TransactionLog(
-                credentials.getAddress(),
-                txHash,
-                amount,
-                token.getSymbol() != null ? token.getSymbol() : "TOKEN",
-                "PENDING"
-        );
-        transactionLogDao.save(log);
-
-        return txHash;
+        return walletService.withCredentials(profileName, password,
+                credentials -> sendTokenCall(credentials, token, function, amount, "Token transfer failed: "));
     }
 
     public String approve(String profileName, String password, TokenMeta token, String spenderAddress, BigDecimal amount) throws Exception {
@@ -123,9 +98,6 @@ public class TokenService {
             throw new IllegalArgumentException("token.decimals is required");
         }
 
-        String privateKey = walletService.getPrivateKey(profileName, password);
-        Credentials credentials = Credentials.create(privateKey);
-
         BigInteger rawAmount = TokenAmountUtil.toRaw(amount, token.getDecimals());
 
         Function function = new Function(
@@ -133,28 +105,49 @@ public class TokenService {
                 List.of(new Address(spenderAddress), new Uint256(rawAmount)),
                 Collections.emptyList()
         );
-        String data = FunctionEncoder.encode(function);
 
-        Web3j web3j = networkManager.getWeb3j();
-        EthGasPrice gasPriceResp = web3j.ethGasPrice().send();
-        BigInteger gasPrice = gasPriceResp.getGasPrice();
+        return walletService.withCredentials(profileName, password,
+                credentials -> sendTokenCall(credentials, token, function, amount, "Token approval failed: "));
+    }
 
-        BigInteger gasLimit = estimateGas(web3j, credentials.getAddress(), token.getAddress(), data);
+    /**
+     * Signs and broadcasts a call to the token contract and logs it as PENDING until the tracker sees it mined.
+     */
+    private String sendTokenCall(Credentials credentials, TokenMeta token, Function function, BigDecimal amount,
+                                 String failurePrefix) throws Exception {
+        String data = FunctionEncoder.encode(function);
 
-        RawTransactionManager txManager;
-        Long chainId = networkManager.getChainId();
-        if (chainId != null) {
-            txManager = new RawTransactionManager(web3j, credentials, chainId);
-        } else {
-            txManager = new RawTransactionManager(web3j, credentials);
-        }
+        String networkId = networkManager.getActiveNetworkId();
+        Web3j web3j = networkManager.getWeb3j(networkId);
 
-        EthSendTransaction sent = txManager.sendTransaction(gasPrice, gasLimit, token.getAddress(), data, BigInteger.ZERO);
-        if (sent.hasError()) {
-            throw new OpenWalletException("Token approval failed: " + sent.getError().getMessage());
+        // Fee, gas limit, nonce and a dry run all happen at once; only then is the call signed and broadcast.
+        AtomicReference<GasProfileStore.Key> profile = new AtomicReference<>();
+        TransactionSender.Sent sent;
+        try {
+            // Known token calls reuse the gas they actually took last time; only new ones pay for eth_estimateGas.
+            String from = credentials.getAddress();
+            CompletableFuture<BigInteger> gas = touchesFreshSlot(networkId, token, function, from)
+                    .thenCompose(fresh -> {
+                        if (fresh == null) {
+                            // Slot state unknown: estimate, and keep the result out of the learned profiles.
+                            return estimateGas(web3j, from, token.getAddress(), data);
+                        }
+                        GasProfileStore.Key key = GasProfileStore.Key.of(networkId, token.getAddress(), data, fresh);
+                        profile.set(key);
+                        return gasProfiles.limitFor(key)
+                                .map(CompletableFuture::completedFuture)
+                                .orElseGet(() -> estimateGas(web3j, from, token.getAddress(), data));
+                    });
+            sent = transactionSender.sendPipelined(credentials, networkId, token.getAddress(), BigInteger.ZERO, data, gas);
+        } catch (InsufficientFundsException e) {
+            throw e;
+        } catch (OpenWalletException e) {
+            throw new OpenWalletException(failurePrefix + e.getMessage(), e);
         }
+        lastSendTimings = sent.getTimings();
+        String txHash = sent.getTxHash();
+        BigInteger gasLimit = sent.getGasLimit();
 
-        String txHash = sent.getTransactionHash();
         TransactionLog log = new TransactionLog(
                 credentials.getAddress(),
                 txHash,
@@ -162,62 +155,119 @@ public class TokenService {
                 token.getSymbol() != null ? token.getSymbol() : "TOKEN",
                 "PENDING"
         );
+        log.setNetworkId(networkId);
         transactionLogDao.save(log);
+        TransactionHandle handle = walletService.getTransactionTracker()
+                .track(networkId, txHash, DatabaseConfig.getTxConfirmations());
+        handle.included().thenAccept(receipt -> {
+            if (profile.get() != null) {
+                gasProfiles.observe(profile.get(), gasLimit, receipt);
+            }
+        });
 
         return txHash;
     }
 
-    private CompletableFuture<String> callString(Web3j web3j, String contract, String functionName) {
+    /**
+     * Stage timings of the most recent token transfer or approval, or {@code null} before the first one.
+     */
+    public TransactionSender.Timings getLastSendTimings() {
+        return lastSendTimings;
+    }
+
+    public GasProfileStore getGasProfiles() {
+        return gasProfiles;
+    }
+
+    /**
+     * Whether the call writes a zero storage slot, which costs more gas: a transfer to an address without a
+     * balance, or an approval of a spender without an allowance. Completes with {@code null} if the slot could
+     * not be read.
+     */
+    private CompletableFuture<Boolean> touchesFreshSlot(String networkId, TokenMeta token, Function function, String owner) {
+        try {
+            MulticallAggregator multicall = networkManager.getMulticall(networkId);
+            String target = ((Address) function.getInputParameters().get(0)).getValue();
+            CompletableFuture<BigInteger> slot = "approve".equals(function.getName())
+                    ? callAllowance(multicall, token.getAddress(), owner, target)
+                    : callBalanceOf(multicall, token.getAddress(), target);
+            return slot.thenApply(value -> value.signum() == 0)
+                    .exceptionally(ex -> null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private CompletableFuture<String> callString(MulticallAggregator multicall, String contract, String functionName) {
         Function function = new Function(
                 functionName,
                 Collections.emptyList(),
                 List.of(new TypeReference<Utf8String>() {})
         );
-        return ethCall(web3j, contract, function)
-                .thenApply(values -> values.isEmpty() ? "" : (String) values.get(0).getValue());
+        return multicall.call(contract, function)
+                .thenApply(values -> values.isEmpty() ? "" : (String) values.get(0).getValue())
+                .exceptionally(ex -> ifReverted(ex, ""));
     }
 
-    private CompletableFuture<Integer> callUint8(Web3j web3j, String contract, String functionName) {
+    private CompletableFuture<Integer> callUint8(MulticallAggregator multicall, String contract, String functionName) {
         Function function = new Function(
                 functionName,
                 Collections.emptyList(),
                 List.of(new TypeReference<Uint8>() {})
         );
-        return ethCall(web3j, contract, function)
-                .thenApply(values -> values.isEmpty() ? 18 : ((BigInteger) values.get(0).getValue()).intValue());
+        return multicall.call(contract, function)
+                .thenApply(values -> values.isEmpty() ? 18 : ((BigInteger) values.get(0).getValue()).intValue())
+                .exceptionally(ex -> ifReverted(ex, 18));
+    }
+
+    /**
+     * {@code fallback} if the call reverted, e.g. a token without the optional {@code name()} or {@code symbol()};
+     * transport failures are rethrown.
+     */
+    private static <T> T ifReverted(Throwable ex, T fallback) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof ContractCallException) {
+            return fallback;
+        }
+        throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(cause);
     }
 
-    private CompletableFuture<BigInteger> callBalanceOf(Web3j web3j, String contract, String walletAddress) {
+    private CompletableFuture<BigInteger> callBalanceOf(MulticallAggregator multicall, String contract, String walletAddress) {
         Function function = new Function(
                 "balanceOf",
                 List.of(new Address(walletAddress)),
                 List.of(new TypeReference<Uint256>() {})
         );
-        return ethCall(web3j, contract, function)
+        return multicall.call(contract, function)
                 .thenApply(values -> values.isEmpty() ? BigInteger.ZERO : (BigInteger) values.get(0).getValue());
     }
 
-    private CompletableFuture<List<Type>> ethCall(Web3j web3j, String contract, Function function) {
-        String data = FunctionEncoder.encode(function);
-        Transaction tx = Transaction.createEthCallTransaction(null, contract, data);
-        return web3j.ethCall(tx, DefaultBlockParameterName.LATEST)
-                .sendAsync()
-                .thenApply(EthCall::getValue)
-                .thenApply(raw -> FunctionReturnDecoder.decode(raw, function.getOutputParameters()));
+    private CompletableFuture<BigInteger> callAllowance(MulticallAggregator multicall, String contract, String owner, String spender) {
+        Function function = new Function(
+                "allowance",
+                List.of(new Address(owner), new Address(spender)),
+                List.of(new TypeReference<Uint256>() {})
+        );
+        return multicall.call(contract, function)
+                .thenApply(values -> values.isEmpty() ? BigInteger.ZERO : (BigInteger) values.get(0).getValue());
     }
 
-    private BigInteger estimateGas(Web3j web3j, String from, String to, String data) {
+    private CompletableFuture<BigInteger> estimateGas(Web3j web3j, String from, String to, String data) {
+        BigInteger fallback = BigInteger.valueOf(150_000);
         try {
             Transaction tx = Transaction.createFunctionCallTransaction(from, null, null, null, to, BigInteger.ZERO, data);
-            EthEstimateGas est = web3j.ethEstimateGas(tx).send();
-            BigInteger amount = est.getAmountUsed();
-            if (amount == null || amount.signum() <= 0) {
-                return BigInteger.valueOf(150_000);
-            }
-            // add 20% buffer
-            return amount.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
-        } catch (Exception e) {
-            return BigInteger.valueOf(150_000);
+            return web3j.ethEstimateGas(tx).sendAsync()
+                    .thenApply(est -> {
+                        BigInteger amount = est.hasError() ? null : est.getAmountUsed();
+                        if (amount == null || amount.signum() <= 0) {
+                            return fallback;
+                        }
+                        // add 20% buffer
+                        return amount.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
+                    })
+                    .exceptionally(ex -> fallback);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(fallback);
         }
     }
 }
@@ -0,0 +1,40 @@
+package io.openwallet.service;
+
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Progress of one outgoing transaction: accepted by a node, mined, then buried under enough blocks.
+ */
+public class TransactionHandle {
+
+    private final String networkId;
+    private final int confirmations;
+    private final CompletableFuture<String> broadcast;
+    private final CompletableFuture<TransactionReceipt> included;
+    private final CompletableFuture<TransactionReceipt> confirmed;
+
+    public TransactionHandle(String networkId, int confirmations, CompletableFuture<String> broadcast,
+                             CompletableFuture<TransactionReceipt> included, CompletableFuture<TransactionReceipt> confirmed) {
+        this.networkId = networkId;
+        this.confirmations = confirmations;
+        this.broadcast = broadcast;
+        this.included = included;
+        this.confirmed = confirmed;
+    }
+
+    public String getNetworkId() { return networkId; }
+
+    /** Number of blocks (including the one it was mined in) {@link #confirmed()} waits for. */
+    public int getConfirmations() { return confirmations; }
+
+    /** Completes with the transaction hash once a node has accepted the transaction. */
+    public CompletableFuture<String> broadcast() { return broadcast; }
+
+    /** Completes with the receipt once the transaction is mined; check {@code isStatusOK()} for reverts. */
+    public CompletableFuture<TransactionReceipt> included() { return included; }
+
+    /** Completes with the receipt once {@link #getConfirmations()} blocks are on top of it. */
+    public CompletableFuture<TransactionReceipt> confirmed() { return confirmed; }
+}
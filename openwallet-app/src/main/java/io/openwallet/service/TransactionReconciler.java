@@ -0,0 +1,246 @@
+package io.openwallet.service;
+
+import io.openwallet.db.TransactionLogDao;
+import io.openwallet.model.TransactionLog;
+import io.openwallet.rpc.DaemonThreadFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolves {@code transaction_logs} rows still marked PENDING, e.g. sends from an earlier run of the app.
+ *
+ * Rows are read a page at a time across all wallets; their receipts are requested concurrently (at most
+ * {@code maxInFlight} at once, which the batching transport packs into JSON-RPC batches) and every resolved row
+ * of the page is written back in one batched update. A row with no receipt that is older than
+ * {@code dropAfterMillis} is checked with {@code eth_getTransactionByHash}; if the node no longer knows the
+ * transaction it left the mempool without being mined, and the row is marked {@link #DROPPED}.
+ *
+ * Rows written before {@code network_id} and {@code created_at} were recorded are looked up on the active
+ * network, but only a receipt found there resolves them. They are never dropped: the transaction may well be
+ * on another chain, and a DROPPED row is not checked again.
+ */
+public class TransactionReconciler implements AutoCloseable {
+
+    public static final String PENDING = "PENDING";
+    public static final String DROPPED = "DROPPED";
+
+    private final NetworkManager networkManager;
+    private final TransactionLogDao transactionLogDao;
+    private final int pageSize;
+    private final int maxInFlight;
+    private final long dropAfterMillis;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("openwallet-reconciler"));
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile Result lastResult;
+
+    public TransactionReconciler(NetworkManager networkManager, TransactionLogDao transactionLogDao, int pageSize,
+                                 int maxInFlight, long dropAfterMillis) {
+        this.networkManager = networkManager;
+        this.transactionLogDao = transactionLogDao;
+        this.pageSize = Math.max(1, pageSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.dropAfterMillis = Math.max(0, dropAfterMillis);
+    }
+
+    /**
+     * Runs a pass right away and then every {@code intervalMillis}; 0 runs only the startup pass.
+     */
+    public void start(long intervalMillis) {
+        scheduler.execute(this::runSafely);
+        if (intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::runSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * One full pass over the PENDING rows; returns {@code null} if another pass is already running.
+     */
+    public Result reconcileOnce() throws InterruptedException, SQLException {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            long started = System.nanoTime();
+            int scanned = 0;
+            int resolved = 0;
+            int dropped = 0;
+            int afterId = 0;
+            while (true) {
+                List<TransactionLog> page = transactionLogDao.findByStatus(PENDING, afterId, pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+                scanned += page.size();
+
+                List<TransactionLog> done = resolvePage(page);
+                transactionLogDao.updateReceipts(done);
+                resolved += done.size();
+                dropped += (int) done.stream().filter(l -> DROPPED.equals(l.getStatus())).count();
+
+                if (page.size() < pageSize) {
+                    break;
+                }
+            }
+            Result result = new Result(scanned, resolved, dropped, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            lastResult = result;
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Result getLastResult() {
+        return lastResult;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * A log row carrying the receipt's final status, block, gas used and fee, keyed by transaction hash.
+     */
+    public static TransactionLog resolved(String txHash, TransactionReceipt receipt) {
+        TransactionLog log = new TransactionLog();
+        log.setTxHash(txHash);
+        log.setStatus(receipt.isStatusOK() ? "SUCCESS" : "FAILED");
+        log.setBlockNumber(receipt.getBlockNumber().longValueExact());
+        if (receipt.getGasUsedRaw() != null) {
+            BigInteger gasUsed = receipt.getGasUsed();
+            log.setGasUsed(gasUsed.longValueExact());
+            if (receipt.getEffectiveGasPrice() != null) {
+                log.setFeeWei(gasUsed.multiply(Numeric.decodeQuantity(receipt.getEffectiveGasPrice())));
+            }
+        }
+        return log;
+    }
+
+    /**
+     * A log row marking {@code txHash} as dropped: never mined and no longer known to the node.
+     */
+    public static TransactionLog dropped(String txHash) {
+        TransactionLog log = new TransactionLog();
+        log.setTxHash(txHash);
+        log.setStatus(DROPPED);
+        return log;
+    }
+
+    private List<TransactionLog> resolvePage(List<TransactionLog> page) throws InterruptedException {
+        Semaphore permits = new Semaphore(maxInFlight);
+        Map<String, Web3j> clients = new HashMap<>();
+        List<CompletableFuture<TransactionLog>> lookups = new ArrayList<>(page.size());
+        LocalDateTime dropBefore = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(dropAfterMillis));
+
+        for (TransactionLog log : page) {
+            String txHash = log.getTxHash();
+            if (txHash == null || txHash.isBlank()) {
+                continue;
+            }
+            String networkId = log.getNetworkId() != null ? log.getNetworkId() : networkManager.getActiveNetworkId();
+            Web3j web3j = clients.computeIfAbsent(networkId, networkManager::getWeb3j);
+
+            permits.acquire();
+            CompletableFuture<TransactionLog> lookup;
+            try {
+                boolean old = log.getNetworkId() != null && log.getCreatedAt() != null
+                        && log.getCreatedAt().isBefore(dropBefore);
+                lookup = web3j.ethGetTransactionReceipt(txHash).sendAsync()
+                        .handle((response, error) -> {
+                            if (error != null || response.hasError()) {
+                                return CompletableFuture.<TransactionLog>completedFuture(null);
+                            }
+                            TransactionReceipt receipt = response.getTransactionReceipt().orElse(null);
+                            if (receipt != null && receipt.getBlockNumberRaw() != null) {
+                                return CompletableFuture.completedFuture(resolved(txHash, receipt));
+                            }
+                            return old ? checkDropped(web3j, txHash) : CompletableFuture.<TransactionLog>completedFuture(null);
+                        })
+                        .thenCompose(f -> f);
+            } catch (RuntimeException e) {
+                permits.release();
+                continue;
+            }
+            lookup.whenComplete((r, e) -> permits.release());
+            lookups.add(lookup);
+        }
+
+        List<TransactionLog> done = new ArrayList<>();
+        for (CompletableFuture<TransactionLog> lookup : lookups) {
+            TransactionLog log = lookup.join();
+            if (log != null) {
+                done.add(log);
+            }
+        }
+        return done;
+    }
+
+    private static CompletableFuture<TransactionLog> checkDropped(Web3j web3j, String txHash) {
+        try {
+            return web3j.ethGetTransactionByHash(txHash).sendAsync()
+                    .handle((response, error) -> {
+                        // Only a definite "unknown" drops the row; an error leaves it for the next pass.
+                        if (error != null || response.hasError() || response.getTransaction().isPresent()) {
+                            return null;
+                        }
+                        return dropped(txHash);
+                    });
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void runSafely() {
+        try {
+            reconcileOnce();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException | RuntimeException e) {
+            // Rows that were not written stay PENDING and are picked up again on the next pass.
+            e.printStackTrace();
+        }
+    }
+
+    public static final class Result {
+        private final int scanned;
+        private final int resolved;
+        private final int dropped;
+        private final long elapsedMillis;
+
+        Result(int scanned, int resolved, int dropped, long elapsedMillis) {
+            this.scanned = scanned;
+            this.resolved = resolved;
+            this.dropped = dropped;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getScanned() { return scanned; }
+        public int getResolved() { return resolved; }
+        public int getDropped() { return dropped; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return resolved + "/" + scanned + " pending transactions resolved (" + dropped + " dropped) in "
+                    + elapsedMillis + " ms";
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package io.openwallet.service;
+
+import io.openwallet.exception.InsufficientFundsException;
+import io.openwallet.exception.OpenWalletException;
+import io.openwallet.metrics.RpcMetrics;
+import io.openwallet.rpc.DaemonThreadFactory;
+import io.openwallet.rpc.FeeOracle;
+import io.openwallet.rpc.NonceManager;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Signs and broadcasts transactions with nonces from the account's {@link NonceManager}, so several sends
+ * from one account can be in the mempool at once.
+ */
+public class TransactionSender {
+
+    /** Runs the independent pre-send stages side by side. */
+    private static final ExecutorService PRESEND_EXECUTOR =
+            Executors.newCachedThreadPool(new DaemonThreadFactory("openwallet-presend"));
+
+    /**
+     * Wall-clock milliseconds of each stage of one {@link #sendPipelined} call. The fee, gas and nonce stages
+     * overlap and simulate follows gas; {@code prepare} is how long they took together.
+     */
+    public static final class Timings {
+        private long fee;
+        private long gas;
+        private long nonce;
+        private long simulate;
+        private long prepare;
+        private long sign;
+        private long broadcast;
+        private long total;
+
+        public long getFeeMillis() { return fee; }
+
+        public long getGasMillis() { return gas; }
+
+        public long getNonceMillis() { return nonce; }
+
+        public long getSimulateMillis() { return simulate; }
+
+        public long getPrepareMillis() { return prepare; }
+
+        public long getSignMillis() { return sign; }
+
+        public long getBroadcastMillis() { return broadcast; }
+
+        public long getTotalMillis() { return total; }
+
+        @Override
+        public String toString() {
+            return "fee=" + fee + "ms gas=" + gas + "ms nonce=" + nonce + "ms simulate=" + simulate
+                    + "ms prepare=" + prepare + "ms sign=" + sign + "ms broadcast=" + broadcast + "ms total=" + total + "ms";
+        }
+    }
+
+    /**
+     * A broadcast transaction and what went into it.
+     */
+    public static final class Sent {
+        private final String txHash;
+        private final BigInteger nonce;
+        private final BigInteger gasLimit;
+        private final FeeOracle.Quote fee;
+        private final Timings timings;
+
+        private Sent(String txHash, BigInteger nonce, BigInteger gasLimit, FeeOracle.Quote fee, Timings timings) {
+            this.txHash = txHash;
+            this.nonce = nonce;
+            this.gasLimit = gasLimit;
+            this.fee = fee;
+            this.timings = timings;
+        }
+
+        public String getTxHash() { return txHash; }
+
+        public BigInteger getNonce() { return nonce; }
+
+        public BigInteger getGasLimit() { return gasLimit; }
+
+        public FeeOracle.Quote getFee() { return fee; }
+
+        public Timings getTimings() { return timings; }
+    }
+
+    private final NetworkManager networkManager;
+
+    public TransactionSender(NetworkManager networkManager) {
+        this.networkManager = networkManager;
+    }
+
+    /**
+     * Broadcasts a transaction priced by {@code fee} (type 2 unless the quote is legacy) on {@code networkId}
+     * and returns its hash once a node has accepted it, or when no node answered and it may have. The receipt
+     * is not awaited.
+     */
+    public String send(Credentials credentials, String networkId, String to, BigInteger value, String data,
+                       FeeOracle.Quote fee, BigInteger gasLimit) throws IOException, OpenWalletException {
+        NonceManager nonces = networkManager.getNonceManager(networkId, credentials.getAddress());
+        NonceManager.Reservation reservation = nonces.reserve();
+
+        String signed;
+        try {
+            signed = sign(credentials, networkId, reservation.getNonce(), fee, gasLimit, to, value, data);
+        } catch (RuntimeException e) {
+            reservation.release();
+            throw e;
+        }
+        return broadcast(networkId, nonces, reservation, signed);
+    }
+
+    /**
+     * Like {@link #send}, but works out everything the transaction needs concurrently: the fee quote, the gas
+     * limit from {@code gasLimit} and a nonce reservation, plus an {@code eth_call} of the transaction with that
+     * gas limit against the pending block. A call that would revert fails here, before anything is signed, and
+     * gives its nonce back.
+     */
+    public Sent sendPipelined(Credentials credentials, String networkId, String to, BigInteger value, String data,
+                              Callable<BigInteger> gasLimit) throws IOException, OpenWalletException {
+        return pipeline(credentials, networkId, to, value, data, timings -> stage("gas", t -> timings.gas = t, gasLimit));
+    }
+
+    /**
+     * Like {@link #sendPipelined(Credentials, String, String, BigInteger, String, Callable)}, for a gas limit
+     * that is already being worked out asynchronously, e.g. composed from other lookups.
+     */
+    public Sent sendPipelined(Credentials credentials, String networkId, String to, BigInteger value, String data,
+                              CompletableFuture<BigInteger> gasLimit) throws IOException, OpenWalletException {
+        return pipeline(credentials, networkId, to, value, data, timings -> timed("gas", t -> timings.gas = t, gasLimit));
+    }
+
+    private Sent pipeline(Credentials credentials, String networkId, String to, BigInteger value, String data,
+                          Function<Timings, CompletableFuture<BigInteger>> gasStage)
+            throws IOException, OpenWalletException {
+        long started = System.nanoTime();
+        Timings timings = new Timings();
+        NonceManager nonces = networkManager.getNonceManager(networkId, credentials.getAddress());
+        Web3j web3j = networkManager.getWeb3j(networkId);
+
+        CompletableFuture<FeeOracle.Quote> feeF = stage("fee", t -> timings.fee = t,
+                () -> networkManager.getFeeOracle(networkId).quote(FeeOracle.Speed.NORMAL));
+        CompletableFuture<BigInteger> gasF = gasStage.apply(timings);
+        CompletableFuture<NonceManager.Reservation> nonceF = stage("nonce", t -> timings.nonce = t, nonces::reserve);
+        // The dry run uses the gas limit the transaction will be signed with, so a limit that is too low fails
+        // here rather than on chain. It starts as soon as the limit is known.
+        CompletableFuture<EthCall> simulateF = gasF.thenCompose(gas -> stage("simulate", t -> timings.simulate = t,
+                () -> web3j.ethCall(Transaction.createFunctionCallTransaction(
+                        credentials.getAddress(), null, null, gas, to, value, data),
+                        DefaultBlockParameterName.PENDING).send()));
+
+        try {
+            CompletableFuture.allOf(feeF, gasF, nonceF, simulateF).join();
+        } catch (CompletionException e) {
+            nonceF.thenAccept(NonceManager.Reservation::release);
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof OpenWalletException) {
+                throw (OpenWalletException) cause;
+            }
+            throw new OpenWalletException("Could not prepare transaction: " + cause.getMessage(), cause);
+        }
+        timings.prepare = elapsedMillis(started);
+
+        NonceManager.Reservation reservation = nonceF.join();
+        EthCall simulation = simulateF.join();
+        if (simulation.hasError() || simulation.isReverted()) {
+            reservation.release();
+            String reason = simulation.hasError() ? simulation.getError().getMessage() : simulation.getRevertReason();
+            throw new OpenWalletException("Transaction would revert: " + reason);
+        }
+
+        FeeOracle.Quote fee = feeF.join();
+        BigInteger gas = gasF.join();
+        long signStart = System.nanoTime();
+        String signed;
+        try {
+            signed = sign(credentials, networkId, reservation.getNonce(), fee, gas, to, value, data);
+        } catch (RuntimeException e) {
+            reservation.release();
+            throw e;
+        }
+        timings.sign = elapsedMillis(signStart);
+
+        long broadcastStart = System.nanoTime();
+        RpcMetrics.Timer timer = startStage("broadcast");
+        String txHash;
+        try {
+            txHash = broadcast(networkId, nonces, reservation, signed);
+            finish(timer, null);
+        } catch (IOException | OpenWalletException | RuntimeException e) {
+            finish(timer, e);
+            throw e;
+        }
+        timings.broadcast = elapsedMillis(broadcastStart);
+        timings.total = elapsedMillis(started);
+        return new Sent(txHash, reservation.getNonce(), gas, fee, timings);
+    }
+
+    private String sign(Credentials credentials, String networkId, BigInteger nonce, FeeOracle.Quote fee,
+                        BigInteger gasLimit, String to, BigInteger value, String data) {
+        Long chainId = networkManager.getChainId(networkId);
+        RawTransaction raw = fee.newTransaction(chainId, nonce, gasLimit, to, value, data);
+        byte[] signed = chainId != null
+                ? TransactionEncoder.signMessage(raw, chainId, credentials)
+                : TransactionEncoder.signMessage(raw, credentials);
+        return Numeric.toHexString(signed);
+    }
+
+    /**
+     * Broadcasts {@code signed} and returns its hash.
+     *
+     * Only a JSON-RPC error is a definite rejection. When the request fails without an answer the node may still
+     * have the transaction (and a failover retry may have reached another one), so the nonce is held as broadcast
+     * and the locally computed hash is returned for tracking; the next send re-syncs the nonce, and a transaction
+     * no node ever saw is later reported as dropped. "Already known" is what a retry of an accepted broadcast
+     * gets back, so it counts as sent.
+     */
+    private String broadcast(String networkId, NonceManager nonces, NonceManager.Reservation reservation,
+                             String signed) throws IOException, OpenWalletException {
+        Web3j web3j;
+        try {
+            web3j = networkManager.getWeb3j(networkId);
+        } catch (RuntimeException e) {
+            reservation.release();
+            throw e;
+        }
+        String txHash = Hash.sha3(signed);
+        EthSendTransaction sent;
+        try {
+            sent = web3j.ethSendRawTransaction(signed).send();
+        } catch (IOException | RuntimeException e) {
+            reservation.confirm();
+            nonces.invalidate();
+            return txHash;
+        }
+
+        if (sent.hasError()) {
+            String message = sent.getError().getMessage();
+            if (isAlreadyKnown(message)) {
+                reservation.confirm();
+                return txHash;
+            }
+            reservation.release();
+            if (isNonceError(message)) {
+                nonces.invalidate();
+            }
+            if (message != null && message.toLowerCase(Locale.ROOT).contains("insufficient funds")) {
+                throw new InsufficientFundsException("Insufficient funds for transaction + gas.");
+            }
+            throw new OpenWalletException("Transaction rejected: " + message);
+        }
+
+        reservation.confirm();
+        return sent.getTransactionHash() != null ? sent.getTransactionHash() : txHash;
+    }
+
+    private interface TimingSink {
+        void accept(long millis);
+    }
+
+    /**
+     * Runs one pre-send stage on the pre-send pool, recording its duration locally and in the metrics.
+     */
+    private <T> CompletableFuture<T> stage(String name, TimingSink sink, Callable<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            RpcMetrics.Timer timer = startStage(name);
+            try {
+                T result = work.call();
+                finish(timer, null);
+                return result;
+            } catch (Exception e) {
+                finish(timer, e);
+                throw new CompletionException(e);
+            } finally {
+                sink.accept(elapsedMillis(start));
+            }
+        }, PRESEND_EXECUTOR);
+    }
+
+    /**
+     * Records a stage that is already running elsewhere, from now until {@code work} completes.
+     */
+    private <T> CompletableFuture<T> timed(String name, TimingSink sink, CompletableFuture<T> work) {
+        long start = System.nanoTime();
+        RpcMetrics.Timer timer = startStage(name);
+        return work.whenComplete((result, e) -> {
+            finish(timer, e);
+            sink.accept(elapsedMillis(start));
+        });
+    }
+
+    private RpcMetrics.Timer startStage(String name) {
+        RpcMetrics metrics = networkManager.getMetrics();
+        return metrics != null ? metrics.startStage(name) : null;
+    }
+
+    private static void finish(RpcMetrics.Timer timer, Throwable failure) {
+        if (timer == null) {
+            return;
+        }
+        if (failure == null) {
+            timer.success();
+        } else {
+            timer.failure(failure);
+        }
+    }
+
+    private static long elapsedMillis(long sinceNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sinceNanos);
+    }
+
+    static boolean isNonceError(String message) {
+        if (message == null) {
+            return false;
+        }
+        String m = message.toLowerCase(Locale.ROOT);
+        return m.contains("nonce") || m.contains("replacement transaction underpriced");
+    }
+
+    static boolean isAlreadyKnown(String message) {
+        if (message == null) {
+            return false;
+        }
+        String m = message.toLowerCase(Locale.ROOT);
+        return m.contains("already known") || m.contains("known transaction");
+    }
+}
@@ -0,0 +1,54 @@
+package io.openwallet.service;
+
+import io.openwallet.db.TransactionLogDao;
+import io.openwallet.rpc.DaemonThreadFactory;
+import io.openwallet.rpc.ReceiptPoller;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Follows broadcast transactions through the network's {@link ReceiptPoller} and moves their
+ * {@code transaction_logs} rows from PENDING to SUCCESS or FAILED (with block, gas used and fee) when they are mined.
+ *
+ * The row is written on a separate thread, so a slow database never holds up the poller that every tracked
+ * transaction shares. A write that fails leaves the row PENDING for {@link TransactionReconciler} to resolve.
+ */
+public class TransactionTracker {
+
+    private static final ExecutorService LOG_WRITER =
+            Executors.newSingleThreadExecutor(new DaemonThreadFactory("openwallet-tx-log"));
+
+    private final NetworkManager networkManager;
+    private final TransactionLogDao transactionLogDao;
+
+    public TransactionTracker(NetworkManager networkManager, TransactionLogDao transactionLogDao) {
+        this.networkManager = networkManager;
+        this.transactionLogDao = transactionLogDao;
+    }
+
+    public TransactionHandle track(String networkId, CompletableFuture<String> broadcast, int confirmations) {
+        ReceiptPoller poller = networkManager.getReceiptPoller(networkId);
+        CompletableFuture<TransactionReceipt> included = broadcast.thenCompose(poller::awaitReceipt);
+        included.thenAcceptAsync(this::record, LOG_WRITER);
+        CompletableFuture<TransactionReceipt> confirmed =
+                included.thenCompose(receipt -> poller.awaitConfirmations(receipt, confirmations));
+        return new TransactionHandle(networkId, confirmations, broadcast, included, confirmed);
+    }
+
+    public TransactionHandle track(String networkId, String txHash, int confirmations) {
+        return track(networkId, CompletableFuture.completedFuture(txHash), confirmations);
+    }
+
+    private void record(TransactionReceipt receipt) {
+        try {
+            transactionLogDao.updateReceipts(List.of(TransactionReconciler.resolved(receipt.getTransactionHash(), receipt)));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
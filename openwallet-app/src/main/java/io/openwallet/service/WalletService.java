@@ -1,36 +1,75 @@
 package io.openwallet.service;
 
 import io.openwallet.crypto.CryptoUtil;
+import io.openwallet.crypto.HdKeyChain;
+import io.openwallet.crypto.KdfParams;
+import io.openwallet.crypto.SessionKeyVault;
+import io.openwallet.db.DatabaseConfig;
 import io.openwallet.db.TransactionLogDao;
+import io.openwallet.db.WalletAccountDao;
 import io.openwallet.db.WalletDao;
 import io.openwallet.exception.AuthenticationException;
 import io.openwallet.exception.InsufficientFundsException;
 import io.openwallet.exception.OpenWalletException;
 import io.openwallet.model.TransactionLog;
+import io.openwallet.model.WalletAccount;
 import io.openwallet.model.WalletProfile;
+import io.openwallet.rpc.DaemonThreadFactory;
+import io.openwallet.rpc.FeeOracle;
 import org.web3j.crypto.Bip32ECKeyPair;
 import org.web3j.crypto.Bip44WalletUtils;
 import org.web3j.crypto.Credentials;
 import org.web3j.crypto.MnemonicUtils;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.tx.Transfer;
 import org.web3j.utils.Convert;
+import org.web3j.utils.Numeric;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class WalletService {
 
     private final WalletDao walletDao;
     private final TransactionLogDao transactionLogDao;
     private final NetworkManager networkManager;
+    private final WalletAccountDao walletAccountDao;
+    private final SessionKeyVault keyVault;
+    private final TransactionSender transactionSender;
+    private final TransactionTracker transactionTracker;
+
+    private static final ExecutorService DISCOVERY_EXECUTOR =
+            Executors.newCachedThreadPool(new DaemonThreadFactory("openwallet-discovery"));
+    private static final ExecutorService SEND_EXECUTOR =
+            Executors.newCachedThreadPool(new DaemonThreadFactory("openwallet-send"));
+    private static final ExecutorService REHASH_EXECUTOR =
+            Executors.newSingleThreadExecutor(new DaemonThreadFactory("openwallet-rehash"));
 
     public WalletService(WalletDao walletDao, TransactionLogDao transactionLogDao, NetworkManager networkManager) {
+        this(walletDao, transactionLogDao, networkManager, null);
+    }
+
+    public WalletService(WalletDao walletDao, TransactionLogDao transactionLogDao, NetworkManager networkManager,
+                         WalletAccountDao walletAccountDao) {
         this.walletDao = walletDao;
         this.transactionLogDao = transactionLogDao;
         this.networkManager = networkManager;
+        this.walletAccountDao = walletAccountDao;
+        this.transactionSender = new TransactionSender(networkManager);
+        this.transactionTracker = new TransactionTracker(networkManager, transactionLogDao);
+        this.keyVault = new SessionKeyVault(
+                DatabaseConfig.getWalletSessionIdleMinutes() * 60_000L,
+                DatabaseConfig.getWalletSessionTtlMinutes() * 60_000L);
     }
 
     /**
@@ -57,6 +96,7 @@ public class WalletService {
 
     /**
      * Imports an existing wallet using mnemonic.
+     * Account 0 is stored right away; further used accounts are discovered in the background.
      */
     public void importWallet(String profileName, String mnemonic, String password) throws Exception {
         // 1. Validate Mnemonic
@@ -65,41 +105,203 @@ public class WalletService {
         }
 
         // 2. Derive Private Key (BIP-44: m/44'/60'/0'/0/0)
-        // Seed generation
-        byte[] seed = MnemonicUtils.generateSeed(mnemonic, null);
-        Bip32ECKeyPair masterKey = Bip32ECKeyPair.generateKeyPair(seed);
-        
-        // m/44'/60'/0'/0/0
-        final int[] path = {44 | Bip32ECKeyPair.HARDENED_BIT, 60 | Bip32ECKeyPair.HARDENED_BIT, 0 | Bip32ECKeyPair.HARDENED_BIT, 0, 0};
-        Bip32ECKeyPair derivedKey = Bip32ECKeyPair.deriveKeyPair(masterKey, path);
+        // The key chain keeps m/44'/60'/0'/0, so discovery below derives each account in one step.
+        HdKeyChain keyChain = HdKeyChain.fromMnemonic(mnemonic);
+        Bip32ECKeyPair derivedKey = keyChain.deriveKeyPair(0);
         
         Credentials credentials = Credentials.create(derivedKey);
-        String privateKey = derivedKey.getPrivateKey().toString(16);
         String address = credentials.getAddress();
 
         // 3. Encrypt Private Key
-        String encryptedJson = CryptoUtil.encrypt(privateKey, password);
+        byte[] hex = keyToHex(derivedKey.getPrivateKey());
+        char[] chars = password.toCharArray();
+        String encryptedJson;
+        try {
+            encryptedJson = CryptoUtil.encryptToJson(hex, chars, kdfParams());
+        } finally {
+            Arrays.fill(hex, (byte) 0);
+            Arrays.fill(chars, '\0');
+        }
 
         // 4. Save to DB
         WalletProfile profile = new WalletProfile(profileName, address, encryptedJson);
         walletDao.save(profile);
+
+        // 5. Record account 0 and look for more
+        if (walletAccountDao != null) {
+            walletAccountDao.saveAll(Collections.singletonList(
+                    new WalletAccount(profile.getId(), 0, address, HdKeyChain.pathOf(0), false)));
+            discoverAccounts(profile, keyChain).exceptionally(ex -> {
+                ex.printStackTrace();
+                return Collections.emptyList();
+            });
+        }
+    }
+
+    /**
+     * Argon2id costs for new keys, calibrated on this machine to the configured unlock time.
+     */
+    static KdfParams kdfParams() {
+        return KdfParams.calibrated(DatabaseConfig.getKdfTargetMillis(), DatabaseConfig.getKdfMaxMemoryMb() * 1024);
+    }
+
+    /**
+     * Probes the profile's HD addresses for balance and nonce up to the configured gap limit and stores
+     * every account up to the last used one.
+     */
+    public CompletableFuture<List<WalletAccount>> discoverAccounts(WalletProfile profile, HdKeyChain keyChain) {
+        AccountDiscovery discovery = new AccountDiscovery(
+                AccountDiscovery.balanceOrNonceProbe(networkManager.getWeb3j()),
+                DatabaseConfig.getWalletDiscoveryGapLimit(),
+                DatabaseConfig.getWalletDiscoveryBatchSize(),
+                DatabaseConfig.getWalletDiscoveryMaxAccounts());
+        return CompletableFuture.supplyAsync(() -> {
+            List<WalletAccount> accounts = discovery.discover(keyChain, profile.getId());
+            if (walletAccountDao != null) {
+                walletAccountDao.saveAll(accounts);
+            }
+            return accounts;
+        }, DISCOVERY_EXECUTOR);
+    }
+
+    /**
+     * HD accounts stored for a profile, in index order.
+     */
+    public List<WalletAccount> getAccounts(String profileName) {
+        if (walletAccountDao == null) {
+            return Collections.emptyList();
+        }
+        return walletDao.findByProfileName(profileName)
+                .map(profile -> walletAccountDao.findByProfileId(profile.getId()))
+                .orElse(Collections.emptyList());
     }
 
     /**
-     * Loads a wallet's private key by decrypting it.
+     * Decrypts a wallet's private key for display, as {@code 0x} and 64 lowercase hex digits.
+     * {@code password} is not modified; the caller zeroes the result once it has been shown.
      */
-    public String getPrivateKey(String profileName, String password) throws Exception {
+    public char[] getPrivateKey(String profileName, char[] password) throws Exception {
         Optional<WalletProfile> profileOpt = walletDao.findByProfileName(profileName);
         if (profileOpt.isEmpty()) {
             throw new IllegalArgumentException("Wallet profile not found: " + profileName);
         }
 
         WalletProfile profile = profileOpt.get();
+        byte[] hex;
         try {
-            return CryptoUtil.decrypt(profile.getEncryptedJson(), password);
+            hex = CryptoUtil.decryptToBytes(profile.getEncryptedJson(), password);
         } catch (Exception e) {
             throw new AuthenticationException("Incorrect password or corrupted key.");
         }
+        byte[] key = null;
+        try {
+            key = hexToKey(hex);
+            char[] out = new char[2 + key.length * 2];
+            out[0] = '0';
+            out[1] = 'x';
+            for (int i = 0; i < key.length; i++) {
+                out[2 + 2 * i] = Character.forDigit((key[i] >> 4) & 0xf, 16);
+                out[3 + 2 * i] = Character.forDigit(key[i] & 0xf, 16);
+            }
+            return out;
+        } finally {
+            Arrays.fill(hex, (byte) 0);
+            if (key != null) {
+                Arrays.fill(key, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Decrypts the profile's key once and keeps it in the session vault, so signing does not re-run the KDF.
+     * A key stored in an older format or with weaker KDF costs than this machine calibrates to is re-encrypted
+     * in the background.
+     */
+    public void unlock(String profileName, String password) throws Exception {
+        Optional<WalletProfile> profileOpt = walletDao.findByProfileName(profileName);
+        if (profileOpt.isEmpty()) {
+            throw new IllegalArgumentException("Wallet profile not found: " + profileName);
+        }
+
+        WalletProfile profile = profileOpt.get();
+        char[] chars = password.toCharArray();
+        byte[] hex = null;
+        try {
+            try {
+                hex = CryptoUtil.decryptToBytes(profile.getEncryptedJson(), chars);
+            } catch (Exception e) {
+                throw new AuthenticationException("Incorrect password or corrupted key.");
+            }
+            keyVault.unlock(profileName, hexToKey(hex), chars);
+            // Copies for the background re-encryption are only made when there is something to upgrade.
+            if (CryptoUtil.needsRehash(profile.getEncryptedJson(), kdfParams())) {
+                rehashIfOutdated(profile, hex.clone(), chars.clone()).exceptionally(ex -> {
+                    ex.printStackTrace();
+                    return false;
+                });
+            }
+        } finally {
+            Arrays.fill(chars, '\0');
+            if (hex != null) {
+                Arrays.fill(hex, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Re-encrypts {@code profile}'s key with the current envelope and calibrated KDF if its stored blob is
+     * outdated. The row is only replaced if nobody changed it meanwhile. Takes over {@code plainText} (the
+     * stored hex key) and {@code password} and zeroes both once done.
+     * @return whether a new blob was stored.
+     */
+    CompletableFuture<Boolean> rehashIfOutdated(WalletProfile profile, byte[] plainText, char[] password) {
+        String current = profile.getEncryptedJson();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                KdfParams target = kdfParams();
+                if (!CryptoUtil.needsRehash(current, target)) {
+                    return false;
+                }
+                String upgraded = CryptoUtil.encryptToJson(plainText, password, target);
+                return walletDao.replaceEncryptedJson(profile.getId(), current, upgraded);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                Arrays.fill(plainText, (byte) 0);
+                Arrays.fill(password, '\0');
+            }
+        }, REHASH_EXECUTOR);
+    }
+
+    public boolean isUnlocked(String profileName) {
+        return keyVault.isUnlocked(profileName);
+    }
+
+    public void lock(String profileName) {
+        keyVault.lock(profileName);
+    }
+
+    public void lockAll() {
+        keyVault.lockAll();
+    }
+
+    /**
+     * Runs {@code callback} with the profile's credentials. {@code password} is checked against an open
+     * session without re-running the KDF; otherwise it unlocks a new one first.
+     */
+    public <T> T withCredentials(String profileName, String password, SessionKeyVault.SigningCallback<T> callback) throws Exception {
+        if (!keyVault.isUnlocked(profileName)) {
+            unlock(profileName, password);
+            return keyVault.withCredentials(profileName, callback);
+        }
+        char[] chars = password != null ? password.toCharArray() : null;
+        try {
+            return keyVault.withCredentials(profileName, chars, callback);
+        } finally {
+            if (chars != null) {
+                Arrays.fill(chars, '\0');
+            }
+        }
     }
 
     /**
@@ -119,6 +321,7 @@ public class WalletService {
 
     /**
      * Sends ETH from the specified wallet profile to a recipient address.
+     * Returns once a node has accepted the transaction; its log entry is updated when it is mined.
      * @param profileName The name of the sender's wallet profile.
      * @param password The password to decrypt the private key.
      * @param toAddress The recipient's Ethereum address.
@@ -126,46 +329,108 @@ public class WalletService {
      * @return The transaction hash.
      */
     public String sendTransaction(String profileName, String password, String toAddress, BigDecimal amount) throws Exception {
-        // 1. Get Private Key
-        String privateKey = getPrivateKey(profileName, password);
-        Credentials credentials = Credentials.create(privateKey);
+        String networkId = networkManager.getActiveNetworkId();
+        String txHash = broadcastTransfer(networkId, profileName, password, toAddress, amount);
+        transactionTracker.track(networkId, txHash, DatabaseConfig.getTxConfirmations());
+        return txHash;
+    }
 
-        Web3j web3j = networkManager.getWeb3j();
+    /**
+     * Sends ETH without blocking the caller: signing and broadcast run in the background and the returned
+     * handle reports broadcast, inclusion and confirmation separately.
+     */
+    public TransactionHandle sendTransactionAsync(String profileName, String password, String toAddress, BigDecimal amount) {
+        String networkId = networkManager.getActiveNetworkId();
+        CompletableFuture<String> broadcast = CompletableFuture.supplyAsync(() -> {
+            try {
+                return broadcastTransfer(networkId, profileName, password, toAddress, amount);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, SEND_EXECUTOR);
+        return transactionTracker.track(networkId, broadcast, DatabaseConfig.getTxConfirmations());
+    }
 
-        // 2. Check Balance (Optional but good practice)
-        // Note: This is async, so we block here for simplicity in this method, or we could chain futures.
-        // For now, we let the node reject if insufficient funds, but we catch the exception.
+    public TransactionTracker getTransactionTracker() {
+        return transactionTracker;
+    }
 
-        try {
-            // 3. Send Transaction
-            org.web3j.protocol.core.methods.response.TransactionReceipt receipt = 
-                org.web3j.tx.Transfer.sendFunds(
-                    web3j, 
-                    credentials, 
-                    toAddress, 
-                    amount, 
-                    Convert.Unit.ETHER
-                ).send();
-
-            String txHash = receipt.getTransactionHash();
-
-            // 4. Log Transaction
-            TransactionLog log = new TransactionLog(
-                credentials.getAddress(),
-                txHash,
-                amount,
-                "ETH",
-                receipt.isStatusOK() ? "SUCCESS" : "FAILED"
-            );
-            transactionLogDao.save(log);
-
-            return txHash;
-        } catch (Exception e) {
-            // Check for specific Web3j errors if possible
-            if (e.getMessage().contains("insufficient funds")) {
-                throw new InsufficientFundsException("Insufficient funds for transaction + gas.");
+    private String broadcastTransfer(String networkId, String profileName, String password, String toAddress,
+                                     BigDecimal amount) throws Exception {
+        // 1. Get Credentials (from the unlocked session when there is one)
+        return withCredentials(profileName, password, credentials -> {
+            try {
+                // 2. Price from the network's fee oracle (no RPC), sign with a locally reserved nonce and
+                // broadcast; mining is not awaited, so several sends can go out back to back.
+                FeeOracle.Quote fee = networkManager.getFeeOracle(networkId).quote(FeeOracle.Speed.NORMAL);
+                BigInteger value = Convert.toWei(amount, Convert.Unit.ETHER).toBigIntegerExact();
+                String txHash = transactionSender.send(
+                        credentials,
+                        networkId,
+                        toAddress,
+                        value,
+                        "",
+                        fee,
+                        Transfer.GAS_LIMIT
+                );
+
+                // 3. Log Transaction
+                TransactionLog log = new TransactionLog(
+                    credentials.getAddress(),
+                    txHash,
+                    amount,
+                    "ETH",
+                    "PENDING"
+                );
+                log.setNetworkId(networkId);
+                transactionLogDao.save(log);
+
+                return txHash;
+            } catch (OpenWalletException e) {
+                throw e;
+            } catch (Exception e) {
+                // Check for specific Web3j errors if possible
+                if (e.getMessage() != null && e.getMessage().contains("insufficient funds")) {
+                    throw new InsufficientFundsException("Insufficient funds for transaction + gas.");
+                }
+                throw new OpenWalletException("Transaction failed: " + e.getMessage(), e);
             }
-            throw new OpenWalletException("Transaction failed: " + e.getMessage(), e);
+        });
+    }
+
+    /**
+     * Parses the stored hex key (as written by {@link #importWallet}, possibly without leading zeros)
+     * into a 32-byte big-endian array.
+     */
+    static byte[] hexToKey(byte[] hex) throws AuthenticationException {
+        byte[] key = new byte[SessionKeyVault.KEY_LENGTH];
+        int start = hex.length >= 2 && hex[0] == '0' && (hex[1] == 'x' || hex[1] == 'X') ? 2 : 0;
+        int digits = hex.length - start;
+        if (digits <= 0 || digits > key.length * 2) {
+            throw new AuthenticationException("Incorrect password or corrupted key.");
+        }
+        for (int i = 0; i < digits; i++) {
+            int d = Character.digit(hex[hex.length - 1 - i], 16);
+            if (d < 0) {
+                Arrays.fill(key, (byte) 0);
+                throw new AuthenticationException("Incorrect password or corrupted key.");
+            }
+            key[key.length - 1 - i / 2] |= (byte) (i % 2 == 0 ? d : d << 4);
+        }
+        return key;
+    }
+
+    /**
+     * Writes a private key as the 64 lowercase ASCII hex digits that are encrypted into a profile.
+     */
+    static byte[] keyToHex(BigInteger privateKey) {
+        byte[] key = Numeric.toBytesPadded(privateKey, SessionKeyVault.KEY_LENGTH);
+        byte[] hex = new byte[key.length * 2];
+        for (int i = 0; i < key.length; i++) {
+            hex[2 * i] = (byte) Character.forDigit((key[i] >> 4) & 0xf, 16);
+            hex[2 * i + 1] = (byte) Character.forDigit(key[i] & 0xf, 16);
         }
+        Arrays.fill(key, (byte) 0);
+        return hex;
     }
 }
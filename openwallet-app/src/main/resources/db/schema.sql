@@ -16,5 +16,32 @@ CREATE TABLE IF NOT EXISTS transaction_logs (
     amount DECIMAL(30, 18),
     token_symbol VARCHAR(10),
     status VARCHAR(20),
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    network_id VARCHAR(64),
+    block_number BIGINT,
+    gas_used BIGINT,
+    fee_wei DECIMAL(40, 0),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_transaction_logs_status (status, id),
+    INDEX idx_transaction_logs_tx_hash (tx_hash)
+);
+
+-- Upgrades for databases created before receipts were recorded; DatabaseInitializer skips
+-- columns and indexes that already exist.
+ALTER TABLE transaction_logs ADD COLUMN network_id VARCHAR(64);
+ALTER TABLE transaction_logs ADD COLUMN block_number BIGINT;
+ALTER TABLE transaction_logs ADD COLUMN gas_used BIGINT;
+ALTER TABLE transaction_logs ADD COLUMN fee_wei DECIMAL(40, 0);
+CREATE INDEX idx_transaction_logs_status ON transaction_logs (status, id);
+CREATE INDEX idx_transaction_logs_tx_hash ON transaction_logs (tx_hash);
+
+CREATE TABLE IF NOT EXISTS wallet_accounts (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    profile_id INT NOT NULL,
+    account_index INT NOT NULL,
+    wallet_address VARCHAR(42) NOT NULL,
+    derivation_path VARCHAR(64) NOT NULL,
+    used BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uq_wallet_accounts_profile_index (profile_id, account_index),
+    FOREIGN KEY (profile_id) REFERENCES wallet_profiles(id) ON DELETE CASCADE
 );
@@ -0,0 +1,92 @@
+package io.openwallet.crypto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the JSON/String and the binary/char[] paths of {@link CryptoUtil} around the KDF.
+ *
+ * The KDF is a single PBKDF2 round so that it does not drown out what is measured; real keys spend ~250 ms in
+ * Argon2id on top of this. Not run by the test suite. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.openwallet.crypto.CryptoUtilBenchmark},
+ * or from the IDE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoUtilBenchmark {
+
+    private static final KdfParams KDF = KdfParams.pbkdf2(1);
+    private static final String PRIVATE_KEY = "1ab42cc412b618bdea3a599e3c9bae199ebf030895b039e9db1e30dafb12b727";
+
+    private final char[] password = "correct horse battery staple".toCharArray();
+    private final byte[] plain = PRIVATE_KEY.getBytes(StandardCharsets.UTF_8);
+    private final ByteBuffer plainBuffer = ByteBuffer.wrap(plain);
+    private final ByteBuffer envelopeBuffer = ByteBuffer.allocateDirect(CryptoUtil.envelopeLength(plain.length));
+    private final ByteBuffer outBuffer = ByteBuffer.allocateDirect(plain.length);
+    private String json;
+    private byte[] envelope;
+
+    @Setup
+    public void setUp() throws Exception {
+        json = CryptoUtil.encrypt(PRIVATE_KEY, new String(password), KDF);
+        envelope = CryptoUtil.encrypt(plain, password, KDF);
+    }
+
+    @Benchmark
+    public String encryptJson() throws Exception {
+        return CryptoUtil.encrypt(PRIVATE_KEY, new String(password), KDF);
+    }
+
+    @Benchmark
+    public byte[] decryptJson() throws Exception {
+        return CryptoUtil.decryptToBytes(json, new String(password));
+    }
+
+    @Benchmark
+    public byte[] encryptBinary() throws Exception {
+        return CryptoUtil.encrypt(plain, password, KDF);
+    }
+
+    @Benchmark
+    public byte[] decryptBinary() throws Exception {
+        return CryptoUtil.decrypt(envelope, password);
+    }
+
+    @Benchmark
+    public int encryptIntoBuffer() throws Exception {
+        plainBuffer.clear();
+        envelopeBuffer.clear();
+        return CryptoUtil.encrypt(plainBuffer, password, KDF, envelopeBuffer);
+    }
+
+    @Benchmark
+    public int decryptIntoBuffer() throws Exception {
+        outBuffer.clear();
+        return CryptoUtil.decrypt(ByteBuffer.wrap(envelope), password, outBuffer);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CryptoUtilBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -1,6 +1,14 @@
 package io.openwallet.crypto;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class CryptoUtilTest {
@@ -30,4 +38,113 @@ class CryptoUtilTest {
             CryptoUtil.decrypt(encryptedJson, wrongPassword);
         });
     }
+
+    @Test
+    void storesTheArgon2idParametersItEncryptedWith() throws Exception {
+        KdfParams kdf = KdfParams.argon2id(2, 8 * 1024, 2);
+        String encryptedJson = CryptoUtil.encrypt("data", "pass", kdf);
+
+        EncryptedData data = new ObjectMapper().readValue(encryptedJson, EncryptedData.class);
+        assertEquals("argon2id", data.getKdf());
+        assertEquals(kdf, data.getKdfParams());
+        assertEquals("data", CryptoUtil.decrypt(encryptedJson, "pass"));
+    }
+
+    @Test
+    void blobsWithoutKdfFieldsStillDecryptWithLegacyPbkdf2() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode legacy = (ObjectNode) mapper.readTree(CryptoUtil.encrypt("data", "pass", KdfParams.legacyPbkdf2()));
+        legacy.remove(List.of("version", "cipher", "kdf", "iterations"));
+        assertEquals(3, legacy.size());
+
+        assertEquals("data", CryptoUtil.decrypt(mapper.writeValueAsString(legacy), "pass"));
+    }
+
+    @Test
+    void calibrationStaysAtOrAboveTheMinimumAndWithinTheMemoryCap() {
+        KdfParams params = KdfParams.calibrate(50, 32 * 1024);
+
+        assertEquals(KdfParams.ARGON2ID, params.getAlgorithm());
+        assertTrue(params.getMemoryKiB() >= KdfParams.MIN_MEMORY_KIB, params.toString());
+        assertTrue(params.getMemoryKiB() <= 32 * 1024, params.toString());
+        if (params.getMemoryKiB() == KdfParams.MIN_MEMORY_KIB) {
+            assertTrue(params.getIterations() >= KdfParams.MIN_ITERATIONS_AT_MIN_MEMORY, params.toString());
+        }
+        assertSame(KdfParams.calibrated(50, 32 * 1024), KdfParams.calibrated(50, 32 * 1024));
+    }
+
+    @Test
+    void onlyOutdatedOrWeakerEnvelopesNeedARehash() throws Exception {
+        KdfParams target = KdfParams.argon2id(2, 16 * 1024, 1);
+        String current = CryptoUtil.encrypt("data", "pass", KdfParams.argon2id(2, 14 * 1024, 1));
+
+        assertFalse(CryptoUtil.needsRehash(current, target), "within calibration slack");
+        assertTrue(CryptoUtil.needsRehash(current, KdfParams.argon2id(1, 64 * 1024, 1)));
+        assertTrue(CryptoUtil.needsRehash(CryptoUtil.encrypt("data", "pass", KdfParams.legacyPbkdf2()), target));
+        assertFalse(CryptoUtil.needsRehash(CryptoUtil.encrypt("data", "pass", KdfParams.argon2id(3, 64 * 1024, 1)), target),
+                "stronger keys are never downgraded");
+
+        ObjectNode future = (ObjectNode) new ObjectMapper().readTree(current);
+        future.put("version", EncryptedData.CURRENT_VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> CryptoUtil.decrypt(future.toString(), "pass"));
+    }
+
+    @Test
+    void binaryEnvelopeRoundTripsWithAFixedLayout() throws Exception {
+        KdfParams kdf = KdfParams.argon2id(1, 8 * 1024, 1);
+        byte[] plain = "super_secret_private_key".getBytes(StandardCharsets.UTF_8);
+        char[] password = "strong_password".toCharArray();
+
+        byte[] envelope = CryptoUtil.encrypt(plain, password, kdf);
+        assertEquals(CryptoUtil.envelopeLength(plain.length), envelope.length);
+        assertEquals('O', envelope[0]);
+        assertEquals('W', envelope[1]);
+        assertEquals(EncryptedData.CURRENT_VERSION, envelope[2]);
+        assertEquals(8 * 1024, ByteBuffer.wrap(envelope, 8, 4).getInt());
+        assertArrayEquals(plain, CryptoUtil.decrypt(envelope, password));
+        assertArrayEquals("strong_password".toCharArray(), password, "the caller's password is left alone");
+
+        // Direct buffers work too, and a wrong password leaves nothing behind in the output.
+        ByteBuffer out = ByteBuffer.allocateDirect(plain.length);
+        assertThrows(AEADBadTagException.class,
+                () -> CryptoUtil.decrypt(ByteBuffer.wrap(envelope), "wrong".toCharArray(), out));
+        assertEquals(0, out.position());
+        assertEquals(plain.length, CryptoUtil.decrypt(ByteBuffer.wrap(envelope), password, out));
+        byte[] read = new byte[plain.length];
+        out.flip().get(read);
+        assertArrayEquals(plain, read);
+
+        envelope[0] = 'X';
+        assertThrows(IllegalArgumentException.class, () -> CryptoUtil.decrypt(envelope, password));
+    }
+
+    @Test
+    void envelopesAskingForExcessiveKdfCostsAreRejectedBeforeDeriving() throws Exception {
+        char[] password = "pass".toCharArray();
+        byte[] envelope = CryptoUtil.encrypt(new byte[32], password, KdfParams.argon2id(1, 8 * 1024, 1));
+
+        // Anything past the caps never reaches Argon2, from 1 KiB over the memory ceiling up to 2 TiB.
+        for (int memoryKiB : new int[] {KdfParams.MAX_MEMORY_KIB + 1, Integer.MAX_VALUE}) {
+            byte[] memory = envelope.clone();
+            ByteBuffer.wrap(memory).putInt(8, memoryKiB);
+            assertThrows(IllegalArgumentException.class, () -> CryptoUtil.decrypt(memory, password));
+        }
+        for (int iterations : new int[] {KdfParams.MAX_ITERATIONS + 1, Integer.MAX_VALUE}) {
+            byte[] passes = envelope.clone();
+            ByteBuffer.wrap(passes).putInt(4, iterations);
+            assertThrows(IllegalArgumentException.class, () -> CryptoUtil.decrypt(passes, password));
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode lanes = (ObjectNode) mapper.readTree(CryptoUtil.encrypt("data", "pass", KdfParams.argon2id(1, 8 * 1024, 1)));
+        lanes.put("parallelism", KdfParams.MAX_LANES + 1);
+        assertThrows(IllegalArgumentException.class, () -> CryptoUtil.decrypt(lanes.toString(), "pass"));
+        ObjectNode pbkdf2 = (ObjectNode) mapper.readTree(CryptoUtil.encrypt("data", "pass", KdfParams.legacyPbkdf2()));
+        pbkdf2.put("iterations", KdfParams.MAX_PBKDF2_ITERATIONS + 1);
+        assertThrows(IllegalArgumentException.class, () -> CryptoUtil.decrypt(pbkdf2.toString(), "pass"));
+
+        // The costs calibration can pick stay readable.
+        assertEquals(KdfParams.DEFAULT_MAX_MEMORY_KIB,
+                KdfParams.argon2id(KdfParams.MAX_ITERATIONS, KdfParams.DEFAULT_MAX_MEMORY_KIB, 4).getMemoryKiB());
+    }
 }
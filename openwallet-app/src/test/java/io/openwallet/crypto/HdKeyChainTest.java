@@ -0,0 +1,41 @@
+package io.openwallet.crypto;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Bip32ECKeyPair;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.MnemonicUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HdKeyChainTest {
+
+    private static final String MNEMONIC =
+            "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon about";
+
+    @Test
+    void derivesKnownBip44Addresses() {
+        HdKeyChain chain = HdKeyChain.fromMnemonic(MNEMONIC);
+
+        assertEquals("0x9858effd232b4033e47d90003d41ec34ecaeda94", chain.deriveAddress(0));
+        assertEquals("0x6fac4d18c912343bf86fa7049364dd4e424ab9c0", chain.deriveAddress(1));
+        assertEquals("m/44'/60'/0'/0/7", HdKeyChain.pathOf(7));
+    }
+
+    @Test
+    void parallelDerivationMatchesFullPathDerivation() {
+        Bip32ECKeyPair master = Bip32ECKeyPair.generateKeyPair(MnemonicUtils.generateSeed(MNEMONIC, null));
+        HdKeyChain chain = new HdKeyChain(master);
+
+        List<String> addresses = chain.deriveAddresses(0, 100);
+
+        assertEquals(100, addresses.size());
+        for (int i : new int[]{0, 1, 42, 99}) {
+            int[] path = {44 | Bip32ECKeyPair.HARDENED_BIT, 60 | Bip32ECKeyPair.HARDENED_BIT, Bip32ECKeyPair.HARDENED_BIT, 0, i};
+            Credentials direct = Credentials.create(Bip32ECKeyPair.deriveKeyPair(master, path));
+            assertEquals(direct.getAddress(), addresses.get(i), "index " + i);
+            assertEquals(direct.getEcKeyPair().getPrivateKey(), chain.deriveKeyPair(i).getPrivateKey());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.openwallet.crypto;
+
+import io.openwallet.exception.AuthenticationException;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.utils.Numeric;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionKeyVaultTest {
+
+    private static final String KEY = "0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318";
+
+    @Test
+    void signsWithUnlockedKeyAndZeroesTheInput() throws Exception {
+        SessionKeyVault vault = new SessionKeyVault(60_000, 600_000, System::nanoTime, false);
+        byte[] key = Numeric.hexStringToByteArray(KEY);
+
+        vault.unlock("alice", key);
+
+        assertArrayEquals(new byte[32], key);
+        String address = vault.withCredentials("alice", Credentials::getAddress);
+        assertEquals(Credentials.create(KEY).getAddress(), address);
+
+        vault.lock("alice");
+        assertFalse(vault.isUnlocked("alice"));
+        assertThrows(AuthenticationException.class, () -> vault.withCredentials("alice", Credentials::getAddress));
+    }
+
+    @Test
+    void passwordCheckedSessionsRejectOtherPasswords() throws Exception {
+        SessionKeyVault vault = new SessionKeyVault(60_000, 600_000, System::nanoTime, false);
+        char[] password = "secret".toCharArray();
+        vault.unlock("alice", Numeric.hexStringToByteArray(KEY), password);
+        assertArrayEquals("secret".toCharArray(), password);
+
+        assertEquals(Credentials.create(KEY).getAddress(),
+                vault.withCredentials("alice", "secret".toCharArray(), Credentials::getAddress));
+        assertThrows(AuthenticationException.class,
+                () -> vault.withCredentials("alice", "Secret".toCharArray(), Credentials::getAddress));
+        assertThrows(AuthenticationException.class, () -> vault.withCredentials("alice", null, Credentials::getAddress));
+
+        // A session unlocked without a password cannot be used through the password check at all.
+        vault.unlock("bob", Numeric.hexStringToByteArray(KEY));
+        assertThrows(AuthenticationException.class,
+                () -> vault.withCredentials("bob", "secret".toCharArray(), Credentials::getAddress));
+    }
+
+    @Test
+    void expiresOnIdleTimeoutAndAbsoluteTtl() throws Exception {
+        AtomicLong now = new AtomicLong();
+        SessionKeyVault vault = new SessionKeyVault(10_000, 30_000, now::get, false);
+        vault.unlock("alice", Numeric.hexStringToByteArray(KEY));
+
+        // Activity keeps the session alive...
+        for (int i = 0; i < 2; i++) {
+            now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+            vault.withCredentials("alice", c -> null);
+        }
+        assertTrue(vault.isUnlocked("alice"));
+
+        // ...until ten idle seconds pass.
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertFalse(vault.isUnlocked("alice"));
+
+        vault.unlock("alice", Numeric.hexStringToByteArray(KEY));
+        for (int i = 0; i < 3; i++) {
+            now.addAndGet(TimeUnit.SECONDS.toNanos(8));
+            vault.withCredentials("alice", c -> null);
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(8));
+        vault.sweep();
+        // Never idle for ten seconds, but 32 s past unlock is beyond the 30 s TTL.
+        assertFalse(vault.isUnlocked("alice"));
+    }
+}
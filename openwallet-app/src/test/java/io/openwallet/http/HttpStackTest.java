@@ -0,0 +1,64 @@
+package io.openwallet.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpStackTest {
+
+    private static final String BODY = "{\"ownedNfts\":[],\"pageKey\":null}".repeat(50);
+
+    private HttpServer server;
+    private final List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void decodesGzipAndDeflateAndReusesConnections() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            acceptEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            String encoding = exchange.getRequestURI().getPath().substring(1);
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            try (OutputStream enc = "gzip".equals(encoding) ? new GZIPOutputStream(buf) : new DeflaterOutputStream(buf)) {
+                enc.write(BODY.getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] out = buf.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", encoding);
+            exchange.sendResponseHeaders(200, out.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(out);
+            }
+        });
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+        HttpStack stack = new HttpStack(null, 4, 60, 8, 2, 5, 5);
+        assertEquals(BODY, stack.getAsync(base + "gzip").join().bodyString());
+        assertEquals(BODY, stack.getAsync(base + "deflate").join().bodyString());
+        assertEquals(BODY, stack.getAsync(base + "gzip").join().bodyString());
+
+        assertTrue(acceptEncodings.stream().allMatch("gzip, deflate"::equals));
+        HttpStack.Stats stats = stack.stats();
+        assertEquals(3, stats.getTotalCalls());
+        assertEquals(1, stats.getConnectionsOpened());
+        assertEquals(2, stats.getConnectionsReused());
+        stack.shutdown();
+    }
+}
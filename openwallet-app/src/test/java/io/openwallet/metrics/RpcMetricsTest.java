@@ -0,0 +1,91 @@
+package io.openwallet.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RpcMetricsTest {
+
+    @Test
+    void histogramPercentilesStayWithinBucketError() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            h.record(i * 100L);
+        }
+        assertEquals(10_000, h.getCount());
+        assertEquals(500.0, h.percentileMillis(50), 500.0 * 0.04);
+        assertEquals(990.0, h.percentileMillis(99), 990.0 * 0.04);
+        assertEquals(1000.0, h.getMaxMillis());
+        assertEquals(1000.0, h.percentileMillis(100));
+    }
+
+    @Test
+    void bucketBoundsCoverEveryValue() {
+        for (long v : new long[]{0, 1, 63, 64, 65, 127, 128, 1_000, 123_456, 9_999_999_999L}) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(LatencyHistogram.valueOf(index) >= v, "upper bound below " + v);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.valueOf(index - 1) < v, "previous bucket covers " + v);
+            }
+        }
+    }
+
+    @Test
+    void outcomesAreCountedPerSeries() {
+        RpcMetrics metrics = new RpcMetrics();
+        metrics.startRpc("rpc.example", "eth_getLogs").success();
+        metrics.startRpc("rpc.example", "eth_getLogs").rpcError();
+        metrics.startRpc("rpc.example", "eth_call").failure(new CompletionException(new SocketTimeoutException("timeout")));
+        RpcMetrics.Timer open = metrics.startRpc("other.example", "eth_call");
+
+        CallStats getLogs = metrics.get(RpcMetrics.METHOD, "eth_getLogs");
+        assertEquals(2, getLogs.getCalls());
+        assertEquals(1, getLogs.getRpcErrors());
+        assertEquals(0, getLogs.getErrors());
+
+        CallStats call = metrics.get(RpcMetrics.METHOD, "eth_call");
+        assertEquals(1, call.getTimeouts());
+        assertEquals(1, call.getErrors());
+        assertEquals(1, call.getInFlight());
+
+        open.success();
+        open.success();
+        assertEquals(0, call.getInFlight());
+        assertEquals(2, call.getCalls());
+        assertEquals(3, metrics.get(RpcMetrics.ENDPOINT, "rpc.example").getCalls());
+        assertEquals(1, metrics.get(RpcMetrics.ENDPOINT_METHOD, "other.example eth_call").getCalls());
+
+        metrics.recordPayload("rpc.example", List.of("eth_getLogs", "eth_call"), 200, 1000);
+        assertEquals(100, getLogs.getRequestBytes());
+        assertEquals(500, call.getResponseBytes());
+        assertEquals(1000, metrics.get(RpcMetrics.ENDPOINT, "rpc.example").getResponseBytes());
+    }
+
+    @Test
+    void seriesArePublishedOverJmx() throws Exception {
+        RpcMetrics metrics = new RpcMetrics();
+        metrics.startHttp("nft.example", "nft.getNFTsForOwner").success();
+        metrics.registerMBeans("io.openwallet.test");
+        metrics.startRpc("rpc.example:8545", "eth_getLogs").success();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName http = new ObjectName("io.openwallet.test:type=RpcMetrics,scope=http,name=" + ObjectName.quote("nft.getNFTsForOwner"));
+        ObjectName endpoint = new ObjectName("io.openwallet.test:type=RpcMetrics,scope=endpoint,name=" + ObjectName.quote("rpc.example:8545"));
+        assertEquals(1L, server.getAttribute(http, "Calls"));
+        assertEquals(1L, server.getAttribute(endpoint, "Calls"));
+        assertNotNull(server.getAttribute(endpoint, "P99Millis"));
+    }
+
+    @Test
+    void endpointLabelDropsPathAndQuery() {
+        assertEquals("eth-sepolia.g.alchemy.com", RpcMetrics.endpointOf("https://eth-sepolia.g.alchemy.com/v2/secret-key"));
+        assertEquals("127.0.0.1:8545", RpcMetrics.endpointOf("http://127.0.0.1:8545/"));
+    }
+}
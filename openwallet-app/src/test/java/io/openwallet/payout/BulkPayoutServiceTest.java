@@ -0,0 +1,280 @@
+package io.openwallet.payout;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.openwallet.rpc.FakeNode;
+import io.openwallet.db.TransactionLogDao;
+import io.openwallet.model.TransactionLog;
+import io.openwallet.rpc.BatchingHttpService;
+import io.openwallet.rpc.FeeOracle;
+import io.openwallet.rpc.NonceManager;
+import io.openwallet.rpc.ReceiptPoller;
+import io.openwallet.service.NetworkManager;
+import io.openwallet.service.TokenRepository;
+import io.openwallet.service.TokenService;
+import io.openwallet.service.TransactionTracker;
+import io.openwallet.service.WalletService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.crypto.transaction.type.Transaction1559;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.sql.SQLException;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BulkPayoutServiceTest {
+
+    private static final Credentials SENDER =
+            Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+    private static final String CSV = String.join("\n",
+            "recipient,amount,token",
+            "0x9858effd232b4033e47d90003d41ec34ecaeda94,0.5,ETH",
+            "0x6fac4d18c912343bf86fa7049364dd4e424ab9c0,1.25",
+            "# not a row",
+            "0xnot-an-address,1,ETH",
+            "0x9858effd232b4033e47d90003d41ec34ecaeda94,-2,ETH",
+            "0x6fac4d18c912343bf86fa7049364dd4e424ab9c0,0.000000000000000001,eth",
+            "");
+
+    /** Raw transactions the fake node has accepted, by hash. */
+    private final Map<String, String> accepted = new ConcurrentHashMap<>();
+    private final AtomicInteger sendCalls = new AtomicInteger();
+    /** Set to make the node take the next transaction and then drop the connection without answering. */
+    private final AtomicBoolean hangUpAfterAccept = new AtomicBoolean();
+    /** Nonce the node rejects once with a JSON-RPC error, or -1. */
+    private volatile long rejectNonce = -1;
+    private FakeNode node;
+    private Web3j web3j;
+    private ReceiptPoller poller;
+    private NetworkManager networkManager;
+    private WalletService walletService;
+    private InMemoryLogs dao;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // No silent retries: a dropped connection must reach the payout as an unanswered broadcast.
+        web3j = Web3j.build(new BatchingHttpService(startServer(),
+                HttpService.getOkHttpClientBuilder().retryOnConnectionFailure(false).build(), 50, 2));
+        poller = new ReceiptPoller(() -> web3j, 60_000, 60_000);
+        networkManager = mock(NetworkManager.class);
+        when(networkManager.getWeb3j("sepolia")).thenReturn(web3j);
+        when(networkManager.getChainId("sepolia")).thenReturn(11155111L);
+        when(networkManager.getReceiptPoller("sepolia")).thenReturn(poller);
+        when(networkManager.getFeeOracle("sepolia")).thenReturn(new FeeOracle(() -> web3j, 60_000, 20));
+        NonceManager nonces = new NonceManager(() -> BigInteger.valueOf(5 + accepted.size()));
+        when(networkManager.getNonceManager(eq("sepolia"), anyString())).thenReturn(nonces);
+
+        dao = new InMemoryLogs();
+        walletService = mock(WalletService.class);
+        when(walletService.getTransactionTracker()).thenReturn(new TransactionTracker(networkManager, dao));
+    }
+
+    @AfterEach
+    void stop() {
+        poller.close();
+        web3j.shutdown();
+        node.close();
+    }
+
+    @Test
+    void signsInParallelWithConsecutiveNoncesAndLogsInBatches() throws Exception {
+        Path csv = Files.writeString(dir.resolve("payout.csv"), CSV);
+        List<PayoutRow> seen = new ArrayList<>();
+
+        PayoutReport report = service(2).run(SENDER, "sepolia", csv, dir.resolve("payout.journal"), seen::add);
+
+        assertEquals(3, report.getSent());
+        assertEquals(2, report.getInvalid());
+        assertEquals(0, report.getFailed());
+        assertEquals(5, seen.size());
+        assertEquals(List.of(PayoutRow.Status.LOGGED, PayoutRow.Status.LOGGED, PayoutRow.Status.INVALID,
+                        PayoutRow.Status.INVALID, PayoutRow.Status.LOGGED),
+                report.getRows().stream().map(PayoutRow::getStatus).collect(Collectors.toList()));
+        assertEquals("invalid recipient address", report.getRows().get(2).getError());
+
+        assertEquals(new TreeSet<>(List.of(5L, 6L, 7L)), acceptedNonces());
+        RawTransaction first = TransactionDecoder.decode(accepted.get(report.getRows().get(0).getTxHash()));
+        assertEquals(new BigInteger("500000000000000000"), first.getValue());
+        Transaction1559 fees = (Transaction1559) first.getTransaction();
+        assertEquals(BigInteger.valueOf(2_000_000_000L), fees.getMaxPriorityFeePerGas());
+
+        // One batched insert per chunk with accepted rows.
+        assertEquals(2, dao.insertBatches.get());
+        assertEquals(3, dao.rows.size());
+        assertTrue(dao.rows.stream().allMatch(l -> "PENDING".equals(l.getStatus()) && "sepolia".equals(l.getNetworkId())));
+    }
+
+    @Test
+    void resumesFromTheJournalWithoutPayingTwice() throws Exception {
+        Path csv = Files.writeString(dir.resolve("payout.csv"), CSV);
+        Path journal = dir.resolve("payout.journal");
+
+        // The first run dies after broadcasting the first chunk but before recording anything as sent.
+        dao.failNextInsert = true;
+        assertThrows(IOException.class, () -> service(2).run(SENDER, "sepolia", csv, journal, null));
+        assertEquals(2, accepted.size());
+        assertTrue(dao.rows.isEmpty());
+
+        PayoutReport report = service(2).run(SENDER, "sepolia", csv, journal, null);
+
+        assertEquals(2, report.getResumed());
+        assertEquals(1, report.getSent());
+        assertEquals(2, report.getInvalid());
+        assertEquals(0, report.getFailed());
+        // The two journaled rows went out again with their original signatures and were recognised.
+        assertEquals(3, accepted.size());
+        assertEquals(5, sendCalls.get());
+        assertEquals(new TreeSet<>(List.of(5L, 6L, 7L)), acceptedNonces());
+        assertEquals(3, dao.rows.stream().map(TransactionLog::getTxHash).distinct().count());
+
+        // A third run finds nothing left to do.
+        PayoutReport again = service(2).run(SENDER, "sepolia", csv, journal, null);
+        assertEquals(3, again.getResumed());
+        assertEquals(0, again.getSent());
+        assertEquals(5, sendCalls.get());
+    }
+
+    @Test
+    void unansweredBroadcastKeepsTheRowSignedAndResendsItOnResume() throws Exception {
+        Path csv = Files.writeString(dir.resolve("payout.csv"), CSV);
+        Path journal = dir.resolve("payout.journal");
+
+        // The node takes the first payment but the connection drops before it answers.
+        hangUpAfterAccept.set(true);
+        PayoutReport first = service(1).run(SENDER, "sepolia", csv, journal, null);
+
+        assertEquals(3, accepted.size());
+        assertEquals(PayoutRow.Status.SIGNED, first.getRows().get(0).getStatus());
+        assertEquals(PayoutRow.Status.LOGGED, first.getRows().get(1).getStatus());
+        assertEquals(PayoutRow.Status.LOGGED, first.getRows().get(4).getStatus());
+        assertEquals(1, first.getFailed());
+        // Its nonce was not handed to a later payment.
+        assertEquals(new TreeSet<>(List.of(5L, 6L, 7L)), acceptedNonces());
+        assertEquals(2, dao.rows.size());
+
+        PayoutReport second = service(1).run(SENDER, "sepolia", csv, journal, null);
+
+        assertEquals(0, second.getFailed());
+        assertEquals(3, second.getResumed());
+        // Each payment reached the node once; the resent one was answered "already known".
+        assertEquals(3, accepted.size());
+        assertEquals(4, sendCalls.get());
+        assertEquals(3, dao.rows.size());
+        assertEquals(3, dao.rows.stream().map(TransactionLog::getTxHash).distinct().count());
+    }
+
+    @Test
+    void rejectedRowBelowAcceptedOnesIsFilledWithASelfTransfer() throws Exception {
+        Path csv = Files.writeString(dir.resolve("payout.csv"), CSV);
+        rejectNonce = 5;
+
+        PayoutReport report = service(2).run(SENDER, "sepolia", csv, dir.resolve("payout.journal"), null);
+
+        assertEquals(PayoutRow.Status.FAILED, report.getRows().get(0).getStatus());
+        assertEquals("replacement transaction underpriced", report.getRows().get(0).getError());
+        assertEquals(1, report.getFailed());
+        assertEquals(2, report.getSent());
+        // Nonce 5 is used by a zero-value transfer to the sender so 6 and 7 are not stuck behind it.
+        assertEquals(new TreeSet<>(List.of(5L, 6L, 7L)), acceptedNonces());
+        RawTransaction filler = accepted.values().stream()
+                .map(TransactionDecoder::decode)
+                .filter(tx -> tx.getNonce().longValue() == 5)
+                .findFirst().orElseThrow();
+        assertEquals(SENDER.getAddress(), filler.getTo());
+        assertEquals(BigInteger.ZERO, filler.getValue());
+    }
+
+    private BulkPayoutService service(int chunkSize) {
+        return new BulkPayoutService(networkManager, walletService, mock(TokenService.class),
+                mock(TokenRepository.class), dao, 4, chunkSize);
+    }
+
+    private TreeSet<Long> acceptedNonces() {
+        return accepted.values().stream()
+                .map(raw -> TransactionDecoder.decode(raw).getNonce().longValue())
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private String startServer() throws Exception {
+        node = FakeNode.start(this::answer);
+        return node.url();
+    }
+
+    private void answer(JsonNode call, ObjectNode out) throws IOException {
+        switch (call.get("method").asText()) {
+            case "eth_feeHistory" -> {
+                ObjectNode result = out.putObject("result");
+                result.put("oldestBlock", "0x64");
+                result.putArray("baseFeePerGas").add("0x3b9aca00").add("0x3b9aca00");
+                result.putArray("gasUsedRatio").add(0.5);
+                result.putArray("reward").addArray().add("0x3b9aca00").add("0x77359400").add("0xb2d05e00");
+            }
+            case "eth_sendRawTransaction" -> {
+                sendCalls.incrementAndGet();
+                String raw = call.get("params").get(0).asText();
+                String hash = Hash.sha3(raw);
+                if (TransactionDecoder.decode(raw).getNonce().longValue() == rejectNonce) {
+                    rejectNonce = -1;
+                    FakeNode.error(out, -32000, "replacement transaction underpriced");
+                } else if (accepted.putIfAbsent(hash, raw) != null) {
+                    FakeNode.error(out, -32000, "already known");
+                } else if (hangUpAfterAccept.getAndSet(false)) {
+                    throw FakeNode.hangUp();
+                } else {
+                    out.put("result", hash);
+                }
+            }
+            default -> out.putNull("result");
+        }
+    }
+
+    private static class InMemoryLogs implements TransactionLogDao {
+        final List<TransactionLog> rows = new ArrayList<>();
+        final AtomicInteger insertBatches = new AtomicInteger();
+        volatile boolean failNextInsert;
+
+        @Override
+        public synchronized void saveAll(List<TransactionLog> logs) throws SQLException {
+            if (failNextInsert) {
+                failNextInsert = false;
+                throw new SQLException("database went away");
+            }
+            insertBatches.incrementAndGet();
+            rows.addAll(logs);
+        }
+
+        @Override public List<TransactionLog> findByWalletAddress(String walletAddress) { return rows; }
+        @Override public List<TransactionLog> findByStatus(String status, int afterId, int limit) { return List.of(); }
+        @Override public void updateReceipts(List<TransactionLog> logs) { }
+        @Override public Optional<TransactionLog> get(int id) { return Optional.empty(); }
+        @Override public List<TransactionLog> getAll() { return rows; }
+        @Override public void save(TransactionLog log) { rows.add(log); }
+        @Override public void update(TransactionLog log, String[] params) { }
+        @Override public void delete(TransactionLog log) { rows.remove(log); }
+    }
+}
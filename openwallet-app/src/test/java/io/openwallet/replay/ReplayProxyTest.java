@@ -0,0 +1,126 @@
+package io.openwallet.replay;
+
+import io.openwallet.rpc.BatchingHttpService;
+import io.openwallet.rpc.FakeNode;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
+
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayProxyTest {
+
+    private final AtomicInteger nftCalls = new AtomicInteger();
+    private final OkHttpClient http = new OkHttpClient();
+    private FakeNode upstream;
+
+    @AfterEach
+    void stop() {
+        if (upstream != null) {
+            upstream.close();
+        }
+    }
+
+    @Test
+    void recordedTrafficReplaysWithoutUpstream(@TempDir Path dir) throws Exception {
+        String origin = startUpstream();
+        Path file = dir.resolve("sepolia.jsonl.gz");
+
+        try (ReplayProxy proxy = ReplayProxy.record(0, origin + "/v2/key", origin, Recording.create(file))) {
+            proxy.start();
+            Web3j web3j = Web3j.build(new BatchingHttpService(proxy.getUrl() + "/rpc", 10, 20));
+            List<CompletableFuture<EthGetBalance>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(web3j.ethGetBalance(address(i), DefaultBlockParameter.valueOf(BigInteger.TEN)).sendAsync());
+            }
+            futures.forEach(CompletableFuture::join);
+            assertEquals("{\"ownedNfts\":[]}", get(proxy.getUrl() + "/nft/v3/real-key/getNFTsForOwner?owner=0x1"));
+            assertEquals(4, proxy.getRecorded());
+            web3j.shutdown();
+        }
+        FakeNode node = upstream;
+        int callsWhileRecording = node.posts() + nftCalls.get();
+        upstream.close();
+        upstream = null;
+
+        Recording recording = Recording.load(file);
+        assertEquals(4, recording.size());
+        try (ReplayProxy proxy = ReplayProxy.replay(0, recording, new LatencyProfile("eth_getBalance=150:0,*=0", 1))) {
+            proxy.start();
+            Web3j web3j = Web3j.build(new BatchingHttpService(proxy.getUrl() + "/rpc", 10, 0));
+
+            long start = System.nanoTime();
+            assertEquals(BigInteger.TWO, web3j.ethGetBalance(address(2), DefaultBlockParameter.valueOf(BigInteger.TEN)).send().getBalance());
+            assertTrue((System.nanoTime() - start) / 1_000_000 >= 140, "replayed latency applied");
+
+            // A different head block still matches by the loose key.
+            assertEquals(BigInteger.ONE, web3j.ethGetBalance(address(1), DefaultBlockParameterName.LATEST).send().getBalance());
+            // The API key segment is masked, so the replay does not need the real key.
+            assertEquals("{\"ownedNfts\":[]}", get(proxy.getUrl() + "/nft/v3/other/getNFTsForOwner?owner=0x1"));
+
+            assertTrue(web3j.ethGetBalance(address(9), DefaultBlockParameterName.LATEST).send().hasError());
+            assertEquals(1, proxy.getMisses());
+            web3j.shutdown();
+        }
+        assertEquals(callsWhileRecording, node.posts() + nftCalls.get());
+    }
+
+    @Test
+    void latencyProfileFallsBackToRecordedAndIsSeeded() {
+        LatencyProfile a = new LatencyProfile("eth_getLogs=200:50", 42);
+        LatencyProfile b = new LatencyProfile("eth_getLogs=200:50", 42);
+        for (int i = 0; i < 10; i++) {
+            long d = a.delayMillis("eth_getLogs", 0);
+            assertTrue(d >= 150 && d <= 250);
+            assertEquals(d, b.delayMillis("eth_getLogs", 0));
+        }
+        assertEquals(33, a.delayMillis("eth_call", 33));
+        assertEquals(5, new LatencyProfile("*=5", 1).delayMillis("eth_call", 33));
+        assertThrows(IllegalArgumentException.class, () -> new LatencyProfile("eth_call", 1));
+    }
+
+    private String get(String url) throws Exception {
+        try (Response response = http.newCall(new Request.Builder().url(url).build()).execute()) {
+            assertEquals(200, response.code());
+            return response.body().string();
+        }
+    }
+
+    private String startUpstream() throws Exception {
+        upstream = FakeNode.start("/v2/key", (call, reply) -> {
+            String addr = call.get("params").get(0).asText();
+            reply.put("result", "0x" + Long.toHexString(Long.parseLong(addr.substring(addr.length() - 2), 16)));
+        });
+        upstream.server().createContext("/nft", exchange -> {
+            nftCalls.incrementAndGet();
+            byte[] out = "{\"ownedNfts\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, out.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(out);
+            }
+        });
+        String url = upstream.url();
+        return url.substring(0, url.length() - 1);
+    }
+
+    private String address(int i) {
+        return String.format("0x%040x", i);
+    }
+}
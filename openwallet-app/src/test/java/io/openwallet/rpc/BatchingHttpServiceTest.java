@@ -0,0 +1,183 @@
+package io.openwallet.rpc;
+
+import io.openwallet.metrics.CallStats;
+import io.openwallet.metrics.RpcMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.protocol.http.HttpService;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingHttpServiceTest {
+
+    private FakeNode node;
+
+    @AfterEach
+    void stop() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    void concurrentCallsShareOneBatch() throws Exception {
+        String url = startServer(false);
+        BatchingHttpService service = new BatchingHttpService(url, 50, 50);
+        Web3j web3j = Web3j.build(service);
+
+        List<CompletableFuture<EthGetBalance>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(web3j.ethGetBalance(address(i), DefaultBlockParameterName.LATEST).sendAsync());
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(BigInteger.valueOf(i), futures.get(i).join().getBalance());
+        }
+        assertEquals(1, node.posts());
+        assertEquals(10, service.getBatchedCalls());
+        web3j.shutdown();
+    }
+
+    @Test
+    void fallsBackToSingleRequestsWhenBatchRejected() throws Exception {
+        String url = startServer(true);
+        BatchingHttpService service = new BatchingHttpService(url, 50, 20);
+        Web3j web3j = Web3j.build(service);
+
+        List<CompletableFuture<EthGetBalance>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(web3j.ethGetBalance(address(i), DefaultBlockParameterName.LATEST).sendAsync());
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(BigInteger.valueOf(i), futures.get(i).join().getBalance());
+        }
+        assertFalse(service.isBatchingSupported());
+        web3j.shutdown();
+    }
+
+    @Test
+    void errorObjectSayingBatchesAreUnsupportedTurnsBatchingOff() throws Exception {
+        for (String answer : List.of(
+                "{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32600,\"message\":\"Invalid Request\"}}",
+                "{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32000,\"message\":\"Batch size too large\"}}")) {
+            stop();
+            String url = startServer(false);
+            node.answerNextBatch(answer);
+            BatchingHttpService service = new BatchingHttpService(url, 50, 20);
+            Web3j web3j = Web3j.build(service);
+
+            List<CompletableFuture<EthGetBalance>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(web3j.ethGetBalance(address(i), DefaultBlockParameterName.LATEST).sendAsync());
+            }
+            for (int i = 0; i < 4; i++) {
+                assertEquals(BigInteger.valueOf(i), futures.get(i).join().getBalance());
+            }
+            assertFalse(service.isBatchingSupported(), answer);
+            web3j.shutdown();
+        }
+    }
+
+    @Test
+    void otherErrorObjectOnlyFailsThatBatch() throws Exception {
+        String url = startServer(false);
+        node.answerNextBatch("{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32005,\"message\":\"request limit reached\"}}");
+        BatchingHttpService service = new BatchingHttpService(url, 50, 20);
+        Web3j web3j = Web3j.build(service);
+
+        List<CompletableFuture<EthGetBalance>> failed = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            failed.add(web3j.ethGetBalance(address(i), DefaultBlockParameterName.LATEST).sendAsync());
+        }
+        failed.forEach(f -> assertThrows(CompletionException.class, f::join));
+        assertTrue(service.isBatchingSupported());
+
+        List<CompletableFuture<EthGetBalance>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(web3j.ethGetBalance(address(i), DefaultBlockParameterName.LATEST).sendAsync());
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals(BigInteger.valueOf(i), futures.get(i).join().getBalance());
+        }
+        assertEquals(2, node.posts());
+        assertEquals(1, service.getBatchesSent());
+        web3j.shutdown();
+    }
+
+    @Test
+    void transientServerErrorDoesNotTurnBatchingOff() throws Exception {
+        String url = startServer(false);
+        node.failNext(503);
+        BatchingHttpService service = new BatchingHttpService(url, 50, 20);
+        Web3j web3j = Web3j.build(service);
+
+        List<CompletableFuture<EthGetBalance>> failed = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            failed.add(web3j.ethGetBalance(address(i), DefaultBlockParameterName.LATEST).sendAsync());
+        }
+        failed.forEach(f -> assertThrows(CompletionException.class, f::join));
+        assertTrue(service.isBatchingSupported());
+
+        List<CompletableFuture<EthGetBalance>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(web3j.ethGetBalance(address(i), DefaultBlockParameterName.LATEST).sendAsync());
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals(BigInteger.valueOf(i), futures.get(i).join().getBalance());
+        }
+        assertEquals(2, node.posts());
+        assertEquals(1, service.getBatchesSent());
+        web3j.shutdown();
+    }
+
+    @Test
+    void recordsLatencyAndPayloadPerMethodAndEndpoint() throws Exception {
+        String url = startServer(false);
+        RpcMetrics metrics = new RpcMetrics();
+        BatchingHttpService service = new BatchingHttpService(url, HttpService.getOkHttpClientBuilder().build(), 50, 20, metrics);
+        Web3j web3j = Web3j.build(service);
+
+        List<CompletableFuture<EthGetBalance>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(web3j.ethGetBalance(address(i), DefaultBlockParameterName.LATEST).sendAsync());
+        }
+        futures.forEach(CompletableFuture::join);
+        web3j.ethGetBalance(address(5), DefaultBlockParameterName.LATEST).send();
+
+        CallStats method = metrics.get(RpcMetrics.METHOD, "eth_getBalance");
+        assertEquals(5, method.getCalls());
+        assertEquals(0, method.getErrors());
+        assertEquals(0, method.getInFlight());
+        assertTrue(method.getRequestBytes() > 0);
+        assertTrue(method.getResponseBytes() > 0);
+        CallStats endpoint = metrics.get(RpcMetrics.ENDPOINT, RpcMetrics.endpointOf(url));
+        assertEquals(5, endpoint.getCalls());
+        assertTrue(endpoint.getP99Millis() >= endpoint.getP50Millis());
+        web3j.shutdown();
+    }
+
+    private String startServer(boolean rejectBatches) throws Exception {
+        node = FakeNode.start((call, reply) -> {
+            String addr = call.get("params").get(0).asText();
+            reply.put("result", "0x" + Long.toHexString(Long.parseLong(addr.substring(addr.length() - 2), 16)));
+        });
+        if (rejectBatches) {
+            node.rejectBatches();
+        }
+        return node.url();
+    }
+
+    private String address(int i) {
+        return String.format("0x%040x", i);
+    }
+}
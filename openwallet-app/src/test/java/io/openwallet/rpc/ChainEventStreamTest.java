@@ -0,0 +1,180 @@
+package io.openwallet.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ChainEventStreamTest {
+
+    private static final String TOKEN = "0x1c7D4B196Cb0C7B01d743Fbc6116a902379C7238";
+
+    private StandIn server;
+    private HeadTracker tracker;
+    private ChainEventStream stream;
+
+    @AfterEach
+    void stop() throws Exception {
+        if (stream != null) {
+            stream.close();
+        }
+        if (tracker != null) {
+            tracker.close();
+        }
+        if (server != null) {
+            server.stop(1_000);
+        }
+    }
+
+    @Test
+    void pushedHeadsReachTrackerAndReconnectAfterDrop() throws Exception {
+        server = new StandIn();
+        server.start();
+        waitFor(() -> server.getPort() > 0);
+
+        tracker = new HeadTracker(null, 60_000);
+        stream = new ChainEventStream("ws://127.0.0.1:" + server.getPort(), tracker, null, 100, 200);
+        List<BigInteger> heads = new CopyOnWriteArrayList<>();
+        stream.onNewHead(heads::add);
+        stream.start();
+
+        waitFor(() -> stream.isConnected() && server.subscribed.size() == 1);
+        assertTrue(tracker.isPushConnected());
+        server.pushHead(100);
+        waitFor(() -> heads.contains(BigInteger.valueOf(100)));
+        assertEquals(BigInteger.valueOf(100), tracker.getHead());
+
+        // Server drops every connection: the stream falls back to polling and reconnects with backoff.
+        server.subscribed.forEach(WebSocket::close);
+        server.subscribed.clear();
+        waitFor(() -> !tracker.isPushConnected() || stream.getReconnects() > 0);
+        waitFor(() -> stream.isConnected() && server.subscribed.size() == 1);
+
+        server.pushHead(101);
+        waitFor(() -> heads.contains(BigInteger.valueOf(101)));
+        assertTrue(stream.getReconnects() >= 1);
+        assertEquals(2, stream.getPushedHeads());
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void logsAreScannedOverHttpWhenWebSocketIsUnavailable() throws Exception {
+        Web3j http = mock(Web3j.class);
+        Request request = mock(Request.class);
+        EthLog response = new EthLog();
+        Log log = new Log(false, "0x0", "0x0", "0xabc", "0xdef", "0xb", TOKEN, "0x", null, List.of());
+        response.setResult(List.of(new EthLog.LogObject(false, "0x0", "0x0", "0xabc", "0xdef", "0xb", TOKEN, "0x", null, List.of())));
+        when(http.ethGetLogs(any(EthFilter.class))).thenReturn(request);
+        when(request.sendAsync()).thenReturn(CompletableFuture.completedFuture(response));
+
+        tracker = new HeadTracker(null, 60_000);
+        stream = new ChainEventStream("ws://127.0.0.1:1", tracker, http, 100, 200);
+        stream.start();
+        tracker.onHead(BigInteger.TEN);
+
+        List<Log> received = new CopyOnWriteArrayList<>();
+        stream.onLogs(List.of(TOKEN), List.of("0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef"), received::add);
+        tracker.onHead(BigInteger.valueOf(11));
+
+        waitFor(() -> received.size() == 1);
+        assertEquals(log.getTransactionHash(), received.get(0).getTransactionHash());
+        assertFalse(stream.isConnected());
+        assertEquals(1, stream.getPolledLogScans());
+        verify(http, times(1)).ethGetLogs(any(EthFilter.class));
+        waitFor(() -> stream.getReconnects() > 0);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for condition");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Minimal WebSocket JSON-RPC node: answers eth_subscribe and pushes newHeads on demand.
+     */
+    private static final class StandIn extends WebSocketServer {
+        final ObjectMapper mapper = new ObjectMapper();
+        final List<WebSocket> subscribed = new CopyOnWriteArrayList<>();
+
+        StandIn() {
+            super(new InetSocketAddress("127.0.0.1", 0));
+            setReuseAddr(true);
+        }
+
+        void pushHead(long number) {
+            ObjectNode result = mapper.createObjectNode();
+            result.put("number", "0x" + Long.toHexString(number));
+            ObjectNode params = mapper.createObjectNode();
+            params.put("subscription", "0xheads");
+            params.set("result", result);
+            ObjectNode msg = mapper.createObjectNode();
+            msg.put("jsonrpc", "2.0");
+            msg.put("method", "eth_subscription");
+            msg.set("params", params);
+            subscribed.forEach(ws -> ws.send(msg.toString()));
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            try {
+                JsonNode req = mapper.readTree(message);
+                ObjectNode reply = mapper.createObjectNode();
+                reply.put("jsonrpc", "2.0");
+                reply.set("id", req.get("id"));
+                if ("eth_subscribe".equals(req.path("method").asText())) {
+                    reply.put("result", "0xheads");
+                    conn.send(reply.toString());
+                    subscribed.add(conn);
+                } else {
+                    reply.put("result", true);
+                    conn.send(reply.toString());
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+            subscribed.remove(conn);
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+        }
+
+        @Override
+        public void onStart() {
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.openwallet.rpc;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EthCallCacheTest {
+
+    private static final String TOKEN = "0x1c7D4B196Cb0C7B01d743Fbc6116a902379C7238";
+    private static final String DECIMALS = "0x313ce567";
+
+    @Test
+    void latestReadsAreServedFromCacheUntilHeadAdvances() {
+        HeadTracker head = new HeadTracker(null, 60_000);
+        EthCallCache cache = new EthCallCache(11155111L, head, 100);
+        AtomicInteger loads = new AtomicInteger();
+
+        head.onHead(BigInteger.valueOf(100));
+        assertEquals("0x06", read(cache, cache.resolveLatest(), loads));
+        assertEquals("0x06", read(cache, cache.resolveLatest(), loads));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+
+        head.onHead(BigInteger.valueOf(101));
+        read(cache, cache.resolveLatest(), loads);
+        assertEquals(2, loads.get());
+        // The result at 100 is still good for reads pinned to that block.
+        assertEquals(2, cache.size());
+        read(cache, BigInteger.valueOf(100), loads);
+        assertEquals(2, loads.get());
+        head.close();
+    }
+
+    @Test
+    void historicalBlocksAreKeptAfterHeadMoves() {
+        HeadTracker head = new HeadTracker(null, 60_000);
+        EthCallCache cache = new EthCallCache(11155111L, head, 100);
+        AtomicInteger loads = new AtomicInteger();
+
+        head.onHead(BigInteger.valueOf(100));
+        read(cache, BigInteger.valueOf(50), loads);
+        head.onHead(BigInteger.valueOf(200));
+        read(cache, BigInteger.valueOf(50), loads);
+
+        assertEquals(1, loads.get());
+        head.close();
+    }
+
+    @Test
+    void failedCallsAreNotCached() {
+        HeadTracker head = new HeadTracker(null, 60_000);
+        EthCallCache cache = new EthCallCache(11155111L, head, 100);
+        head.onHead(BigInteger.TEN);
+
+        CompletableFuture<String> failed = cache.get(BigInteger.TEN, TOKEN, DECIMALS,
+                () -> CompletableFuture.failedFuture(new IllegalStateException("timeout")));
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, cache.size());
+        head.close();
+    }
+
+    @Test
+    void headNeverMovesBackwards() {
+        HeadTracker head = new HeadTracker(null, 60_000);
+        head.onHead(BigInteger.valueOf(10));
+        head.onHead(BigInteger.valueOf(9));
+        assertEquals(BigInteger.valueOf(10), head.getHead());
+        head.close();
+    }
+
+    private String read(EthCallCache cache, BigInteger block, AtomicInteger loads) {
+        return cache.get(block, TOKEN, DECIMALS, () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("0x06");
+        }).join();
+    }
+}
@@ -0,0 +1,126 @@
+package io.openwallet.rpc;
+
+import io.openwallet.exception.OpenWalletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.websocket.events.NewHeadsNotification;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailoverWeb3jServiceTest {
+
+    private final List<FakeNode> nodes = new ArrayList<>();
+
+    @AfterEach
+    void stop() {
+        nodes.forEach(FakeNode::close);
+    }
+
+    @Test
+    void failsOverWhenEndpointIsDown() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+        String up = startServer(0, 7, hits);
+        FailoverWeb3jService service = service(false, "http://127.0.0.1:1/", up);
+        Web3j web3j = Web3j.build(service);
+
+        EthBlockNumber result = web3j.ethBlockNumber().send();
+
+        assertEquals(BigInteger.valueOf(7), result.getBlockNumber());
+        assertEquals(1, service.getFailovers());
+        assertEquals(up, service.getSelector().best().getUrl());
+        web3j.shutdown();
+    }
+
+    @Test
+    void slowReadIsHedgedToSecondEndpoint() throws Exception {
+        AtomicInteger slowHits = new AtomicInteger();
+        AtomicInteger fastHits = new AtomicInteger();
+        String slow = startServer(2_000, 1, slowHits);
+        String fast = startServer(0, 2, fastHits);
+        FailoverWeb3jService service = service(true, slow, fast);
+        Web3j web3j = Web3j.build(service);
+
+        long start = System.nanoTime();
+        EthBlockNumber result = web3j.ethBlockNumber().sendAsync().join();
+        long tookMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(BigInteger.valueOf(2), result.getBlockNumber());
+        assertTrue(tookMillis < 1_500, "hedge should answer before the slow endpoint, took " + tookMillis + " ms");
+        assertEquals(1, service.getHedgesSent());
+        assertEquals(1, service.getHedgesWon());
+        web3j.shutdown();
+    }
+
+    @Test
+    void blockingReadsSkipTheBatchingLinger() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+        String url = startServer(0, 3, hits);
+        BatchingHttpService transport = new BatchingHttpService(url, 50, 2_000);
+        FailoverWeb3jService service = new FailoverWeb3jService(
+                new EndpointSelector(List.of(new RpcEndpoint(url, transport, new EndpointStats(16)))), false, 50, 100);
+        Web3j web3j = Web3j.build(service);
+
+        long start = System.nanoTime();
+        EthBlockNumber result = web3j.ethBlockNumber().send();
+        long tookMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(BigInteger.valueOf(3), result.getBlockNumber());
+        assertTrue(tookMillis < 1_000, "a blocking read waited for the linger window: " + tookMillis + " ms");
+        assertEquals(1, transport.getSingleCalls());
+        web3j.shutdown();
+    }
+
+    @Test
+    void percentilesFollowTheRollingWindow() {
+        EndpointStats stats = new EndpointStats(8);
+        for (long micros : new long[]{5_000, 1_000, 8_000, 3_000, 3_000, 7_000, 2_000, 6_000}) {
+            stats.recordSuccess(micros);
+        }
+        assertEquals(1.0, stats.percentileMillis(0));
+        assertEquals(3.0, stats.percentileMillis(50));
+        assertEquals(8.0, stats.percentileMillis(95));
+
+        // Pushes out 5, 1, 8 and one of the 3s.
+        for (long micros : new long[]{4_000, 4_000, 9_000, 500}) {
+            stats.recordSuccess(micros);
+        }
+        assertEquals(8, stats.getSampleCount());
+        assertEquals(0.5, stats.percentileMillis(0));
+        assertEquals(4.0, stats.percentileMillis(50));
+        assertEquals(9.0, stats.percentileMillis(100));
+    }
+
+    @Test
+    void subscriptionsFailWithADomainError() {
+        FailoverWeb3jService service = service(false, "http://127.0.0.1:1/");
+        Request<?, EthBlockNumber> request = new Request<>("eth_subscribe", List.of("newHeads"), service, EthBlockNumber.class);
+        Throwable error = service.subscribe(request, "eth_unsubscribe", NewHeadsNotification.class)
+                .test().errors().get(0);
+        assertInstanceOf(OpenWalletException.class, error);
+    }
+
+    private FailoverWeb3jService service(boolean hedging, String... urls) {
+        List<RpcEndpoint> endpoints = new ArrayList<>();
+        for (String url : urls) {
+            endpoints.add(new RpcEndpoint(url, new BatchingHttpService(url, 1, 0), new EndpointStats(16)));
+        }
+        return new FailoverWeb3jService(new EndpointSelector(endpoints), hedging, 50, 100);
+    }
+
+    private String startServer(long delayMillis, long blockNumber, AtomicInteger hits) throws Exception {
+        FakeNode node = FakeNode.start((call, reply) -> {
+            hits.incrementAndGet();
+            reply.put("result", "0x" + Long.toHexString(blockNumber));
+        }).latency(delayMillis);
+        nodes.add(node);
+        return node.url();
+    }
+}
@@ -0,0 +1,210 @@
+package io.openwallet.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JSON-RPC node on a local port for tests. Single calls and batch arrays are both answered call by call
+ * through one {@link Answer}; every posted body is kept for assertions.
+ */
+public class FakeNode implements AutoCloseable {
+
+    /** Fills in the reply to one call; {@code reply} already carries {@code jsonrpc} and the call's id. */
+    public interface Answer {
+        void answer(JsonNode call, ObjectNode reply) throws Exception;
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Answer answer;
+    private final AtomicInteger posts = new AtomicInteger();
+    private final List<JsonNode> bodies = new CopyOnWriteArrayList<>();
+    private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+    private final Queue<String> batchAnswers = new ConcurrentLinkedQueue<>();
+    private volatile long latencyMillis;
+    private volatile boolean rejectBatches;
+
+    private FakeNode(String path, Answer answer) throws IOException {
+        this.answer = answer;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext(path, this::handle);
+        server.start();
+    }
+
+    public static FakeNode start(Answer answer) throws IOException {
+        return new FakeNode("/", answer);
+    }
+
+    /** Serves JSON-RPC under {@code path} only, leaving other paths free for {@link #server()} contexts. */
+    public static FakeNode start(String path, Answer answer) throws IOException {
+        return new FakeNode(path, answer);
+    }
+
+    /** Holds every response back this long after the calls were answered. */
+    public FakeNode latency(long millis) {
+        this.latencyMillis = millis;
+        return this;
+    }
+
+    /** Answers batch arrays with HTTP 400, like a plan without batch support. */
+    public FakeNode rejectBatches() {
+        this.rejectBatches = true;
+        return this;
+    }
+
+    /** Answers the next post with {@code status} and an empty body, without calling the {@link Answer}. */
+    public void failNext(int status) {
+        failNext(status, null);
+    }
+
+    /** Like {@link #failNext(int)}, with a {@code Retry-After} header when {@code retryAfter} is not null. */
+    public void failNext(int status, String retryAfter) {
+        failures.add(new Failure(status, retryAfter));
+    }
+
+    /** Answers the next batch array with status 200 and {@code body} instead of one reply per call. */
+    public void answerNextBatch(String body) {
+        batchAnswers.add(body);
+    }
+
+    /** Thrown from an {@link Answer} to drop the connection without a response, after the call took effect. */
+    public static IOException hangUp() {
+        return new IOException("hang up");
+    }
+
+    public static void error(ObjectNode reply, int code, String message) {
+        ObjectNode error = reply.putObject("error");
+        error.put("code", code);
+        error.put("message", message);
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public HttpServer server() {
+        return server;
+    }
+
+    public ObjectMapper mapper() {
+        return mapper;
+    }
+
+    public int posts() {
+        return posts.get();
+    }
+
+    /** Request bodies in arrival order: an object per single call, an array per batch. */
+    public List<JsonNode> bodies() {
+        return bodies;
+    }
+
+    /** Methods carried by each post, in arrival order. */
+    public List<List<String>> methods() {
+        List<List<String>> out = new ArrayList<>();
+        for (JsonNode body : bodies) {
+            List<String> methods = new ArrayList<>();
+            if (body.isArray()) {
+                body.forEach(call -> methods.add(call.get("method").asText()));
+            } else {
+                methods.add(body.get("method").asText());
+            }
+            out.add(methods);
+        }
+        return out;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        posts.incrementAndGet();
+        Failure failure = failures.poll();
+        if (failure != null) {
+            exchange.getRequestBody().readAllBytes();
+            if (failure.retryAfter() != null) {
+                exchange.getResponseHeaders().add("Retry-After", failure.retryAfter());
+            }
+            exchange.sendResponseHeaders(failure.status(), -1);
+            exchange.close();
+            return;
+        }
+        JsonNode request = mapper.readTree(exchange.getRequestBody());
+        bodies.add(request);
+        if (request.isArray() && rejectBatches) {
+            send(exchange, 400, "{\"error\":\"batch not supported\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        String batchAnswer = request.isArray() ? batchAnswers.poll() : null;
+        if (batchAnswer != null) {
+            send(exchange, 200, batchAnswer.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        JsonNode response;
+        if (request.isArray()) {
+            ArrayNode out = mapper.createArrayNode();
+            // Reverse order: clients must match responses by id, not position.
+            for (int i = request.size() - 1; i >= 0; i--) {
+                out.add(reply(request.get(i)));
+            }
+            response = out;
+        } else {
+            response = reply(request);
+        }
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        send(exchange, 200, mapper.writeValueAsBytes(response));
+    }
+
+    private ObjectNode reply(JsonNode call) throws IOException {
+        ObjectNode reply = mapper.createObjectNode();
+        reply.put("jsonrpc", "2.0");
+        reply.set("id", call.get("id"));
+        try {
+            answer.answer(call, reply);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        return reply;
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private record Failure(int status, String retryAfter) {
+    }
+}
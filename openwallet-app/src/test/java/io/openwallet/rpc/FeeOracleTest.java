@@ -0,0 +1,113 @@
+package io.openwallet.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.transaction.type.TransactionType;
+import org.web3j.protocol.Web3j;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeeOracleTest {
+
+    private volatile long head = 100;
+    private volatile boolean london = true;
+    private FakeNode node;
+    private Web3j web3j;
+
+    @AfterEach
+    void stop() {
+        web3j.shutdown();
+        node.close();
+    }
+
+    @Test
+    void quotesMedianTipsFromARollingWindowWithoutRpcPerQuote() throws Exception {
+        web3j = Web3j.build(new BatchingHttpService(startServer(), 50, 1));
+        FeeOracle oracle = new FeeOracle(() -> web3j, 60_000, 3, false);
+
+        FeeOracle.Quote normal = oracle.quote(FeeOracle.Speed.NORMAL);
+        // Blocks 98..100; 99 is empty and left out, so the median of {980, 1000} is the upper one.
+        assertTrue(normal.isEip1559());
+        assertEquals(2, oracle.getWindowSize());
+        assertEquals(BigInteger.valueOf(1000), normal.getMaxPriorityFeePerGas());
+        assertEquals(BigInteger.valueOf(800_000), normal.getBaseFee());
+        // Four full blocks of 12.5% growth on top of the next base fee.
+        assertEquals(BigInteger.valueOf(1_281_444 + 1000), normal.getMaxFeePerGas());
+        assertEquals(BigInteger.valueOf(100), oracle.quote(FeeOracle.Speed.SLOW).getMaxPriorityFeePerGas());
+        assertEquals(BigInteger.valueOf(10_000), oracle.quote(FeeOracle.Speed.FAST).getMaxPriorityFeePerGas());
+
+        int before = node.posts();
+        for (int i = 0; i < 100; i++) {
+            oracle.quote(FeeOracle.Speed.FAST);
+        }
+        assertEquals(before, node.posts(), "quotes are served from memory");
+
+        head = 102;
+        oracle.refresh();
+        // Window is now blocks 100..102.
+        assertEquals(3, oracle.getWindowSize());
+        assertEquals(BigInteger.valueOf(1010), oracle.quote(FeeOracle.Speed.NORMAL).getMaxPriorityFeePerGas());
+
+        RawTransaction tx = normal.newTransaction(11155111L, BigInteger.ONE, BigInteger.valueOf(21_000),
+                "0x9858effd232b4033e47d90003d41ec34ecaeda94", BigInteger.TEN, null);
+        assertEquals(TransactionType.EIP1559, tx.getType());
+        oracle.close();
+    }
+
+    @Test
+    void fallsBackToLegacyGasPriceWithoutBaseFee() throws Exception {
+        london = false;
+        web3j = Web3j.build(new BatchingHttpService(startServer(), 50, 1));
+        FeeOracle oracle = new FeeOracle(() -> web3j, 60_000, 3, false);
+
+        FeeOracle.Quote quote = oracle.quote(FeeOracle.Speed.FAST);
+        assertFalse(quote.isEip1559());
+        assertEquals(BigInteger.valueOf(1_000_000_000L), quote.getGasPrice());
+        RawTransaction tx = quote.newTransaction(11155111L, BigInteger.ONE, BigInteger.valueOf(21_000),
+                "0x9858effd232b4033e47d90003d41ec34ecaeda94", BigInteger.TEN, null);
+        assertEquals(TransactionType.LEGACY, tx.getType());
+        oracle.close();
+    }
+
+    private String startServer() throws Exception {
+        node = FakeNode.start(this::answer);
+        return node.url();
+    }
+
+    /**
+     * Block {@code b} pays tips of b, 10b and 100b wei at the 10th/50th/90th percentile; block 99 is empty.
+     */
+    private void answer(JsonNode call, ObjectNode out) {
+        String method = call.get("method").asText();
+        if ("eth_gasPrice".equals(method)) {
+            out.put("result", "0x3b9aca00");
+        } else if ("eth_feeHistory".equals(method) && london) {
+            int count = Integer.decode(call.get("params").get(0).asText());
+            long oldest = head - count + 1;
+            ObjectNode result = out.putObject("result");
+            result.put("oldestBlock", "0x" + Long.toHexString(oldest));
+            ArrayNode baseFees = result.putArray("baseFeePerGas");
+            ArrayNode ratios = result.putArray("gasUsedRatio");
+            ArrayNode rewards = result.putArray("reward");
+            for (long b = oldest; b <= head; b++) {
+                baseFees.add("0x" + Long.toHexString(700_000 + b));
+                ratios.add(b == 99 ? 0.0 : 0.5);
+                ArrayNode reward = rewards.addArray();
+                reward.add("0x" + Long.toHexString(b));
+                reward.add("0x" + Long.toHexString(10 * b));
+                reward.add("0x" + Long.toHexString(100 * b));
+            }
+            baseFees.add("0x" + Long.toHexString(800_000));
+        } else {
+            ObjectNode error = out.putObject("error");
+            error.put("code", -32601);
+            error.put("message", "the method " + method + " does not exist/is not available");
+        }
+    }
+}
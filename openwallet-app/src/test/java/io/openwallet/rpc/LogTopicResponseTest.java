@@ -0,0 +1,62 @@
+package io.openwallet.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.EthFilter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogTopicResponseTest {
+
+    private static final String TRANSFER = "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef";
+
+    private FakeNode node;
+
+    @AfterEach
+    void stop() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    void keepsOnlyFourthTopicOfEachLog() throws Exception {
+        String json = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":["
+                + log("0x" + "0".repeat(63) + "5")
+                + ",{\"address\":\"0xabc\",\"topics\":[\"" + TRANSFER + "\"],\"data\":\"0x\"},"
+                + log("0x" + "0".repeat(63) + "9")
+                + "]}";
+
+        LogTopicResponse response = ObjectMapperFactory.getObjectMapper().readValue(json, LogTopicResponse.class);
+
+        assertFalse(response.hasError());
+        assertEquals(List.of("0x" + "0".repeat(63) + "5", "0x" + "0".repeat(63) + "9"), response.getTopics());
+    }
+
+    @Test
+    void getLogsIsSentAloneAndDecodedFromTheStream() throws Exception {
+        node = FakeNode.start((call, reply) -> reply.set("result", node.mapper().readTree("[" + log("0x2a") + "]")));
+        BatchingHttpService service = new BatchingHttpService(node.url(), 50, 50);
+
+        EthFilter filter = new EthFilter(DefaultBlockParameterName.EARLIEST, DefaultBlockParameterName.LATEST, "0xabc");
+        CompletableFuture<LogTopicResponse> a = LogTopicResponse.request(service, filter).sendAsync();
+        CompletableFuture<LogTopicResponse> b = LogTopicResponse.request(service, filter).sendAsync();
+
+        assertEquals(List.of("0x2a"), a.join().getTopics());
+        assertEquals(List.of("0x2a"), b.join().getTopics());
+        assertEquals(2, node.bodies().size());
+        assertTrue(node.bodies().stream().allMatch(JsonNode::isObject), "eth_getLogs must not be batched");
+        service.close();
+    }
+
+    private static String log(String tokenTopic) {
+        return "{\"address\":\"0xabc\",\"topics\":[\"" + TRANSFER + "\",\"0x01\",\"0x02\",\"" + tokenTopic + "\"],"
+                + "\"data\":\"0x\",\"blockNumber\":\"0x1\",\"transactionHash\":\"0xt\",\"logIndex\":\"0x0\",\"removed\":false}";
+    }
+}
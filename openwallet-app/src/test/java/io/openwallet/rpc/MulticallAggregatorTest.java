@@ -0,0 +1,75 @@
+package io.openwallet.rpc;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.DynamicStruct;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MulticallAggregatorTest {
+
+    private static final String TOKEN_A = "0x1111111111111111111111111111111111111111";
+    private static final String TOKEN_B = "0x2222222222222222222222222222222222222222";
+
+    @Test
+    void encodeAggregate3_matchesWeb3jStructEncoding() {
+        String balanceOf = FunctionEncoder.encode(new Function(
+                "balanceOf", List.of(new Address(TOKEN_B)), Collections.emptyList()));
+        String decimals = FunctionEncoder.encode(new Function(
+                "decimals", Collections.emptyList(), Collections.emptyList()));
+
+        String ours = MulticallAggregator.encodeAggregate3(List.of(TOKEN_A, TOKEN_B), List.of(balanceOf, decimals));
+
+        Function reference = new Function(
+                "aggregate3",
+                List.of(new DynamicArray<>(Call3.class, List.of(
+                        new Call3(TOKEN_A, balanceOf),
+                        new Call3(TOKEN_B, decimals)))),
+                Collections.emptyList());
+        assertEquals(FunctionEncoder.encode(reference), ours);
+        assertTrue(ours.startsWith("0x" + MulticallAggregator.AGGREGATE3_SELECTOR));
+    }
+
+    @Test
+    void decodeAggregate3_returnsPerCallSuccessAndData() {
+        String ok = Numeric.toHexStringNoPrefixZeroPadded(BigInteger.valueOf(42), 64);
+        DynamicArray<Result> results = new DynamicArray<>(Result.class, List.of(
+                new Result(true, Numeric.hexStringToByteArray(ok)),
+                new Result(false, new byte[0])));
+        // aggregate3 returns a single dynamic value, so the payload is offset + array encoding.
+        String encoded = "0x" + Numeric.toHexStringNoPrefixZeroPadded(BigInteger.valueOf(32), 64)
+                + TypeEncoder.encode(results);
+
+        List<MulticallAggregator.Result> decoded = MulticallAggregator.decodeAggregate3(encoded);
+
+        assertEquals(2, decoded.size());
+        assertTrue(decoded.get(0).success);
+        assertEquals(BigInteger.valueOf(42), Numeric.toBigInt(decoded.get(0).returnData));
+        assertFalse(decoded.get(1).success);
+        assertEquals("0x", decoded.get(1).returnData);
+    }
+
+    public static class Call3 extends DynamicStruct {
+        public Call3(String target, String callData) {
+            super(new Address(target), new Bool(true), new DynamicBytes(Numeric.hexStringToByteArray(callData)));
+        }
+    }
+
+    public static class Result extends DynamicStruct {
+        public Result(boolean success, byte[] returnData) {
+            super(new Bool(success), new DynamicBytes(returnData));
+        }
+    }
+}
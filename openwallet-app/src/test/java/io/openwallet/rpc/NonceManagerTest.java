@@ -0,0 +1,104 @@
+package io.openwallet.rpc;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NonceManagerTest {
+
+    @Test
+    void reservesLocallyAndReusesReleasedNonces() throws Exception {
+        AtomicLong pending = new AtomicLong(7);
+        AtomicLong fetches = new AtomicLong();
+        NonceManager nonces = new NonceManager(() -> {
+            fetches.incrementAndGet();
+            return BigInteger.valueOf(pending.get());
+        });
+
+        NonceManager.Reservation a = nonces.reserve();
+        NonceManager.Reservation b = nonces.reserve();
+        NonceManager.Reservation c = nonces.reserve();
+        assertEquals(7, a.getNonce().intValue());
+        assertEquals(9, c.getNonce().intValue());
+        assertEquals(1, fetches.get());
+
+        // b failed to broadcast while a and c went out: its nonce is the next one handed out.
+        a.confirm();
+        b.release();
+        c.confirm();
+        b.confirm();
+        NonceManager.Reservation d = nonces.reserve();
+        assertEquals(8, d.getNonce().intValue());
+        assertEquals(1, nonces.getGapsFilled());
+
+        // Releasing the newest reservation just rolls the counter back.
+        d.confirm();
+        NonceManager.Reservation e = nonces.reserve();
+        assertEquals(10, e.getNonce().intValue());
+        e.release();
+        assertEquals(10, nonces.getNextNonce());
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void resyncFillsDroppedNoncesAndFollowsExternalSends() throws Exception {
+        AtomicLong pending = new AtomicLong(0);
+        AtomicLong now = new AtomicLong();
+        NonceManager nonces = new NonceManager(() -> BigInteger.valueOf(pending.get()), 60_000, now::get);
+
+        for (int i = 0; i < 4; i++) {
+            nonces.reserve().confirm();
+        }
+        NonceManager.Reservation held = nonces.reserve();
+
+        // Node only knows nonces 0 and 1; a fresh broadcast may just not have reached it yet...
+        pending.set(2);
+        nonces.sync();
+        assertEquals(5, nonces.getNextNonce());
+        assertEquals(0, nonces.getGapsFilled());
+
+        // ...but after the grace period 2 and 3 count as dropped, while 4 is still being signed.
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        nonces.sync();
+        assertEquals(2, nonces.reserve().getNonce().intValue());
+        assertEquals(3, nonces.reserve().getNonce().intValue());
+        assertEquals(5, nonces.reserve().getNonce().intValue());
+        held.confirm();
+
+        // Another wallet sent from the same account: jump ahead on the next reservation.
+        pending.set(20);
+        nonces.invalidate();
+        assertEquals(20, nonces.reserve().getNonce().intValue());
+    }
+
+    @Test
+    void concurrentReservationsAreUnique() throws Exception {
+        NonceManager nonces = new NonceManager(() -> BigInteger.valueOf(100));
+        Set<BigInteger> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 500; i++) {
+            pool.execute(() -> {
+                try {
+                    NonceManager.Reservation r = nonces.reserve();
+                    assertTrue(seen.add(r.getNonce()));
+                    r.confirm();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(500, seen.size());
+        assertEquals(600, nonces.getNextNonce());
+    }
+}
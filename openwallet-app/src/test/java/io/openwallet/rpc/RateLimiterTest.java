@@ -0,0 +1,80 @@
+package io.openwallet.rpc;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private FakeNode node;
+
+    @AfterEach
+    void stop() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    void throttlingHalvesRateAndSuccessRecoversIt() {
+        RateLimiter limiter = new RateLimiter(20, 1);
+        limiter.onThrottled(0);
+        assertEquals(10.0, limiter.getRatePerSecond(), 1e-9);
+        limiter.onThrottled(0);
+        assertEquals(5.0, limiter.getRatePerSecond(), 1e-9);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(20.0, limiter.getRatePerSecond(), 1e-9);
+        assertEquals(2, limiter.getThrottled());
+    }
+
+    @Test
+    void burstBeyondBudgetIsSpreadOut() throws Exception {
+        RateLimiter limiter = new RateLimiter(10, 1);
+        long start = System.nanoTime();
+        for (int i = 0; i < 15; i++) {
+            limiter.acquire();
+        }
+        long tookMillis = (System.nanoTime() - start) / 1_000_000;
+        // 10 tokens of burst, then 5 more at 10/s.
+        assertTrue(tookMillis >= 400, "took " + tookMillis + " ms");
+        assertTrue(limiter.getDelayed() >= 5);
+    }
+
+    @Test
+    void parsesRetryAfterSeconds() {
+        assertEquals(2_000, RateLimiter.parseRetryAfterMillis("2"));
+        assertEquals(0, RateLimiter.parseRetryAfterMillis(null));
+        assertEquals(0, RateLimiter.parseRetryAfterMillis("soon"));
+        long backoff = RateLimiter.backoffMillis(3, 100, 10_000, 0);
+        assertTrue(backoff >= 400 && backoff <= 800, "backoff " + backoff);
+    }
+
+    @Test
+    void interceptorRetries429HonouringRetryAfter() throws Exception {
+        node = FakeNode.start((call, reply) -> reply.put("result", "0x1"));
+        node.failNext(429, "0.1");
+        node.failNext(429, "0.1");
+
+        RateLimiterRegistry registry = new RateLimiterRegistry(50, 1, 5, 10, 1_000);
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new RateLimitInterceptor(registry)).build();
+        RequestBody call = RequestBody.create("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"eth_blockNumber\",\"params\":[]}",
+                MediaType.get("application/json"));
+
+        try (Response response = client.newCall(new Request.Builder().url(node.url()).post(call).build()).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(3, node.posts());
+        RateLimiter limiter = registry.forHost("127.0.0.1", node.server().getAddress().getPort());
+        assertEquals(2, limiter.getThrottled());
+        assertTrue(limiter.getRatePerSecond() < 50);
+    }
+}
@@ -0,0 +1,127 @@
+package io.openwallet.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptPollerTest {
+
+    private final Map<String, Long> mined = new ConcurrentHashMap<>();
+    private final AtomicLong head = new AtomicLong(10);
+    private final AtomicLong fork = new AtomicLong();
+    private FakeNode node;
+
+    @AfterEach
+    void stop() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    void pollsAllPendingReceiptsInOneBatchAndCountsConfirmations() throws Exception {
+        Web3j web3j = Web3j.build(new BatchingHttpService(startServer(), 50, 20));
+        ReceiptPoller poller = new ReceiptPoller(() -> web3j, 60_000, 0);
+
+        CompletableFuture<TransactionReceipt> a = poller.awaitReceipt(hash(1));
+        CompletableFuture<TransactionReceipt> b = poller.awaitReceipt(hash(2));
+        CompletableFuture<TransactionReceipt> c = poller.awaitReceipt(hash(3));
+        assertSame(a, poller.awaitReceipt(hash(1)));
+
+        mined.put(hash(1), 10L);
+        mined.put(hash(3), 10L);
+        poller.poll();
+
+        assertEquals(1, node.posts());
+        assertEquals(10, a.join().getBlockNumber().longValue());
+        assertTrue(a.join().isStatusOK());
+        assertFalse(b.isDone());
+        assertTrue(c.isDone());
+        assertEquals(1, poller.getPending());
+
+        CompletableFuture<TransactionReceipt> confirmed = poller.awaitConfirmations(a.join(), 3);
+        head.set(11);
+        poller.poll();
+        assertFalse(confirmed.isDone());
+
+        mined.put(hash(2), 12L);
+        head.set(12);
+        poller.poll();
+        assertTrue(confirmed.isDone());
+        assertTrue(b.isDone());
+        assertEquals(0, poller.getPending());
+        // Receipts, then the re-read of the confirmed receipt.
+        assertEquals(4, node.posts());
+
+        poller.close();
+        web3j.shutdown();
+    }
+
+    @Test
+    void reorgedReceiptRestartsTheConfirmationCount() throws Exception {
+        Web3j web3j = Web3j.build(new BatchingHttpService(startServer(), 50, 20));
+        ReceiptPoller poller = new ReceiptPoller(() -> web3j, 60_000, 0);
+        mined.put(hash(1), 10L);
+        CompletableFuture<TransactionReceipt> a = poller.awaitReceipt(hash(1));
+        poller.poll();
+
+        CompletableFuture<TransactionReceipt> confirmed = poller.awaitConfirmations(a.join(), 2);
+        // Block 10 is replaced by a sibling without the transaction, which lands in block 11 instead.
+        fork.set(1);
+        mined.put(hash(1), 11L);
+        head.set(11);
+        poller.poll();
+        assertFalse(confirmed.isDone());
+        assertEquals(1, poller.getReorged());
+
+        head.set(12);
+        poller.poll();
+        assertEquals(11, confirmed.join().getBlockNumber().longValue());
+        assertEquals(blockHash(11), confirmed.join().getBlockHash());
+
+        poller.close();
+        web3j.shutdown();
+    }
+
+    private String startServer() throws Exception {
+        node = FakeNode.start(this::answer);
+        return node.url();
+    }
+
+    private void answer(JsonNode call, ObjectNode out) {
+        String method = call.get("method").asText();
+        if ("eth_blockNumber".equals(method)) {
+            out.put("result", "0x" + Long.toHexString(head.get()));
+        } else {
+            String txHash = call.get("params").get(0).asText();
+            Long block = mined.get(txHash);
+            if (block == null) {
+                out.putNull("result");
+            } else {
+                ObjectNode receipt = out.putObject("result");
+                receipt.put("transactionHash", txHash);
+                receipt.put("blockNumber", "0x" + Long.toHexString(block));
+                receipt.put("blockHash", blockHash(block));
+                receipt.put("status", "0x1");
+            }
+        }
+    }
+
+    private String blockHash(long block) {
+        return String.format("0x%062x%02x", block, fork.get());
+    }
+
+    private static String hash(int i) {
+        return String.format("0x%064x", i);
+    }
+}
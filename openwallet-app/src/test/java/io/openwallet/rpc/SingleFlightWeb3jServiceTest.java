@@ -0,0 +1,76 @@
+package io.openwallet.rpc;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SingleFlightWeb3jServiceTest {
+
+    private static final String ADDRESS = "0x000000000000000000000000000000000000dEaD";
+
+    @Test
+    void identicalInFlightReadsShareOneCall() {
+        Web3jService delegate = mock(Web3jService.class);
+        List<CompletableFuture<Response<?>>> upstream = new ArrayList<>();
+        when(delegate.sendAsync(any(Request.class), any())).thenAnswer(inv -> {
+            CompletableFuture<Response<?>> f = new CompletableFuture<>();
+            upstream.add(f);
+            return f;
+        });
+        SingleFlightWeb3jService service = new SingleFlightWeb3jService("sepolia", delegate);
+        Web3j web3j = Web3j.build(service);
+
+        List<CompletableFuture<EthGetBalance>> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            calls.add(web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).sendAsync());
+        }
+        // Same address at a pinned block is a different key.
+        CompletableFuture<EthGetBalance> pinned =
+                web3j.ethGetBalance(ADDRESS, DefaultBlockParameter.valueOf(BigInteger.TEN)).sendAsync();
+
+        assertEquals(2, upstream.size());
+        assertEquals(4, service.getHits());
+        assertEquals(1, service.getMerges());
+
+        EthGetBalance balance = new EthGetBalance();
+        balance.setResult("0x2a");
+        upstream.get(0).complete(balance);
+        for (CompletableFuture<EthGetBalance> c : calls) {
+            assertEquals(BigInteger.valueOf(42), c.join().getBalance());
+        }
+        assertFalse(pinned.isDone());
+        assertEquals(1, service.getInFlightKeys());
+
+        // Once completed, the next identical call goes to the network again.
+        web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).sendAsync();
+        assertEquals(3, upstream.size());
+    }
+
+    @Test
+    void writesAreNeverMerged() {
+        Web3jService delegate = mock(Web3jService.class);
+        when(delegate.sendAsync(any(Request.class), any())).thenReturn(new CompletableFuture<>());
+        SingleFlightWeb3jService service = new SingleFlightWeb3jService("sepolia", delegate);
+        Web3j web3j = Web3j.build(service);
+
+        web3j.ethSendRawTransaction("0x01").sendAsync();
+        web3j.ethSendRawTransaction("0x01").sendAsync();
+
+        verify(delegate, times(2)).sendAsync(any(Request.class), any());
+        assertEquals(0, service.getHits());
+    }
+}
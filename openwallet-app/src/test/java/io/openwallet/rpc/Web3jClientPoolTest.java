@@ -0,0 +1,131 @@
+package io.openwallet.rpc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Web3jClientPoolTest {
+
+    @Test
+    void reusesOneClientPerNetwork() {
+        try (Web3jClientPool pool = new Web3jClientPool(this::client, 60_000)) {
+            RpcClient sepolia = pool.get("sepolia", List.of("http://127.0.0.1:1/"));
+            RpcClient base = pool.get("base-sepolia", List.of("http://127.0.0.1:2/"));
+
+            assertSame(sepolia, pool.get("sepolia", List.of("http://127.0.0.1:1/")));
+            assertNotSame(sepolia, base);
+
+            List<Web3jClientPool.ClientStats> stats = pool.stats();
+            assertEquals(2, stats.size());
+            assertTrue(stats.stream().noneMatch(Web3jClientPool.ClientStats::isActive));
+        }
+    }
+
+    @Test
+    void changedUrlRetiresOldClientAndIdleClientsAreEvicted() throws Exception {
+        try (Web3jClientPool pool = new Web3jClientPool(this::client, 1_000)) {
+            RpcClient first = pool.get("sepolia", List.of("http://127.0.0.1:1/"));
+            RpcClient second = pool.get("sepolia", List.of("http://127.0.0.1:3/"));
+            assertNotSame(first, second);
+            assertTrue(pool.stats().stream().anyMatch(Web3jClientPool.ClientStats::isRetiring));
+
+            Thread.sleep(1_100);
+            pool.evictIdle();
+            assertTrue(pool.stats().isEmpty());
+        }
+    }
+
+    @Test
+    void clientWithEventListenersIsNotEvicted() throws Exception {
+        try (Web3jClientPool pool = new Web3jClientPool((id, urls) -> client(id, urls, 60_000), 1_000)) {
+            RpcClient client = pool.get("sepolia", List.of("http://127.0.0.1:1/"));
+            client.openEventStream(null, 100, 1_000);
+            AutoCloseable heads = client.getEvents().onNewHead(head -> { });
+
+            Thread.sleep(1_100);
+            pool.evictIdle();
+            assertEquals(1, pool.stats().size());
+
+            heads.close();
+            heads.close();
+            assertEquals(0, client.getEvents().getSubscriberCount());
+            pool.evictIdle();
+            assertTrue(pool.stats().isEmpty());
+        }
+    }
+
+    @Test
+    void clientHandedOutWhileBeingEvictedIsNeverClosed() throws Exception {
+        CountDownLatch checking = new CountDownLatch(1);
+        AtomicBoolean pause = new AtomicBoolean();
+        AtomicLong age = new AtomicLong();
+        List<RpcClient> closed = new CopyOnWriteArrayList<>();
+        BiFunction<String, List<String>, RpcClient> factory = (id, urls) -> {
+            FailoverWeb3jService transport = transport(urls);
+            return new RpcClient(id, 11155111L, urls, transport, null, 10, 1, 0) {
+                @Override
+                public long getLastUsedMillis() {
+                    long lastUsed = super.getLastUsedMillis() - age.get();
+                    if (pause.compareAndSet(true, false)) {
+                        // The evictor has judged the client idle; let get() run before it acts on that.
+                        checking.countDown();
+                        sleep(300);
+                    }
+                    return lastUsed;
+                }
+
+                @Override
+                public void close() {
+                    closed.add(this);
+                    super.close();
+                }
+            };
+        };
+        // A long timeout keeps the pool's own eviction pass out of the way; the client is aged by hand instead.
+        try (Web3jClientPool pool = new Web3jClientPool(factory, 60_000)) {
+            pool.get("sepolia", List.of("http://127.0.0.1:1/"));
+            age.set(120_000);
+
+            pause.set(true);
+            Thread evictor = new Thread(pool::evictIdle);
+            evictor.start();
+            assertTrue(checking.await(5, TimeUnit.SECONDS));
+            RpcClient handedOut = pool.get("sepolia", List.of("http://127.0.0.1:1/"));
+            evictor.join();
+
+            assertFalse(closed.contains(handedOut));
+            assertEquals(1, pool.stats().size());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private RpcClient client(String networkId, List<String> urls) {
+        return client(networkId, urls, 0);
+    }
+
+    private RpcClient client(String networkId, List<String> urls, long headPollMillis) {
+        return new RpcClient(networkId, 11155111L, urls, transport(urls), null, 10, 1, headPollMillis);
+    }
+
+    private static FailoverWeb3jService transport(List<String> urls) {
+        List<RpcEndpoint> endpoints = urls.stream()
+                .map(url -> new RpcEndpoint(url, new BatchingHttpService(url, 10, 1), new EndpointStats(16)))
+                .toList();
+        return new FailoverWeb3jService(new EndpointSelector(endpoints), false, 100, 1_000);
+    }
+}
@@ -0,0 +1,60 @@
+package io.openwallet.service;
+
+import io.openwallet.crypto.HdKeyChain;
+import io.openwallet.model.WalletAccount;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountDiscoveryTest {
+
+    private static final String MNEMONIC =
+            "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon about";
+
+    @Test
+    void stopsAfterGapOfUnusedAddresses() {
+        HdKeyChain chain = HdKeyChain.fromMnemonic(MNEMONIC);
+        Set<String> used = Set.of(chain.deriveAddress(3), chain.deriveAddress(25));
+        AtomicInteger probes = new AtomicInteger();
+
+        AccountDiscovery discovery = new AccountDiscovery(address -> {
+            probes.incrementAndGet();
+            return CompletableFuture.completedFuture(used.contains(address));
+        }, 20, 10, 1000);
+
+        List<WalletAccount> accounts = discovery.discover(chain, 7);
+
+        assertEquals(26, accounts.size());
+        assertEquals(25, accounts.get(25).getAccountIndex());
+        assertTrue(accounts.get(3).isUsed());
+        assertFalse(accounts.get(4).isUsed());
+        assertEquals(7, accounts.get(0).getProfileId());
+        assertEquals("m/44'/60'/0'/0/25", accounts.get(25).getDerivationPath());
+        // Index 25 is used, so probing goes on to 45 and stops at the end of that batch.
+        assertEquals(50, probes.get());
+    }
+
+    @Test
+    void freshWalletKeepsAccountZeroAndHonoursMaxAccounts() {
+        HdKeyChain chain = HdKeyChain.fromMnemonic(MNEMONIC);
+        AtomicInteger probes = new AtomicInteger();
+
+        List<WalletAccount> fresh = new AccountDiscovery(address -> {
+            probes.incrementAndGet();
+            return CompletableFuture.completedFuture(false);
+        }, 20, 20, 1000).discover(chain, 1);
+
+        assertEquals(1, fresh.size());
+        assertFalse(fresh.get(0).isUsed());
+        assertEquals(20, probes.get());
+
+        List<WalletAccount> capped = new AccountDiscovery(address -> CompletableFuture.completedFuture(true), 20, 20, 30)
+                .discover(chain, 1);
+        assertEquals(30, capped.size());
+    }
+}
@@ -0,0 +1,72 @@
+package io.openwallet.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GasProfileStoreTest {
+
+    private static final String TOKEN = "0x1c7D4B196Cb0C7B01d743Fbc6116a902379C7238";
+    private static final String TRANSFER = "0xa9059cbb000000000000000000000000";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void learnsALimitPerSelectorAndFreshnessAndPersistsIt() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        Path file = dir.resolve("gas-profiles.json");
+        GasProfileStore store = new GasProfileStore(file, 95, 3, TimeUnit.HOURS.toMillis(1), now::get);
+        GasProfileStore.Key known = GasProfileStore.Key.of("sepolia", TOKEN, TRANSFER, false);
+        GasProfileStore.Key fresh = GasProfileStore.Key.of("sepolia", TOKEN, TRANSFER, true);
+
+        store.observe(known, BigInteger.valueOf(60_000), receipt("0x1", 34_000));
+        store.observe(known, BigInteger.valueOf(60_000), receipt("0x1", 35_000));
+        assertEquals(Optional.empty(), store.limitFor(known), "too few samples");
+
+        store.observe(known, BigInteger.valueOf(60_000), receipt("0x1", 36_000));
+        store.observe(fresh, BigInteger.valueOf(60_000), receipt("0x1", 52_000));
+        // 95th percentile of three samples is the largest, plus 10%.
+        assertEquals(Optional.of(BigInteger.valueOf(39_600)), store.limitFor(known));
+        assertEquals(Optional.empty(), store.limitFor(fresh));
+
+        GasProfileStore reloaded = new GasProfileStore(file, 95, 3, TimeUnit.HOURS.toMillis(1), now::get);
+        assertEquals(Optional.of(BigInteger.valueOf(39_600)),
+                reloaded.limitFor(new GasProfileStore.Key("sepolia", TOKEN.toLowerCase(), "0xA9059CBB", false)));
+
+        now.addAndGet(TimeUnit.HOURS.toMillis(2));
+        assertEquals(Optional.empty(), reloaded.limitFor(known), "stale profiles fall back to live estimation");
+        assertEquals(1, reloaded.getHits());
+        assertEquals(1, reloaded.getMisses());
+    }
+
+    @Test
+    void outOfGasDropsTheProfile() {
+        GasProfileStore store = new GasProfileStore(null, 95, 1, 0, System::currentTimeMillis);
+        GasProfileStore.Key key = GasProfileStore.Key.of("sepolia", TOKEN, TRANSFER, false);
+        store.observe(key, BigInteger.valueOf(60_000), receipt("0x1", 34_000));
+        BigInteger limit = store.limitFor(key).orElseThrow();
+
+        // A revert that did not use the whole limit says nothing about gas.
+        store.observe(key, limit, receipt("0x0", 30_000));
+        assertTrue(store.limitFor(key).isPresent());
+
+        store.observe(key, limit, receipt("0x0", limit.longValue()));
+        assertTrue(store.limitFor(key).isEmpty());
+    }
+
+    private static TransactionReceipt receipt(String status, long gasUsed) {
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setStatus(status);
+        receipt.setGasUsed("0x" + Long.toHexString(gasUsed));
+        return receipt;
+    }
+}
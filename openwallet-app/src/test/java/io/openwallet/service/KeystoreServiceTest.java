@@ -0,0 +1,148 @@
+package io.openwallet.service;
+
+import io.openwallet.crypto.CryptoUtil;
+import io.openwallet.crypto.KdfParams;
+import io.openwallet.db.WalletDao;
+import io.openwallet.exception.AuthenticationException;
+import io.openwallet.model.WalletProfile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Wallet;
+import org.web3j.crypto.WalletFile;
+import org.web3j.crypto.WalletUtils;
+import org.web3j.protocol.ObjectMapperFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class KeystoreServiceTest {
+
+    private static final KdfParams CHEAP_KDF = KdfParams.argon2id(1, 1024, 1);
+    private static final String PRIVATE_KEY = "4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318";
+
+    /** pbkdf2 test vector from the Web3 Secret Storage definition; the password is "testpassword". */
+    private static final String PBKDF2_KEYSTORE = "{\"crypto\":{\"cipher\":\"aes-128-ctr\","
+            + "\"cipherparams\":{\"iv\":\"6087dab2f9fdbbfaddc31a909735c1e6\"},"
+            + "\"ciphertext\":\"5318b4d5bcd28de64ee5559e671353e16f075ecae9f99c7a79a38af5f869aa46\","
+            + "\"kdf\":\"pbkdf2\",\"kdfparams\":{\"c\":262144,\"dklen\":32,\"prf\":\"hmac-sha256\","
+            + "\"salt\":\"ae3cd4e7013836a3df6bd7241b12db061dbe2c6785853cce422d148a624ce0bd\"},"
+            + "\"mac\":\"517ead924a9d0dc3124507e3393d175ce3ff7c1e96529c6c555ce9e51205e9b2\"},"
+            + "\"id\":\"3198bc9c-6672-5ab3-d995-4942343ae5b6\",\"version\":3}";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void exportsAndImportsScryptAndPbkdf2Keystores() throws Exception {
+        WalletDao dao = mock(WalletDao.class);
+        WalletProfile alice = new WalletProfile("alice", Credentials.create(PRIVATE_KEY).getAddress(),
+                CryptoUtil.encrypt(PRIVATE_KEY, "secret", CHEAP_KDF));
+        when(dao.findByProfileName("alice")).thenReturn(Optional.of(alice));
+        KeystoreService service = new KeystoreService(dao, () -> CHEAP_KDF, 2, 0, 10);
+
+        assertThrows(AuthenticationException.class,
+                () -> service.exportKeystore("alice", "wrong", "ks-pass", dir, true));
+        Path exported = service.exportKeystore("alice", "secret", "ks-pass", dir, true);
+        assertTrue(exported.getFileName().toString().endsWith("--" + alice.getWalletAddress().substring(2)));
+        assertEquals(alice.getWalletAddress(), WalletUtils.loadCredentials("ks-pass", exported.toFile()).getAddress());
+
+        WalletProfile bob = service.importKeystore("bob", exported, "ks-pass", "other");
+        assertEquals(alice.getWalletAddress(), bob.getWalletAddress());
+        assertEquals(PRIVATE_KEY, CryptoUtil.decrypt(bob.getEncryptedJson(), "other"));
+        verify(dao).save(bob);
+
+        Path pbkdf2 = Files.writeString(dir.resolve("pbkdf2.json"), PBKDF2_KEYSTORE);
+        assertThrows(AuthenticationException.class, () -> service.importKeystore("carol", pbkdf2, "nope", "other"));
+        WalletProfile carol = service.importKeystore("carol", pbkdf2, "testpassword", "other");
+        assertEquals("7a28b5ba57c53603b0b07b56bba752f7784bf506fa95edc395f5cf6c7514fe9d",
+                CryptoUtil.decrypt(carol.getEncryptedJson(), "other"));
+    }
+
+    @Test
+    void importsADirectoryInParallelWithinTheMemoryBudgetAndInBatches() throws Exception {
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            ECKeyPair keyPair = Keys.createEcKeyPair();
+            addresses.add("0x" + Keys.getAddress(keyPair));
+            write(dir.resolve("key-" + i + ".json"), Wallet.createLight("ks-pass", keyPair));
+        }
+        write(dir.resolve("other-password.json"), Wallet.createLight("different", Keys.createEcKeyPair()));
+        Files.writeString(dir.resolve("notes.txt"), "not a keystore");
+        ECKeyPair known = Keys.createEcKeyPair();
+        write(dir.resolve("known.json"), Wallet.createLight("ks-pass", known));
+
+        WalletDao dao = mock(WalletDao.class);
+        when(dao.getAll()).thenReturn(List.of(new WalletProfile("known", "0x" + Keys.getAddress(known), "{}")));
+        // A light scrypt keystore needs ~4 MB, so a 10 MB budget lets two of the four workers decrypt at once.
+        KeystoreService service = new KeystoreService(dao, () -> CHEAP_KDF, 4, 10L * 1024 * 1024, 5);
+
+        KeystoreService.ImportReport report = service.importDirectory(dir, "ks-pass", "secret");
+
+        assertEquals(12, report.getImported().size());
+        assertEquals(addresses.stream().sorted().collect(Collectors.toList()),
+                report.getImported().stream().map(WalletProfile::getWalletAddress).sorted().collect(Collectors.toList()));
+        assertEquals(List.of(dir.resolve("known.json")), report.getSkipped());
+        assertEquals("wrong password", report.getFailed().get(dir.resolve("other-password.json")));
+        assertTrue(report.getFailed().containsKey(dir.resolve("notes.txt")));
+        assertTrue(report.getPeakConcurrency() >= 1 && report.getPeakConcurrency() <= 2, "peak " + report.getPeakConcurrency());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<WalletProfile>> batches = ArgumentCaptor.forClass(List.class);
+        verify(dao, times(3)).saveAll(batches.capture());
+        assertEquals(List.of(5, 5, 2), batches.getAllValues().stream().map(List::size).collect(Collectors.toList()));
+        verify(dao, never()).save(any());
+
+        WalletProfile first = report.getImported().get(0);
+        assertTrue(first.getProfileName().startsWith("key-"));
+        assertEquals(first.getWalletAddress(), Credentials.create(CryptoUtil.decrypt(first.getEncryptedJson(), "secret")).getAddress());
+    }
+
+    @Test
+    void filesOfABatchThatCouldNotBeSavedAreReportedAsFailed() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            write(dir.resolve("key-" + i + ".json"), Wallet.createLight("ks-pass", Keys.createEcKeyPair()));
+        }
+        WalletDao dao = mock(WalletDao.class);
+        when(dao.getAll()).thenReturn(List.of());
+        doThrow(new SQLException("Duplicate entry")).doNothing().when(dao).saveAll(anyList());
+        KeystoreService service = new KeystoreService(dao, () -> CHEAP_KDF, 1, 0, 2);
+
+        KeystoreService.ImportReport report = service.importDirectory(dir, "ks-pass", "secret");
+
+        assertEquals(1, report.getImported().size());
+        assertEquals(2, report.getFailed().size());
+        assertTrue(report.getFailed().values().stream().allMatch(reason -> reason.contains("Duplicate entry")));
+        Path saved = dir.resolve(report.getImported().get(0).getProfileName() + ".json");
+        assertFalse(report.getFailed().containsKey(saved));
+    }
+
+    @Test
+    void scryptMemoryFollowsTheKeystoreParameters() throws Exception {
+        WalletFile light = Wallet.createLight("p", Keys.createEcKeyPair());
+        assertEquals(128L * 8 * (KeystoreService.LIGHT_SCRYPT_N + 6), KeystoreService.kdfMemory(light));
+
+        WalletFile standard = ObjectMapperFactory.getObjectMapper().readValue(ObjectMapperFactory.getObjectMapper()
+                .writeValueAsString(light).replace("\"n\":4096", "\"n\":262144").replace("\"p\":6", "\"p\":1"), WalletFile.class);
+        assertEquals(128L * 8 * (KeystoreService.STANDARD_SCRYPT_N + 1), KeystoreService.kdfMemory(standard));
+        assertTrue(KeystoreService.kdfMemory(standard) > 256L * 1000 * 1000);
+        assertEquals(1024L * 1024,
+                KeystoreService.kdfMemory(ObjectMapperFactory.getObjectMapper().readValue(PBKDF2_KEYSTORE, WalletFile.class)));
+    }
+
+    private static void write(Path file, WalletFile walletFile) throws Exception {
+        ObjectMapperFactory.getObjectMapper().writeValue(file.toFile(), walletFile);
+    }
+}
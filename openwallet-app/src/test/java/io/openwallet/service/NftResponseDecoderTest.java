@@ -0,0 +1,98 @@
+package io.openwallet.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NftResponseDecoderTest {
+
+    @Test
+    void ownedNftsKeepOnlyGalleryFields() throws Exception {
+        String json = "{\"ownedNfts\":["
+                + "{\"contract\":{\"address\":\"0xAbC\",\"name\":\"X\",\"openSeaMetadata\":{\"floorPrice\":1}},"
+                + "\"tokenId\":\"7\",\"name\":null,\"title\":\"Seven\",\"collection\":{\"name\":\"Col\"},"
+                + "\"raw\":{\"metadata\":{\"attributes\":[{\"a\":[1,2,{\"b\":3}]}]}},"
+                + "\"image\":{\"cachedUrl\":null,\"thumbnailUrl\":\"https://thumb\",\"originalUrl\":\"ipfs://x\"}},"
+                + "{\"tokenId\":\"8\",\"media\":[{\"gateway\":\"https://gw\",\"raw\":\"ipfs://y\"},{\"gateway\":\"https://second\"}]},"
+                + "null],\"totalCount\":2,\"pageKey\":\"next\"}";
+        List<NftResponseDecoder.OwnedNft> nfts = new ArrayList<>();
+
+        String pageKey = NftResponseDecoder.decodeOwnedNfts(stream(json), nfts::add);
+
+        assertEquals("next", pageKey);
+        assertEquals(2, nfts.size());
+        NftResponseDecoder.OwnedNft first = nfts.get(0);
+        assertEquals("0xAbC", first.contractAddress);
+        assertEquals("7", first.tokenId);
+        assertNull(first.name);
+        assertEquals("Seven", first.title);
+        assertEquals("Col", first.collectionName);
+        assertNull(first.cachedUrl);
+        assertEquals("https://thumb", first.thumbnailUrl);
+        assertEquals("ipfs://x", first.originalUrl);
+        assertEquals("https://gw", nfts.get(1).mediaGateway);
+        assertEquals("ipfs://y", nfts.get(1).mediaRaw);
+    }
+
+    @Test
+    void assetTransfersPreferErc721TokenIdAndStopOnError() throws Exception {
+        String json = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"transfers\":["
+                + "{\"tokenId\":\"0x1\",\"erc721TokenId\":\"0x2\",\"rawContract\":{\"value\":null,\"address\":\"0xC1\"}},"
+                + "{\"tokenId\":\"0x3\",\"rawContract\":{\"address\":\"0xC2\"},\"metadata\":{\"blockTimestamp\":\"t\"}},"
+                + "{\"tokenId\":\"0x4\"}"
+                + "],\"pageKey\":\"pk\"}}";
+        List<String> seen = new ArrayList<>();
+
+        assertEquals("pk", NftResponseDecoder.decodeAssetTransfers(stream(json), (c, id) -> seen.add(c + ":" + id)));
+        assertEquals(List.of("0xC1:0x2", "0xC2:0x3"), seen);
+
+        String error = "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-32601,\"message\":\"nope\"}}";
+        assertNull(NftResponseDecoder.decodeAssetTransfers(stream(error), (c, id) -> fail()));
+    }
+
+    @Test
+    void decodesLargeResponsesIncrementally() throws Exception {
+        int transfers = 200_000;
+        String transfer = "{\"rawContract\":{\"address\":\"0xC1\"},\"erc721TokenId\":\"0x1\","
+                + "\"metadata\":{\"padding\":\"" + "x".repeat(200) + "\"}}";
+        Enumeration<InputStream> parts = new Enumeration<>() {
+            int i = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return i <= transfers;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                i++;
+                if (i == 0) {
+                    return stream("{\"result\":{\"transfers\":[");
+                }
+                if (i > transfers) {
+                    return stream("]}}");
+                }
+                return stream(i == 1 ? transfer : "," + transfer);
+            }
+        };
+        AtomicInteger count = new AtomicInteger();
+
+        // ~50 MB of JSON generated on the fly; the decoder never needs it all at once.
+        NftResponseDecoder.decodeAssetTransfers(new SequenceInputStream(parts), (c, id) -> count.incrementAndGet());
+
+        assertEquals(transfers, count.get());
+    }
+
+    private static InputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
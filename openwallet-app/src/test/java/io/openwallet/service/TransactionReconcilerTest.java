@@ -0,0 +1,213 @@
+package io.openwallet.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.openwallet.rpc.FakeNode;
+import io.openwallet.db.TransactionLogDao;
+import io.openwallet.model.TransactionLog;
+import io.openwallet.rpc.BatchingHttpService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TransactionReconcilerTest {
+
+    private FakeNode node;
+
+    @AfterEach
+    void stop() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    void resolvesThousandsOfPendingRowsInBatches() throws Exception {
+        Web3j web3j = Web3j.build(new BatchingHttpService(startServer(), 50, 5));
+        NetworkManager networkManager = mock(NetworkManager.class);
+        when(networkManager.getActiveNetworkId()).thenReturn("sepolia");
+        when(networkManager.getWeb3j("sepolia")).thenReturn(web3j);
+
+        InMemoryLogs dao = new InMemoryLogs();
+        for (int i = 1; i <= 1200; i++) {
+            TransactionLog log = new TransactionLog("0xabc", hash(i), BigDecimal.ONE, "ETH", i == 7 ? "SUCCESS" : "PENDING");
+            log.setId(i);
+            log.setNetworkId(i % 2 == 0 ? "sepolia" : null);
+            log.setCreatedAt(LocalDateTime.now());
+            dao.rows.add(log);
+        }
+
+        TransactionReconciler reconciler = new TransactionReconciler(networkManager, dao, 500, 64, 60_000);
+        TransactionReconciler.Result result = reconciler.reconcileOnce();
+
+        // Every third hash has no receipt yet and stays PENDING.
+        assertEquals(1199, result.getScanned());
+        assertEquals(1199 - 400, result.getResolved());
+        assertEquals(3, dao.updateBatches.get());
+        assertTrue(node.posts() < 1199 / 4, "receipts should be fetched in JSON-RPC batches: " + node.posts());
+
+        TransactionLog ok = dao.byHash(hash(2));
+        assertEquals("SUCCESS", ok.getStatus());
+        assertEquals(102L, ok.getBlockNumber());
+        assertEquals(21000L, ok.getGasUsed());
+        assertEquals(BigInteger.valueOf(21000L * 2_000_000_000L), ok.getFeeWei());
+        assertEquals("FAILED", dao.byHash(hash(5)).getStatus());
+        assertEquals("PENDING", dao.byHash(hash(3)).getStatus());
+
+        reconciler.close();
+        web3j.shutdown();
+    }
+
+    @Test
+    void oldRowsTheNodeNoLongerKnowsAreMarkedDropped() throws Exception {
+        Web3j web3j = Web3j.build(new BatchingHttpService(startServer(), 50, 5));
+        NetworkManager networkManager = mock(NetworkManager.class);
+        when(networkManager.getActiveNetworkId()).thenReturn("sepolia");
+        when(networkManager.getWeb3j("sepolia")).thenReturn(web3j);
+
+        // All without receipts: 3 and 9 are old, 6 is still in the mempool, 12 is too young to drop.
+        InMemoryLogs dao = new InMemoryLogs();
+        for (int i : new int[] {3, 6, 9, 12}) {
+            TransactionLog log = new TransactionLog("0xabc", hash(i), BigDecimal.ONE, "ETH", "PENDING");
+            log.setId(i);
+            log.setNetworkId("sepolia");
+            log.setCreatedAt(LocalDateTime.now().minusMinutes(i == 12 ? 0 : 90));
+            dao.rows.add(log);
+        }
+
+        TransactionReconciler reconciler = new TransactionReconciler(networkManager, dao, 500, 64, 30 * 60_000L);
+        TransactionReconciler.Result result = reconciler.reconcileOnce();
+
+        assertEquals(2, result.getDropped());
+        assertEquals(2, result.getResolved());
+        assertEquals(TransactionReconciler.DROPPED, dao.byHash(hash(3)).getStatus());
+        assertEquals(TransactionReconciler.DROPPED, dao.byHash(hash(9)).getStatus());
+        assertEquals("PENDING", dao.byHash(hash(6)).getStatus());
+        assertEquals("PENDING", dao.byHash(hash(12)).getStatus());
+        // Young rows are not looked up at all.
+        assertEquals(3, node.methods().stream().flatMap(List::stream)
+                .filter("eth_getTransactionByHash"::equals).count());
+
+        reconciler.close();
+        web3j.shutdown();
+    }
+
+    @Test
+    void legacyRowsWithoutNetworkOrCreationTimeAreNeverDropped() throws Exception {
+        Web3j web3j = Web3j.build(new BatchingHttpService(startServer(), 50, 5));
+        NetworkManager networkManager = mock(NetworkManager.class);
+        when(networkManager.getActiveNetworkId()).thenReturn("sepolia");
+        when(networkManager.getWeb3j("sepolia")).thenReturn(web3j);
+
+        // 3 and 9 have no receipt on the active network and the node does not know them; 4 was mined there.
+        InMemoryLogs dao = new InMemoryLogs();
+        for (int i : new int[] {3, 4, 9}) {
+            TransactionLog log = new TransactionLog("0xabc", hash(i), BigDecimal.ONE, "ETH", "PENDING");
+            log.setId(i);
+            log.setNetworkId(i == 9 ? "sepolia" : null);
+            dao.rows.add(log);
+        }
+
+        TransactionReconciler reconciler = new TransactionReconciler(networkManager, dao, 500, 64, 60_000);
+        TransactionReconciler.Result result = reconciler.reconcileOnce();
+
+        assertEquals(0, result.getDropped());
+        assertEquals(1, result.getResolved());
+        assertEquals("SUCCESS", dao.byHash(hash(4)).getStatus());
+        assertEquals("PENDING", dao.byHash(hash(3)).getStatus());
+        assertEquals("PENDING", dao.byHash(hash(9)).getStatus());
+        assertTrue(node.methods().stream().flatMap(List::stream).noneMatch("eth_getTransactionByHash"::equals));
+
+        reconciler.close();
+        web3j.shutdown();
+    }
+
+    private String startServer() throws Exception {
+        node = FakeNode.start(this::answer);
+        return node.url();
+    }
+
+    private void answer(JsonNode call, ObjectNode out) {
+        String txHash = call.get("params").get(0).asText();
+        int i = new BigInteger(txHash.substring(2), 16).intValue();
+        if ("eth_getTransactionByHash".equals(call.get("method").asText())) {
+            if (i % 6 == 0) {
+                ObjectNode tx = out.putObject("result");
+                tx.put("hash", txHash);
+                tx.putNull("blockNumber");
+            } else {
+                out.putNull("result");
+            }
+            return;
+        }
+        if (i % 3 == 0) {
+            out.putNull("result");
+        } else {
+            ObjectNode receipt = out.putObject("result");
+            receipt.put("transactionHash", txHash);
+            receipt.put("blockNumber", "0x" + Integer.toHexString(100 + i));
+            receipt.put("gasUsed", "0x5208");
+            receipt.put("effectiveGasPrice", "0x77359400");
+            receipt.put("status", i % 5 == 0 ? "0x0" : "0x1");
+        }
+    }
+
+    private static String hash(int i) {
+        return String.format("0x%064x", i);
+    }
+
+    private static class InMemoryLogs implements TransactionLogDao {
+        final List<TransactionLog> rows = new ArrayList<>();
+        final AtomicInteger updateBatches = new AtomicInteger();
+
+        TransactionLog byHash(String txHash) {
+            return rows.stream().filter(r -> r.getTxHash().equals(txHash)).findFirst().orElseThrow();
+        }
+
+        @Override
+        public synchronized List<TransactionLog> findByStatus(String status, int afterId, int limit) {
+            return rows.stream()
+                    .filter(r -> status.equals(r.getStatus()) && r.getId() > afterId)
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public synchronized void updateReceipts(List<TransactionLog> logs) {
+            updateBatches.incrementAndGet();
+            Map<String, TransactionLog> byHash = new ConcurrentHashMap<>();
+            logs.forEach(l -> byHash.put(l.getTxHash(), l));
+            for (TransactionLog row : rows) {
+                TransactionLog update = byHash.get(row.getTxHash());
+                if (update != null) {
+                    row.setStatus(update.getStatus());
+                    row.setBlockNumber(update.getBlockNumber());
+                    row.setGasUsed(update.getGasUsed());
+                    row.setFeeWei(update.getFeeWei());
+                }
+            }
+        }
+
+        @Override public List<TransactionLog> findByWalletAddress(String walletAddress) { return rows; }
+        @Override public Optional<TransactionLog> get(int id) { return Optional.empty(); }
+        @Override public List<TransactionLog> getAll() { return rows; }
+        @Override public void save(TransactionLog log) { rows.add(log); }
+        @Override public synchronized void saveAll(List<TransactionLog> logs) { rows.addAll(logs); }
+        @Override public void update(TransactionLog log, String[] params) { }
+        @Override public void delete(TransactionLog log) { rows.remove(log); }
+    }
+}
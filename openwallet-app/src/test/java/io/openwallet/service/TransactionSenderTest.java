@@ -0,0 +1,209 @@
+package io.openwallet.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.openwallet.exception.OpenWalletException;
+import io.openwallet.metrics.RpcMetrics;
+import io.openwallet.rpc.BatchingHttpService;
+import io.openwallet.rpc.EndpointSelector;
+import io.openwallet.rpc.EndpointStats;
+import io.openwallet.rpc.FailoverWeb3jService;
+import io.openwallet.rpc.FakeNode;
+import io.openwallet.rpc.FeeOracle;
+import io.openwallet.rpc.NonceManager;
+import io.openwallet.rpc.RpcEndpoint;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.http.HttpService;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TransactionSenderTest {
+
+    private static final Credentials SENDER =
+            Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+    private static final String TOKEN = "0x1c7D4B196Cb0C7B01d743Fbc6116a902379C7238";
+    private static final long NODE_LATENCY_MS = 300;
+
+    private volatile boolean revert;
+    private FakeNode node;
+    private Web3j web3j;
+    private FeeOracle oracle;
+    private NetworkManager networkManager;
+    private RpcMetrics metrics;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        web3j = Web3j.build(new BatchingHttpService(startServer(), 50, 20));
+        oracle = new FeeOracle(() -> web3j, 60_000, 20);
+        metrics = new RpcMetrics();
+        NonceManager nonces = new NonceManager(() -> web3j.ethGetTransactionCount(SENDER.getAddress(),
+                DefaultBlockParameterName.PENDING).send().getTransactionCount());
+        networkManager = mock(NetworkManager.class);
+        when(networkManager.getWeb3j("sepolia")).thenReturn(web3j);
+        when(networkManager.getChainId("sepolia")).thenReturn(11155111L);
+        when(networkManager.getFeeOracle("sepolia")).thenReturn(oracle);
+        when(networkManager.getNonceManager(eq("sepolia"), anyString())).thenReturn(nonces);
+        when(networkManager.getMetrics()).thenReturn(metrics);
+    }
+
+    @AfterEach
+    void stop() {
+        oracle.close();
+        web3j.shutdown();
+        node.close();
+    }
+
+    @Test
+    void preparesFeeGasAndNonceConcurrentlyAndSimulatesWithTheGasLimit() throws Exception {
+        TransactionSender sender = new TransactionSender(networkManager);
+        // Load the HTTP and JSON stack first, so the timings below measure round trips rather than JVM warm-up.
+        web3j.ethBlockNumber().send();
+        int warmUp = node.posts();
+
+        TransactionSender.Sent sent = sender.sendPipelined(SENDER, "sepolia", TOKEN, BigInteger.ZERO, "0xa9059cbb",
+                () -> web3j.ethEstimateGas(Transaction.createFunctionCallTransaction(
+                        SENDER.getAddress(), null, null, null, TOKEN, BigInteger.ZERO, "0xa9059cbb")).send().getAmountUsed());
+
+        assertEquals(BigInteger.valueOf(9), sent.getNonce());
+        assertEquals(BigInteger.valueOf(51_000), sent.getGasLimit());
+        assertTrue(sent.getFee().isEip1559());
+        // Fee, gas and nonce lookups together, the dry run once the gas limit is known, then the broadcast.
+        List<List<String>> requests = node.methods().subList(warmUp, node.posts());
+        assertEquals(5, requests.size(), requests.toString());
+        assertEquals(List.of("eth_sendRawTransaction"), requests.get(4));
+        JsonNode simulation = node.bodies().stream()
+                .filter(b -> "eth_call".equals(b.path("method").asText()))
+                .findFirst().orElseThrow();
+        assertEquals("0xc738", simulation.get("params").get(0).get("gas").asText());
+
+        TransactionSender.Timings timings = sent.getTimings();
+        // One after another the four lookups would take at least 4 * NODE_LATENCY_MS; pipelined it is two round
+        // trips, gas and then the dry run.
+        assertTrue(timings.getPrepareMillis() >= 2 * NODE_LATENCY_MS, timings.toString());
+        assertTrue(timings.getPrepareMillis() < 3 * NODE_LATENCY_MS, timings.toString());
+        assertTrue(timings.getSimulateMillis() >= NODE_LATENCY_MS, timings.toString());
+        assertTrue(timings.getTotalMillis() >= timings.getPrepareMillis() + timings.getBroadcastMillis(), timings.toString());
+        assertEquals(1, metrics.get(RpcMetrics.SEND, "simulate").getCalls());
+        assertEquals(1, metrics.get(RpcMetrics.SEND, "broadcast").getCalls());
+    }
+
+    @Test
+    void revertingCallFailsBeforeSigningAndReturnsTheNonce() throws Exception {
+        revert = true;
+        TransactionSender sender = new TransactionSender(networkManager);
+
+        OpenWalletException e = assertThrows(OpenWalletException.class, () -> sender.sendPipelined(
+                SENDER, "sepolia", TOKEN, BigInteger.ZERO, "0xa9059cbb", () -> BigInteger.valueOf(60_000)));
+        assertTrue(e.getMessage().contains("transfer amount exceeds balance"), e.getMessage());
+        assertTrue(node.methods().stream().noneMatch(r -> r.contains("eth_sendRawTransaction")));
+
+        revert = false;
+        TransactionSender.Sent sent = sender.sendPipelined(
+                SENDER, "sepolia", TOKEN, BigInteger.ZERO, "0xa9059cbb", () -> BigInteger.valueOf(60_000));
+        assertEquals(BigInteger.valueOf(9), sent.getNonce());
+    }
+
+    @Test
+    void gasLimitCanBeComposedFromOtherLookups() throws Exception {
+        TransactionSender sender = new TransactionSender(networkManager);
+
+        // The limit depends on a read that is itself asynchronous; nothing blocks a pool thread waiting for it.
+        CompletableFuture<BigInteger> gas = web3j.ethGetTransactionCount(TOKEN, DefaultBlockParameterName.LATEST)
+                .sendAsync()
+                .thenApply(count -> BigInteger.valueOf(60_000).add(count.getTransactionCount()));
+        TransactionSender.Sent sent = sender.sendPipelined(SENDER, "sepolia", TOKEN, BigInteger.ZERO, "0xa9059cbb", gas);
+
+        assertEquals(BigInteger.valueOf(60_009), sent.getGasLimit());
+        assertTrue(sent.getTimings().getGasMillis() >= NODE_LATENCY_MS, sent.getTimings().toString());
+        assertEquals(1, metrics.get(RpcMetrics.SEND, "gas").getCalls());
+    }
+
+    @Test
+    void broadcastThatTimedOutAndFailedOverToAlreadyKnownCountsAsSent() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        try (FakeNode slow = FakeNode.start((call, out) -> {
+                 received.add(call.get("params").get(0).asText());
+                 out.put("result", Hash.sha3(call.get("params").get(0).asText()));
+             }).latency(2_000);
+             FakeNode second = FakeNode.start((call, out) -> FakeNode.error(out, -32000, "already known"))) {
+            OkHttpClient timingOut = HttpService.getOkHttpClientBuilder()
+                    .readTimeout(300, TimeUnit.MILLISECONDS)
+                    .retryOnConnectionFailure(false)
+                    .build();
+            FailoverWeb3jService failover = new FailoverWeb3jService(new EndpointSelector(List.of(
+                    new RpcEndpoint(slow.url(), new BatchingHttpService(slow.url(), timingOut, 1, 0), new EndpointStats(16)),
+                    new RpcEndpoint(second.url(), new BatchingHttpService(second.url(), timingOut, 1, 0), new EndpointStats(16)))),
+                    false, 50, 100);
+            Web3j failing = Web3j.build(failover);
+            // The node has not counted the transaction yet, so a re-sync alone would hand out nonce 9 again.
+            NonceManager nonces = new NonceManager(() -> BigInteger.valueOf(9));
+            when(networkManager.getWeb3j("mainnet")).thenReturn(failing);
+            when(networkManager.getChainId("mainnet")).thenReturn(1L);
+            when(networkManager.getNonceManager(eq("mainnet"), anyString())).thenReturn(nonces);
+            TransactionSender sender = new TransactionSender(networkManager);
+            FeeOracle.Quote fee = oracle.quote(FeeOracle.Speed.NORMAL);
+
+            String txHash = sender.send(SENDER, "mainnet", TOKEN, BigInteger.ONE, "", fee, BigInteger.valueOf(21_000));
+
+            assertEquals(1, received.size());
+            assertEquals(Hash.sha3(received.get(0)), txHash);
+            assertEquals(BigInteger.valueOf(9), TransactionDecoder.decode(received.get(0)).getNonce());
+            assertEquals(0, nonces.getReleases());
+
+            // Neither endpoint answering at all: the nonce is still held and the hash is still returned.
+            second.latency(2_000);
+            String unanswered = sender.send(SENDER, "mainnet", TOKEN, BigInteger.ONE, "", fee, BigInteger.valueOf(21_000));
+            assertEquals(2, received.size());
+            assertEquals(Hash.sha3(received.get(1)), unanswered);
+            assertEquals(BigInteger.TEN, TransactionDecoder.decode(received.get(1)).getNonce());
+            assertEquals(0, nonces.getReleases());
+            failing.shutdown();
+        }
+    }
+
+    private String startServer() throws Exception {
+        node = FakeNode.start(this::answer).latency(NODE_LATENCY_MS);
+        return node.url();
+    }
+
+    private void answer(JsonNode call, ObjectNode out) {
+        switch (call.get("method").asText()) {
+            case "eth_feeHistory" -> {
+                ObjectNode result = out.putObject("result");
+                result.put("oldestBlock", "0x64");
+                result.putArray("baseFeePerGas").add("0x3b9aca00").add("0x3b9aca00");
+                result.putArray("gasUsedRatio").add(0.5);
+                result.putArray("reward").addArray().add("0x3b9aca00").add("0x77359400").add("0xb2d05e00");
+            }
+            case "eth_getTransactionCount" -> out.put("result", "0x9");
+            case "eth_estimateGas" -> out.put("result", "0xc738");
+            case "eth_call" -> {
+                if (revert) {
+                    ObjectNode error = out.putObject("error");
+                    error.put("code", 3);
+                    error.put("message", "execution reverted: ERC20: transfer amount exceeds balance");
+                } else {
+                    out.put("result", "0x0000000000000000000000000000000000000000000000000000000000000001");
+                }
+            }
+            case "eth_sendRawTransaction" -> out.put("result", Hash.sha3(call.get("params").get(0).asText()));
+            default -> out.putNull("result");
+        }
+    }
+}
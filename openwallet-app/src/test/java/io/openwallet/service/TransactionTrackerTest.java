@@ -0,0 +1,78 @@
+package io.openwallet.service;
+
+import io.openwallet.db.TransactionLogDao;
+import io.openwallet.model.TransactionLog;
+import io.openwallet.rpc.ReceiptPoller;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class TransactionTrackerTest {
+
+    @Test
+    void slowDatabaseDoesNotHoldUpThePoller() throws Exception {
+        CountDownLatch database = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        List<String> rows = new CopyOnWriteArrayList<>();
+        TransactionLogDao dao = mock(TransactionLogDao.class);
+        doAnswer(inv -> {
+            database.await();
+            List<TransactionLog> logs = inv.getArgument(0);
+            if (logs.get(0).getTxHash().equals("0x01")) {
+                throw new SQLException("Lock wait timeout exceeded");
+            }
+            logs.forEach(l -> rows.add(l.getTxHash() + " " + l.getStatus()));
+            written.countDown();
+            return null;
+        }).when(dao).updateReceipts(anyList());
+
+        CompletableFuture<TransactionReceipt> first = new CompletableFuture<>();
+        CompletableFuture<TransactionReceipt> second = new CompletableFuture<>();
+        ReceiptPoller poller = mock(ReceiptPoller.class);
+        when(poller.awaitReceipt("0x01")).thenReturn(first);
+        when(poller.awaitReceipt("0x02")).thenReturn(second);
+        when(poller.awaitConfirmations(any(), anyInt())).thenReturn(new CompletableFuture<>());
+        NetworkManager networkManager = mock(NetworkManager.class);
+        when(networkManager.getReceiptPoller("sepolia")).thenReturn(poller);
+        TransactionTracker tracker = new TransactionTracker(networkManager, dao);
+
+        TransactionHandle a = tracker.track("sepolia", "0x01", 1);
+        TransactionHandle b = tracker.track("sepolia", "0x02", 1);
+        // The poller thread completes both receipts while the first row's write is stuck in the database.
+        Thread pollerThread = new Thread(() -> {
+            first.complete(receipt("0x01"));
+            second.complete(receipt("0x02"));
+        });
+        pollerThread.start();
+        pollerThread.join(2_000);
+
+        assertFalse(pollerThread.isAlive());
+        assertTrue(a.included().isDone());
+        assertTrue(b.included().isDone());
+
+        database.countDown();
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        // The failed write only loses that row's update; it stays PENDING for the reconciler.
+        assertEquals(List.of("0x02 SUCCESS"), rows);
+    }
+
+    private static TransactionReceipt receipt(String txHash) {
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setTransactionHash(txHash);
+        receipt.setStatus("0x1");
+        receipt.setBlockNumber("0xa");
+        return receipt;
+    }
+}
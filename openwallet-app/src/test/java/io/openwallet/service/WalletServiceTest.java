@@ -1,16 +1,36 @@
 package io.openwallet.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.openwallet.crypto.CryptoUtil;
+import io.openwallet.crypto.EncryptedData;
+import io.openwallet.crypto.KdfParams;
 import io.openwallet.db.TransactionLogDao;
 import io.openwallet.db.WalletDao;
+import io.openwallet.exception.AuthenticationException;
+import io.openwallet.model.WalletProfile;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.web3j.crypto.Credentials;
 import org.web3j.crypto.MnemonicUtils;
 
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class WalletServiceTest {
 
+    private static final String MNEMONIC =
+            "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon about";
+
     @Test
     void testGenerateMnemonic() {
         WalletDao mockDao = mock(WalletDao.class);
@@ -24,6 +44,88 @@ class WalletServiceTest {
         assertTrue(MnemonicUtils.validateMnemonic(mnemonic));
     }
 
+    @Test
+    void unlockedSessionSkipsTheKdfButStillChecksThePassword() throws Exception {
+        WalletDao mockDao = mock(WalletDao.class);
+        WalletService service = new WalletService(mockDao, mock(TransactionLogDao.class), mock(NetworkManager.class));
+        ArgumentCaptor<WalletProfile> saved = ArgumentCaptor.forClass(WalletProfile.class);
+
+        service.importWallet("alice", MNEMONIC, "secret");
+        verify(mockDao).save(saved.capture());
+        when(mockDao.findByProfileName("alice")).thenReturn(Optional.of(saved.getValue()));
+
+        assertThrows(AuthenticationException.class, () -> service.unlock("alice", "wrong"));
+        service.unlock("alice", "secret");
+
+        // Later sends reuse the session and never touch the KDF, but still need the password.
+        assertEquals("0x9858effd232b4033e47d90003d41ec34ecaeda94",
+                service.withCredentials("alice", "secret", Credentials::getAddress));
+        assertThrows(AuthenticationException.class, () -> service.withCredentials("alice", "wrong", Credentials::getAddress));
+        assertThrows(AuthenticationException.class, () -> service.withCredentials("alice", null, Credentials::getAddress));
+        assertTrue(service.isUnlocked("alice"));
+
+        char[] key = service.getPrivateKey("alice", "secret".toCharArray());
+        assertEquals(66, key.length);
+        assertEquals("0x9858effd232b4033e47d90003d41ec34ecaeda94", Credentials.create(new String(key)).getAddress());
+        assertThrows(AuthenticationException.class, () -> service.getPrivateKey("alice", "wrong".toCharArray()));
+
+        service.lock("alice");
+        assertThrows(AuthenticationException.class, () -> service.withCredentials("alice", "wrong", Credentials::getAddress));
+        assertEquals(saved.getValue().getWalletAddress(),
+                service.withCredentials("alice", "secret", Credentials::getAddress));
+    }
+
+    @Test
+    void unlockReEncryptsLegacyKeysOnceWithTheCurrentEnvelope() throws Exception {
+        String privateKey = "1ab42cc412b618bdea3a599e3c9bae199ebf030895b039e9db1e30dafb12b727";
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode legacy = (ObjectNode) mapper.readTree(CryptoUtil.encrypt(privateKey, "secret", KdfParams.legacyPbkdf2()));
+        legacy.remove(List.of("version", "cipher", "kdf", "iterations"));
+        WalletProfile profile = new WalletProfile("alice", "0x9858effd232b4033e47d90003d41ec34ecaeda94",
+                mapper.writeValueAsString(legacy));
+        profile.setId(7);
+
+        WalletDao mockDao = mock(WalletDao.class);
+        when(mockDao.findByProfileName("alice")).thenReturn(Optional.of(profile));
+        when(mockDao.replaceEncryptedJson(anyInt(), anyString(), anyString())).thenReturn(true);
+        WalletService service = new WalletService(mockDao, mock(TransactionLogDao.class), mock(NetworkManager.class));
+
+        service.unlock("alice", "secret");
+        assertEquals(profile.getWalletAddress(), service.withCredentials("alice", "secret", Credentials::getAddress));
+
+        ArgumentCaptor<String> upgraded = ArgumentCaptor.forClass(String.class);
+        verify(mockDao, timeout(10_000)).replaceEncryptedJson(eq(7), eq(profile.getEncryptedJson()), upgraded.capture());
+        EncryptedData data = mapper.readValue(upgraded.getValue(), EncryptedData.class);
+        assertEquals(EncryptedData.CURRENT_VERSION, data.getFormatVersion());
+        assertEquals(KdfParams.ARGON2ID, data.getKdf());
+        assertEquals(privateKey, CryptoUtil.decrypt(upgraded.getValue(), "secret"));
+
+        // Unlocking the upgraded key leaves it as it is.
+        profile.setEncryptedJson(upgraded.getValue());
+        service.lock("alice");
+        service.unlock("alice", "secret");
+        byte[] plain = privateKey.getBytes(StandardCharsets.UTF_8);
+        char[] password = "secret".toCharArray();
+        assertFalse(service.rehashIfOutdated(profile, plain, password).get());
+        // The buffers handed over are wiped either way.
+        assertArrayEquals(new byte[plain.length], plain);
+        assertArrayEquals(new char[password.length], password);
+        verify(mockDao, times(1)).replaceEncryptedJson(anyInt(), anyString(), anyString());
+    }
+
     // Note: Full integration test would require a real DB or in-memory DB.
     // For unit test, we mock the DAO.
+
+    @Test
+    void storedKeysAreZeroPaddedHexThatParsesBackToTheSameKey() throws Exception {
+        BigInteger small = new BigInteger("00ff", 16);
+        byte[] hex = WalletService.keyToHex(small);
+        assertEquals("00000000000000000000000000000000000000000000000000000000000000ff",
+                new String(hex, StandardCharsets.US_ASCII));
+        assertEquals(small, new BigInteger(1, WalletService.hexToKey(hex)));
+        // keys stored before padding have no leading zeros
+        assertEquals(small, new BigInteger(1, WalletService.hexToKey("ff".getBytes(StandardCharsets.US_ASCII))));
+        assertThrows(AuthenticationException.class,
+                () -> WalletService.hexToKey("zz".getBytes(StandardCharsets.US_ASCII)));
+    }
 }